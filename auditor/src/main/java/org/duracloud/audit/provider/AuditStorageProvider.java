@@ -12,6 +12,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.input.CountingInputStream;
 import org.duracloud.audit.logger.ReadLogger;
 import org.duracloud.audit.logger.WriteLogger;
 import org.duracloud.audit.task.AuditTask;
@@ -22,18 +23,29 @@ import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.util.UserUtil;
 import org.duracloud.storage.domain.RetrievedContent;
 import org.duracloud.storage.domain.StorageProviderType;
+import org.duracloud.storage.error.NotFoundException;
+import org.duracloud.storage.provider.SpaceStatsTracker;
 import org.duracloud.storage.provider.StorageProvider;
+import org.duracloud.storage.provider.StorageProviderBase;
 
 /**
  * A StorageProvider decorator class which passes through calls from a target
  * StorageProvider implementation, but captures audit information when
- * changes occur and passes that information to the audit system.
+ * changes occur and passes that information to the audit system. Where the
+ * target maintains space totals, changes to content are also reported to it.
+ * Before an item is added or copied into a space with totals, the size of
+ * any item it replaces is retrieved, so that a replaced item changes the
+ * total size but not the count. Where a size cannot be determined, the
+ * space is reconciled rather than its totals estimated.
  *
  * @author Bill Branan
  * Date: 3/14/14
  */
 public class AuditStorageProvider implements StorageProvider {
 
+    private static final long NO_ITEM = -1;
+    private static final long UNKNOWN_SIZE = -2;
+
     private StorageProvider target;
     private String account;
     private String storeId;
@@ -124,6 +136,66 @@ public class AuditStorageProvider implements StorageProvider {
         readLogger.log(task.writeTask());
     }
 
+    /*
+     * Retrieves the tracker of space totals from the target, if the target
+     * maintains totals for the given space
+     */
+    private SpaceStatsTracker getStatsTracker(String spaceId) {
+        if (target instanceof StorageProviderBase) {
+            SpaceStatsTracker tracker =
+                ((StorageProviderBase) target).getSpaceStatsTracker();
+            if (null != tracker && tracker.isTracked(spaceId)) {
+                return tracker;
+            }
+        }
+        return null;
+    }
+
+    private long parseSize(String size) {
+        try {
+            return null == size ? 0 : Long.parseLong(size);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /*
+     * Retrieves the size of a content item which is about to be replaced.
+     * Returns NO_ITEM if the item does not exist, or UNKNOWN_SIZE if its
+     * size cannot be determined.
+     */
+    private long getExistingSize(String spaceId, String contentId) {
+        try {
+            Map<String, String> props =
+                target.getContentProperties(spaceId, contentId);
+            String size = null == props ? null :
+                          props.get(StorageProvider.PROPERTIES_CONTENT_SIZE);
+            return null == size ? UNKNOWN_SIZE : Long.parseLong(size);
+        } catch (NotFoundException e) {
+            return NO_ITEM;
+        } catch (RuntimeException e) {
+            return UNKNOWN_SIZE;
+        }
+    }
+
+    /*
+     * Reports a content item which was added or copied to the tracker of
+     * space totals, as a new item or as the replacement of an existing item
+     */
+    private void trackWrite(SpaceStatsTracker tracker,
+                            String spaceId,
+                            String contentId,
+                            long existingSize,
+                            long size) {
+        if (UNKNOWN_SIZE == existingSize || UNKNOWN_SIZE == size) {
+            tracker.reconcileNeeded(spaceId);
+        } else if (NO_ITEM == existingSize) {
+            tracker.contentChanged(spaceId, contentId, 1, size);
+        } else {
+            tracker.contentChanged(spaceId, contentId, 0, size - existingSize);
+        }
+    }
+
     private String getUserId() {
         try {
             return userUtil.getCurrentUsername();
@@ -226,6 +298,14 @@ public class AuditStorageProvider implements StorageProvider {
     public void createSpace(String spaceId) {
         target.createSpace(spaceId);
 
+        if (target instanceof StorageProviderBase) {
+            SpaceStatsTracker tracker =
+                ((StorageProviderBase) target).getSpaceStatsTracker();
+            if (null != tracker) {
+                tracker.spaceCreated(spaceId);
+            }
+        }
+
         String action = AuditTask.ActionType.CREATE_SPACE.name();
         submitWriteTask(action, spaceId, AuditTask.NA, AuditTask.NA,
                         AuditTask.NA, AuditTask.NA, null, null, AuditTask.NA,
@@ -267,10 +347,28 @@ public class AuditStorageProvider implements StorageProvider {
                              long contentSize,
                              String contentChecksum,
                              InputStream content) {
+        SpaceStatsTracker tracker = getStatsTracker(spaceId);
+        long existingSize = NO_ITEM;
+        CountingInputStream countingContent = null;
+        if (null != tracker) {
+            existingSize = getExistingSize(spaceId, contentId);
+            if (contentSize < 0 && null != content) {
+                // The size is taken from the content as the target reads it
+                countingContent = new CountingInputStream(content);
+                content = countingContent;
+            }
+        }
+
         contentChecksum = target.addContent(spaceId, contentId, contentMimeType,
                                             userProperties, contentSize,
                                             contentChecksum, content);
 
+        if (null != tracker) {
+            long size = null == countingContent ? Math.max(0, contentSize) :
+                        countingContent.getByteCount();
+            trackWrite(tracker, spaceId, contentId, existingSize, size);
+        }
+
         String action = AuditTask.ActionType.ADD_CONTENT.name();
         submitWriteTask(action, spaceId, contentId, contentChecksum,
                         contentMimeType, String.valueOf(contentSize),
@@ -281,6 +379,9 @@ public class AuditStorageProvider implements StorageProvider {
     @Override
     public String copyContent(String sourceSpaceId, String sourceContentId,
                               String destSpaceId, String destContentId) {
+        SpaceStatsTracker tracker = getStatsTracker(destSpaceId);
+        long existingSize = null == tracker ? NO_ITEM :
+                            getExistingSize(destSpaceId, destContentId);
         String contentChecksum =
             target.copyContent(sourceSpaceId, sourceContentId,
                                destSpaceId, destContentId);
@@ -288,6 +389,15 @@ public class AuditStorageProvider implements StorageProvider {
         Map<String, String> props = target.getContentProperties(sourceSpaceId, sourceContentId);
         String contentMimetype = props.get(StorageProvider.PROPERTIES_CONTENT_MIMETYPE);
         String contentSize = props.get(StorageProvider.PROPERTIES_CONTENT_SIZE);
+        if (null != tracker) {
+            long size;
+            try {
+                size = Long.parseLong(contentSize);
+            } catch (NumberFormatException e) {
+                size = UNKNOWN_SIZE;
+            }
+            trackWrite(tracker, destSpaceId, destContentId, existingSize, size);
+        }
         String action = AuditTask.ActionType.COPY_CONTENT.name();
         submitWriteTask(action, destSpaceId, destContentId, contentChecksum,
                         contentMimetype, contentSize, props, null, sourceSpaceId,
@@ -303,6 +413,12 @@ public class AuditStorageProvider implements StorageProvider {
         String contentSize = props.get(StorageProvider.PROPERTIES_CONTENT_SIZE);
         String contentChecksum = props.get(StorageProvider.PROPERTIES_CONTENT_CHECKSUM);
         target.deleteContent(spaceId, contentId);
+
+        SpaceStatsTracker tracker = getStatsTracker(spaceId);
+        if (null != tracker) {
+            tracker.contentChanged(spaceId, contentId, -1, -parseSize(contentSize));
+        }
+
         String action = AuditTask.ActionType.DELETE_CONTENT.name();
         submitWriteTask(action, spaceId, contentId, contentChecksum, contentMimetype,
                         contentSize, null, null, AuditTask.NA, AuditTask.NA);
@@ -8,11 +8,11 @@
 package org.duracloud.audit.reader.impl;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.OutputStream;
 import java.text.MessageFormat;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -27,6 +27,7 @@ import org.duracloud.audit.AuditLogUtil;
 import org.duracloud.audit.reader.AuditLogReader;
 import org.duracloud.audit.reader.AuditLogReaderException;
 import org.duracloud.audit.reader.AuditLogReaderNotEnabledException;
+import org.duracloud.common.stream.ProducerInputStream;
 import org.duracloud.common.util.DuracloudConfigBean;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.s3storage.S3StorageProvider;
@@ -72,55 +73,39 @@ public class AuditLogReaderImpl implements AuditLogReader {
         final String auditBucket = auditConfig.getAuditLogSpaceId();
 
         String prefix = MessageFormat.format("{0}/{1}/{2}/", account, storeId, spaceId);
-        final PipedInputStream is = new PipedInputStream(10 * 1024);
-        final PipedOutputStream os;
-        try {
-            os = new PipedOutputStream(is);
-        } catch (IOException e) {
-            throw new AuditLogReaderException(e);
-        }
-
         try {
             final Iterator<String> it =
                 this.storageProvider.getSpaceContents(auditBucket, prefix);
             if (!it.hasNext()) {
-                os.write((AuditLogUtil.getHeader() + "\n").getBytes());
-                os.close();
+                return new ByteArrayInputStream((AuditLogUtil.getHeader() + "\n").getBytes());
             }
 
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        int count = 0;
-
-                        while (it.hasNext()) {
-                            String contentId = it.next();
-                            writeToOutputStream(auditBucket,
-                                                storageProvider,
-                                                os,
-                                                count,
-                                                contentId);
-
-                            count++;
-                        }
-
-                        os.close();
-
-                    } catch (ContentStoreException | IOException ex) {
-                        log.error(MessageFormat.format("failed to complete audit log read routine " +
-                                                       "for space: storeId={0}, spaceId={1}",
-                                                       storeId,
-                                                       spaceId),
-                                  ex);
+            return ProducerInputStream.start(os -> {
+                try {
+                    int count = 0;
+
+                    while (it.hasNext()) {
+                        String contentId = it.next();
+                        writeToOutputStream(auditBucket,
+                                            storageProvider,
+                                            os,
+                                            count,
+                                            contentId);
+
+                        count++;
                     }
+                } catch (ContentStoreException | IOException | RuntimeException ex) {
+                    log.error(MessageFormat.format("failed to complete audit log read routine " +
+                                                   "for space: storeId={0}, spaceId={1}",
+                                                   storeId,
+                                                   spaceId),
+                              ex);
+                    throw ex;
                 }
-            }).start();
-        } catch (StorageException | IOException e) {
+            });
+        } catch (StorageException e) {
             throw new AuditLogReaderException(e);
         }
-
-        return is;
     }
 
     private void checkEnabled() throws AuditLogReaderNotEnabledException {
@@ -147,7 +132,7 @@ public class AuditLogReaderImpl implements AuditLogReader {
 
     protected void writeToOutputStream(String auditSpaceId,
                                        StorageProvider storageProvider,
-                                       final PipedOutputStream os,
+                                       final OutputStream os,
                                        int count,
                                        String contentId)
         throws ContentStoreException,
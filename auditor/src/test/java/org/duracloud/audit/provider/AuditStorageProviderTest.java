@@ -11,10 +11,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.duracloud.audit.logger.ReadLogger;
 import org.duracloud.audit.logger.WriteLogger;
 import org.duracloud.audit.task.AuditTask;
@@ -23,7 +27,10 @@ import org.duracloud.common.queue.TaskQueue;
 import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.util.UserUtil;
 import org.duracloud.storage.domain.StorageProviderType;
+import org.duracloud.storage.error.NotFoundException;
+import org.duracloud.storage.provider.SpaceStatsTracker;
 import org.duracloud.storage.provider.StorageProvider;
+import org.duracloud.storage.provider.StorageProviderBase;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.easymock.EasyMockRunner;
@@ -338,6 +345,107 @@ public class AuditStorageProviderTest extends EasyMockSupport {
         assertTrue(contentPropsProp.contains(propValue));
     }
 
+    @Test
+    public void testAddContentTracked() throws Exception {
+        mockAuditCall();
+        mockWriteLogCall();
+
+        StorageProviderBase targetBase = createMock(StorageProviderBase.class);
+        SpaceStatsTracker tracker = new SpaceStatsTracker((spaceId, r) -> { }, 60);
+        tracker.spaceCreated(spaceId);
+        EasyMock.expect(targetBase.getSpaceStatsTracker())
+                .andReturn(tracker).anyTimes();
+
+        EasyMock.expect(targetBase.getContentProperties(spaceId, contentId))
+                .andThrow(new NotFoundException("not found"));
+        EasyMock.expect(
+            targetBase.addContent(spaceId, contentId, contentMimeType, null,
+                                  25, contentChecksum, null))
+                .andReturn(contentChecksum);
+        replayAll();
+
+        provider = new AuditStorageProvider(targetBase, account, storeId,
+                                            storeType, userUtil, taskQueue);
+        provider.setLoggers(readLogger, writeLogger);
+        provider.addContent(spaceId, contentId, contentMimeType, null,
+                            25, contentChecksum, null);
+
+        SpaceStatsTracker.SpaceStats stats = tracker.getStats(spaceId);
+        assertEquals(1, stats.getCount());
+        assertEquals(25, stats.getSize());
+    }
+
+    @Test
+    public void testAddContentTrackedReplace() throws Exception {
+        mockAuditCall();
+        mockWriteLogCall();
+
+        StorageProviderBase targetBase = createMock(StorageProviderBase.class);
+        SpaceStatsTracker tracker = new SpaceStatsTracker((spaceId, r) -> { }, 60);
+        tracker.spaceCreated(spaceId);
+        tracker.contentChanged(spaceId, contentId, 1, 10);
+        EasyMock.expect(targetBase.getSpaceStatsTracker())
+                .andReturn(tracker).anyTimes();
+
+        // The replaced item changes the size but not the count
+        Map<String, String> props = new HashMap<>();
+        props.put(StorageProvider.PROPERTIES_CONTENT_SIZE, "10");
+        EasyMock.expect(targetBase.getContentProperties(spaceId, contentId))
+                .andReturn(props);
+        EasyMock.expect(
+            targetBase.addContent(spaceId, contentId, contentMimeType, null,
+                                  25, contentChecksum, null))
+                .andReturn(contentChecksum);
+        replayAll();
+
+        provider = new AuditStorageProvider(targetBase, account, storeId,
+                                            storeType, userUtil, taskQueue);
+        provider.setLoggers(readLogger, writeLogger);
+        provider.addContent(spaceId, contentId, contentMimeType, null,
+                            25, contentChecksum, null);
+
+        SpaceStatsTracker.SpaceStats stats = tracker.getStats(spaceId);
+        assertEquals(1, stats.getCount());
+        assertEquals(25, stats.getSize());
+    }
+
+    @Test
+    public void testAddContentTrackedUnknownSize() throws Exception {
+        mockAuditCall();
+        mockWriteLogCall();
+
+        StorageProviderBase targetBase = createMock(StorageProviderBase.class);
+        SpaceStatsTracker tracker = new SpaceStatsTracker((spaceId, r) -> { }, 60);
+        tracker.spaceCreated(spaceId);
+        EasyMock.expect(targetBase.getSpaceStatsTracker())
+                .andReturn(tracker).anyTimes();
+
+        EasyMock.expect(targetBase.getContentProperties(spaceId, contentId))
+                .andThrow(new NotFoundException("not found"));
+        // The size is counted as the target reads the content
+        EasyMock.expect(
+            targetBase.addContent(EasyMock.eq(spaceId), EasyMock.eq(contentId),
+                                  EasyMock.eq(contentMimeType), EasyMock.isNull(),
+                                  EasyMock.eq(-1L), EasyMock.eq(contentChecksum),
+                                  EasyMock.isA(InputStream.class)))
+                .andAnswer(() -> {
+                    InputStream content = (InputStream) EasyMock.getCurrentArguments()[6];
+                    IOUtils.copy(content, new NullOutputStream());
+                    return contentChecksum;
+                });
+        replayAll();
+
+        provider = new AuditStorageProvider(targetBase, account, storeId,
+                                            storeType, userUtil, taskQueue);
+        provider.setLoggers(readLogger, writeLogger);
+        provider.addContent(spaceId, contentId, contentMimeType, null, -1,
+                            contentChecksum, new ByteArrayInputStream(new byte[40]));
+
+        SpaceStatsTracker.SpaceStats stats = tracker.getStats(spaceId);
+        assertEquals(1, stats.getCount());
+        assertEquals(40, stats.getSize());
+    }
+
     @Test
     public void testCopyContent() throws Exception {
         Capture<Task> auditTaskCapture = mockAuditCall();
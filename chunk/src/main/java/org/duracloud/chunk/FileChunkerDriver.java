@@ -33,6 +33,7 @@ import org.apache.commons.io.filefilter.OrFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.io.input.AutoCloseInputStream;
 import org.duracloud.chunk.error.NotFoundException;
+import org.duracloud.chunk.writer.ChunkBufferBudget;
 import org.duracloud.chunk.writer.ContentWriter;
 import org.duracloud.chunk.writer.DuracloudContentWriter;
 import org.duracloud.chunk.writer.FilesystemContentWriter;
@@ -175,6 +176,34 @@ public class FileChunkerDriver {
                                              "specified in the 'add' " +
                                              "option will be ignored.");
 
+        Option uploadThreads = new Option("t",
+                                          "upload-threads",
+                                          true,
+                                          "number of chunks of a file " +
+                                          "uploaded at once to the cloud " +
+                                          "store, default: " +
+                                          DuracloudContentWriter.DEFAULT_UPLOAD_THREADS);
+        uploadThreads.setArgs(1);
+        uploadThreads.setArgName("n");
+
+        Option memoryBuffer = new Option("m",
+                                         "memory-buffer",
+                                         true,
+                                         "memory used to hold chunks " +
+                                         "awaiting upload to the cloud " +
+                                         "store, in units of K,M,G");
+        memoryBuffer.setArgs(1);
+        memoryBuffer.setArgName("s{K|M|G}");
+
+        Option diskBuffer = new Option("b",
+                                       "disk-buffer",
+                                       true,
+                                       "temp file space used to hold " +
+                                       "chunks awaiting upload to the cloud " +
+                                       "store, in units of K,M,G");
+        diskBuffer.setArgs(1);
+        diskBuffer.setArgName("s{K|M|G}");
+
         Options options = new Options();
         options.addOption(username);
         options.addOption(password);
@@ -185,6 +214,9 @@ public class FileChunkerDriver {
         options.addOption(cloud);
         options.addOption(excludeChunkMD5s);
         options.addOption(ignoreLargeFiles);
+        options.addOption(uploadThreads);
+        options.addOption(memoryBuffer);
+        options.addOption(diskBuffer);
 
         return options;
     }
@@ -245,8 +277,25 @@ public class FileChunkerDriver {
                 mgr.login(credential);
             }
 
-            writer = new DuracloudContentWriter(mgr.getPrimaryContentStore(),
-                                                username);
+            DuracloudContentWriter duracloudWriter =
+                new DuracloudContentWriter(mgr.getPrimaryContentStore(), username);
+            if (cmd.hasOption("upload-threads")) {
+                duracloudWriter.setUploadThreads(
+                    Integer.parseInt(cmd.getOptionValue("upload-threads")));
+            }
+            if (cmd.hasOption("memory-buffer") || cmd.hasOption("disk-buffer")) {
+                long memoryBytes = ChunkBufferBudget.DEFAULT_MEMORY_BYTES;
+                if (cmd.hasOption("memory-buffer")) {
+                    memoryBytes = getChunkSize(cmd.getOptionValue("memory-buffer"));
+                }
+                long diskBytes = ChunkBufferBudget.DEFAULT_DISK_BYTES;
+                if (cmd.hasOption("disk-buffer")) {
+                    diskBytes = getChunkSize(cmd.getOptionValue("disk-buffer"));
+                }
+                duracloudWriter.setBufferBudget(
+                    new ChunkBufferBudget(memoryBytes, diskBytes));
+            }
+            writer = duracloudWriter;
         } else {
             writer = new FilesystemContentWriter();
         }
@@ -0,0 +1,94 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.chunk.writer;
+
+/**
+ * Limits the space used to buffer chunks awaiting upload, in memory and in
+ * temp files. A single budget is intended to be shared by all of the
+ * content writers in a process, so that the space used does not grow with
+ * the number of files being transferred at once.
+ *
+ * Memory is used only when available; a chunk which does not fit is buffered
+ * on disk instead. Disk space is waited for, except that a chunk larger than
+ * the whole disk budget is allowed once no other chunk is buffered on disk.
+ *
+ * This class is thread-safe.
+ */
+public class ChunkBufferBudget {
+
+    public static final long DEFAULT_MEMORY_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_DISK_BYTES = 4L * 1024 * 1024 * 1024;
+
+    private final long memoryBytes;
+    private final long diskBytes;
+    private long memoryInUse = 0;
+    private long diskInUse = 0;
+
+    /**
+     * Creates a budget with the default limits.
+     */
+    public ChunkBufferBudget() {
+        this(DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES);
+    }
+
+    /**
+     * @param memoryBytes maximum number of bytes of chunk content held in
+     *                    memory at once
+     * @param diskBytes   maximum number of bytes of chunk content held in
+     *                    temp files at once
+     */
+    public ChunkBufferBudget(long memoryBytes, long diskBytes) {
+        this.memoryBytes = Math.max(0, memoryBytes);
+        this.diskBytes = Math.max(0, diskBytes);
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Reserves memory if it is available.
+     *
+     * @param size number of bytes to reserve
+     * @return true if the memory was reserved
+     */
+    public synchronized boolean tryReserveMemory(long size) {
+        if (size <= Integer.MAX_VALUE - 8 && memoryInUse + size <= memoryBytes) {
+            memoryInUse += size;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void releaseMemory(long size) {
+        memoryInUse -= size;
+    }
+
+    /**
+     * Reserves disk space, waiting until it is available.
+     *
+     * @param size number of bytes to reserve
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void reserveDisk(long size) throws InterruptedException {
+        while (diskInUse > 0 && diskInUse + size > diskBytes) {
+            wait();
+        }
+        diskInUse += size;
+    }
+
+    public synchronized void releaseDisk(long size) {
+        diskInUse -= size;
+        notifyAll();
+    }
+
+}
@@ -7,19 +7,29 @@
  */
 package org.duracloud.chunk.writer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.duracloud.chunk.ChunkableContent;
 import org.duracloud.chunk.error.ContentNotAddedException;
 import org.duracloud.chunk.error.NotFoundException;
@@ -32,7 +42,6 @@ import org.duracloud.common.error.DuraCloudRuntimeException;
 import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
 import org.duracloud.common.util.ChecksumUtil;
-import org.duracloud.common.util.IOUtil;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.storage.provider.StorageProvider;
 import org.slf4j.Logger;
@@ -43,6 +52,14 @@ import org.slf4j.LoggerFactory;
  * content to the Duracloud storeclient interface. Warning: this class is NOT
  * thread-safe.
  *
+ * Chunks are read from the source content in order, with the checksum of each
+ * chunk computed as it is buffered (in memory when it fits within the memory
+ * available in the buffer budget, on disk otherwise). Up to uploadThreads
+ * buffered chunks are uploaded at once, which also bounds the number of
+ * chunks buffered by a writer at any time. Unless a budget is set, all
+ * writers share a single budget with the default limits, so that the memory
+ * and temp-file space used does not grow with the number of writers.
+ *
  * @author Andrew Woods
  * Date: Feb 5, 2010
  */
@@ -52,8 +69,9 @@ public class DuracloudContentWriter implements ContentWriter {
 
     private ContentStore contentStore;
     private String username;
-    private Set<String> existingSpaces = new HashSet<String>();
-    private List<AddContentResult> results = new ArrayList<AddContentResult>();
+    private Set<String> existingSpaces = ConcurrentHashMap.newKeySet();
+    private List<AddContentResult> results =
+        Collections.synchronizedList(new ArrayList<AddContentResult>());
     private ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
 
     // if true, skip writing results and throw exception when errors occur
@@ -68,6 +86,22 @@ public class DuracloudContentWriter implements ContentWriter {
     private int maxRetries = DEFAULT_MAX_RETRIES;
     private int waitInMsBetweenRetries = DEFAULT_MAX_RETRIES;
 
+    public static final int DEFAULT_UPLOAD_THREADS = 4;
+
+    private static final ChunkBufferBudget SHARED_BUFFER_BUDGET =
+        new ChunkBufferBudget();
+
+    // Uploads of each writer are limited to its uploadThreads by a semaphore
+    private static final ExecutorService UPLOAD_EXECUTOR =
+        Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "chunk-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private int uploadThreads = DEFAULT_UPLOAD_THREADS;
+    private ChunkBufferBudget bufferBudget = SHARED_BUFFER_BUDGET;
+
     public DuracloudContentWriter(ContentStore contentStore, String username) {
         this(contentStore,
              username,
@@ -116,6 +150,23 @@ public class DuracloudContentWriter implements ContentWriter {
         return results;
     }
 
+    /**
+     * @param uploadThreads maximum number of chunks uploaded at once. A value
+     *                      of 1 uploads each chunk before the next is read.
+     */
+    public void setUploadThreads(int uploadThreads) {
+        this.uploadThreads = Math.max(1, uploadThreads);
+    }
+
+    /**
+     * @param bufferBudget limits on the memory and temp-file space used to
+     *                     hold chunks awaiting upload, which should be shared
+     *                     by all writers
+     */
+    public void setBufferBudget(ChunkBufferBudget bufferBudget) {
+        this.bufferBudget = bufferBudget;
+    }
+
     public void ignore(String spaceId, String contentId, long contentSize) {
         AddContentResult result = new AddContentResult(spaceId,
                                                        contentId,
@@ -147,15 +198,45 @@ public class DuracloudContentWriter implements ContentWriter {
         throws NotFoundException {
         log.debug("write: " + spaceId);
         createSpaceIfNotExist(spaceId);
-        boolean errorsExist = false;
         results.clear();
+
+        Semaphore uploadPermits = new Semaphore(uploadThreads);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
         for (ChunkInputStream chunk : chunkable) {
-            writeChunk(spaceId, chunk);
-            if (errorsExist = errorsExist()) {
+            // Waits for an upload to complete if the maximum are in progress
+            acquire(uploadPermits, 1);
+            if (null != failure.get() || errorsExist()) {
+                uploadPermits.release();
                 break;
             }
+
+            BufferedChunk bufferedChunk = null;
+            boolean handedOff = false;
+            try {
+                bufferedChunk = bufferChunk(chunk);
+                UPLOAD_EXECUTOR.execute(uploadTask(spaceId,
+                                                   bufferedChunk,
+                                                   uploadPermits,
+                                                   failure));
+                handedOff = true;
+            } finally {
+                if (!handedOff) {
+                    if (null != bufferedChunk) {
+                        release(bufferedChunk);
+                    }
+                    uploadPermits.release();
+                }
+            }
         }
 
+        // Waits for all uploads to complete
+        acquire(uploadPermits, uploadThreads);
+
+        if (null != failure.get()) {
+            throw failure.get();
+        }
+        boolean errorsExist = errorsExist();
+
         ChunksManifest manifest = chunkable.finalizeManifest();
 
         if (!errorsExist) {
@@ -182,72 +263,146 @@ public class DuracloudContentWriter implements ContentWriter {
 
     protected boolean errorsExist() {
         boolean containsErrors = false;
-        for (AddContentResult result : this.results) {
-            if (result.getState().equals(AddContentResult.State.ERROR)) {
-                containsErrors = true;
-                break;
+        synchronized (results) {
+            for (AddContentResult result : this.results) {
+                if (result.getState().equals(AddContentResult.State.ERROR)) {
+                    containsErrors = true;
+                    break;
+                }
             }
         }
         return containsErrors;
     }
 
     /*
-     * Writes chunk to DuraCloud if it does not already exist in DuraCloud with a
-     * matching checksum. Retry failed transfers.
+     * Uploads a buffered chunk, then releases its buffer and upload permit
      */
-    private void writeChunk(String spaceId, ChunkInputStream chunk)
-        throws NotFoundException {
-        // Write chunk as a temp file
-        String chunkId = chunk.getChunkId();
-        File chunkFile = IOUtil.writeStreamToFile(chunk);
+    private Runnable uploadTask(String spaceId,
+                                BufferedChunk bufferedChunk,
+                                Semaphore uploadPermits,
+                                AtomicReference<RuntimeException> failure) {
+        return () -> {
+            try {
+                writeChunk(spaceId, bufferedChunk);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                release(bufferedChunk);
+                uploadPermits.release();
+            }
+        };
+    }
 
+    private void acquire(Semaphore semaphore, int permits) {
         try {
-            String chunkChecksum = getChunkChecksum(chunkFile);
-
-            // Write chunk if it is not already in storage (or jumpstart is enabled)
-            if (jumpStart || !chunkInStorage(spaceId, chunkId, chunkChecksum)) {
-                try {
-                    createRetrier().execute(new Retriable() {
-                        private int attempt = 0;
-
-                        @Override
-                        public Object retry() throws Exception {
-                            attempt++;
-                            try (InputStream chunkStream = new FileInputStream(chunkFile)) {
-                                ChunkInputStream chunkFileStream =
-                                    new ChunkInputStream(chunkId,
-                                                         chunkStream,
-                                                         chunkFile.length(),
-                                                         chunk.md5Preserved());
-                                writeSingle(spaceId, chunkChecksum, chunkFileStream, attempt == getMaxRetries() + 1);
-                            }
-                            return "";
-                        }
-                    });
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DuraCloudRuntimeException("Interrupted while waiting " +
+                                                "for chunk uploads", e);
+        }
+    }
 
-                } catch (Exception e) {
-                    String err = "Failed to store chunk with ID " + chunkId +
-                                 " in space " + spaceId + " after " + getMaxRetries() +
-                                 " attempts. Last error: " + e.getMessage();
-                    throw new DuraCloudRuntimeException(err, e);
+    /*
+     * Reads a chunk from the source content, computing its checksum as it is
+     * buffered in memory (if it fits within the memory available in the
+     * budget) or in a temp file, once space is available in the budget.
+     */
+    private BufferedChunk bufferChunk(ChunkInputStream chunk) {
+        String chunkId = chunk.getChunkId();
+        long chunkSize = chunk.getChunkSize();
+        boolean inMemory = bufferBudget.tryReserveMemory(chunkSize);
+        if (!inMemory) {
+            try {
+                bufferBudget.reserveDisk(chunkSize);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DuraCloudRuntimeException("Interrupted while waiting " +
+                                                    "to buffer chunk " + chunkId, e);
+            }
+        }
+
+        DigestInputStream digestStream =
+            ChecksumUtil.wrapStream(chunk, ChecksumUtil.Algorithm.MD5);
+        File chunkFile = null;
+        boolean buffered = false;
+        try {
+            BufferedChunk bufferedChunk;
+            if (inMemory) {
+                ByteArrayOutputStream out =
+                    new ByteArrayOutputStream((int) chunkSize);
+                IOUtils.copy(digestStream, out);
+                bufferedChunk =
+                    new BufferedChunk(chunk, out.toByteArray(), null, chunkSize, 0);
+            } else {
+                chunkFile = File.createTempFile("chunk", ".tmp");
+                try (OutputStream out = FileUtils.openOutputStream(chunkFile)) {
+                    IOUtils.copy(digestStream, out);
                 }
+                bufferedChunk = new BufferedChunk(chunk, null, chunkFile, 0, chunkSize);
             }
+            bufferedChunk.checksum = ChecksumUtil.getChecksum(digestStream);
+            buffered = true;
+            return bufferedChunk;
+        } catch (IOException e) {
+            throw new DuraCloudRuntimeException("Unable to read chunk " + chunkId +
+                                                " due to: " + e.getMessage(), e);
         } finally {
-            if (null != chunkFile && chunkFile.exists()) {
+            // The reservation is held by the buffered chunk once returned
+            if (!buffered) {
+                if (inMemory) {
+                    bufferBudget.releaseMemory(chunkSize);
+                } else {
+                    bufferBudget.releaseDisk(chunkSize);
+                }
                 FileUtils.deleteQuietly(chunkFile);
             }
         }
     }
 
+    private void release(BufferedChunk bufferedChunk) {
+        bufferBudget.releaseMemory(bufferedChunk.reservedMemory);
+        if (null != bufferedChunk.file && bufferedChunk.file.exists()) {
+            FileUtils.deleteQuietly(bufferedChunk.file);
+        }
+        bufferBudget.releaseDisk(bufferedChunk.reservedDisk);
+    }
+
     /*
-     * Determine the checksum of the chunk file
+     * Writes chunk to DuraCloud if it does not already exist in DuraCloud with a
+     * matching checksum. Retry failed transfers.
      */
-    private String getChunkChecksum(File chunkFile) {
-        try {
-            return checksumUtil.generateChecksum(chunkFile);
-        } catch (IOException e) {
-            throw new DuraCloudRuntimeException("Unable to generate checksum for file " +
-                                                chunkFile + " due to: " + e.getMessage());
+    private void writeChunk(String spaceId, BufferedChunk chunk) {
+        String chunkId = chunk.chunkId;
+        String chunkChecksum = chunk.checksum;
+
+        // Write chunk if it is not already in storage (or jumpstart is enabled)
+        if (jumpStart || !chunkInStorage(spaceId, chunkId, chunkChecksum)) {
+            try {
+                createRetrier().execute(new Retriable() {
+                    private int attempt = 0;
+
+                    @Override
+                    public Object retry() throws Exception {
+                        attempt++;
+                        try (InputStream chunkStream = chunk.openStream()) {
+                            ChunkInputStream chunkBufferStream =
+                                new ChunkInputStream(chunkId,
+                                                     chunkStream,
+                                                     chunk.size,
+                                                     chunk.md5Preserved);
+                            writeSingle(spaceId, chunkChecksum, chunkBufferStream, attempt == getMaxRetries() + 1);
+                        }
+                        return "";
+                    }
+                });
+
+            } catch (Exception e) {
+                String err = "Failed to store chunk with ID " + chunkId +
+                             " in space " + spaceId + " after " + getMaxRetries() +
+                             " attempts. Last error: " + e.getMessage();
+                throw new DuraCloudRuntimeException(err, e);
+            }
         }
     }
 
@@ -256,22 +411,17 @@ public class DuracloudContentWriter implements ContentWriter {
     }
 
     /*
-     * Determines if a file chunk exists in DuraCloud storage with the given checksum
+     * Determines if a file chunk exists in DuraCloud storage with the given
+     * checksum. A single properties request covers both checks, as it fails
+     * if the chunk does not exist.
      */
     private boolean chunkInStorage(String spaceId, String contentId, String checksum) {
         try {
-            if (contentStore.contentExists(spaceId, contentId)) { // dc file exists
-                Map<String, String> props =
-                    contentStore.getContentProperties(spaceId, contentId);
-                String dcChecksum = props.get(ContentStore.CONTENT_CHECKSUM);
-                if (null != checksum && null != dcChecksum && checksum.equals(dcChecksum)) {
-                    return true; // File with matching checksum already in DuraCloud
-                } else {
-                    return false; // File exists in DuraCloud, but checksums don't match
-                }
-            } else {
-                return false; // File does not exist in DuraCloud
-            }
+            Map<String, String> props =
+                contentStore.getContentProperties(spaceId, contentId);
+            String dcChecksum = null == props ? null : props.get(ContentStore.CONTENT_CHECKSUM);
+            // True only if a file with matching checksum is already in DuraCloud
+            return null != checksum && null != dcChecksum && checksum.equals(dcChecksum);
         } catch (ContentStoreException e) {
             return false; // File does not exist in DuraCloud
         }
@@ -514,4 +664,40 @@ public class DuracloudContentWriter implements ContentWriter {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * A chunk which has been read from the source content and is held, in
+     * memory or in a temp file, until it is uploaded.
+     */
+    private static class BufferedChunk {
+        private final String chunkId;
+        private final boolean md5Preserved;
+        private final byte[] bytes;
+        private final File file;
+        private final long size;
+        private final long reservedMemory;
+        private final long reservedDisk;
+        private String checksum;
+
+        BufferedChunk(ChunkInputStream chunk,
+                      byte[] bytes,
+                      File file,
+                      long reservedMemory,
+                      long reservedDisk) {
+            this.chunkId = chunk.getChunkId();
+            this.md5Preserved = chunk.md5Preserved();
+            this.bytes = bytes;
+            this.file = file;
+            this.size = null != bytes ? bytes.length : file.length();
+            this.reservedMemory = reservedMemory;
+            this.reservedDisk = reservedDisk;
+        }
+
+        InputStream openStream() throws IOException {
+            if (null != bytes) {
+                return new ByteArrayInputStream(bytes);
+            }
+            return new FileInputStream(file);
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.chunk.writer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkBufferBudgetTest {
+
+    @Test
+    public void testMemory() {
+        ChunkBufferBudget budget = new ChunkBufferBudget(1000, 0);
+        Assert.assertTrue(budget.tryReserveMemory(600));
+        Assert.assertFalse(budget.tryReserveMemory(600));
+        budget.releaseMemory(600);
+        Assert.assertTrue(budget.tryReserveMemory(600));
+    }
+
+    @Test
+    public void testDiskWait() throws Exception {
+        ChunkBufferBudget budget = new ChunkBufferBudget(0, 1000);
+        budget.reserveDisk(800);
+
+        CountDownLatch reserved = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                budget.reserveDisk(800);
+                reserved.countDown();
+            } catch (InterruptedException e) {
+                // Test fails
+            }
+        });
+        thread.start();
+
+        // Waits until the first reservation is released
+        Assert.assertFalse(reserved.await(200, TimeUnit.MILLISECONDS));
+        budget.releaseDisk(800);
+        Assert.assertTrue(reserved.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDiskOversized() throws Exception {
+        // A chunk larger than the budget is allowed when it is the only one
+        ChunkBufferBudget budget = new ChunkBufferBudget(0, 1000);
+        budget.reserveDisk(5000);
+        budget.releaseDisk(5000);
+        budget.reserveDisk(1000);
+    }
+
+}
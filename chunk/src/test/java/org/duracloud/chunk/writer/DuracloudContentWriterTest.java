@@ -9,12 +9,12 @@ package org.duracloud.chunk.writer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.duracloud.chunk.ChunkableContent;
 import org.duracloud.chunk.error.NotFoundException;
@@ -55,6 +55,9 @@ public class DuracloudContentWriterTest {
         writerError = new DuracloudContentWriter(contentStoreThrow, username, 3, 10);
         writerErrorThrow =
             new DuracloudContentWriter(contentStoreThrow, username, true, false, 3, 10);
+        // Error tests count failed calls, which requires sequential uploads
+        writerError.setUploadThreads(1);
+        writerErrorThrow.setUploadThreads(1);
     }
 
     private ContentStore createMockContentStore(boolean spaceExists,
@@ -103,28 +106,44 @@ public class DuracloudContentWriterTest {
         return contentStore;
     }
 
-    private void updateMockContentStoreContentCheck(boolean chunkExists)
+    private void updateMockContentStoreContentCheck(boolean chunkExists,
+                                                    boolean validChecksum)
         throws ContentStoreException {
         if (!chunkExists) {
-            EasyMock.expect(contentStore.contentExists(EasyMock.isA(String.class),
-                                                       EasyMock.isA(String.class)))
-                    .andReturn(false)
+            EasyMock.expect(contentStore.getContentProperties(EasyMock.isA(String.class),
+                                                              EasyMock.isA(String.class)))
+                    .andThrow(new org.duracloud.error.NotFoundException("canned-exception"))
                     .anyTimes();
         } else {
-            EasyMock.expect(contentStore.contentExists(EasyMock.isA(String.class),
-                                                       EasyMock.isA(String.class)))
-                    .andReturn(true)
-                    .anyTimes();
-
-            Map<String, String> props = new HashMap<>();
-            props.put(ContentStore.CONTENT_CHECKSUM, checksum);
+            Map<String, String> chunkChecksums = getChunkChecksums();
             EasyMock.expect(contentStore.getContentProperties(EasyMock.isA(String.class),
                                                               EasyMock.isA(String.class)))
-                    .andReturn(props)
+                    .andAnswer(() -> {
+                        String chunkId = (String) EasyMock.getCurrentArguments()[1];
+                        Map<String, String> props = new HashMap<>();
+                        props.put(ContentStore.CONTENT_CHECKSUM,
+                                  validChecksum ? chunkChecksums.get(chunkId) : checksum);
+                        return props;
+                    })
                     .anyTimes();
         }
     }
 
+    /*
+     * Determines the checksum of each chunk of the test content
+     */
+    private Map<String, String> getChunkChecksums() {
+        Map<String, String> chunkChecksums = new HashMap<>();
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+        ChunkableContent chunkable =
+            new ChunkableContent(contentId, createContentStream(4000), 4000, 1000);
+        for (ChunkInputStream chunk : chunkable) {
+            chunkChecksums.put(chunk.getChunkId(),
+                               checksumUtil.generateChecksum(chunk));
+        }
+        return chunkChecksums;
+    }
+
     private void setupThrowingMockContentStore(int addChunkFailures,
                                                int addChunkSuccesses,
                                                int addManifestFailures,
@@ -135,6 +154,10 @@ public class DuracloudContentWriterTest {
                                                         EasyMock.isA(String.class)))
                 .andReturn(false)
                 .anyTimes();
+        EasyMock.expect(contentStoreThrow.getContentProperties(EasyMock.isA(String.class),
+                                                               EasyMock.isA(String.class)))
+                .andThrow(new org.duracloud.error.NotFoundException("canned-exception"))
+                .anyTimes();
 
         contentStoreThrow.createSpace(EasyMock.isA(String.class));
         EasyMock.expectLastCall().anyTimes();
@@ -196,9 +219,10 @@ public class DuracloudContentWriterTest {
      */
     @Test
     public void testWrite() throws Exception {
+        expectDelete(false);
         createMockContentStore(true, true);
-        updateMockContentStoreContentCheck(false);
-        doTestWrite(false, false);
+        updateMockContentStoreContentCheck(false, false);
+        doTestWrite(false);
     }
 
     /*
@@ -209,7 +233,7 @@ public class DuracloudContentWriterTest {
     public void testWriteJumpstart() throws Exception {
         createMockContentStore(true, true);
         expectDelete(false);
-        doTestWrite(false, true);
+        doTestWrite(true);
     }
 
     private void expectDelete(boolean expect) throws Exception {
@@ -233,8 +257,8 @@ public class DuracloudContentWriterTest {
     public void testWriteWrongChunkExists() throws Exception {
         expectDelete(false);
         createMockContentStore(true, true);
-        updateMockContentStoreContentCheck(true);
-        doTestWrite(false, false);
+        updateMockContentStoreContentCheck(true, false);
+        doTestWrite(false);
     }
 
     /*
@@ -245,8 +269,8 @@ public class DuracloudContentWriterTest {
     public void testWriteCorrectChunkExists() throws Exception {
         expectDelete(false);
         createMockContentStore(true, false);
-        updateMockContentStoreContentCheck(true);
-        doTestWrite(true, false);
+        updateMockContentStoreContentCheck(true, true);
+        doTestWrite(false);
     }
 
     /*
@@ -258,8 +282,8 @@ public class DuracloudContentWriterTest {
     public void testWriteUnchunkedVersionExists() throws Exception {
         expectDelete(true);
         createMockContentStore(true, true);
-        updateMockContentStoreContentCheck(false);
-        doTestWrite(true, false);
+        updateMockContentStoreContentCheck(false, false);
+        doTestWrite(false);
     }
 
     /*
@@ -268,22 +292,15 @@ public class DuracloudContentWriterTest {
      */
     @Test
     public void testWriteSpaceNotExist() throws Exception {
+        expectDelete(false);
         createMockContentStore(false, true);
-        updateMockContentStoreContentCheck(false);
-        doTestWrite(false, false);
+        updateMockContentStoreContentCheck(false, false);
+        doTestWrite(false);
     }
 
-    private void doTestWrite(boolean validChecksum, boolean jumpStart) throws Exception {
+    private void doTestWrite(boolean jumpStart) throws Exception {
         DuracloudContentWriter writer =
             new DuracloudContentWriter(contentStore, username, false, jumpStart);
-        if (validChecksum) {
-            writer.setChecksumUtil(new ChecksumUtil(ChecksumUtil.Algorithm.MD5) {
-                @Override
-                public String generateChecksum(File file) throws IOException {
-                    return checksum;
-                }
-            });
-        }
 
         replayMocks();
         long contentSize = 4000;
@@ -299,6 +316,95 @@ public class DuracloudContentWriterTest {
         EasyMock.verify(contentStore);
     }
 
+    /*
+     * Tests that chunks uploaded concurrently, whether buffered in memory or
+     * on disk, are each added once with the checksum of their content
+     */
+    @Test
+    public void testWriteConcurrent() throws Exception {
+        doTestWriteConcurrent(ChunkBufferBudget.DEFAULT_MEMORY_BYTES);
+    }
+
+    @Test
+    public void testWriteConcurrentDiskBuffer() throws Exception {
+        doTestWriteConcurrent(0);
+    }
+
+    private void doTestWriteConcurrent(long memoryBufferSize) throws Exception {
+        Map<String, String> chunkChecksums = getChunkChecksums();
+        Map<String, String> added = new ConcurrentHashMap<>();
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+
+        createMockContentStore(true, false);
+        EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(InputStream.class),
+                                                EasyMock.anyLong(),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(String.class),
+                                                (Map) EasyMock.anyObject()))
+                .andAnswer(() -> {
+                    Object[] args = EasyMock.getCurrentArguments();
+                    String md5 = checksumUtil.generateChecksum((InputStream) args[2]);
+                    Assert.assertEquals(md5, args[5]);
+                    Assert.assertNull(added.put((String) args[1], md5));
+                    return md5;
+                })
+                .times(chunkChecksums.size());
+        updateMockContentStoreContentCheck(false, false);
+        expectDelete(false);
+
+        DuracloudContentWriter writer =
+            new DuracloudContentWriter(contentStore, username);
+        // Disk space for one chunk at a time, so disk-buffered chunks must
+        // wait for earlier chunks to be uploaded
+        writer.setBufferBudget(new ChunkBufferBudget(memoryBufferSize, 1000));
+        replayMocks();
+
+        ChunkableContent chunkable =
+            new ChunkableContent(contentId, createContentStream(4000), 4000, 1000);
+        writer.write(spaceId, chunkable);
+
+        Assert.assertEquals(chunkChecksums, added);
+        Assert.assertEquals(chunkChecksums.size() + 1, writer.getResults().size());
+        for (AddContentResult result : writer.getResults()) {
+            Assert.assertEquals(AddContentResult.State.SUCCESS, result.getState());
+        }
+        EasyMock.verify(contentStore);
+    }
+
+    /*
+     * Tests that the buffer reserved for a chunk is released when reading
+     * the chunk fails with an unchecked exception
+     */
+    @Test
+    public void testBufferReleasedOnReadFailure() throws Exception {
+        setupThrowingMockContentStore(0, 0, 0, 0);
+        replayMocks();
+
+        ChunkBufferBudget budget = new ChunkBufferBudget(1000, 1000);
+        DuracloudContentWriter writer =
+            new DuracloudContentWriter(contentStoreThrow, username);
+        writer.setBufferBudget(budget);
+
+        InputStream failingStream = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("canned-exception");
+            }
+        };
+        ChunkableContent chunkable =
+            new ChunkableContent(contentId, failingStream, 4000, 1000);
+        try {
+            writer.write(spaceId, chunkable);
+            Assert.fail("exception expected");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("canned-exception", e.getMessage());
+        }
+
+        Assert.assertTrue(budget.tryReserveMemory(1000));
+    }
+
     @Test
     public void testErrorOnWriteManifest() throws NotFoundException, ContentStoreException {
         int contentSize = 4000;
@@ -7,39 +7,440 @@
  */
 package org.duracloud.common.cache;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
+ * Caches a component for each account. The component for an account is
+ * created once, by the first caller to request it; concurrent callers wait
+ * for that instance rather than creating their own.
+ *
+ * Components which have not been requested within the idle period are
+ * removed, as are the least recently used components once the cache grows
+ * beyond its maximum size. Components can optionally be refreshed in the
+ * background once they reach a given age, in which case callers continue
+ * to receive the existing component until its replacement is ready.
+ *
+ * Subclasses can release the resources held by a component which is no
+ * longer cached (whether evicted, removed or replaced) by overriding
+ * onRelease(). As callers may still be using such a component, it is
+ * released once the release delay has passed.
+ *
  * @param <T>
  * @author Daniel Bernstein
  */
 public abstract class AbstractAccountComponentCache<T> implements AccountComponentCache<T> {
-    private Map<String, T> cache;
+
+    private static final Logger log =
+        LoggerFactory.getLogger(AbstractAccountComponentCache.class);
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_MAX_IDLE_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    public static final long DEFAULT_RELEASE_DELAY_SECONDS = TimeUnit.MINUTES.toSeconds(15);
+
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final ExecutorService REFRESH_EXECUTOR =
+        Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "account-component-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private static final ScheduledExecutorService RELEASE_EXECUTOR =
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-component-release");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private final ConcurrentMap<String, Entry<T>> cache = new ConcurrentHashMap<>();
+    private final Executor refreshExecutor;
+
+    private volatile int maxSize;
+    private volatile long maxIdleMillis;
+    private volatile long refreshAfterMillis = 0;
+    private volatile long releaseDelayMillis =
+        TimeUnit.SECONDS.toMillis(DEFAULT_RELEASE_DELAY_SECONDS);
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long nextSweep = 0;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong loadFailureCount = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
 
     public AbstractAccountComponentCache() {
-        this.cache = new HashMap<>();
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_IDLE_SECONDS);
+    }
+
+    /**
+     * @param maxSize        maximum number of accounts for which components
+     *                       are held, 0 or less for no limit
+     * @param maxIdleSeconds number of seconds after its last use that a
+     *                       component is removed, 0 or less to keep
+     *                       components regardless of use
+     */
+    public AbstractAccountComponentCache(int maxSize, long maxIdleSeconds) {
+        this(maxSize, maxIdleSeconds, REFRESH_EXECUTOR);
+    }
+
+    protected AbstractAccountComponentCache(int maxSize,
+                                            long maxIdleSeconds,
+                                            Executor refreshExecutor) {
+        setMaxSize(maxSize);
+        setMaxIdleSeconds(maxIdleSeconds);
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void setMaxIdleSeconds(long maxIdleSeconds) {
+        this.maxIdleMillis = TimeUnit.SECONDS.toMillis(Math.max(0, maxIdleSeconds));
+    }
+
+    /**
+     * @param refreshAfterSeconds age in seconds at which a component is
+     *                            recreated in the background, 0 or less to
+     *                            disable refresh (the default)
+     */
+    public void setRefreshAfterSeconds(long refreshAfterSeconds) {
+        this.refreshAfterMillis =
+            TimeUnit.SECONDS.toMillis(Math.max(0, refreshAfterSeconds));
+    }
+
+    /**
+     * @param releaseDelaySeconds number of seconds after a component is no
+     *                            longer cached that it is released, 0 or
+     *                            less to release it immediately
+     */
+    public void setReleaseDelaySeconds(long releaseDelaySeconds) {
+        this.releaseDelayMillis =
+            TimeUnit.SECONDS.toMillis(Math.max(0, releaseDelaySeconds));
     }
 
     protected void remove(String key) {
-        this.cache.remove(key);
+        Entry<T> entry = this.cache.remove(key);
+        if (null != entry) {
+            retire(key, entry);
+        }
     }
 
     protected void removeAll() {
-        this.cache.clear();
+        for (String key : new ArrayList<>(this.cache.keySet())) {
+            remove(key);
+        }
     }
 
     @Override
     public T get(String accountId) {
-        T instance = this.cache.get(accountId);
-        if (instance == null) {
-            instance = createInstance(accountId);
-            this.cache.put(accountId, instance);
+        long now = System.currentTimeMillis();
+        Entry<T> entry = this.cache.get(accountId);
+        if (null == entry) {
+            Entry<T> newEntry = new Entry<>(now);
+            entry = this.cache.putIfAbsent(accountId, newEntry);
+            if (null == entry) {
+                missCount.incrementAndGet();
+                T instance = load(accountId, newEntry);
+                sweepIfNeeded(now);
+                return instance;
+            }
         }
 
+        entry.lastAccess = now;
+        T instance = entry.await();
+        hitCount.incrementAndGet();
+
+        if (refreshAfterMillis > 0 && now - entry.loadedAt >= refreshAfterMillis) {
+            refresh(accountId, entry);
+        }
+        sweepIfNeeded(now);
         return instance;
     }
 
+    /**
+     * Retrieves the component for an account only if one has already been
+     * created, without creating one or counting the request.
+     *
+     * @param accountId
+     * @return the component, or null if none has been created
+     */
+    protected T getIfPresent(String accountId) {
+        Entry<T> entry = this.cache.get(accountId);
+        if (null == entry || !entry.value.isDone() ||
+            entry.value.isCompletedExceptionally()) {
+            return null;
+        }
+        return entry.value.join();
+    }
+
     protected abstract T createInstance(String accountId);
 
+    /**
+     * Called once a component which is no longer cached, as it was evicted,
+     * removed or replaced by a refresh, is no longer expected to be in use,
+     * so that the resources it holds can be released. The default
+     * implementation does nothing.
+     *
+     * @param instance the component to release
+     */
+    protected void onRelease(T instance) {
+    }
+
+    /**
+     * @return number of requests answered by an existing component
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of requests which required a component to be created
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return fraction of requests answered by an existing component, or 0
+     * if there have been no requests
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return number of components created, including refreshes
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * @return number of attempts to create a component which failed
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount.get();
+    }
+
+    /**
+     * @return average time taken to create a component, in milliseconds
+     */
+    public double getAverageLoadTimeMillis() {
+        long loads = loadCount.get() + loadFailureCount.get();
+        return loads == 0 ? 0 :
+               (double) TimeUnit.NANOSECONDS.toMillis(totalLoadNanos.get()) / loads;
+    }
+
+    /**
+     * @return number of components replaced by a background refresh
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * @return number of components removed due to size or idle limits
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return number of accounts for which a component is held
+     */
+    public int getSize() {
+        return this.cache.size();
+    }
+
+    private T load(String accountId, Entry<T> entry) {
+        try {
+            T instance = timedCreate(accountId);
+            entry.loadedAt = System.currentTimeMillis();
+            entry.value.complete(instance);
+            return instance;
+        } catch (RuntimeException | Error e) {
+            // Allow the next request to try again
+            this.cache.remove(accountId, entry);
+            entry.value.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private T timedCreate(String accountId) {
+        long start = System.nanoTime();
+        boolean created = false;
+        try {
+            T instance = createInstance(accountId);
+            created = true;
+            return instance;
+        } finally {
+            totalLoadNanos.addAndGet(System.nanoTime() - start);
+            if (created) {
+                loadCount.incrementAndGet();
+            } else {
+                loadFailureCount.incrementAndGet();
+            }
+        }
+    }
+
+    private void refresh(String accountId, Entry<T> entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return; // already in progress
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Entry<T> refreshed = new Entry<>(entry.lastAccess);
+                    refreshed.value.complete(timedCreate(accountId));
+                    refreshed.loadedAt = System.currentTimeMillis();
+                    // Not replaced if the entry was removed during the refresh
+                    if (this.cache.replace(accountId, entry, refreshed)) {
+                        refreshCount.incrementAndGet();
+                        retire(accountId, entry);
+                    } else {
+                        release(accountId, refreshed.value.join());
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Unable to refresh component for account {}: {}",
+                             accountId, e.getMessage());
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Unable to start refresh of component for account {}: {}",
+                     accountId, e.getMessage());
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void sweepIfNeeded(long now) {
+        int max = maxSize;
+        if ((now < nextSweep && (max <= 0 || this.cache.size() <= max)) ||
+            !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long idle = maxIdleMillis;
+            List<Map.Entry<String, Entry<T>>> loaded = new ArrayList<>();
+            for (Map.Entry<String, Entry<T>> cached : this.cache.entrySet()) {
+                Entry<T> entry = cached.getValue();
+                if (!entry.value.isDone()) {
+                    continue; // still being created
+                }
+                if (idle > 0 && now - entry.lastAccess >= idle) {
+                    evict(cached.getKey(), entry);
+                } else {
+                    loaded.add(cached);
+                }
+            }
+
+            int excess = max > 0 ? this.cache.size() - max : 0;
+            if (excess > 0) {
+                loaded.sort(Comparator.comparingLong(cached -> cached.getValue().lastAccess));
+                for (int i = 0; i < excess && i < loaded.size(); i++) {
+                    evict(loaded.get(i).getKey(), loaded.get(i).getValue());
+                }
+            }
+
+            long interval = idle > 0 ? Math.min(idle, MAX_SWEEP_INTERVAL_MILLIS) :
+                            MAX_SWEEP_INTERVAL_MILLIS;
+            nextSweep = now + interval;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private void evict(String accountId, Entry<T> entry) {
+        if (this.cache.remove(accountId, entry)) {
+            evictionCount.incrementAndGet();
+            log.debug("Removed cached component for account {}", accountId);
+            retire(accountId, entry);
+        }
+    }
+
+    /*
+     * Schedules the release of a component which is no longer cached, once
+     * it has been created. Components which failed to be created hold
+     * nothing to release.
+     */
+    private void retire(String accountId, Entry<T> entry) {
+        entry.value.thenAccept(instance -> {
+            long delay = releaseDelayMillis;
+            if (delay > 0) {
+                try {
+                    RELEASE_EXECUTOR.schedule(() -> release(accountId, instance),
+                                              delay, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    log.warn("Unable to schedule release of component for " +
+                             "account {}, releasing now", accountId);
+                }
+            }
+            release(accountId, instance);
+        });
+    }
+
+    private void release(String accountId, T instance) {
+        try {
+            onRelease(instance);
+        } catch (RuntimeException e) {
+            log.warn("Error releasing component for account {}: {}",
+                     accountId, e.getMessage());
+        }
+    }
+
+    private static class Entry<T> {
+        private final CompletableFuture<T> value = new CompletableFuture<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long lastAccess;
+        private volatile long loadedAt;
+
+        Entry(long lastAccess) {
+            this.lastAccess = lastAccess;
+        }
+
+        T await() {
+            try {
+                return value.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
 }
@@ -0,0 +1,229 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.common.event.AccountChangeEvent;
+import org.junit.Test;
+
+public class AbstractAccountComponentCacheTest {
+
+    @Test
+    public void testGet() {
+        TestCache cache = new TestCache(10, 0);
+        Object first = cache.get("account1");
+        assertSame(first, cache.get("account1"));
+        assertNotSame(first, cache.get("account2"));
+
+        assertEquals(2, cache.created.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getLoadCount());
+    }
+
+    @Test
+    public void testGetConcurrent() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TestCache cache = new TestCache(10, 0) {
+            @Override
+            protected Object createInstance(String accountId) {
+                loading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.createInstance(accountId);
+            }
+        };
+
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("account")));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                results.add(executor.submit(() -> cache.get("account")));
+            }
+            release.countDown();
+
+            Object instance = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertSame(instance, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, cache.created.get());
+    }
+
+    @Test
+    public void testLoadFailure() {
+        TestCache cache = new TestCache(10, 0) {
+            @Override
+            protected Object createInstance(String accountId) {
+                if (created.get() == 0) {
+                    created.incrementAndGet();
+                    throw new IllegalStateException("failure");
+                }
+                return super.createInstance(accountId);
+            }
+        };
+
+        try {
+            cache.get("account");
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("failure", e.getMessage());
+        }
+        assertEquals(1, cache.getLoadFailureCount());
+
+        // Failure is not cached
+        cache.get("account");
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testRemove() {
+        TestCache cache = new TestCache(10, 0);
+        Object first = cache.get("account1");
+        cache.get("account2");
+
+        cache.remove("account1");
+        assertNotSame(first, cache.get("account1"));
+
+        cache.removeAll();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        TestCache cache = new TestCache(2, 0);
+        Object first = cache.get("account1");
+        cache.get("account2");
+        Thread.sleep(5);
+        cache.get("account1");
+        cache.get("account3");
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        // Least recently used account was removed
+        assertSame(first, cache.get("account1"));
+        assertEquals(3, cache.created.get());
+    }
+
+    @Test
+    public void testOnRelease() throws Exception {
+        List<Object> released = new ArrayList<>();
+        TestCache cache = new TestCache(1, 0) {
+            @Override
+            protected void onRelease(Object instance) {
+                released.add(instance);
+            }
+        };
+        cache.setReleaseDelaySeconds(0);
+        Object first = cache.get("account1");
+        Thread.sleep(5);
+        Object second = cache.get("account2");
+        assertEquals(1, released.size());
+        assertSame(first, released.get(0));
+
+        // Removed components are released as well
+        cache.remove("account2");
+        assertEquals(2, released.size());
+        assertSame(second, released.get(1));
+        assertNotSame(second, cache.get("account2"));
+    }
+
+    @Test
+    public void testReleaseDelay() throws Exception {
+        List<Object> released = new CopyOnWriteArrayList<>();
+        TestCache cache = new TestCache(10, 0) {
+            @Override
+            protected void onRelease(Object instance) {
+                released.add(instance);
+            }
+        };
+        cache.setReleaseDelaySeconds(1);
+        Object first = cache.get("account");
+        cache.removeAll();
+
+        // Released once callers are no longer expected to be using it
+        assertTrue(released.isEmpty());
+        long start = System.currentTimeMillis();
+        while (released.isEmpty() && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(50);
+        }
+        assertEquals(Arrays.asList(first), released);
+    }
+
+    @Test
+    public void testGetIfPresent() {
+        TestCache cache = new TestCache(10, 0);
+        assertNull(cache.getIfPresent("account"));
+        Object instance = cache.get("account");
+        assertSame(instance, cache.getIfPresent("account"));
+        assertEquals(1, cache.created.get());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        TestCache cache = new TestCache(10, 0);
+        cache.setRefreshAfterSeconds(1);
+        Object first = cache.get("account");
+        assertSame(first, cache.get("account"));
+        assertEquals(0, cache.getRefreshCount());
+
+        Thread.sleep(1100);
+        // Existing component is returned while the refresh takes place
+        assertSame(first, cache.get("account"));
+        assertEquals(1, cache.getRefreshCount());
+        assertNotSame(first, cache.get("account"));
+        assertEquals(2, cache.created.get());
+    }
+
+    private static class TestCache extends AbstractAccountComponentCache<Object> {
+        protected final AtomicInteger created = new AtomicInteger();
+
+        TestCache(int maxSize, long maxIdleSeconds) {
+            super(maxSize, maxIdleSeconds, Runnable::run);
+        }
+
+        @Override
+        protected Object createInstance(String accountId) {
+            created.incrementAndGet();
+            return new Object();
+        }
+
+        @Override
+        public void onEvent(AccountChangeEvent event) {
+        }
+    }
+
+}
@@ -47,4 +47,12 @@ public interface AccountChangeNotifier {
      */
     void storageProviderCacheOnNodeChanged(String account);
 
+    /**
+     * Notifies listeners that a single space has changed: it was created or removed, or its properties changed.
+     *
+     * @param account
+     * @param spaceId
+     */
+    void spaceChanged(String account, String spaceId);
+
 }
@@ -94,6 +94,10 @@ public class AccountChangeNotifierImpl implements AccountChangeNotifier {
     }
 
     private void publish(EventType eventType, String account) {
+        publish(eventType, account, null);
+    }
+
+    private void publish(EventType eventType, String account, String spaceId) {
         String host;
         try {
             host = InetAddress.getLocalHost().getHostName();
@@ -102,7 +106,7 @@ public class AccountChangeNotifierImpl implements AccountChangeNotifier {
             host = "unknown";
         }
 
-        AccountChangeEvent event = new AccountChangeEvent(eventType, account, host);
+        AccountChangeEvent event = new AccountChangeEvent(eventType, account, spaceId, host);
 
         try {
             log.debug("publishing event={}", event);
@@ -143,4 +147,9 @@ public class AccountChangeNotifierImpl implements AccountChangeNotifier {
     public void storageProviderCacheOnNodeChanged(String account) {
         publish(EventType.STORAGE_PROVIDER_CACHE_ON_NODE_CHANGED, account);
     }
+
+    @Override
+    public void spaceChanged(String account, String spaceId) {
+        publish(EventType.SPACE_CHANGED, account, spaceId);
+    }
 }
@@ -7,25 +7,33 @@
  */
 package org.duracloud.common.event;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.duracloud.common.error.DuraCloudRuntimeException;
 import org.duracloud.common.json.JaxbJsonSerializer;
 
 /**
  * @author Daniel Bernstein
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class AccountChangeEvent {
     public static enum EventType {
         ACCOUNT_CHANGED,
         USERS_CHANGED,
         STORAGE_PROVIDERS_CHANGED,
         ALL_ACCOUNTS_CHANGED,
-        STORAGE_PROVIDER_CACHE_ON_NODE_CHANGED;   //indicates that storage provider data cached on a node changed
+        STORAGE_PROVIDER_CACHE_ON_NODE_CHANGED,   //indicates that storage provider data cached on a node changed
+        SPACE_CHANGED;   //indicates that a single space was created, removed, or had its properties changed
     }
 
     private EventType eventType;
 
     private String accountId;
 
+    /*
+     * The space which changed, for SPACE_CHANGED events.
+     */
+    private String spaceId;
+
     /*
      * The host of originator of the event.
      */
@@ -44,6 +52,16 @@ public class AccountChangeEvent {
         this.sourceHost = sourceHost;
     }
 
+    /**
+     * @param eventType
+     * @param accountId
+     * @param spaceId
+     */
+    public AccountChangeEvent(EventType eventType, String accountId, String spaceId, String sourceHost) {
+        this(eventType, accountId, sourceHost);
+        this.spaceId = spaceId;
+    }
+
     public EventType getEventType() {
         return this.eventType;
     }
@@ -52,6 +70,10 @@ public class AccountChangeEvent {
         return this.accountId;
     }
 
+    public String getSpaceId() {
+        return spaceId;
+    }
+
     public String getSourceHost() {
         return sourceHost;
     }
@@ -0,0 +1,466 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.queue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.duracloud.common.queue.task.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A TaskQueue decorator which accepts tasks into an in-memory buffer and
+ * places them on the target queue in batches from a background thread, so
+ * that callers of put() are not held up by the latency (or retries) of the
+ * target queue.
+ *
+ * Tasks which do not fit in the buffer, or which the target queue fails to
+ * accept, are appended to a spool file on local disk and are placed on the
+ * target queue once the buffer has drained. The spool file is shared by all
+ * buffered queues with the same name, and tasks which remain in it when the
+ * process stops are placed on the queue by the next buffered queue created
+ * with that name. A batch which is being placed on the target queue when
+ * the process stops is spooled along with the buffer. Tasks are placed on
+ * the target queue at least once.
+ *
+ * Tasks held in memory are lost if the process ends without running its
+ * shutdown hooks (e.g. on a crash). To bound that loss, tasks which remain
+ * in the buffer are moved to the spool file once per flush interval, so
+ * that at most the tasks accepted within the last interval (plus the batch
+ * being placed) are lost.
+ *
+ * All operations other than put() are passed through to the target queue.
+ * Once the queue is closed, tasks passed to put() are spooled, to be placed
+ * on the target queue by the next buffered queue created with its name.
+ */
+public class BufferedTaskQueue implements TaskQueue, Closeable {
+
+    private static final Logger log =
+        LoggerFactory.getLogger(BufferedTaskQueue.class);
+
+    public static final int DEFAULT_CAPACITY = 10000;
+    public static final int DEFAULT_BATCH_SIZE = 10;
+    public static final long DEFAULT_FLUSH_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final long POLL_MILLIS = 1000;
+    private static final long IDLE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long CLOSE_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private static final Map<File, TaskSpool> SPOOLS = new ConcurrentHashMap<>();
+    private static final Set<BufferedTaskQueue> INSTANCES =
+        Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        // Buffered tasks are written to disk rather than lost on shutdown
+        Runtime.getRuntime().addShutdownHook(
+            new Thread(BufferedTaskQueue::spoolAll, "task-queue-spool"));
+    }
+
+    private final TaskQueue target;
+    private final BlockingQueue<Task> buffer;
+    private final int batchSize;
+    private final TaskSpool spool;
+
+    private final AtomicBoolean publishing = new AtomicBoolean();
+    private final AtomicBoolean overflowing = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicReference<List<Task>> inFlight = new AtomicReference<>();
+    private final AtomicLong lastFlush = new AtomicLong(System.currentTimeMillis());
+    private volatile long flushMillis = DEFAULT_FLUSH_MILLIS;
+    private volatile Thread publisher;
+    private long retryDelay = 0;
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong spooledCount = new AtomicLong();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong publishFailureCount = new AtomicLong();
+
+    /**
+     * @param target   queue on which tasks are placed
+     * @param spoolDir directory in which tasks which cannot be held in
+     *                 memory are stored
+     */
+    public BufferedTaskQueue(TaskQueue target, File spoolDir) {
+        this(target, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, spoolDir);
+    }
+
+    /**
+     * @param target    queue on which tasks are placed
+     * @param capacity  maximum number of tasks held in memory
+     * @param batchSize maximum number of tasks placed on the target queue in
+     *                  a single call
+     * @param spoolDir  directory in which tasks which cannot be held in
+     *                  memory are stored
+     */
+    public BufferedTaskQueue(TaskQueue target,
+                             int capacity,
+                             int batchSize,
+                             File spoolDir) {
+        if (null == spoolDir) {
+            throw new IllegalArgumentException("A spool directory is required");
+        }
+        this.target = target;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+
+        String spoolName = target.getName().replaceAll("[^A-Za-z0-9._-]", "_");
+        File spoolFile = new File(spoolDir, spoolName + ".spool").getAbsoluteFile();
+        this.spool = SPOOLS.computeIfAbsent(spoolFile, TaskSpool::new);
+
+        INSTANCES.add(this);
+        if (!spool.isEmpty()) {
+            log.info("Placing {} spooled tasks on queue {}",
+                     spool.size(), target.getName());
+            startPublisher();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return target.getName();
+    }
+
+    /**
+     * Adds a task to the buffer, or to the spool file if the buffer is full.
+     * This method does not wait for the task to be placed on the target queue.
+     */
+    @Override
+    public void put(Task task) {
+        acceptedCount.incrementAndGet();
+        if (closed.get()) {
+            spool(Collections.singletonList(task));
+            return;
+        }
+        if (!buffer.offer(task)) {
+            if (overflowing.compareAndSet(false, true)) {
+                log.warn("Buffer for queue {} is full, tasks will be " +
+                         "spooled to disk until it drains", getName());
+            }
+            spool(Collections.singletonList(task));
+        } else if (closed.get()) {
+            // Closed after the task was added, so may not have been spooled
+            spoolBuffer();
+        } else {
+            flushIfDue();
+        }
+        startPublisher();
+    }
+
+    /*
+     * Moves the tasks held in the buffer to the spool file if the flush
+     * interval has passed since the last flush
+     */
+    private void flushIfDue() {
+        long last = lastFlush.get();
+        long now = System.currentTimeMillis();
+        if (now - last >= flushMillis && lastFlush.compareAndSet(last, now)) {
+            List<Task> tasks = new ArrayList<>();
+            buffer.drainTo(tasks);
+            if (!tasks.isEmpty()) {
+                spool(tasks);
+            }
+        }
+    }
+
+    @Override
+    public void put(Task... tasks) {
+        put(Arrays.asList(tasks));
+    }
+
+    @Override
+    public void put(Set<Task> tasks) {
+        put((Collection<Task>) tasks);
+    }
+
+    private void put(Collection<Task> tasks) {
+        for (Task task : tasks) {
+            put(task);
+        }
+    }
+
+    @Override
+    public Task take() throws TimeoutException {
+        return target.take();
+    }
+
+    @Override
+    public Set<Task> take(int maxTasks) throws TimeoutException {
+        return target.take(maxTasks);
+    }
+
+    @Override
+    public void extendVisibilityTimeout(Task task) throws TaskNotFoundException {
+        target.extendVisibilityTimeout(task);
+    }
+
+    @Override
+    public void deleteTask(Task task) throws TaskNotFoundException {
+        target.deleteTask(task);
+    }
+
+    @Override
+    public void deleteTasks(Set<Task> tasks) throws TaskException {
+        target.deleteTasks(tasks);
+    }
+
+    @Override
+    public Integer size() {
+        return target.size();
+    }
+
+    @Override
+    public Integer sizeIncludingInvisibleAndDelayed() {
+        return target.sizeIncludingInvisibleAndDelayed();
+    }
+
+    @Override
+    public void requeue(Task task) {
+        target.requeue(task);
+    }
+
+    /**
+     * @param flushMillis maximum time, in milliseconds, for which tasks are
+     *                    held only in memory before being moved to the spool
+     *                    file
+     */
+    public void setFlushInterval(long flushMillis) {
+        this.flushMillis = flushMillis;
+    }
+
+    /**
+     * @return number of tasks passed to put()
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    /**
+     * @return number of tasks currently held in memory
+     */
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    /**
+     * @return number of tasks currently held in the spool file
+     */
+    public long getSpoolSize() {
+        return spool.size();
+    }
+
+    /**
+     * @return number of tasks which have been written to the spool file,
+     * either because the buffer was full or because the target queue
+     * failed to accept them
+     */
+    public long getSpooledCount() {
+        return spooledCount.get();
+    }
+
+    /**
+     * @return number of tasks placed on the target queue
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * @return number of batches the target queue failed to accept
+     */
+    public long getPublishFailureCount() {
+        return publishFailureCount.get();
+    }
+
+    /**
+     * Stops placing tasks on the target queue, spools the tasks held in
+     * memory, and closes the target queue if it can be closed. Waits briefly
+     * for a batch being placed on the target queue to complete.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            INSTANCES.remove(this);
+            Thread publisherThread = publisher;
+            if (null != publisherThread) {
+                publisherThread.interrupt();
+                try {
+                    publisherThread.join(CLOSE_WAIT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            spoolBuffer();
+            if (target instanceof Closeable) {
+                ((Closeable) target).close();
+            }
+        }
+    }
+
+    private void startPublisher() {
+        if (!closed.get() && publishing.compareAndSet(false, true)) {
+            Thread publisherThread = new Thread(this::publish, getName() + "-publisher");
+            publisherThread.setDaemon(true);
+            publisher = publisherThread;
+            publisherThread.start();
+        }
+    }
+
+    /*
+     * Places tasks on the target queue until the buffer and spool have been
+     * empty for the idle period, at which point the thread ends. A new
+     * thread is started by the next call to put().
+     */
+    private void publish() {
+        long lastBatch = System.currentTimeMillis();
+        try {
+            while (!closed.get()) {
+                List<Task> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    publish(batch);
+                    lastBatch = System.currentTimeMillis();
+                } else if (System.currentTimeMillis() - lastBatch >= IDLE_MILLIS) {
+                    publishing.set(false);
+                    // A task may have been added after the batch was taken
+                    if ((buffer.isEmpty() && spool.isEmpty()) ||
+                        !publishing.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            }
+            publishing.set(false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            spoolBuffer();
+            publishing.set(false);
+        }
+    }
+
+    private List<Task> nextBatch() throws InterruptedException {
+        List<Task> batch = new ArrayList<>(batchSize);
+        Task task = buffer.poll();
+        if (null == task && !spool.isEmpty()) {
+            // Spooled tasks are placed once the buffer has drained
+            overflowing.set(false);
+            try {
+                batch.addAll(spool.take(batchSize));
+            } catch (IOException e) {
+                log.error("Unable to read spooled tasks for queue {}, " +
+                          "{} tasks will not be placed on the queue: {}",
+                          getName(), spool.size(), e.getMessage());
+                spool.clear();
+            }
+            return batch;
+        }
+
+        if (null == task) {
+            task = buffer.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (null != task) {
+            batch.add(task);
+            buffer.drainTo(batch, batchSize - 1);
+        }
+        return batch;
+    }
+
+    /*
+     * Places a batch on the target queue, spooling the tasks which are not
+     * accepted. The batch is held as in flight until it has been placed or
+     * spooled, so that it is spooled by the shutdown hook if the process
+     * stops in the meantime.
+     */
+    private void publish(List<Task> batch) throws InterruptedException {
+        inFlight.set(batch);
+        List<Task> remaining = batch;
+        while (!remaining.isEmpty()) {
+            // Equal tasks are placed in separate batches, as a set holds only one
+            Set<Task> tasks = new LinkedHashSet<>();
+            List<Task> duplicates = new ArrayList<>();
+            for (Task task : remaining) {
+                if (!tasks.add(task)) {
+                    duplicates.add(task);
+                }
+            }
+
+            try {
+                target.put(tasks);
+                publishedCount.addAndGet(tasks.size());
+                retryDelay = 0;
+            } catch (RuntimeException e) {
+                publishFailureCount.incrementAndGet();
+                retryDelay = Math.min(Math.max(MIN_RETRY_DELAY_MILLIS, retryDelay * 2),
+                                      MAX_RETRY_DELAY_MILLIS);
+                log.warn("Unable to place {} tasks on queue {}, tasks are " +
+                         "spooled and will be retried in {} ms: {}",
+                         remaining.size(), getName(), retryDelay, e.getMessage());
+                // The shutdown hook may have spooled the batch already
+                if (inFlight.compareAndSet(batch, null)) {
+                    spool(remaining);
+                }
+                Thread.sleep(retryDelay);
+                return;
+            }
+            remaining = duplicates;
+        }
+        inFlight.compareAndSet(batch, null);
+    }
+
+    private void spool(List<Task> tasks) {
+        try {
+            spool.append(tasks);
+            spooledCount.addAndGet(tasks.size());
+        } catch (IOException e) {
+            log.error("Unable to spool tasks for queue {}, tasks are lost: {} " +
+                      "due to: {}", getName(), tasks, e.getMessage());
+        }
+    }
+
+    /*
+     * Spools the tasks held in memory, including the batch being placed on
+     * the target queue, if any
+     */
+    void spoolBuffer() {
+        List<Task> tasks = new ArrayList<>();
+        List<Task> batch = inFlight.getAndSet(null);
+        if (null != batch) {
+            tasks.addAll(batch);
+        }
+        buffer.drainTo(tasks);
+        if (!tasks.isEmpty()) {
+            spool(tasks);
+        }
+    }
+
+    private static void spoolAll() {
+        synchronized (INSTANCES) {
+            for (BufferedTaskQueue queue : INSTANCES) {
+                queue.spoolBuffer();
+            }
+        }
+    }
+
+}
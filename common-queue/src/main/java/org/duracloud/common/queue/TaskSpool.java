@@ -0,0 +1,205 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.queue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.duracloud.common.queue.task.Task;
+
+/**
+ * An append-only file of tasks which are waiting to be placed on a queue.
+ * Tasks are appended to the end of the file and taken from the front, in
+ * the order in which they were added. Once every task in the file has been
+ * taken the file is removed.
+ *
+ * The file is retained across restarts; tasks which were added by a
+ * previous process are taken first. Tasks which were taken but not yet
+ * removed from the file when a process stopped are taken again.
+ */
+class TaskSpool {
+
+    private final File spoolFile;
+    private DataOutputStream writer;
+    private DataInputStream reader;
+    private volatile long count = 0;
+    private long taken = 0;
+
+    TaskSpool(File spoolFile) {
+        this.spoolFile = spoolFile;
+        spoolFile.getParentFile().mkdirs();
+        if (spoolFile.exists()) {
+            recover();
+        }
+    }
+
+    /**
+     * Appends tasks to the end of the spool file
+     */
+    synchronized void append(Collection<Task> tasks) throws IOException {
+        if (null == writer) {
+            writer = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(spoolFile, true)));
+        }
+        for (Task task : tasks) {
+            writeTask(writer, task);
+            count++;
+        }
+        writer.flush();
+    }
+
+    /**
+     * Removes and returns up to maxTasks tasks from the front of the spool
+     */
+    synchronized List<Task> take(int maxTasks) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        if (count == 0) {
+            return tasks;
+        }
+
+        if (null != writer) {
+            writer.flush();
+        }
+        if (null == reader) {
+            reader = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(spoolFile)));
+            for (long i = 0; i < taken; i++) {
+                readTask(reader);
+            }
+        }
+        try {
+            while (count > 0 && tasks.size() < maxTasks) {
+                tasks.add(readTask(reader));
+                count--;
+                taken++;
+            }
+        } finally {
+            if (count == 0) {
+                clear();
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * @return the number of tasks in the spool
+     */
+    long size() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Removes all tasks from the spool
+     */
+    synchronized void clear() {
+        IOUtils.closeQuietly(writer);
+        IOUtils.closeQuietly(reader);
+        writer = null;
+        reader = null;
+        count = 0;
+        taken = 0;
+        spoolFile.delete();
+    }
+
+    /*
+     * Counts the tasks in an existing spool file. A task which was only
+     * partially written (due to the process being stopped) is removed.
+     */
+    private void recover() {
+        long validLength = 0;
+        try (CountingInputStream counter = new CountingInputStream(
+            new BufferedInputStream(new FileInputStream(spoolFile)))) {
+            DataInputStream in = new DataInputStream(counter);
+            while (true) {
+                readTask(in);
+                count++;
+                validLength = counter.getByteCount();
+            }
+        } catch (IOException | RuntimeException e) {
+            // End of the complete tasks in the file
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(spoolFile, "rw")) {
+            if (file.length() > validLength) {
+                file.setLength(validLength);
+            }
+        } catch (IOException e) {
+            count = 0;
+            spoolFile.delete();
+        }
+    }
+
+    private void writeTask(DataOutputStream out, Task task) throws IOException {
+        writeString(out, null == task.getType() ? null : task.getType().name());
+        Integer visibilityTimeout = task.getVisibilityTimeout();
+        out.writeInt(null == visibilityTimeout ? -1 : visibilityTimeout);
+        Map<String, String> properties = task.getProperties();
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            writeString(out, property.getKey());
+            writeString(out, property.getValue());
+        }
+    }
+
+    private Task readTask(DataInputStream in) throws IOException {
+        Task task = new Task();
+        String type = readString(in);
+        if (null != type) {
+            task.setType(Task.Type.valueOf(type));
+        }
+        int visibilityTimeout = in.readInt();
+        if (visibilityTimeout >= 0) {
+            task.setVisibilityTimeout(visibilityTimeout);
+        }
+        int propertyCount = in.readInt();
+        for (int i = 0; i < propertyCount; i++) {
+            task.addProperty(readString(in), readString(in));
+        }
+        return task;
+    }
+
+    private void writeString(DataOutputStream out, String value)
+        throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
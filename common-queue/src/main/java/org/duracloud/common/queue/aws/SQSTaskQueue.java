@@ -7,6 +7,7 @@
  */
 package org.duracloud.common.queue.aws;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -60,7 +61,7 @@ import org.slf4j.LoggerFactory;
  * @author Erik Paulsson
  * Date: 10/21/13
  */
-public class SQSTaskQueue implements TaskQueue {
+public class SQSTaskQueue implements TaskQueue, Closeable {
     private static Logger log = LoggerFactory.getLogger(SQSTaskQueue.class);
 
     private AmazonSQS sqsClient;
@@ -400,6 +401,14 @@ public class SQSTaskQueue implements TaskQueue {
         return size;
     }
 
+    /**
+     * Shuts down the SQS client.
+     */
+    @Override
+    public void close() {
+        sqsClient.shutdown();
+    }
+
     private Integer getVisibilityTimeout() {
         GetQueueAttributesResult result = queryQueueAttributes(QueueAttributeName.VisibilityTimeout);
         String visStr = result.getAttributes().get(QueueAttributeName.VisibilityTimeout.name());
@@ -7,19 +7,35 @@
  */
 package org.duracloud.common.queue.rabbitmq;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.DefaultConsumer;
 import com.rabbitmq.client.Envelope;
-import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.ShutdownSignalException;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.duracloud.common.error.DuraCloudRuntimeException;
 import org.duracloud.common.queue.TaskException;
@@ -36,19 +52,42 @@ import org.slf4j.LoggerFactory;
  * RabbitMQ implementation of the TaskQueue
  * emulates the functionality of a queue.
  *
+ * Tasks are published with publisher confirms, so a put() returns once the
+ * broker has accepted every task in the batch. If the broker rejects a task,
+ * or the channel is closed, the batch is published again, on a new channel
+ * where needed. Tasks are received through a
+ * consumer, started by the first take(), which holds up to the prefetch
+ * count of unacknowledged tasks in a local buffer from which take() draws.
+ *
+ * Tasks are encoded in a compact binary format. Messages in the earlier
+ * java.util.Properties text format are still accepted.
+ *
  * @author Shibo Liu
  * Date: 07/03/19
  */
-public class RabbitMQTaskQueue implements TaskQueue {
+public class RabbitMQTaskQueue implements TaskQueue, Closeable {
     private static Logger log = LoggerFactory.getLogger(RabbitMQTaskQueue.class);
 
-    private Channel mqChannel;
+    public static final int DEFAULT_PREFETCH_COUNT = 10;
+    public static final String CONTENT_TYPE = "application/x-duracloud-task";
+
+    private static final byte[] MAGIC = {0, 'D', 'T', 1};
+    private static final long CONFIRM_TIMEOUT_MILLIS = 30000;
+    private static final long TAKE_WAIT_MILLIS = 1000;
+
+    private Connection connection;
+    private volatile Channel mqChannel;
     private String queueName;
     private Integer visibilityTimeout = -1;  // No such thing in RabbitmQ
     private Integer unAcknowlededMesageCount = 0;
     private String queueUrl;
     private String exchangeName;
 
+    private final Object publishLock = new Object();
+    private final BlockingQueue<Task> received = new LinkedBlockingQueue<>();
+    private int prefetchCount = DEFAULT_PREFETCH_COUNT;
+    private volatile String consumerTag;
+
     public enum MsgProp {
         DELIVERY_TAG, ROUTING_KEY, EXCHANGE
     }
@@ -67,11 +106,10 @@ public class RabbitMQTaskQueue implements TaskQueue {
             factory.setVirtualHost(vhost);
             factory.setHost(host);
             factory.setPort(port);
-            Connection conn = factory.newConnection();
-            mqChannel = conn.createChannel();
-            mqChannel.queueBind(queueName, exchangeName, queueName);
-            queueUrl = "(RabbitMQ) " + conn.getAddress();
+            this.connection = factory.newConnection();
             this.queueName = queueName;
+            openChannel();
+            queueUrl = "(RabbitMQ) " + connection.getAddress();
         } catch (Exception ex) {
             log.error("Failed to estabilish connection to RabbitMQ with queue name {} and URL {} because {}",
                       queueName, queueUrl, ex.getMessage());
@@ -82,10 +120,10 @@ public class RabbitMQTaskQueue implements TaskQueue {
     public RabbitMQTaskQueue(Connection conn, String exchange, String queueName) {
         try {
             this.exchangeName = exchange;
-            mqChannel = conn.createChannel();
-            mqChannel.queueBind(queueName, exchange, queueName);
-            queueUrl = "(RabbitMQ) " + conn.getAddress();
+            this.connection = conn;
             this.queueName = queueName;
+            openChannel();
+            queueUrl = "(RabbitMQ) " + conn.getAddress();
         } catch (Exception ex) {
             log.error("Failed to estabilish connection to RabbitMQ with queue name {} and URL {} because {}",
                       queueName, queueUrl, ex.getMessage());
@@ -93,27 +131,60 @@ public class RabbitMQTaskQueue implements TaskQueue {
         }
     }
 
+    /*
+     * Opens the channel used for publishing and consuming, with publisher
+     * confirms enabled
+     */
+    private void openChannel() throws IOException {
+        Channel channel = connection.createChannel();
+        channel.queueBind(queueName, exchangeName, queueName);
+        channel.confirmSelect();
+        mqChannel = channel;
+    }
+
+    /*
+     * Replaces the channel if it has been closed, which the broker does on a
+     * channel error. A consumer on the closed channel no longer receives
+     * tasks, so it is started again on the next take().
+     */
+    private synchronized void ensureChannelOpen() throws IOException {
+        if (mqChannel.isOpen()) {
+            return;
+        }
+        log.warn("RabbitMQ channel for queue {} at {} was closed, opening a new channel",
+                 queueName, queueUrl);
+        consumerTag = null;
+        received.clear();
+        openChannel();
+    }
+
+    /**
+     * @return the retrier used to publish tasks
+     */
+    protected Retrier getPublishRetrier() {
+        return new Retrier(4, 10000, 2);
+    }
+
     @Override
     public String getName() {
         return this.queueName;
     }
 
+    /**
+     * Sets the maximum number of unacknowledged tasks the broker delivers to
+     * this queue ahead of calls to take(). Must be set before the first take().
+     *
+     * @param prefetchCount
+     */
+    public void setPrefetchCount(int prefetchCount) {
+        this.prefetchCount = prefetchCount;
+    }
+
     protected Task marshallTask(byte[] msgBody, long deliveryTag, String routingKey, String exchange) {
-        Properties props = new Properties();
         Task task = null;
-        String msg = new String(msgBody);
         try {
-            props.load(new StringReader(msg));
-
-            if (props.containsKey(Task.KEY_TYPE)) {
-                task = new Task();
-                for (final String key : props.stringPropertyNames()) {
-                    if (key.equals(Task.KEY_TYPE)) {
-                        task.setType(Task.Type.valueOf(props.getProperty(key)));
-                    } else {
-                        task.addProperty(key, props.getProperty(key));
-                    }
-                }
+            task = isBinary(msgBody) ? readBinary(msgBody) : readProperties(msgBody);
+            if (null != task) {
                 task.addProperty(MsgProp.DELIVERY_TAG.name(), String.valueOf(deliveryTag));
                 task.addProperty(MsgProp.ROUTING_KEY.name(), routingKey);
                 task.addProperty(MsgProp.EXCHANGE.name(), exchange);
@@ -121,139 +192,247 @@ public class RabbitMQTaskQueue implements TaskQueue {
                 log.error("RabbitMQ message from queue: " + queueName + " at " + queueUrl +
                           ", does not contain a 'task type'");
             }
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Error creating Task", e);
+            task = null;
+        }
+        return task;
+    }
+
+    protected byte[] unmarshallTask(Task task) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            writeString(out, task.getType().name());
+            Map<String, String> properties = task.getProperties();
+            int count = 0;
+            for (String value : properties.values()) {
+                if (null != value) {
+                    count++;
+                }
+            }
+            out.writeInt(count);
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                if (null != property.getValue()) {
+                    writeString(out, property.getKey());
+                    writeString(out, property.getValue());
+                }
+            }
         } catch (IOException ioe) {
-            log.error("Error creating Task", ioe);
+            log.error("Error unmarshalling Task, queue: " + queueName, ioe);
+        }
+        return bytes.toByteArray();
+    }
+
+    private boolean isBinary(byte[] msgBody) {
+        return msgBody.length >= MAGIC.length &&
+               Arrays.equals(MAGIC, Arrays.copyOf(msgBody, MAGIC.length));
+    }
+
+    private Task readBinary(byte[] msgBody) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            msgBody, MAGIC.length, msgBody.length - MAGIC.length));
+        Task task = new Task();
+        task.setType(Task.Type.valueOf(readString(in)));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            task.addProperty(readString(in), readString(in));
         }
         return task;
     }
 
-    protected String unmarshallTask(Task task) {
+    /*
+     * Reads a message in the java.util.Properties text format
+     */
+    private Task readProperties(byte[] msgBody) throws IOException {
         Properties props = new Properties();
-        props.setProperty(Task.KEY_TYPE, task.getType().name());
-        for (String key : task.getProperties().keySet()) {
-            String value = task.getProperty(key);
-            if (null != value) {
-                props.setProperty(key, value);
-            }
+        props.load(new StringReader(new String(msgBody)));
+        if (!props.containsKey(Task.KEY_TYPE)) {
+            return null;
         }
-        StringWriter sw = new StringWriter();
-        String msgBody = null;
-        try {
-            props.store(sw, null);
-            msgBody = sw.toString();
-        } catch (IOException ioe) {
-            log.error("Error unmarshalling Task, queue: " + queueName +
-                      ", msgBody: " + msgBody, ioe);
+
+        Task task = new Task();
+        for (final String key : props.stringPropertyNames()) {
+            if (key.equals(Task.KEY_TYPE)) {
+                task.setType(Task.Type.valueOf(props.getProperty(key)));
+            } else {
+                task.addProperty(key, props.getProperty(key));
+            }
         }
-        return msgBody;
+        return task;
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     @Override
     public void put(final Task task) {
+        put(Collections.singletonList(task));
+    }
+
+    /**
+     * Convenience method that calls put(Set<Task>)
+     *
+     * @param tasks
+     */
+    @Override
+    public void put(Task... tasks) {
+        put(Arrays.asList(tasks));
+    }
+
+    @Override
+    public void put(Set<Task> tasks) {
+        put((Collection<Task>) tasks);
+    }
+
+    /*
+     * Publishes the tasks and then waits for the broker to confirm all of
+     * them. The whole batch is published again if any task is not confirmed.
+     */
+    private void put(Collection<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
         try {
             String queueName = this.queueName;
-            final String msgBody = unmarshallTask(task);
-            byte[] messageBodyBytes = msgBody.getBytes();
-            new Retrier(4, 10000, 2).execute(new Retriable() {
+            final List<byte[]> messages = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                messages.add(unmarshallTask(task));
+            }
+            getPublishRetrier().execute(new Retriable() {
                 @Override
                 public Object retry() throws Exception {
-                    mqChannel.basicPublish(exchangeName, queueName, null, messageBodyBytes);
+                    synchronized (publishLock) {
+                        ensureChannelOpen();
+                        AMQP.BasicProperties properties =
+                            new AMQP.BasicProperties.Builder()
+                                .contentType(CONTENT_TYPE)
+                                .timestamp(new Date())
+                                .build();
+                        for (byte[] message : messages) {
+                            mqChannel.basicPublish(exchangeName, queueName, properties, message);
+                        }
+                        // Unlike waitForConfirmsOrDie, this leaves the channel open
+                        if (!mqChannel.waitForConfirms(CONFIRM_TIMEOUT_MILLIS)) {
+                            throw new IOException("Not all of " + messages.size() +
+                                                  " tasks were accepted by the broker");
+                        }
+                    }
                     return null;
                 }
             });
-            unAcknowlededMesageCount++;
-            log.info("RabbitMQ message successfully placed {} on queue - queue: {}",
-                     task, queueName);
+            unAcknowlededMesageCount += tasks.size();
+            log.info("{} RabbitMQ messages successfully placed on queue - queue: {}",
+                     tasks.size(), queueName);
 
         } catch (Exception ex) {
-            log.error("failed to place {} on {} at {} due to {}", task, queueName, queueUrl, ex.getMessage());
+            log.error("failed to place {} on {} at {} due to {}", tasks, queueName, queueUrl, ex.getMessage());
             throw new DuraCloudRuntimeException(ex);
         }
     }
 
-    /**
-     * Convenience method that calls put(Set<Task>)
-     *
-     * @param tasks
-     */
     @Override
-    public void put(Task... tasks) {
-        for (Task task : tasks) {
-            this.put(task);
-        }
+    public Set<Task> take(int maxTasks) throws TimeoutException {
+        Task first = take();
+        Set<Task> tasks = new HashSet<>();
+        tasks.add(first);
+        List<Task> more = new ArrayList<>();
+        received.drainTo(more, maxTasks - 1);
+        tasks.addAll(more);
+        return tasks;
     }
 
     @Override
-    public void put(Set<Task> tasks) {
-        for (Task task : tasks) {
-            this.put(task);
+    public Task take() throws TimeoutException {
+        try {
+            startConsumer();
+            Task task = received.poll(TAKE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            if (null != task) {
+                return task;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            log.error("failed to take task from " + queueName + " due to " + ex.getMessage(), ex);
         }
+        throw new TimeoutException("No tasks available from queue: " +
+                                   queueName + ", queueUrl: " + queueUrl);
     }
 
-    @Override
-    public Set<Task> take(int maxTasks) throws TimeoutException {
-        Integer size = size();
-        if (size > 0) {
-            if (size < maxTasks) {
-                size = maxTasks;
+    /*
+     * Starts consuming from the queue, if a consumer is not already active.
+     * Delivered tasks are held in the local buffer until taken.
+     */
+    private synchronized void startConsumer() throws IOException {
+        if (null != consumerTag) {
+            return;
+        }
+
+        ensureChannelOpen();
+        mqChannel.basicQos(prefetchCount);
+        consumerTag = mqChannel.basicConsume(queueName, false, new DefaultConsumer(mqChannel) {
+            @Override
+            public void handleDelivery(String consumerTag,
+                                       Envelope envelope,
+                                       AMQP.BasicProperties properties,
+                                       byte[] body) throws IOException {
+                deliver(envelope, properties, body);
             }
-            Set<Task> tasks = new HashSet<>();
-            try {
-                for (int i = 0; i < size; i++) {
-                    Task task = take();
-                    tasks.add(task);
-                }
-                return tasks;
-            } catch (Exception e) {
-                for (Task task : tasks) {
-                    requeue(task);
-                }
-                throw new TimeoutException("Failed to get at least one message from queue: " +
-                                           queueName + ", queueUrl: " + queueUrl);
+
+            @Override
+            public void handleCancel(String consumerTag) {
+                consumerStopped(consumerTag);
             }
-        } else {
-            throw new TimeoutException("No tasks available from queue: " +
-                                       queueName + ", queueUrl: " + queueUrl);
-        }
+
+            @Override
+            public void handleShutdownSignal(String consumerTag,
+                                             ShutdownSignalException sig) {
+                consumerStopped(consumerTag);
+            }
+        });
     }
 
-    @Override
-    public Task take() throws TimeoutException {
-        Integer size = size();
-        if (size > 0) {
-            try {
-                GetResponse response = mqChannel.basicGet(queueName, false);
-                if (response == null) {
-                    throw new TimeoutException("No tasks available from queue: " +
-                                               queueName + ", queueUrl: " + queueUrl);
-                } else {
-                    AMQP.BasicProperties properties = response.getProps();
-                    Envelope envelope = response.getEnvelope();
-                    byte[] body = response.getBody();
-                    String routingKey = envelope.getRoutingKey();
-                    String exchange = envelope.getExchange();
-                    long deliveryTag = envelope.getDeliveryTag();
-                    Long sentTime = properties.getTimestamp().getTime();
-                    Long preworkQueueTime = System.currentTimeMillis() - sentTime;
-                    log.info(
-                        "RabbitMQ message received - queue: {}, queueUrl: {}, deliveryTag: {}, preworkQueueTime: {}"
-                        , queueName, queueUrl, deliveryTag
-                        , DurationFormatUtils.formatDuration(preworkQueueTime, "HH:mm:ss,SSS"));
-                    Task task = marshallTask(body, deliveryTag, routingKey, exchange);
-                    task.setVisibilityTimeout(visibilityTimeout);
-                    return task;
-                }
-            } catch (Exception ex) {
-                log.error("failed to take task from " + queueName + " due to " + ex.getMessage(), ex);
-                throw new TimeoutException("No tasks available from queue: " +
-                                           queueName + ", queueUrl: " + queueUrl);
+    private void consumerStopped(String tag) {
+        synchronized (this) {
+            if (tag.equals(consumerTag)) {
+                consumerTag = null;
             }
-        } else {
-            throw new TimeoutException("No tasks available from queue: " +
-                                       queueName + ", queueUrl: " + queueUrl);
         }
+        // Unacknowledged deliveries are returned to the queue by the broker
+        received.clear();
     }
 
+    private void deliver(Envelope envelope,
+                         AMQP.BasicProperties properties,
+                         byte[] body) throws IOException {
+        long deliveryTag = envelope.getDeliveryTag();
+        Task task = marshallTask(body, deliveryTag, envelope.getRoutingKey(), envelope.getExchange());
+        if (null == task) {
+            // Not a valid task, redelivery would fail in the same way
+            mqChannel.basicNack(deliveryTag, false, false);
+            return;
+        }
+
+        if (null != properties && null != properties.getTimestamp()) {
+            long preworkQueueTime = System.currentTimeMillis() - properties.getTimestamp().getTime();
+            log.info(
+                "RabbitMQ message received - queue: {}, queueUrl: {}, deliveryTag: {}, preworkQueueTime: {}"
+                , queueName, queueUrl, deliveryTag
+                , DurationFormatUtils.formatDuration(preworkQueueTime, "HH:mm:ss,SSS"));
+        }
+        task.setVisibilityTimeout(visibilityTimeout);
+        received.add(task);
+    }
 
     /**
      * RabbitMQ does not have this feature, messages would not be visible until rejected and requeued
@@ -317,7 +496,7 @@ public class RabbitMQTaskQueue implements TaskQueue {
     public Integer size() {
         try {
             Long sizeLong = mqChannel.messageCount(queueName);
-            return sizeLong.intValue();
+            return sizeLong.intValue() + received.size();
         } catch (Exception e) {
             return 0;
         }
@@ -329,6 +508,16 @@ public class RabbitMQTaskQueue implements TaskQueue {
         return size() + unAcknowlededMesageCount;
     }
 
+    /**
+     * Closes the connection to the broker, along with its channels.
+     */
+    @Override
+    public void close() throws IOException {
+        if (connection.isOpen()) {
+            connection.close();
+        }
+    }
+
     private Integer getVisibilityTimeout() {
 
         return visibilityTimeout;
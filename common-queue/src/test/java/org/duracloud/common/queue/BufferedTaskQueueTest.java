@@ -0,0 +1,274 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.duracloud.common.queue.local.LocalTaskQueue;
+import org.duracloud.common.queue.task.Task;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BufferedTaskQueueTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private List<BufferedTaskQueue> queues = new ArrayList<>();
+
+    @After
+    public void tearDown() throws Exception {
+        // Publishers must stop before the spool directory is removed
+        for (BufferedTaskQueue queue : queues) {
+            queue.close();
+        }
+    }
+
+    private BufferedTaskQueue createQueue(TaskQueue target, int capacity, int batchSize) {
+        BufferedTaskQueue queue =
+            new BufferedTaskQueue(target, capacity, batchSize, tempFolder.getRoot());
+        queues.add(queue);
+        return queue;
+    }
+
+    @Test
+    public void testPut() throws Exception {
+        LocalTaskQueue target = new LocalTaskQueue();
+        BufferedTaskQueue queue = createQueue(target, 100, 10);
+
+        int taskCount = 25;
+        for (int i = 0; i < taskCount; i++) {
+            queue.put(createTask(i));
+        }
+        waitForPublished(queue, taskCount);
+
+        assertEquals(taskCount, target.size().intValue());
+        assertEquals(taskCount, queue.getAcceptedCount());
+        assertEquals(0, queue.getSpooledCount());
+    }
+
+    @Test
+    public void testPutDuplicates() throws Exception {
+        LocalTaskQueue target = new LocalTaskQueue();
+        BufferedTaskQueue queue = createQueue(target, 100, 10);
+
+        queue.put(createTask(1), createTask(1), createTask(2));
+        waitForPublished(queue, 3);
+        assertEquals(3, target.size().intValue());
+    }
+
+    @Test
+    public void testPutNotBlocked() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        LocalTaskQueue target = new LocalTaskQueue() {
+            @Override
+            public synchronized void put(Set<Task> tasks) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.put(tasks);
+            }
+        };
+        BufferedTaskQueue queue = createQueue(target, 2, 1);
+
+        // Tasks beyond the buffer capacity are spooled rather than waiting
+        int taskCount = 10;
+        for (int i = 0; i < taskCount; i++) {
+            queue.put(createTask(i));
+        }
+        assertTrue(queue.getSpooledCount() > 0);
+        assertEquals(queue.getSpooledCount(), queue.getSpoolSize());
+
+        release.countDown();
+        waitForPublished(queue, taskCount);
+        assertEquals(taskCount, target.size().intValue());
+        assertEquals(0, queue.getSpoolSize());
+    }
+
+    @Test
+    public void testPutFailure() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger failedSize = new AtomicInteger();
+        LocalTaskQueue target = new LocalTaskQueue() {
+            @Override
+            public synchronized void put(Set<Task> tasks) {
+                if (failed.getCount() > 0) {
+                    failed.countDown();
+                    failedSize.set(tasks.size());
+                    throw new RuntimeException("failure");
+                }
+                super.put(tasks);
+            }
+        };
+        BufferedTaskQueue queue = createQueue(target, 100, 10);
+
+        queue.put(createTask(1), createTask(2));
+        waitForPublished(queue, 2);
+
+        assertEquals(2, target.size().intValue());
+        assertEquals(1, queue.getPublishFailureCount());
+        // The publisher may have taken the first task before the second was put
+        assertEquals(failedSize.get(), queue.getSpooledCount());
+        assertTrue(failedSize.get() > 0);
+    }
+
+    @Test
+    public void testSpoolInFlight() throws Exception {
+        CountDownLatch putting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LocalTaskQueue target = new LocalTaskQueue() {
+            @Override
+            public synchronized void put(Set<Task> tasks) {
+                putting.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.put(tasks);
+            }
+        };
+        BufferedTaskQueue queue = createQueue(target, 100, 2);
+
+        queue.put(createTask(1), createTask(2));
+        assertTrue(putting.await(5, TimeUnit.SECONDS));
+        queue.put(createTask(3));
+
+        // As on shutdown, the batch being placed is spooled with the buffer
+        queue.spoolBuffer();
+        assertEquals(3, queue.getSpoolSize());
+        release.countDown();
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        CountDownLatch putting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LocalTaskQueue target = new LocalTaskQueue() {
+            @Override
+            public synchronized void put(Set<Task> tasks) {
+                putting.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.put(tasks);
+            }
+        };
+        BufferedTaskQueue queue = createQueue(target, 100, 1);
+        queue.setFlushInterval(0);
+
+        queue.put(createTask(1));
+        assertTrue(putting.await(5, TimeUnit.SECONDS));
+
+        // Tasks waiting in the buffer are moved to the spool file
+        queue.put(createTask(2));
+        queue.put(createTask(3));
+        assertEquals(0, queue.getBufferedCount());
+        assertEquals(2, queue.getSpoolSize());
+
+        release.countDown();
+        waitForPublished(queue, 3);
+        assertEquals(3, target.size().intValue());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        CountDownLatch putting = new CountDownLatch(1);
+        AtomicBoolean targetClosed = new AtomicBoolean();
+        class ClosableQueue extends LocalTaskQueue implements Closeable {
+            @Override
+            public synchronized void put(Set<Task> tasks) {
+                putting.countDown();
+                throw new RuntimeException("failure");
+            }
+
+            @Override
+            public void close() {
+                targetClosed.set(true);
+            }
+        }
+
+        BufferedTaskQueue queue = createQueue(new ClosableQueue(), 100, 10);
+
+        queue.put(createTask(1));
+        assertTrue(putting.await(5, TimeUnit.SECONDS));
+        queue.close();
+        assertTrue(targetClosed.get());
+
+        // Tasks are spooled once closed
+        queue.put(createTask(2));
+        assertEquals(2, queue.getSpoolSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSpoolDirRequired() {
+        new BufferedTaskQueue(new LocalTaskQueue(), null);
+    }
+
+    @Test
+    public void testSpoolRecovery() throws Exception {
+        File spoolFile = new File(tempFolder.getRoot(), "recovery.spool");
+        TaskSpool spool = new TaskSpool(spoolFile);
+        Set<Task> tasks = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(createTask(i));
+        }
+        spool.append(tasks);
+
+        // Simulates a restart, with a partially written task
+        try (FileOutputStream out = new FileOutputStream(spoolFile, true)) {
+            out.write(new byte[] {0, 0, 0, 5, 'A'});
+        }
+        TaskSpool recovered = new TaskSpool(spoolFile);
+        assertEquals(3, recovered.size());
+
+        Set<Task> taken = new HashSet<>(recovered.take(10));
+        assertEquals(tasks, taken);
+        assertTrue(recovered.isEmpty());
+        assertFalse(spoolFile.exists());
+    }
+
+    private Task createTask(int index) {
+        Task task = new Task();
+        task.setType(Task.Type.AUDIT);
+        task.addProperty("index", String.valueOf(index));
+        task.addProperty("empty", null);
+        return task;
+    }
+
+    private void waitForPublished(BufferedTaskQueue queue, int count)
+        throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (queue.getPublishedCount() < count &&
+               System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, queue.getPublishedCount());
+    }
+
+}
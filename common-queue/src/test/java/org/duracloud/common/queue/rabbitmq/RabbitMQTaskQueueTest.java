@@ -7,7 +7,10 @@
  */
 package org.duracloud.common.queue.rabbitmq;
 
+import static org.easymock.EasyMock.anyLong;
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.hamcrest.core.Is.is;
@@ -16,14 +19,21 @@ import static org.junit.Assert.assertThat;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.impl.AMQImpl;
+import org.duracloud.common.queue.TimeoutException;
 import org.duracloud.common.queue.task.Task;
 import org.duracloud.common.queue.task.Task.Type;
+import org.duracloud.common.retry.Retrier;
+import org.easymock.Capture;
 import org.easymock.EasyMockRunner;
 import org.easymock.EasyMockSupport;
 import org.junit.After;
@@ -56,10 +66,16 @@ public class RabbitMQTaskQueueTest extends EasyMockSupport {
 
         expect(connection.createChannel()).andReturn(channel);
         expect(channel.queueBind(queueName, exchange, queueName)).andReturn(new AMQImpl.Queue.BindOk());
+        expect(channel.confirmSelect()).andReturn(new AMQImpl.Confirm.SelectOk());
         expect(connection.getAddress()).andReturn(address);
-        channel.basicPublish(anyObject(String.class), anyObject(String.class),
-                             anyObject(null), anyObject(byte[].class));
-        expectLastCall().anyTimes();
+    }
+
+    private void expectPublish(int messages) throws Exception {
+        channel.basicPublish(eq(exchange), eq(queueName),
+                             anyObject(AMQP.BasicProperties.class), anyObject(byte[].class));
+        expectLastCall().times(messages);
+        expect(channel.isOpen()).andReturn(true);
+        expect(channel.waitForConfirms(anyLong())).andReturn(true);
     }
 
     @After
@@ -68,7 +84,12 @@ public class RabbitMQTaskQueueTest extends EasyMockSupport {
     }
 
     private void createSubject() {
-        queue = new RabbitMQTaskQueue(connection, exchange, queueName);
+        queue = new RabbitMQTaskQueue(connection, exchange, queueName) {
+            @Override
+            protected Retrier getPublishRetrier() {
+                return new Retrier(4, 1, 1);
+            }
+        };
     }
 
     @Test
@@ -104,18 +125,57 @@ public class RabbitMQTaskQueueTest extends EasyMockSupport {
         Task task = new Task();
         task.setType(Task.Type.DUP);
         task.addProperty("key1", "value1");
-        task.addProperty("key2", "value2");
-        task.addProperty("key3", "value3");
-        String msgBody = queue.unmarshallTask(task);
+        task.addProperty("key2", "value=2\n");
+        task.addProperty("key3", null);
+        byte[] msgBody = queue.unmarshallTask(task);
+
+        Task result = queue.marshallTask(msgBody, 1, queueName, exchange);
+        assertThat(result.getType(), is(equalTo(Task.Type.DUP)));
+        assertThat(result.getProperty("key1"), is(equalTo("value1")));
+        assertThat(result.getProperty("key2"), is(equalTo("value=2\n")));
+        Assert.assertFalse(result.getProperties().containsKey("key3"));
+        assertThat(result.getProperty(RabbitMQTaskQueue.MsgProp.DELIVERY_TAG.name()),
+                   is(equalTo("1")));
+    }
+
+    @Test
+    public void testTake() throws Exception {
+        setupRabbitMQClient();
+        expect(channel.isOpen()).andReturn(true);
+        channel.basicQos(RabbitMQTaskQueue.DEFAULT_PREFETCH_COUNT);
+        expectLastCall();
+        Capture<Consumer> consumerCapture = Capture.newInstance();
+        expect(channel.basicConsume(eq(queueName), eq(false), capture(consumerCapture)))
+            .andReturn("consumer-tag");
+        replayAll();
+        createSubject();
+
+        try {
+            queue.take();
+            Assert.fail("Exception expected");
+        } catch (TimeoutException e) {
+            // Expected, no tasks delivered
+        }
 
-        Assert.assertTrue(msgBody.contains("key1=value1"));
-        Assert.assertTrue(msgBody.contains("key2=value2"));
-        Assert.assertTrue(msgBody.contains("key3=value3"));
+        Consumer consumer = consumerCapture.getValue();
+        for (int i = 0; i < 3; i++) {
+            Task task = createSampleAuditTask(i);
+            consumer.handleDelivery("consumer-tag",
+                                    new Envelope(i, false, exchange, queueName),
+                                    new AMQP.BasicProperties.Builder().timestamp(new Date()).build(),
+                                    queue.unmarshallTask(task));
+        }
+
+        Task task = queue.take();
+        assertThat(task.getProperty("timestamp"), is(equalTo("0")));
+        Set<Task> tasks = queue.take(10);
+        assertThat(tasks.size(), is(equalTo(2)));
     }
 
     @Test
-    public void testPut() throws IOException {
+    public void testPut() throws Exception {
         setupRabbitMQClient();
+        expectPublish(1);
         replayAll();
         createSubject();
 
@@ -131,8 +191,9 @@ public class RabbitMQTaskQueueTest extends EasyMockSupport {
     }
 
     @Test
-    public void testPutMuliple() throws IOException {
+    public void testPutMuliple() throws Exception {
         setupRabbitMQClient();
+        expectPublish(11);
         replayAll();
         createSubject();
         Set<Task> tasks = new HashSet<>();
@@ -142,4 +203,52 @@ public class RabbitMQTaskQueueTest extends EasyMockSupport {
         }
         this.queue.put(tasks);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPutRetryAfterNack() throws Exception {
+        setupRabbitMQClient();
+        channel.basicPublish(eq(exchange), eq(queueName),
+                             anyObject(AMQP.BasicProperties.class), anyObject(byte[].class));
+        expectLastCall().times(4);
+        expect(channel.isOpen()).andReturn(true).times(2);
+        // The first batch is nacked, the retry is confirmed on the same channel
+        expect(channel.waitForConfirms(anyLong())).andReturn(false);
+        expect(channel.waitForConfirms(anyLong())).andReturn(true);
+        replayAll();
+        createSubject();
+
+        queue.put(createSampleAuditTask(1), createSampleAuditTask(2));
+    }
+
+    @Test
+    public void testPutReopensClosedChannel() throws Exception {
+        setupRabbitMQClient();
+        Channel newChannel = createMock("NewChannel", Channel.class);
+        expect(channel.isOpen()).andReturn(false);
+        expect(connection.createChannel()).andReturn(newChannel);
+        expect(newChannel.queueBind(queueName, exchange, queueName))
+            .andReturn(new AMQImpl.Queue.BindOk());
+        expect(newChannel.confirmSelect()).andReturn(new AMQImpl.Confirm.SelectOk());
+        newChannel.basicPublish(eq(exchange), eq(queueName),
+                                anyObject(AMQP.BasicProperties.class), anyObject(byte[].class));
+        expectLastCall();
+        expect(newChannel.waitForConfirms(anyLong())).andReturn(true);
+
+        // The consumer is started on the new channel
+        expect(newChannel.isOpen()).andReturn(true);
+        newChannel.basicQos(RabbitMQTaskQueue.DEFAULT_PREFETCH_COUNT);
+        expectLastCall();
+        expect(newChannel.basicConsume(eq(queueName), eq(false), anyObject(Consumer.class)))
+            .andReturn("consumer-tag");
+        replayAll();
+        createSubject();
+
+        queue.put(createSampleAuditTask(1));
+        try {
+            queue.take();
+            Assert.fail("Exception expected");
+        } catch (TimeoutException e) {
+            // Expected, no tasks delivered
+        }
+    }
+}
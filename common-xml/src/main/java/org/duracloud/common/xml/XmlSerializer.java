@@ -10,6 +10,8 @@ package org.duracloud.common.xml;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -27,11 +29,19 @@ import org.xml.sax.SAXException;
 /**
  * Handles the transfer of java beans to XML and back through JAXB
  *
+ * JAXB contexts and schemas are thread-safe and costly to create, so they
+ * are shared by all serializers for the same class and schema.
+ *
  * @author: Bill Branan
  * Date: 7/8/11
  */
 public class XmlSerializer<T> {
 
+    private static final Map<Class, JAXBContext> CONTEXTS =
+        new ConcurrentHashMap<>();
+    private static final Map<String, Schema> SCHEMAS =
+        new ConcurrentHashMap<>();
+
     private Class clazz;
     private String schemaName;
     private String schemaVersion;
@@ -53,26 +63,43 @@ public class XmlSerializer<T> {
         this.clazz = clazz;
         this.schemaName = schemaName;
         this.schemaVersion = schemaVersion;
-        try {
-            context = JAXBContext.newInstance(clazz);
-        } catch (JAXBException e) {
-            throw new XmlSerializationException("Exception encountered " +
-                                                "creating serializer: " +
-                                                getErrorMsg(e), e);
+        this.context = getContext(clazz);
+        this.schema = getSchema(schemaName);
+    }
+
+    private JAXBContext getContext(Class clazz) {
+        JAXBContext jaxbContext = CONTEXTS.get(clazz);
+        if (null == jaxbContext) {
+            try {
+                jaxbContext = JAXBContext.newInstance(clazz);
+            } catch (JAXBException e) {
+                throw new XmlSerializationException("Exception encountered " +
+                                                    "creating serializer: " +
+                                                    getErrorMsg(e), e);
+            }
+            CONTEXTS.putIfAbsent(clazz, jaxbContext);
         }
+        return jaxbContext;
+    }
 
-        try {
-            SchemaFactory factory =
-                SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            Source schemaSource =
-                new StreamSource(getClass().getClassLoader()
-                                           .getResourceAsStream(schemaName));
-            schema = factory.newSchema(schemaSource);
-        } catch (SAXException e) {
-            throw new XmlSerializationException("Unable to load schema for " +
-                                                "validation due to: " +
-                                                e.getMessage());
+    private Schema getSchema(String schemaName) {
+        Schema xmlSchema = SCHEMAS.get(schemaName);
+        if (null == xmlSchema) {
+            try {
+                SchemaFactory factory =
+                    SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                Source schemaSource =
+                    new StreamSource(getClass().getClassLoader()
+                                               .getResourceAsStream(schemaName));
+                xmlSchema = factory.newSchema(schemaSource);
+            } catch (SAXException e) {
+                throw new XmlSerializationException("Unable to load schema for " +
+                                                    "validation due to: " +
+                                                    e.getMessage());
+            }
+            SCHEMAS.putIfAbsent(schemaName, xmlSchema);
         }
+        return xmlSchema;
     }
 
     /**
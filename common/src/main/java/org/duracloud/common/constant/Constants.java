@@ -44,6 +44,14 @@ public class Constants {
      */
     public static final String TEXT_TSV = "text/tab-separated-values";
     public static final String MEDIA_TYPE_APPLICATION_JSON = "application/json";
+    public static final String TEXT_PLAIN = "text/plain";
+
+    /**
+     * Value of the format query parameter of a space listing request which
+     * selects a compact listing of content IDs, one per line (see
+     * ContentIdListWriter), in place of the default XML listing
+     */
+    public static final String SPACE_LISTING_FORMAT_TEXT = "text";
 
     /**
      * Content ID used to define a space snapshot
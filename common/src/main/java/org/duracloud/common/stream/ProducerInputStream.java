@@ -0,0 +1,425 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An InputStream whose content is written by a producer running on a
+ * shared, bounded pool of threads. This takes the place of a piped stream
+ * pair with a dedicated writer thread: the number of producer threads is
+ * capped (further producers wait for a free thread), and content is handed
+ * to the reader in large chunks which the reader consumes without copying.
+ *
+ * An exception thrown by the producer is passed to the reader as an
+ * IOException once the content written before the failure has been read.
+ * Closing the stream causes further writes by the producer to fail, so an
+ * abandoned stream releases its thread. A producer whose content is not
+ * taken by the reader within the hand-off timeout fails in the same way,
+ * and the reader is given an IOException rather than truncated content.
+ * A reader which receives no content from a running producer within the
+ * timeout also fails, and closes the stream.
+ *
+ * Metrics of the producer pool are available through the static getters
+ * and are registered with the platform MBean server as
+ * org.duracloud.common.stream:type=ProducerInputStream.
+ */
+public class ProducerInputStream extends InputStream {
+
+    /**
+     * Writes the content of the stream
+     */
+    public interface Producer {
+        void produce(OutputStream output) throws Exception;
+    }
+
+    /**
+     * Metrics of the producer pool, as exposed over JMX
+     */
+    public interface Metrics {
+        int getActiveProducers();
+
+        int getWaitingProducers();
+
+        long getBytesProduced();
+
+        double getBytesPerSecond();
+
+        long getHandOffTimeouts();
+    }
+
+    private static final Logger log =
+        LoggerFactory.getLogger(ProducerInputStream.class);
+
+    public static final int MAX_PRODUCERS = 16;
+    public static final int CHUNK_SIZE = 64 * 1024;
+    public static final long DEFAULT_HAND_OFF_TIMEOUT_MILLIS =
+        TimeUnit.MINUTES.toMillis(5);
+
+    private static final int MAX_PENDING_CHUNKS = 16;
+    private static final long OFFER_WAIT_MILLIS = 1000;
+    private static final byte[] END = new byte[0];
+
+    private static final ThreadPoolExecutor EXECUTOR =
+        new ThreadPoolExecutor(MAX_PRODUCERS, MAX_PRODUCERS,
+                               60, TimeUnit.SECONDS,
+                               new LinkedBlockingQueue<>(),
+                               ProducerInputStream::newProducerThread);
+
+    private static final AtomicInteger activeProducers = new AtomicInteger();
+    private static final AtomicLong bytesProduced = new AtomicLong();
+    private static final AtomicLong producingNanos = new AtomicLong();
+    private static final AtomicLong handOffTimeouts = new AtomicLong();
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+        registerMetrics();
+    }
+
+    private final BlockingQueue<byte[]> chunks =
+        new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS);
+    private final long handOffTimeoutMillis;
+    private volatile Throwable failure;
+    private volatile boolean started = false;
+    private volatile boolean abandoned = false;
+    private volatile boolean closed = false;
+
+    private byte[] current;
+    private int position;
+    private boolean ended = false;
+
+    private ProducerInputStream(long handOffTimeoutMillis) {
+        this.handOffTimeoutMillis = handOffTimeoutMillis;
+    }
+
+    /**
+     * Starts a producer and returns the stream from which its content is
+     * read. The producer runs once a producer thread is available.
+     *
+     * @param producer writes the content of the stream
+     * @return stream of the content written by the producer
+     */
+    public static InputStream start(Producer producer) {
+        return start(producer, DEFAULT_HAND_OFF_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Starts a producer and returns the stream from which its content is
+     * read. The producer runs once a producer thread is available.
+     *
+     * @param producer             writes the content of the stream
+     * @param handOffTimeoutMillis time after which the producer fails if the
+     *                             reader has not taken its content, and the
+     *                             reader fails if a running producer has not
+     *                             provided content
+     * @return stream of the content written by the producer
+     */
+    public static InputStream start(Producer producer, long handOffTimeoutMillis) {
+        ProducerInputStream stream = new ProducerInputStream(handOffTimeoutMillis);
+        EXECUTOR.execute(() -> stream.run(producer));
+        return stream;
+    }
+
+    /**
+     * @return number of producers currently writing content
+     */
+    public static int getActiveProducers() {
+        return activeProducers.get();
+    }
+
+    /**
+     * @return number of producers waiting for a thread
+     */
+    public static int getWaitingProducers() {
+        return EXECUTOR.getQueue().size();
+    }
+
+    /**
+     * @return total number of bytes written by producers
+     */
+    public static long getBytesProduced() {
+        return bytesProduced.get();
+    }
+
+    /**
+     * @return average rate at which a producer writes content, in bytes per
+     * second, including time spent waiting for the reader
+     */
+    public static double getBytesPerSecond() {
+        long nanos = producingNanos.get();
+        return nanos == 0 ? 0 :
+               bytesProduced.get() / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @return number of producers which failed because the reader did not
+     * take their content within the hand-off timeout
+     */
+    public static long getHandOffTimeouts() {
+        return handOffTimeouts.get();
+    }
+
+    private static void registerMetrics() {
+        Metrics metrics = new Metrics() {
+            public int getActiveProducers() {
+                return ProducerInputStream.getActiveProducers();
+            }
+
+            public int getWaitingProducers() {
+                return ProducerInputStream.getWaitingProducers();
+            }
+
+            public long getBytesProduced() {
+                return ProducerInputStream.getBytesProduced();
+            }
+
+            public double getBytesPerSecond() {
+                return ProducerInputStream.getBytesPerSecond();
+            }
+
+            public long getHandOffTimeouts() {
+                return ProducerInputStream.getHandOffTimeouts();
+            }
+        };
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                new StandardMBean(metrics, Metrics.class),
+                new ObjectName("org.duracloud.common.stream:type=ProducerInputStream"));
+        } catch (JMException | RuntimeException e) {
+            // Such as when registered by another application in the same JVM
+            log.info("Producer metrics not registered over JMX: {}", e.getMessage());
+        }
+    }
+
+    private static Thread newProducerThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "stream-producer");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void run(Producer producer) {
+        started = true;
+        activeProducers.incrementAndGet();
+        long start = System.nanoTime();
+        ChunkOutputStream output = new ChunkOutputStream();
+        try {
+            producer.produce(output);
+            output.close();
+        } catch (Exception | Error e) {
+            try {
+                // Content written before the failure remains readable
+                output.close();
+            } catch (IOException ioe) {
+                // Stream closed by the reader
+            }
+            failure = e;
+        } finally {
+            producingNanos.addAndGet(System.nanoTime() - start);
+            activeProducers.decrementAndGet();
+            try {
+                handOff(END);
+            } catch (IOException e) {
+                // Stream closed by the reader
+            }
+        }
+    }
+
+    /*
+     * Passes a chunk to the reader, waiting while the reader is behind. Once
+     * the reader has taken nothing for the hand-off timeout the stream is
+     * abandoned, and this and all further hand-offs fail.
+     */
+    private void handOff(byte[] chunk) throws IOException {
+        if (abandoned) {
+            throw new IOException("Stream abandoned by reader");
+        }
+        long deadline = System.currentTimeMillis() + handOffTimeoutMillis;
+        long wait = Math.min(OFFER_WAIT_MILLIS, handOffTimeoutMillis);
+        try {
+            while (!chunks.offer(chunk, wait, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    break;
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    abandoned = true;
+                    handOffTimeouts.incrementAndGet();
+                    log.warn("Stream reader took no content within {} ms, " +
+                             "stopping producer", handOffTimeoutMillis);
+                    throw new IOException("Stream abandoned by reader");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (closed) {
+            chunks.clear();
+            throw new IOException("Stream closed by reader");
+        }
+    }
+
+    /*
+     * Ensures the current chunk has content to read
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (!ended && (null == current || position >= current.length)) {
+            current = take();
+            position = 0;
+            if (current == END) {
+                ended = true;
+            }
+        }
+        if (ended) {
+            if (null != failure) {
+                throw new IOException("Failure producing stream content: " +
+                                      failure.getMessage(), failure);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * Takes the next chunk from the producer. Time spent waiting for a
+     * producer thread does not count towards the hand-off timeout.
+     */
+    private byte[] take() throws IOException {
+        long deadline = System.currentTimeMillis() + handOffTimeoutMillis;
+        long wait = Math.min(OFFER_WAIT_MILLIS, handOffTimeoutMillis);
+        try {
+            while (true) {
+                byte[] chunk = chunks.poll(wait, TimeUnit.MILLISECONDS);
+                if (null != chunk) {
+                    return chunk;
+                }
+                if (abandoned) {
+                    throw new IOException("Stream content not read in time, " +
+                                          "producer stopped", failure);
+                }
+                if (!started) {
+                    deadline = System.currentTimeMillis() + handOffTimeoutMillis;
+                } else if (System.currentTimeMillis() >= deadline) {
+                    close();
+                    throw new IOException("No stream content produced within " +
+                                          handOffTimeoutMillis + " ms");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (ended || null == current) {
+            return 0;
+        }
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        chunks.clear();
+    }
+
+    /*
+     * Collects written content into chunks which are handed to the reader
+     * as they fill
+     */
+    private class ChunkOutputStream extends OutputStream {
+        private byte[] buffer = new byte[CHUNK_SIZE];
+        private int size = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == buffer.length) {
+                handOffBuffer();
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (size == buffer.length) {
+                    handOffBuffer();
+                }
+                int count = Math.min(len, buffer.length - size);
+                System.arraycopy(b, off, buffer, size, count);
+                size += count;
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (size > 0) {
+                byte[] chunk = new byte[size];
+                System.arraycopy(buffer, 0, chunk, 0, size);
+                handOff(chunk);
+                bytesProduced.addAndGet(size);
+                size = 0;
+            }
+        }
+
+        private void handOffBuffer() throws IOException {
+            handOff(buffer);
+            bytesProduced.addAndGet(size);
+            buffer = new byte[CHUNK_SIZE];
+            size = 0;
+        }
+    }
+
+}
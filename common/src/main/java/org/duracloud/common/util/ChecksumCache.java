@@ -0,0 +1,609 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent cache of the MD5 checksums of local files. An entry is only
+ * considered valid while the size, last modified time and (where the file
+ * system provides one) file key, such as the inode, of the file match those
+ * recorded when the checksum was computed. This allows unchanged files to be
+ * compared against remote checksums without being read again.
+ *
+ * Entries are appended to a cache file as they are added, and the cache file
+ * is read back in when the cache is created. Where an entry appears more than
+ * once in the cache file, the last one wins. Each line carries a CRC of its
+ * content, so a line left incomplete by a crash is ignored rather than
+ * misread. When the cache file holds many more lines than live entries it is
+ * compacted by writing the live entries to a new file which then replaces
+ * the old one.
+ *
+ * Entries are not held in memory. Only an index from a 64-bit hash of each
+ * path to the position of its line in the cache file is kept, a fixed 16
+ * bytes or so per entry, and entries are read from the cache file as they
+ * are looked up. A lookup which finds the line of a different path with
+ * the same hash is treated as a miss.
+ *
+ * This class is thread-safe.
+ */
+public class ChecksumCache {
+
+    private final Logger log = LoggerFactory.getLogger(ChecksumCache.class);
+
+    private static final String DELIM = "\t";
+    private static final String NO_FILE_KEY = "-";
+    private static final String REMOVED = "-";
+
+    /*
+     * Files modified within this period of the time at which their checksum
+     * is recorded are not cached, as a later change within the same
+     * timestamp granularity could not be distinguished.
+     */
+    protected static final long MODIFIED_GRACE_MILLIS = 2000;
+
+    /*
+     * The cache file is compacted on load when it holds more than this
+     * many lines beyond twice the number of live entries.
+     */
+    protected static final int COMPACT_THRESHOLD = 10000;
+
+    private final File cacheFile;
+    private OffsetIndex index = new OffsetIndex();
+    private OutputStream writer;
+    private FileChannel reader;
+    private long fileLength = 0;
+    private boolean partialLine = false;
+    private boolean closed = false;
+
+    /**
+     * @param cacheFile file in which cache entries are persisted, created if
+     *                  it does not exist
+     */
+    public ChecksumCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+        int lines = load();
+        if (lines - (2 * index.size()) > COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Retrieves the checksum of a file, computing (and caching) it only if
+     * there is no valid cached value.
+     *
+     * @param file local file
+     * @return MD5 checksum of the file
+     */
+    public String getChecksum(File file) throws IOException {
+        String checksum = getCachedChecksum(file);
+        if (null == checksum) {
+            BasicFileAttributes before = readAttributes(file);
+            checksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+                .generateChecksum(file);
+            BasicFileAttributes after = readAttributes(file);
+            if (null != before && null != after &&
+                new Entry(before, checksum).matches(after)) {
+                put(file, after, checksum);
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Retrieves the cached checksum of a file.
+     *
+     * @param file local file
+     * @return MD5 checksum of the file, or null if the file is not cached or
+     * has changed since its checksum was cached
+     */
+    public String getCachedChecksum(File file) {
+        Entry entry = getEntry(getKey(file));
+        if (null != entry) {
+            BasicFileAttributes attributes = readAttributes(file);
+            if (null != attributes && entry.matches(attributes)) {
+                return entry.checksum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records the checksum of a file, which must have been computed from the
+     * current content of the file.
+     *
+     * @param file     local file
+     * @param checksum MD5 checksum of the file
+     */
+    public void put(File file, String checksum) {
+        BasicFileAttributes attributes = readAttributes(file);
+        if (null != attributes) {
+            put(file, attributes, checksum);
+        }
+    }
+
+    /**
+     * Removes any cached checksum of a file
+     */
+    public synchronized void remove(File file) {
+        String path = getKey(file);
+        if (index.remove(hash(path))) {
+            append(path, new Entry(0, 0, NO_FILE_KEY, REMOVED));
+        }
+    }
+
+    /**
+     * @return number of files in the cache
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Rewrites the cache file to include only the current entries. The new
+     * file is written alongside the existing one and then moved into place,
+     * so the existing file remains intact if the process is stopped.
+     */
+    public synchronized void compact() {
+        if (closed) {
+            return;
+        }
+        closeWriter();
+
+        File compactFile = new File(cacheFile.getAbsolutePath() + ".compact");
+        OffsetIndex compactIndex = new OffsetIndex();
+        long compactLength = 0;
+        try {
+            // Lines are read in file order
+            long[] offsets = index.offsets();
+            Arrays.sort(offsets);
+            try (FileOutputStream out = new FileOutputStream(compactFile);
+                 OutputStream compactWriter = new BufferedOutputStream(out)) {
+                for (long offset : offsets) {
+                    String line = readLine(offset);
+                    String path = (null == line) ? null : parsePath(line);
+                    if (null != path) {
+                        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+                        compactWriter.write(bytes);
+                        compactIndex.put(hash(path), compactLength);
+                        compactLength += bytes.length;
+                    }
+                }
+                compactWriter.flush();
+                out.getFD().sync();
+            }
+            Files.move(compactFile.toPath(), cacheFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            closeReader();
+            index = compactIndex;
+            fileLength = compactLength;
+            partialLine = false;
+            log.info("Compacted checksum cache file {} to {} entries",
+                     cacheFile.getAbsolutePath(), index.size());
+        } catch (IOException e) {
+            log.warn("Unable to compact checksum cache file {}: {}",
+                     cacheFile.getAbsolutePath(), e.getMessage());
+            compactFile.delete();
+        }
+    }
+
+    /**
+     * Flushes and closes the cache file. Entries added after the cache is
+     * closed are not recorded.
+     */
+    public synchronized void close() {
+        closeWriter();
+        closeReader();
+        closed = true;
+    }
+
+    private void put(File file, BasicFileAttributes attributes, String checksum) {
+        Entry entry = new Entry(attributes, checksum);
+        if (entry.modified > System.currentTimeMillis() - MODIFIED_GRACE_MILLIS) {
+            return;
+        }
+
+        String path = getKey(file);
+        if (path.contains("\n") || path.contains("\r")) {
+            return;
+        }
+
+        synchronized (this) {
+            long offset = append(path, entry);
+            if (offset >= 0) {
+                index.put(hash(path), offset);
+            }
+        }
+    }
+
+    /*
+     * Reads the entry for a path from the cache file
+     */
+    private synchronized Entry getEntry(String path) {
+        long offset = index.get(hash(path));
+        if (offset < 0) {
+            return null;
+        }
+        try {
+            String line = readLine(offset);
+            if (null != line && path.equals(parsePath(line))) {
+                return parseEntry(line);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read checksum cache file {}: {}",
+                     cacheFile.getAbsolutePath(), e.getMessage());
+        } finally {
+            if (closed) {
+                closeReader();
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Appends an entry to the cache file, returning the position of its
+     * line or -1 if it could not be written
+     */
+    private long append(String path, Entry entry) {
+        if (closed) {
+            return -1;
+        }
+        try {
+            if (null == writer) {
+                writer = new BufferedOutputStream(
+                    new FileOutputStream(cacheFile, true));
+            }
+            if (partialLine) {
+                // Ends a line left incomplete by a crash
+                writer.write('\n');
+                fileLength++;
+                partialLine = false;
+            }
+            byte[] bytes = toLine(path, entry).getBytes(StandardCharsets.UTF_8);
+            writer.write(bytes);
+            writer.flush();
+            long offset = fileLength;
+            fileLength += bytes.length;
+            return offset;
+        } catch (IOException e) {
+            log.warn("Unable to write to checksum cache file {}: {}",
+                     cacheFile.getAbsolutePath(), e.getMessage());
+            closeWriter();
+            fileLength = cacheFile.length();
+            partialLine = true;
+            return -1;
+        }
+    }
+
+    private void closeWriter() {
+        if (null != writer) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Error closing checksum cache file {}: {}",
+                         cacheFile.getAbsolutePath(), e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    private void closeReader() {
+        if (null != reader) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // Only used for reading
+            }
+            reader = null;
+        }
+    }
+
+    /*
+     * Reads the line which starts at the given position of the cache file,
+     * returning null if there is no complete line there
+     */
+    private String readLine(long offset) throws IOException {
+        if (null == reader) {
+            reader = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ);
+        }
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        long position = offset;
+        while (reader.read(buffer, position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    return new String(line.toByteArray(), StandardCharsets.UTF_8);
+                }
+                line.write(b);
+            }
+            position += buffer.position();
+            buffer.clear();
+        }
+        return null;
+    }
+
+    /*
+     * Reads the cache file, returning the number of lines read
+     */
+    private int load() {
+        if (!cacheFile.exists()) {
+            return 0;
+        }
+
+        int lines = 0;
+        long offset = 0;
+        long lineStart = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        try (InputStream in = new FileInputStream(cacheFile)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    offset++;
+                    if (buffer[i] == '\n') {
+                        lines++;
+                        loadLine(line, lineStart);
+                        line.reset();
+                        lineStart = offset;
+                    } else {
+                        line.write(buffer[i]);
+                    }
+                }
+            }
+            if (line.size() > 0) {
+                // Left incomplete, its CRC will not match
+                lines++;
+                loadLine(line, lineStart);
+                partialLine = true;
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read checksum cache file {}: {}",
+                     cacheFile.getAbsolutePath(), e.getMessage());
+            partialLine = true;
+        }
+        fileLength = offset;
+        log.info("Loaded {} entries from checksum cache file {}",
+                 index.size(), cacheFile.getAbsolutePath());
+        return lines;
+    }
+
+    private void loadLine(ByteArrayOutputStream bytes, long offset) {
+        String line = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        String path = parsePath(line);
+        if (null == path) {
+            log.debug("Skipping invalid checksum cache line: {}", line);
+        } else if (REMOVED.equals(parseEntry(line).checksum)) {
+            index.remove(hash(path));
+        } else {
+            index.put(hash(path), offset);
+        }
+    }
+
+    /*
+     * Line format: crc, size, modified, file key, checksum, path
+     *
+     * Returns the path of a valid line, or null if the line is not valid
+     */
+    private String parsePath(String line) {
+        String[] fields = line.split(DELIM, 6);
+        if (fields.length != 6) {
+            return null;
+        }
+
+        String content = line.substring(fields[0].length() + 1);
+        if (!fields[0].equals(crc(content)) || null == parseEntry(line)) {
+            return null;
+        }
+        return fields[5];
+    }
+
+    private Entry parseEntry(String line) {
+        String[] fields = line.split(DELIM, 6);
+        try {
+            return new Entry(Long.parseLong(fields[1]),
+                             Long.parseLong(fields[2]),
+                             fields[3],
+                             fields[4]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private String toLine(String path, Entry entry) {
+        String content = entry.size + DELIM + entry.modified + DELIM +
+                         entry.fileKey + DELIM + entry.checksum + DELIM + path;
+        return crc(content) + DELIM + content + "\n";
+    }
+
+    private String crc(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /*
+     * 64-bit FNV-1a hash of a path
+     */
+    private static long hash(String path) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) {
+            hash ^= path.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private String getKey(File file) {
+        return file.getAbsolutePath();
+    }
+
+    private BasicFileAttributes readAttributes(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String getFileKey(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        if (null == fileKey) {
+            return NO_FILE_KEY;
+        }
+        // Ensure the key cannot break the line format
+        return fileKey.toString().replaceAll("\\s", "");
+    }
+
+    private static class Entry {
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final String checksum;
+
+        Entry(long size, long modified, String fileKey, String checksum) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.checksum = checksum;
+        }
+
+        Entry(BasicFileAttributes attributes, String checksum) {
+            this(attributes.size(),
+                 attributes.lastModifiedTime().toMillis(),
+                 getFileKey(attributes),
+                 checksum);
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() &&
+                   modified == attributes.lastModifiedTime().toMillis() &&
+                   fileKey.equals(getFileKey(attributes));
+        }
+    }
+
+    /**
+     * An open-addressed hash table from path hashes to positions in the
+     * cache file, held in two arrays so that no object is allocated per
+     * entry. Removed entries are left as tombstones until the table is
+     * next resized.
+     */
+    private static class OffsetIndex {
+        private static final long EMPTY = 0;
+        private static final long TOMBSTONE = -1;
+
+        private long[] keys = new long[1024];
+        private long[] offsets = new long[1024];
+        private int size = 0;
+        private int used = 0;
+
+        long get(long hash) {
+            int slot = find(hash);
+            return keys[slot] == EMPTY ? -1 : offsets[slot];
+        }
+
+        void put(long hash, long offset) {
+            if ((used + 1) * 4L > keys.length * 3L) {
+                resize();
+            }
+            long key = toKey(hash);
+            int slot = find(hash);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                used++;
+                size++;
+            } else if (offsets[slot] == TOMBSTONE) {
+                size++;
+            }
+            offsets[slot] = offset;
+        }
+
+        boolean remove(long hash) {
+            int slot = find(hash);
+            if (keys[slot] == EMPTY || offsets[slot] == TOMBSTONE) {
+                return false;
+            }
+            offsets[slot] = TOMBSTONE;
+            size--;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] offsets() {
+            long[] live = new long[size];
+            int count = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY && offsets[i] != TOMBSTONE) {
+                    live[count++] = offsets[i];
+                }
+            }
+            return live;
+        }
+
+        /*
+         * Returns the slot holding the hash, or the empty slot at which it
+         * would be added
+         */
+        private int find(long hash) {
+            long key = toKey(hash);
+            int mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldOffsets = offsets;
+            int capacity = keys.length;
+            while ((size + 1) * 2L > capacity) {
+                capacity *= 2;
+            }
+            keys = new long[capacity];
+            offsets = new long[capacity];
+            size = 0;
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY && oldOffsets[i] != TOMBSTONE) {
+                    put(oldKeys[i], oldOffsets[i]);
+                }
+            }
+        }
+
+        private static long toKey(long hash) {
+            return hash == EMPTY ? 1 : hash;
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over a listing of content IDs written by ContentIdListWriter,
+ * reading each content ID from the stream as it is requested.
+ */
+public class ContentIdListIterator implements Iterator<String>, Closeable {
+
+    private final BufferedReader reader;
+    private String next;
+
+    public ContentIdListIterator(InputStream inputStream) {
+        this.reader = new BufferedReader(
+            new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        readNext();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return null != next;
+    }
+
+    @Override
+    public String next() {
+        if (null == next) {
+            throw new NoSuchElementException();
+        }
+        String contentId = next;
+        readNext();
+        return contentId;
+    }
+
+    private void readNext() {
+        try {
+            String line = reader.readLine();
+            if (null != line && line.indexOf('\\') >= 0) {
+                line = line.replace("\\n", "\n").replace("\\r", "\r");
+            }
+            next = line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a compact listing of content IDs: UTF-8 text with one content ID
+ * per line. Line breaks within a content ID are written as the escape
+ * sequences \n and \r, which is unambiguous as content IDs may not include
+ * the '\' character. Listings are read by ContentIdListIterator.
+ */
+public class ContentIdListWriter implements Closeable, Flushable {
+
+    private final Writer writer;
+
+    public ContentIdListWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(
+            new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    public void write(String contentId) throws IOException {
+        if (contentId.indexOf('\n') >= 0 || contentId.indexOf('\r') >= 0) {
+            contentId = contentId.replace("\n", "\\n").replace("\r", "\\r");
+        }
+        writer.write(contentId);
+        writer.write('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+}
@@ -7,6 +7,7 @@
  */
 package org.duracloud.common.util;
 
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,15 +16,29 @@ import java.util.Map;
 import java.util.Set;
 
 import com.thoughtworks.xstream.XStream;
-import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import com.thoughtworks.xstream.io.xml.StaxDriver;
 
 /**
  * Provides utility methods for serializing and deserializing.
  *
+ * A single XStream instance is shared by all calls, as XStream is
+ * thread-safe once configured and is costly to create. XML is parsed with a
+ * streaming (StAX) reader, and is written in the same indented format
+ * produced by earlier versions of this class.
+ *
  * @author Bill Branan
  */
 public class SerializationUtil {
 
+    private static final XStream XSTREAM = new XStream(new StaxDriver() {
+        @Override
+        public HierarchicalStreamWriter createWriter(Writer out) {
+            return new PrettyPrintWriter(out, getNameCoder());
+        }
+    });
+
     private SerializationUtil() {
         // Ensures no instances are made of this class, as there are only static members.
     }
@@ -39,8 +54,7 @@ public class SerializationUtil {
         if (map == null) {
             map = new HashMap<String, String>();
         }
-        XStream xstream = new XStream(new DomDriver());
-        return xstream.toXML(map);
+        return XSTREAM.toXML(map);
     }
 
     /**
@@ -55,8 +69,7 @@ public class SerializationUtil {
         if (map == null || map.equals("")) {
             return new HashMap<String, String>();
         } else {
-            XStream xstream = new XStream(new DomDriver());
-            return (Map<String, String>) xstream.fromXML(map);
+            return (Map<String, String>) XSTREAM.fromXML(map);
         }
     }
 
@@ -71,8 +84,7 @@ public class SerializationUtil {
         if (list == null) {
             list = new ArrayList<String>();
         }
-        XStream xstream = new XStream(new DomDriver());
-        return xstream.toXML(list);
+        return XSTREAM.toXML(list);
     }
 
     /**
@@ -87,8 +99,7 @@ public class SerializationUtil {
         if (list == null || list.equals("")) {
             return new ArrayList<String>();
         }
-        XStream xstream = new XStream(new DomDriver());
-        return (List<String>) xstream.fromXML(list);
+        return (List<String>) XSTREAM.fromXML(list);
     }
 
     /**
@@ -102,8 +113,7 @@ public class SerializationUtil {
         if (set == null) {
             set = new HashSet<String>();
         }
-        XStream xstream = new XStream(new DomDriver());
-        return xstream.toXML(set);
+        return XSTREAM.toXML(set);
     }
 
     /**
@@ -118,7 +128,6 @@ public class SerializationUtil {
         if (set == null || set.equals("")) {
             return new HashSet<String>();
         }
-        XStream xstream = new XStream(new DomDriver());
-        return (Set<String>) xstream.fromXML(set);
+        return (Set<String>) XSTREAM.fromXML(set);
     }
 }
@@ -33,29 +33,34 @@ public class NetworkUtil {
 
     private void isRunning(String url, boolean state)
         throws DuraCloudCheckedException {
-        int tries = 0;
-        int maxTries = 40;
-        boolean running = isRunning(url);
-        while (running != state && tries++ < maxTries) {
-            sleep(1000);
-            running = isRunning(url);
-        }
+        // A single helper (and connection pool) is used for every check
+        RestHttpHelper httpHelper = new RestHttpHelper();
+        try {
+            int tries = 0;
+            int maxTries = 40;
+            boolean running = isRunning(httpHelper, url);
+            while (running != state && tries++ < maxTries) {
+                sleep(1000);
+                running = isRunning(httpHelper, url);
+            }
 
-        if (running != state) {
-            sleep(5000);
-            running = isRunning(url);
-        }
+            if (running != state) {
+                sleep(5000);
+                running = isRunning(httpHelper, url);
+            }
 
-        if (running != state) {
-            String err = state ? "Not running" : "Still running";
-            throw new DuraCloudCheckedException(err + ": " + url);
+            if (running != state) {
+                String err = state ? "Not running" : "Still running";
+                throw new DuraCloudCheckedException(err + ": " + url);
+            }
+        } finally {
+            httpHelper.close();
         }
     }
 
-    private boolean isRunning(String url) {
+    private boolean isRunning(RestHttpHelper httpHelper, String url) {
         boolean running = false;
 
-        RestHttpHelper httpHelper = new RestHttpHelper();
         RestHttpHelper.HttpResponse response = null;
         try {
             response = httpHelper.get(url);
@@ -71,6 +76,7 @@ public class NetworkUtil {
             } else {
                 log.debug("status code: {}", status);
             }
+            response.close();
         }
 
         return running;
@@ -7,6 +7,7 @@
  */
 package org.duracloud.common.web;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -14,6 +15,7 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.Charsets;
 import org.apache.http.Header;
@@ -25,6 +27,7 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
@@ -34,6 +37,7 @@ import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
@@ -44,7 +48,7 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicStatusLine;
 import org.apache.http.util.EntityUtils;
 import org.duracloud.common.model.Credential;
@@ -55,16 +59,41 @@ import org.slf4j.LoggerFactory;
 /**
  * Provides helper methods for REST tests
  *
+ * Each instance holds a pool of persistent connections which is shared by
+ * all requests made through that instance, so instances should be reused
+ * rather than created per request.
+ *
  * @author Bill Branan
  */
 public class RestHttpHelper {
 
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 100;
+    public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 200;
+    public static final int DEFAULT_IDLE_CONNECTION_TIMEOUT_SECONDS = 30;
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS = 60000;
+
     protected final Logger log = LoggerFactory.getLogger(RestHttpHelper.class);
 
     private CredentialsProvider credsProvider;
 
     private int socketTimeoutMs = -1;
 
+    private int idleConnectionTimeoutSeconds;
+
+    private int connectionRequestTimeoutMs;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    // HEAD requests must not attempt to decompress the (empty) response
+    private CloseableHttpClient headHttpClient;
+
+    // Preemptive basic auth, shared across requests
+    private AuthCache authCache;
+
+    private volatile long lastEviction = System.currentTimeMillis();
+
     public RestHttpHelper() {
         this(null);
     }
@@ -82,15 +111,75 @@ public class RestHttpHelper {
     }
 
     public RestHttpHelper(Credential credential, int socketTimeoutMs) {
+        this(credential,
+             socketTimeoutMs,
+             DEFAULT_MAX_CONNECTIONS_PER_ROUTE,
+             DEFAULT_MAX_CONNECTIONS_TOTAL,
+             DEFAULT_IDLE_CONNECTION_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param credential user credential, may be null for anonymous access
+     * @param socketTimeoutMs A socket timeout of less than zero indicates "no timeout".
+     * @param maxConnectionsPerRoute maximum pooled connections to a single host
+     * @param maxConnectionsTotal maximum pooled connections across all hosts
+     * @param idleConnectionTimeoutSeconds number of seconds a pooled connection
+     *                                     may sit idle before it is closed
+     */
+    public RestHttpHelper(Credential credential,
+                          int socketTimeoutMs,
+                          int maxConnectionsPerRoute,
+                          int maxConnectionsTotal,
+                          int idleConnectionTimeoutSeconds) {
+        this(credential,
+             socketTimeoutMs,
+             maxConnectionsPerRoute,
+             maxConnectionsTotal,
+             idleConnectionTimeoutSeconds,
+             DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS);
+    }
+
+    /**
+     * Constructor
+     * @param credential user credential, may be null for anonymous access
+     * @param socketTimeoutMs A socket timeout of less than zero indicates "no timeout".
+     * @param maxConnectionsPerRoute maximum pooled connections to a single host
+     * @param maxConnectionsTotal maximum pooled connections across all hosts
+     * @param idleConnectionTimeoutSeconds number of seconds a pooled connection
+     *                                     may sit idle before it is closed
+     * @param connectionRequestTimeoutMs maximum time a request waits for a
+     *                                   pooled connection before failing
+     */
+    public RestHttpHelper(Credential credential,
+                          int socketTimeoutMs,
+                          int maxConnectionsPerRoute,
+                          int maxConnectionsTotal,
+                          int idleConnectionTimeoutSeconds,
+                          int connectionRequestTimeoutMs) {
         if (credential != null) {
             credsProvider = new BasicCredentialsProvider();
             credsProvider.setCredentials(
                 new AuthScope(AuthScope.ANY_HOST, AuthScope.ANY_PORT),
                 new UsernamePasswordCredentials(credential.getUsername(),
                                                 credential.getPassword()));
+            authCache = new BasicAuthCache();
         }
 
         this.socketTimeoutMs = socketTimeoutMs;
+        this.idleConnectionTimeoutSeconds = idleConnectionTimeoutSeconds;
+        this.connectionRequestTimeoutMs = connectionRequestTimeoutMs;
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setMaxTotal(maxConnectionsTotal);
+        if (socketTimeoutMs > -1) {
+            connectionManager.setDefaultSocketConfig(
+                SocketConfig.custom().setSoTimeout(socketTimeoutMs).build());
+        }
+
+        httpClient = buildClient(false);
+        headHttpClient = buildClient(true);
     }
 
     private enum Method {
@@ -294,34 +383,40 @@ public class RestHttpHelper {
             log.debug(loggingRequestText(url, method, requestEntity, headers));
         }
 
-        org.apache.http.HttpResponse response;
-        if (null != credsProvider) {
-
-            HttpClientBuilder builder = HttpClients.custom()
-                       .setDefaultCredentialsProvider(credsProvider);
-
-            if (socketTimeoutMs > -1) {
-                BasicHttpClientConnectionManager cm = new BasicHttpClientConnectionManager();
-                cm.setSocketConfig(SocketConfig.custom().setSoTimeout(socketTimeoutMs).build());
-                builder.setConnectionManager(cm);
-            }
+        evictIdleConnections();
 
-            CloseableHttpClient httpClient = buildClient(builder, method);
+        CloseableHttpClient client = httpClient;
+        if (method.equals(Method.HEAD)) {
+            client = headHttpClient;
+        }
 
+        org.apache.http.HttpResponse response;
+        if (null != credsProvider) {
             // Use preemptive basic auth
             URI requestUri = httpRequest.getURI();
             HttpHost target = new HttpHost(requestUri.getHost(),
                                            requestUri.getPort(),
                                            requestUri.getScheme());
-            AuthCache authCache = new BasicAuthCache();
-            BasicScheme basicAuth = new BasicScheme();
-            authCache.put(target, basicAuth);
+            if (null == authCache.get(target)) {
+                authCache.put(target, new BasicScheme());
+            }
             HttpClientContext localContext = HttpClientContext.create();
             localContext.setAuthCache(authCache);
-            response = httpClient.execute(httpRequest, localContext);
+            response = client.execute(httpRequest, localContext);
         } else {
-            CloseableHttpClient httpClient = buildClient(HttpClients.custom(), method);
-            response = httpClient.execute(httpRequest);
+            response = client.execute(httpRequest);
+        }
+
+        // Only GET responses are handed to callers as streams. All other
+        // responses are small, so they are read in full here to ensure that
+        // the connection is returned to the pool even if the caller does not
+        // read the response body.
+        HttpEntity responseEntity = response.getEntity();
+        if (!method.equals(Method.GET) && null != responseEntity) {
+            BufferedHttpEntity bufferedEntity =
+                new BufferedHttpEntity(responseEntity);
+            EntityUtils.consume(responseEntity);
+            response.setEntity(bufferedEntity);
         }
 
         HttpResponse httpResponse = new HttpResponse(response);
@@ -333,15 +428,57 @@ public class RestHttpHelper {
         return httpResponse;
     }
 
-    private CloseableHttpClient buildClient(HttpClientBuilder builder,
-                                            Method method) {
-        if (method.equals(Method.HEAD)) {
+    private CloseableHttpClient buildClient(boolean disableContentCompression) {
+        // Requests fail, rather than wait indefinitely, when the pool is
+        // exhausted (such as by responses which are never closed)
+        RequestConfig requestConfig =
+            RequestConfig.custom()
+                         .setConnectionRequestTimeout(connectionRequestTimeoutMs)
+                         .build();
+        HttpClientBuilder builder = HttpClients.custom()
+                                               .setConnectionManager(connectionManager)
+                                               .setConnectionManagerShared(true)
+                                               .setDefaultRequestConfig(requestConfig);
+        if (null != credsProvider) {
+            builder.setDefaultCredentialsProvider(credsProvider);
+        }
+        if (disableContentCompression) {
             builder.disableContentCompression();
         }
 
         return builder.build();
     }
 
+    /*
+     * Closes pooled connections which have expired or have been idle for
+     * longer than the idle timeout. Runs at most once per idle timeout
+     * period, on the calling thread, so no background thread is needed.
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        long idleMs = TimeUnit.SECONDS.toMillis(idleConnectionTimeoutSeconds);
+        if (now - lastEviction > idleMs) {
+            lastEviction = now;
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleConnectionTimeoutSeconds,
+                                                   TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Closes all pooled connections. This helper should not be used after
+     * it has been closed.
+     */
+    public void close() {
+        try {
+            httpClient.close();
+            headHttpClient.close();
+        } catch (IOException e) {
+            log.warn("Error closing http client: " + e.getMessage(), e);
+        }
+        connectionManager.shutdown();
+    }
+
     private void addHeaders(HttpRequestBase httpRequest, Map<String, String> headers) {
         Iterator<String> headerIt = headers.keySet().iterator();
         while (headerIt.hasNext()) {
@@ -353,7 +490,7 @@ public class RestHttpHelper {
         }
     }
 
-    public static class HttpResponse {
+    public static class HttpResponse implements Closeable {
 
         protected final org.apache.http.HttpResponse response;
 
@@ -361,6 +498,25 @@ public class RestHttpHelper {
             this.response = response;
         }
 
+        /**
+         * Releases the connection used by this response. Any content which
+         * has not been read is discarded, in which case the connection is
+         * closed rather than returned to the pool. Has no effect once the
+         * response body has been read in full.
+         */
+        @Override
+        public void close() {
+            if (response instanceof Closeable) {
+                try {
+                    ((Closeable) response).close();
+                } catch (IOException e) {
+                    // The connection is discarded regardless
+                }
+            } else {
+                EntityUtils.consumeQuietly(response.getEntity());
+            }
+        }
+
         public int getStatusCode() {
             return response.getStatusLine().getStatusCode();
         }
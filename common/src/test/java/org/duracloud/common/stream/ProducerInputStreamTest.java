@@ -0,0 +1,130 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class ProducerInputStreamTest {
+
+    @Test
+    public void testRead() throws Exception {
+        // Spans several chunks, with a partial final chunk
+        byte[] content = new byte[ProducerInputStream.CHUNK_SIZE * 3 + 100];
+        new Random().nextBytes(content);
+
+        InputStream stream = ProducerInputStream.start(output -> {
+            for (int i = 0; i < content.length; i += 1000) {
+                output.write(content, i, Math.min(1000, content.length - i));
+            }
+        });
+        assertArrayEquals(content, IOUtils.toByteArray(stream));
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void testReadEmpty() throws Exception {
+        InputStream stream = ProducerInputStream.start(output -> {
+        });
+        assertEquals(-1, stream.read());
+        assertEquals(0, stream.available());
+    }
+
+    @Test
+    public void testProducerFailure() throws Exception {
+        InputStream stream = ProducerInputStream.start(output -> {
+            output.write("line\n".getBytes());
+            throw new IllegalStateException("failure");
+        });
+
+        byte[] line = new byte[5];
+        IOUtils.readFully(stream, line);
+        assertEquals("line\n", new String(line));
+        try {
+            stream.read();
+            fail("Exception expected");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        InputStream stream = ProducerInputStream.start(output -> {
+            try {
+                byte[] chunk = new byte[ProducerInputStream.CHUNK_SIZE];
+                while (true) {
+                    output.write(chunk);
+                }
+            } finally {
+                done.countDown();
+            }
+        });
+        stream.read();
+        stream.close();
+
+        // Producer stops once the reader has closed the stream
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testHandOffTimeout() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        InputStream stream = ProducerInputStream.start(output -> {
+            try {
+                byte[] chunk = new byte[ProducerInputStream.CHUNK_SIZE];
+                while (true) {
+                    output.write(chunk);
+                }
+            } finally {
+                done.countDown();
+            }
+        }, 100);
+
+        // Producer stops once the reader has taken nothing for the timeout
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(ProducerInputStream.getHandOffTimeouts() > 0);
+        try {
+            IOUtils.toByteArray(stream);
+            fail("Exception expected");
+        } catch (IOException e) {
+            // Content is incomplete
+        }
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream stream = ProducerInputStream.start(output -> {
+            release.await();
+            output.write(1);
+        }, 100);
+
+        try {
+            stream.read();
+            fail("Exception expected");
+        } catch (IOException e) {
+            // No content was produced in time
+        } finally {
+            release.countDown();
+        }
+    }
+
+}
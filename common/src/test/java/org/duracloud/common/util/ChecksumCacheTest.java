@@ -0,0 +1,191 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the persistent checksum cache.
+ */
+public class ChecksumCacheTest {
+
+    private File tempDir;
+    private File cacheFile;
+    private ChecksumUtil checksumUtil;
+
+    @Before
+    public void setUp() throws Exception {
+        tempDir = new File("target/" + getClass().getName());
+        tempDir.mkdirs();
+        cacheFile = new File(tempDir, "checksum-cache");
+        checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(tempDir);
+    }
+
+    @Test
+    public void testGetChecksum() throws Exception {
+        File file = createFile("file-1", "value-1");
+        String checksum = checksumUtil.generateChecksum("value-1");
+
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        assertNull(cache.getCachedChecksum(file));
+        assertEquals(checksum, cache.getChecksum(file));
+        assertEquals(checksum, cache.getCachedChecksum(file));
+        cache.close();
+
+        // Entries are available after re-opening the cache
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(1, cache.size());
+        assertEquals(checksum, cache.getCachedChecksum(file));
+
+        // A change to the file invalidates the entry
+        FileUtils.writeStringToFile(file, "value-changed");
+        file.setLastModified(file.lastModified() - 60000);
+        assertNull(cache.getCachedChecksum(file));
+        assertEquals(checksumUtil.generateChecksum("value-changed"),
+                     cache.getChecksum(file));
+
+        cache.remove(file);
+        assertNull(cache.getCachedChecksum(file));
+        cache.close();
+    }
+
+    @Test
+    public void testRecentlyModifiedNotCached() throws Exception {
+        File file = new File(tempDir, "file-2");
+        FileUtils.writeStringToFile(file, "value-2");
+
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        assertEquals(checksumUtil.generateChecksum("value-2"),
+                     cache.getChecksum(file));
+        assertNull(cache.getCachedChecksum(file));
+        cache.close();
+    }
+
+    @Test
+    public void testMalformedLinesSkipped() throws Exception {
+        File file = createFile("file-3", "value-3");
+        String checksum = checksumUtil.generateChecksum("value-3");
+
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        cache.put(file, checksum);
+        cache.close();
+        FileUtils.writeStringToFile(cacheFile, "12\tnot-a-time\tabc\n", true);
+
+        // A line with a CRC which does not match its content is ignored
+        String line = FileUtils.readLines(cacheFile).get(0);
+        FileUtils.writeStringToFile(cacheFile,
+                                    line.replace(checksum, "0123456789abcdef") + "\n",
+                                    true);
+
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(1, cache.size());
+        assertEquals(checksum, cache.getCachedChecksum(file));
+        cache.close();
+    }
+
+    @Test
+    public void testRemoveAndCompact() throws Exception {
+        File file1 = createFile("file-4", "value-4");
+        File file2 = createFile("file-5", "value-5");
+
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        cache.getChecksum(file1);
+        cache.getChecksum(file2);
+        cache.getChecksum(file2);
+        cache.remove(file1);
+        cache.close();
+
+        // Removals are persisted
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(1, cache.size());
+        assertNull(cache.getCachedChecksum(file1));
+        assertEquals(3, FileUtils.readLines(cacheFile).size());
+
+        cache.compact();
+        assertEquals(1, FileUtils.readLines(cacheFile).size());
+        cache.getChecksum(file1);
+        cache.close();
+
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(2, cache.size());
+        assertEquals(checksumUtil.generateChecksum("value-4"),
+                     cache.getCachedChecksum(file1));
+        cache.close();
+    }
+
+    @Test
+    public void testIncompleteLineEnded() throws Exception {
+        File file1 = createFile("file-6", "value-6");
+        File file2 = createFile("file-7", "value-7");
+
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        cache.getChecksum(file1);
+        cache.close();
+        // As left by a crash part way through writing a line
+        FileUtils.writeStringToFile(cacheFile, "12\t34", true);
+
+        cache = new ChecksumCache(cacheFile);
+        cache.getChecksum(file2);
+        assertEquals(checksumUtil.generateChecksum("value-7"),
+                     cache.getCachedChecksum(file2));
+        cache.close();
+
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(2, cache.size());
+        assertEquals(checksumUtil.generateChecksum("value-6"),
+                     cache.getCachedChecksum(file1));
+        assertEquals(checksumUtil.generateChecksum("value-7"),
+                     cache.getCachedChecksum(file2));
+        cache.close();
+    }
+
+    @Test
+    public void testManyEntries() throws Exception {
+        // Enough entries to resize the index
+        int count = 2000;
+        File[] files = new File[count];
+        ChecksumCache cache = new ChecksumCache(cacheFile);
+        for (int i = 0; i < count; i++) {
+            files[i] = createFile("file-8-" + i, "value-8-" + i);
+            cache.getChecksum(files[i]);
+        }
+        cache.remove(files[0]);
+        cache.compact();
+        cache.close();
+
+        cache = new ChecksumCache(cacheFile);
+        assertEquals(count - 1, cache.size());
+        assertNull(cache.getCachedChecksum(files[0]));
+        for (int i = 1; i < count; i++) {
+            assertEquals(checksumUtil.generateChecksum("value-8-" + i),
+                         cache.getCachedChecksum(files[i]));
+        }
+        cache.close();
+    }
+
+    private File createFile(String name, String value) throws Exception {
+        File file = new File(tempDir, name);
+        FileUtils.writeStringToFile(file, value);
+        file.setLastModified(System.currentTimeMillis() - 60000);
+        return file;
+    }
+
+}
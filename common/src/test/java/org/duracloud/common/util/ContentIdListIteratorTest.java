@@ -0,0 +1,56 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests reading and writing compact content ID listings.
+ */
+public class ContentIdListIteratorTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<String> contentIds =
+            Arrays.asList("item-1", "dir/item 2", "line\nbreak", "carriage\rreturn",
+                          "\u00fcnicode", "");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ContentIdListWriter writer = new ContentIdListWriter(out);
+        for (String contentId : contentIds) {
+            writer.write(contentId);
+        }
+        writer.close();
+
+        ContentIdListIterator iterator =
+            new ContentIdListIterator(new ByteArrayInputStream(out.toByteArray()));
+        List<String> read = new ArrayList<>();
+        while (iterator.hasNext()) {
+            read.add(iterator.next());
+        }
+        iterator.close();
+        assertEquals(contentIds, read);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ContentIdListIterator iterator =
+            new ContentIdListIterator(new ByteArrayInputStream(new byte[0]));
+        assertFalse(iterator.hasNext());
+    }
+
+}
@@ -18,6 +18,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.DomDriver;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -157,4 +159,31 @@ public class SerializationUtilTest {
         assertEquals(0, resultSet.size());
     }
 
+    /*
+     * Values must remain readable by, and be written in the same format as,
+     * earlier versions which used a new DOM based XStream for each call.
+     */
+    @Test
+    public void testFormatCompatibility() throws Exception {
+        Map<String, String> testMap = new HashMap<String, String>();
+        testMap.put("testName", "test <value> & more");
+        testMap.put("foo", "bar");
+        List<String> testList = new ArrayList<String>();
+        testList.add("testName");
+        testList.add("foo");
+
+        XStream domXStream = new XStream(new DomDriver());
+        assertEquals(domXStream.toXML(testMap),
+                     SerializationUtil.serializeMap(testMap));
+        assertEquals(domXStream.toXML(testList),
+                     SerializationUtil.serializeList(testList));
+
+        assertEquals(testMap, SerializationUtil.deserializeMap(
+            domXStream.toXML(testMap)));
+        assertEquals(testMap, domXStream.fromXML(
+            SerializationUtil.serializeMap(testMap)));
+        assertEquals(testList, SerializationUtil.deserializeList(
+            domXStream.toXML(testList)));
+    }
+
 }
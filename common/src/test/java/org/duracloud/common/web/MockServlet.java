@@ -26,6 +26,10 @@ public class MockServlet
                          HttpServletResponse response) throws ServletException,
         IOException {
         processRequest(request, response);
+        String body = request.getParameter("body");
+        if (null != body) {
+            response.getWriter().write(body);
+        }
     }
 
     @Override
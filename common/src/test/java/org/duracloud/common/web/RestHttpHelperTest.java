@@ -9,6 +9,7 @@ package org.duracloud.common.web;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -19,6 +20,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.duracloud.common.model.Credential;
 import org.duracloud.common.web.RestHttpHelper.HttpResponse;
@@ -152,6 +154,40 @@ public class RestHttpHelperTest {
         file.delete();
     }
 
+    @Test
+    public void testPooledConnectionsReleased() throws Exception {
+        // A single pooled connection must be released after every request
+        // for subsequent requests to proceed
+        helper = new RestHttpHelper(null, 10000, 1, 1, 30);
+        String requestContent = "<x>junk</x>";
+        for (int i = 0; i < 5; i++) {
+            verifyResponse(helper.put(getUrl(), requestContent, headers));
+            verifyResponse(helper.head(getUrl()));
+            HttpResponse response = helper.get(getUrl());
+            verifyResponse(response);
+            response.getResponseBody();
+        }
+        helper.close();
+    }
+
+    @Test
+    public void testConnectionRequestTimeout() throws Exception {
+        // A request fails, rather than waiting indefinitely, once the pool
+        // is held by a response which has not been closed
+        helper = new RestHttpHelper(null, 10000, 1, 1, 30, 500);
+        HttpResponse response = helper.get(getUrl() + "?body=content");
+        verifyResponse(response);
+        try {
+            helper.get(getUrl());
+            fail("Exception expected");
+        } catch (ConnectionPoolTimeoutException e) {
+            // Expected
+        } finally {
+            response.getResponseBody();
+            helper.close();
+        }
+    }
+
     private String getUrl() {
         return "http://" + host + ":" + port + context;
     }
@@ -7,11 +7,19 @@
  */
 package org.duracloud.durastore.rest;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.duracloud.common.model.AclType;
+import org.duracloud.common.util.ContentIdListWriter;
 import org.duracloud.durastore.error.ResourceException;
 import org.duracloud.durastore.error.ResourceNotFoundException;
 import org.duracloud.storage.error.InvalidIdException;
@@ -36,6 +44,9 @@ public class SpaceResource {
 
     protected static final Logger log = LoggerFactory.getLogger(SpaceResource.class);
 
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY =
+        XMLOutputFactory.newInstance();
+
     private StorageProviderFactory storageProviderFactory;
 
     public SpaceResource(StorageProviderFactory storageProviderFactory) {
@@ -115,37 +126,35 @@ public class SpaceResource {
     }
 
     /**
-     * Gets a listing of the contents of a space.
+     * Gets a listing of the contents of a space. The content IDs are
+     * retrieved when this method is called, so that errors can be reported
+     * before the response begins, and are written as the listing is
+     * streamed.
      *
      * @param spaceID
      * @param storeID
      * @param prefix
      * @param maxResults
      * @param marker
-     * @return XML listing of space contents
+     * @param compact    true for a listing with one content ID per line (see
+     *                   ContentIdListWriter), false for an XML listing
+     * @return listing of space contents
      */
-    public String getSpaceContents(String spaceID,
-                                   String storeID,
-                                   String prefix,
-                                   long maxResults,
-                                   String marker) throws ResourceException {
-        Element spaceElem = new Element("space");
-        spaceElem.setAttribute("id", spaceID);
-
+    public StreamingOutput getSpaceContents(String spaceID,
+                                            String storeID,
+                                            String prefix,
+                                            long maxResults,
+                                            String marker,
+                                            boolean compact)
+        throws ResourceException {
+        List<String> contents;
         try {
             StorageProvider storage = storageProviderFactory.getStorageProvider(storeID);
 
-            List<String> contents = storage.getSpaceContentsChunked(spaceID,
-                                                                    prefix,
-                                                                    maxResults,
-                                                                    marker);
-            if (contents != null) {
-                for (String contentItem : contents) {
-                    Element contentElem = new Element("item");
-                    contentElem.setText(contentItem);
-                    spaceElem.addContent(contentElem);
-                }
-            }
+            contents = storage.getSpaceContentsChunked(spaceID,
+                                                       prefix,
+                                                       maxResults,
+                                                       marker);
         } catch (NotFoundException e) {
             throw new ResourceNotFoundException("build space XML for", spaceID, e);
         } catch (Exception e) {
@@ -153,9 +162,52 @@ public class SpaceResource {
             throw new ResourceException("build space XML for", spaceID, e);
         }
 
-        Document doc = new Document(spaceElem);
-        XMLOutputter xmlConverter = new XMLOutputter();
-        return xmlConverter.outputString(doc);
+        final List<String> contentIds =
+            (null == contents) ? Collections.<String>emptyList() : contents;
+        if (compact) {
+            return output -> writeSpaceContentsText(contentIds, output);
+        } else {
+            return output -> writeSpaceContentsXml(spaceID, contentIds, output);
+        }
+    }
+
+    private void writeSpaceContentsText(List<String> contentIds,
+                                        OutputStream output)
+        throws IOException {
+        ContentIdListWriter writer = new ContentIdListWriter(output);
+        for (String contentId : contentIds) {
+            writer.write(contentId);
+        }
+        writer.flush();
+    }
+
+    /*
+     * Writes the same document as was previously produced using JDOM:
+     * <space id="spaceID"><item>contentID</item>...</space>
+     */
+    private void writeSpaceContentsXml(String spaceID,
+                                       List<String> contentIds,
+                                       OutputStream output)
+        throws IOException {
+        try {
+            XMLStreamWriter writer =
+                XML_OUTPUT_FACTORY.createXMLStreamWriter(output, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("space");
+            writer.writeAttribute("id", spaceID);
+            for (String contentId : contentIds) {
+                writer.writeStartElement("item");
+                writer.writeCharacters(contentId);
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to write listing of space " +
+                                  spaceID + ": " + e.getMessage(), e);
+        }
     }
 
     /**
@@ -10,6 +10,7 @@ package org.duracloud.durastore.rest;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static org.duracloud.common.constant.Constants.SPACE_LISTING_FORMAT_TEXT;
 import static org.duracloud.storage.provider.StorageProvider.PROPERTIES_SPACE_ACL;
 
 import java.net.URI;
@@ -24,8 +25,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.duracloud.common.error.NoUserLoggedInException;
 import org.duracloud.common.model.AclType;
@@ -50,6 +53,9 @@ import org.springframework.stereotype.Component;
 public class SpaceRest extends BaseRest {
     private final Logger log = LoggerFactory.getLogger(SpaceRest.class);
 
+    private static final MediaType TEXT_PLAIN_UTF8 =
+        MediaType.TEXT_PLAIN_TYPE.withCharset("UTF-8");
+
     private SpaceResource spaceResource;
     private SecurityContextUtil securityContextUtil;
 
@@ -87,17 +93,19 @@ public class SpaceRest extends BaseRest {
      * see SpaceResource.getSpaceProperties(String, String);
      * see SpaceResource.getSpaceContents(String, String);
      *
-     * @return 200 response with XML listing of space content and
-     * space properties included as header values
+     * @return 200 response with XML listing of space content (or a listing
+     * with one content ID per line when the format is "text") and space
+     * properties included as header values
      */
     @Path("/{spaceID}")
     @GET
-    @Produces(XML)
+    @Produces({XML, MediaType.TEXT_PLAIN})
     public Response getSpace(@PathParam("spaceID") String spaceID,
                              @QueryParam("storeID") String storeID,
                              @QueryParam("prefix") String prefix,
                              @QueryParam("maxResults") long maxResults,
-                             @QueryParam("marker") String marker) {
+                             @QueryParam("marker") String marker,
+                             @QueryParam("format") String format) {
         StringBuilder msg = new StringBuilder("getting space contents(");
         msg.append(spaceID);
         msg.append(", ");
@@ -112,7 +120,7 @@ public class SpaceRest extends BaseRest {
 
         try {
             log.debug(msg.toString());
-            return doGetSpace(spaceID, storeID, prefix, maxResults, marker);
+            return doGetSpace(spaceID, storeID, prefix, maxResults, marker, format);
 
         } catch (ResourceNotFoundException e) {
             return responseNotFound(msg.toString(), e, NOT_FOUND);
@@ -129,13 +137,17 @@ public class SpaceRest extends BaseRest {
                                 String storeID,
                                 String prefix,
                                 long maxResults,
-                                String marker) throws ResourceException {
-        String xml = spaceResource.getSpaceContents(spaceID,
-                                                    storeID,
-                                                    prefix,
-                                                    maxResults,
-                                                    marker);
-        return addSpacePropertiesToResponse(Response.ok(xml, APPLICATION_XML),
+                                String marker,
+                                String format) throws ResourceException {
+        boolean compact = SPACE_LISTING_FORMAT_TEXT.equalsIgnoreCase(format);
+        StreamingOutput listing = spaceResource.getSpaceContents(spaceID,
+                                                                 storeID,
+                                                                 prefix,
+                                                                 maxResults,
+                                                                 marker,
+                                                                 compact);
+        MediaType type = compact ? TEXT_PLAIN_UTF8 : APPLICATION_XML;
+        return addSpacePropertiesToResponse(Response.ok(listing, type),
                                             spaceID,
                                             storeID);
     }
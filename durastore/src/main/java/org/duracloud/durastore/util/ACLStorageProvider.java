@@ -252,6 +252,8 @@ public class ACLStorageProvider implements StorageProvider {
                     AclType.WRITE);
             spaceACLMap.put(spaceId, acl);
         }
+
+        sendSpaceChangedNotification(spaceId);
     }
 
     @Override
@@ -262,6 +264,7 @@ public class ACLStorageProvider implements StorageProvider {
         try {
             targetProvider.deleteSpace(spaceId);
             spaceACLMap.remove(spaceId);
+            sendSpaceChangedNotification(spaceId);
 
         } catch (StorageException e) {
             storageException = e;
@@ -317,12 +320,26 @@ public class ACLStorageProvider implements StorageProvider {
             this.spaceACLMap.put(spaceId, spaceACLs);
         }
 
-        sendCacheChangedNotification();
+        sendSpaceChangedNotification(spaceId);
+
+    }
 
+    /*
+     * Tells other nodes to drop what they have cached for the space, rather
+     * than all storage provider data cached for the account
+     */
+    private void sendSpaceChangedNotification(String spaceId) {
+        notifier.spaceChanged(requestContextUtil.getAccountId(), spaceId);
     }
 
-    private void sendCacheChangedNotification() {
-        notifier.storageProviderCacheOnNodeChanged(requestContextUtil.getAccountId());
+    /**
+     * Removes the cached ACLs of a space, for use when the space has been
+     * changed through another DuraCloud instance.
+     *
+     * @param spaceId
+     */
+    public void invalidateSpace(String spaceId) {
+        spaceACLMap.remove(spaceId);
     }
 
     @Override
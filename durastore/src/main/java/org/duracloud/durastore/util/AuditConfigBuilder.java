@@ -17,9 +17,15 @@ import org.duracloud.storage.domain.AuditConfig;
  */
 public class AuditConfigBuilder {
     private DuracloudMillRepo millRepo;
+    private String auditSpoolDir;
 
     public AuditConfigBuilder(DuracloudMillRepo millRepo) {
+        this(millRepo, null);
+    }
+
+    public AuditConfigBuilder(DuracloudMillRepo millRepo, String auditSpoolDir) {
         this.millRepo = millRepo;
+        this.auditSpoolDir = auditSpoolDir;
     }
 
     public AuditConfig build() {
@@ -34,6 +40,7 @@ public class AuditConfigBuilder {
         config.setRabbitmqExchange(mill.getRabbitmqExchange());
         config.setRabbitmqUsername(mill.getRabbitmqUsername());
         config.setRabbitmqPassword(mill.getRabbitmqPassword());
+        config.setAuditSpoolDir(auditSpoolDir);
         return config;
     }
 
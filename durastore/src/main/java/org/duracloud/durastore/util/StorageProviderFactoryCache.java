@@ -36,6 +36,7 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
     private DuracloudMillRepo millRepo;
     private DuraCloudRequestContextUtil contextUtil;
     private AccountChangeNotifier notifier;
+    private String auditSpoolDir;
 
     private Logger log = LoggerFactory.getLogger(StorageProviderFactoryCache.class);
 
@@ -54,6 +55,14 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
         this.notifier = notifier;
     }
 
+    /**
+     * @param auditSpoolDir directory in which audit tasks are stored while
+     *                      they cannot be placed on the audit queue
+     */
+    public void setAuditSpoolDir(String auditSpoolDir) {
+        this.auditSpoolDir = auditSpoolDir;
+    }
+
     @Override
     public void onEvent(AccountChangeEvent event) {
         String accountId = event.getAccountId();
@@ -63,6 +72,13 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
                 eventType.equals(EventType.ACCOUNT_CHANGED) ||
                 isAnotherNode(event)) {
                 remove(accountId);
+            } else if (eventType.equals(EventType.SPACE_CHANGED) &&
+                       null != event.getSpaceId() && isFromAnotherHost(event)) {
+                // Only the changed space is dropped from the cached factory
+                StorageProviderFactory factory = getIfPresent(accountId);
+                if (factory instanceof StorageProviderFactoryImpl) {
+                    ((StorageProviderFactoryImpl) factory).invalidateSpace(event.getSpaceId());
+                }
             }
         } else if (eventType.equals(EventType.ALL_ACCOUNTS_CHANGED)) {
             removeAll();
@@ -88,6 +104,19 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
         return false;
     }
 
+    /*
+     * Determines if an event was sent by a different host, as the sending
+     * host has already updated its own cache
+     */
+    private boolean isFromAnotherHost(AccountChangeEvent event) {
+        try {
+            return !InetAddress.getLocalHost().getHostName().equals(event.getSourceHost());
+        } catch (Exception ex) {
+            log.warn("failed to check host: " + ex.getMessage(), ex);
+            return true;
+        }
+    }
+
     @Override
     protected StorageProviderFactory createInstance(String accountId) {
 
@@ -95,7 +124,7 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
         StorageAccountManager storageAccountManager =
             this.storageAccountManagerFactory.createInstance();
 
-        AuditConfig auditConfig = new AuditConfigBuilder(millRepo).build();
+        AuditConfig auditConfig = new AuditConfigBuilder(millRepo, auditSpoolDir).build();
 
         StorageProviderFactoryImpl factory =
             new StorageProviderFactoryImpl(storageAccountManager,
@@ -108,4 +137,15 @@ public class StorageProviderFactoryCache extends AbstractAccountComponentCache<S
         return factory;
     }
 
+    /*
+     * Closes the audit queue connection and storage provider clients held by
+     * a factory which is no longer cached
+     */
+    @Override
+    protected void onRelease(StorageProviderFactory factory) {
+        if (factory instanceof StorageProviderFactoryImpl) {
+            ((StorageProviderFactoryImpl) factory).close();
+        }
+    }
+
 }
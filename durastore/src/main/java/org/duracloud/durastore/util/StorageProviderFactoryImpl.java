@@ -7,6 +7,9 @@
  */
 package org.duracloud.durastore.util;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -15,6 +18,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.duracloud.audit.provider.AuditStorageProvider;
 import org.duracloud.common.changenotifier.AccountChangeNotifier;
+import org.duracloud.common.queue.BufferedTaskQueue;
 import org.duracloud.common.queue.QueueType;
 import org.duracloud.common.queue.TaskQueue;
 import org.duracloud.common.queue.aws.SQSTaskQueue;
@@ -37,6 +41,7 @@ import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.error.NotFoundException;
 import org.duracloud.storage.error.StorageException;
 import org.duracloud.storage.provider.BrokeredStorageProvider;
+import org.duracloud.storage.provider.SpaceStatsTracker;
 import org.duracloud.storage.provider.StatelessStorageProvider;
 import org.duracloud.storage.provider.StorageProvider;
 import org.duracloud.storage.provider.StorageProviderBase;
@@ -51,13 +56,15 @@ import org.slf4j.LoggerFactory;
  * @author Bill Branan
  */
 public class StorageProviderFactoryImpl extends ProviderFactoryBase
-    implements StorageProviderFactory {
+    implements StorageProviderFactory, Closeable {
 
     private Logger log =
         LoggerFactory.getLogger(StorageProviderFactoryImpl.class);
 
     private StatelessStorageProvider statelessProvider;
     private Map<String, StorageProvider> storageProviders;
+    private Map<String, StorageProvider> unwrappedProviders;
+    private Map<String, ACLStorageProvider> aclProviders;
     private UserUtil userUtil;
     private TaskQueue auditQueue;
     private boolean cacheStorageProvidersOnInit = false;
@@ -86,6 +93,8 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
         super(storageAccountManager);
         this.statelessProvider = statelessStorageProvider;
         this.storageProviders = new ConcurrentHashMap<>();
+        this.unwrappedProviders = new ConcurrentHashMap<>();
+        this.aclProviders = new ConcurrentHashMap<>();
         this.userUtil = userUtil;
         this.cacheStorageProvidersOnInit = cacheStorageProvidersOnInit;
         this.contextUtil = contextUtil;
@@ -116,6 +125,8 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
 
     private void initializeStorageProviders() {
         this.storageProviders = new ConcurrentHashMap<>();
+        this.unwrappedProviders = new ConcurrentHashMap<>();
+        this.aclProviders = new ConcurrentHashMap<>();
         if (this.cacheStorageProvidersOnInit) {
             log.info("Caching storage providers on init is enabled: building storage provider cache...");
             Iterator<String> ids = getAccountManager().getStorageAccountIds();
@@ -138,6 +149,11 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
             if (null == queueName) {
                 // If no queue name is defined, turn off auditing
                 this.auditQueue = new NoopTaskQueue();
+            } else if (null == auditConfig.getAuditSpoolDir()) {
+                // Buffered tasks which cannot be placed on the queue are
+                // stored in the spool directory, so it is required
+                throw new StorageException("No audit spool directory is " +
+                                           "configured for audit queue " + queueName);
             } else {
                 QueueType queueType = auditConfig.getQueueType();
                 if (queueType == QueueType.RABBITMQ) {
@@ -150,15 +166,21 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
                     String password = auditConfig.getRabbitmqPassword();
                     log.info("Configuring Audit queue with host: {}, port: {}, vhost: {}, exchange: {}, queue: {}",
                              host, port, vhost, exchange, queueName);
-                    this.auditQueue = new RabbitMQTaskQueue(host, port, vhost, exchange, username, password, queueName);
+                    this.auditQueue = bufferAuditQueue(
+                        new RabbitMQTaskQueue(host, port, vhost, exchange, username, password, queueName),
+                        auditConfig);
                 } else {
                     //AWS - SQS
-                    this.auditQueue = new SQSTaskQueue(queueName);
+                    this.auditQueue = bufferAuditQueue(new SQSTaskQueue(queueName), auditConfig);
                 }
             }
         }
     }
 
+    private TaskQueue bufferAuditQueue(TaskQueue queue, AuditConfig auditConfig) {
+        return new BufferedTaskQueue(queue, new File(auditConfig.getAuditSpoolDir()));
+    }
+
     @Override
     public TaskQueue getAuditQueue() {
         return this.auditQueue;
@@ -263,10 +285,15 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
                                      auditQueue);
 
         if (storageProvider instanceof StorageProviderBase) {
-            ((StorageProviderBase) storageProvider).setWrappedStorageProvider(auditProvider);
+            StorageProviderBase providerBase = (StorageProviderBase) storageProvider;
+            providerBase.setWrappedStorageProvider(auditProvider);
+            providerBase.enableSpaceStats(getSpaceStatsInterval(account));
+            String accountId = storageAccountManager.getAccountName();
+            providerBase.setSpaceChangeListener(
+                spaceId -> notifier.spaceChanged(accountId, spaceId));
         }
 
-        StorageProvider aclProvider = new ACLStorageProvider(auditProvider, notifier, contextUtil);
+        ACLStorageProvider aclProvider = new ACLStorageProvider(auditProvider, notifier, contextUtil);
         StorageProvider brokeredProvider =
             new BrokeredStorageProvider(statelessProvider,
                                         aclProvider,
@@ -274,9 +301,52 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
                                         storageAccountId);
 
         storageProviders.put(storageAccountId, brokeredProvider);
+        unwrappedProviders.put(storageAccountId, storageProvider);
+        aclProviders.put(storageAccountId, aclProvider);
         return brokeredProvider;
     }
 
+    /**
+     * Removes what the cached storage providers hold for a space (its
+     * properties, ACLs and bucket name), for use when the space has been
+     * changed through another DuraCloud instance.
+     *
+     * @param spaceId - the ID of the space which changed
+     */
+    public void invalidateSpace(String spaceId) {
+        for (ACLStorageProvider aclProvider : aclProviders.values()) {
+            aclProvider.invalidateSpace(spaceId);
+        }
+        for (StorageProvider provider : unwrappedProviders.values()) {
+            if (provider instanceof StorageProviderBase) {
+                ((StorageProviderBase) provider).invalidateSpace(spaceId);
+            }
+        }
+    }
+
+    /*
+     * Determines the interval at which maintained space totals are
+     * reconciled for a storage account
+     */
+    private long getSpaceStatsInterval(StorageAccount account) {
+        long interval = SpaceStatsTracker.DEFAULT_RECONCILE_INTERVAL_SECONDS;
+        Map<String, String> options = account.getOptions();
+        if (null != options) {
+            String value =
+                options.get(StorageAccount.OPTS.SPACE_STATS_RECONCILE_INTERVAL.name());
+            if (null != value) {
+                try {
+                    interval = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid value for {}: {}, using default of {}",
+                             StorageAccount.OPTS.SPACE_STATS_RECONCILE_INTERVAL.name(),
+                             value, interval);
+                }
+            }
+        }
+        return interval;
+    }
+
     private String checkStorageAccountId(String storageAccountId) {
         if (null == storageAccountId) {
             return getAccountManager().getPrimaryStorageAccount().getId();
@@ -298,4 +368,33 @@ public class StorageProviderFactoryImpl extends ProviderFactoryBase
         storageProviders.remove(storageAccountId);
     }
 
+    /**
+     * Releases the resources held by this factory: the audit queue and the
+     * clients of the cached storage providers. The factory must not be used
+     * once closed.
+     */
+    @Override
+    public void close() {
+        if (auditQueue instanceof Closeable) {
+            try {
+                ((Closeable) auditQueue).close();
+            } catch (IOException e) {
+                log.warn("Error closing audit queue {}: {}",
+                         auditQueue.getName(), e.getMessage());
+            }
+        }
+        for (StorageProvider provider : unwrappedProviders.values()) {
+            if (provider instanceof Closeable) {
+                try {
+                    ((Closeable) provider).close();
+                } catch (IOException e) {
+                    log.warn("Error closing storage provider: {}", e.getMessage());
+                }
+            }
+        }
+        unwrappedProviders.clear();
+        aclProviders.clear();
+        storageProviders.clear();
+    }
+
 }
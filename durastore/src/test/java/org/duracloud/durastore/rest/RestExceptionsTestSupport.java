@@ -81,7 +81,7 @@ public class RestExceptionsTestSupport {
                                                      SpaceResource.class);
         EasyMock.expect(resource.getSpaces(null)).andThrow(
             createRuntimeException()).anyTimes();
-        EasyMock.expect(resource.getSpaceContents(null, null, null, -1, null))
+        EasyMock.expect(resource.getSpaceContents(null, null, null, -1, null, false))
                 .andThrow(createRuntimeException())
                 .anyTimes();
         EasyMock.expect(resource.getSpaceProperties(null, null)).andThrow(
@@ -39,7 +39,7 @@ public class SpaceRestExceptionsTest {
 
     @Test
     public void testGetSpace() throws Exception {
-        Response response = spaceRest.getSpace(null, null, null, -1, null);
+        Response response = spaceRest.getSpace(null, null, null, -1, null, null);
         support.verifyErrorResponse(response);
     }
 
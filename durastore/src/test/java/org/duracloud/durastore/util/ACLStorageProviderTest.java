@@ -85,8 +85,8 @@ public class ACLStorageProviderTest {
         replay(mockProvider, context, notifier, requestContextUtil);
     }
 
-    private void setupNotification() {
-        notifier.storageProviderCacheOnNodeChanged("account");
+    private void setupNotification(String spaceId) {
+        notifier.spaceChanged("account", spaceId);
         expectLastCall().once();
         expect(requestContextUtil.getAccountId()).andReturn("account");
     }
@@ -94,6 +94,7 @@ public class ACLStorageProviderTest {
     @Test
     public void testCreateSpace() {
         String spaceId = spacePrefix + 16;
+        setupNotification(spaceId);
 
         createMockStorageProvider(1);
         createMockSecurityContext(3);
@@ -227,8 +228,8 @@ public class ACLStorageProviderTest {
 
     @Test
     public void testGetSpaceACLs() throws Exception {
-        setupNotification();
         String spaceId = spacePrefix + 4;
+        setupNotification(spaceId);
         createMockStorageProvider(1);
         Map<String, AclType> origAcls = createSpaceACLs();
 
@@ -260,8 +261,8 @@ public class ACLStorageProviderTest {
 
     @Test
     public void testSetSpaceACLs() throws Exception {
-        setupNotification();
         String spaceId = spacePrefix + 2;
+        setupNotification(spaceId);
         createMockStorageProvider(1);
         Map<String, AclType> origAcls = createSpaceACLs();
 
@@ -283,6 +284,7 @@ public class ACLStorageProviderTest {
     @Test
     public void testClearCache() throws InterruptedException {
         String spaceId = "ACLStorageProvider-cache";
+        setupNotification(spaceId);
         createMockStorageProvider(2);
 
         expect(mockProvider.getSpaceACLs(spaceId))
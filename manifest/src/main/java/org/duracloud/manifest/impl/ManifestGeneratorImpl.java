@@ -7,14 +7,14 @@
  */
 package org.duracloud.manifest.impl;
 
-import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.Iterator;
 
 import org.apache.commons.lang3.StringUtils;
 import org.duracloud.common.constant.ManifestFormat;
+import org.duracloud.common.stream.ProducerInputStream;
 import org.duracloud.manifest.ManifestFormatter;
 import org.duracloud.manifest.ManifestGenerator;
 import org.duracloud.manifest.error.ManifestArgumentException;
@@ -61,40 +61,27 @@ public class ManifestGeneratorImpl implements ManifestGenerator {
 
             storeId = validateStoreId(storeId);
             validateSpaceId(storeId, spaceId);
-            PipedInputStream is = new PipedInputStream(10 * 1024);
-            final PipedOutputStream os = new PipedOutputStream(is);
             final Iterator<ManifestItem> it =
                 this.manifestStore.getItems(account, storeId, spaceId);
             final ManifestFormatter formatter = getFormatter(format);
             if (!it.hasNext()) {
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
                 formatter.writeManifestItemToOutput(null, os);
-                os.close();
-                return is;
-            } else {
-
-                new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            while (it.hasNext()) {
-                                formatter.writeManifestItemToOutput(it.next(), os);
-                            }
-                            try {
-                                os.close();
-                            } catch (IOException e) {
-                                log.error("failed to close piped output stream : " + e.getMessage(), e);
-                            }
-
-                        } catch (Exception e) {
-                            log.error("error writing to piped output stream : " + e.getMessage(), e);
-                        }
-                    }
-                }).start();
+                return new ByteArrayInputStream(os.toByteArray());
             }
 
-            return is;
+            return ProducerInputStream.start(os -> {
+                try {
+                    while (it.hasNext()) {
+                        formatter.writeManifestItemToOutput(it.next(), os);
+                    }
+                } catch (Exception e) {
+                    log.error("error writing manifest : " + e.getMessage(), e);
+                    throw e;
+                }
+            });
 
-        } catch (IOException | RuntimeException ex) {
+        } catch (RuntimeException ex) {
             log.error("failed to retrieve manifest: " + ex.getMessage(), ex);
             throw new ManifestGeneratorException(ex.getMessage());
         }
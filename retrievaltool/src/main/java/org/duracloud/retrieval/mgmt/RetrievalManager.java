@@ -15,6 +15,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.duracloud.common.model.ContentItem;
 import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.retrieval.source.RetrievalSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,8 @@ public class RetrievalManager implements Runnable {
     private final Logger logger =
         LoggerFactory.getLogger(RetrievalManager.class);
 
+    protected static final String CHECKSUM_CACHE_FILE = "checksum-cache.tsv";
+
     private RetrievalSource source;
     private File contentDir;
     private File workDir;
@@ -40,6 +43,7 @@ public class RetrievalManager implements Runnable {
     private boolean createSpaceDir;
     private boolean applyTimestamps;
     private boolean complete;
+    private ChecksumCache checksumCache;
 
     public RetrievalManager(RetrievalSource source,
                             File contentDir,
@@ -57,6 +61,8 @@ public class RetrievalManager implements Runnable {
         this.outWriter = outWriter;
         this.createSpaceDir = createSpaceDir;
         this.applyTimestamps = applyTimestamps;
+        this.checksumCache =
+            new ChecksumCache(new File(workDir, CHECKSUM_CACHE_FILE));
 
         // Create thread pool for retrieval workers
         workerPool =
@@ -112,7 +118,8 @@ public class RetrievalManager implements Runnable {
                                                          overwrite,
                                                          outWriter,
                                                          createSpaceDir,
-                                                         applyTimestamps);
+                                                         applyTimestamps,
+                                                         checksumCache);
             workerPool.execute(worker);
             return true;
         } catch (RejectedExecutionException e) {
@@ -134,6 +141,7 @@ public class RetrievalManager implements Runnable {
             // Exit wait on interruption
         }
 
+        checksumCache.close();
         complete = true;
     }
 
@@ -10,12 +10,12 @@ package org.duracloud.retrieval.mgmt;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.attribute.BasicFileAttributeView;
 import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.Map;
@@ -26,6 +26,7 @@ import org.duracloud.chunk.util.ChunkUtil;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.model.ContentItem;
 import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.DateUtil;
 import org.duracloud.retrieval.source.ContentStream;
@@ -45,6 +46,7 @@ public class RetrievalWorker implements Runnable {
 
     private static final int MAX_ATTEMPTS = 5;
     private static final String COPY = "-copy";
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
 
     private ContentItem contentItem;
     private RetrievalSource source;
@@ -56,6 +58,7 @@ public class RetrievalWorker implements Runnable {
     private int attempts;
     private File localFile;
     private ContentStream contentStream;
+    private ChecksumCache checksumCache;
 
     private StatusManager statusManager;
 
@@ -69,6 +72,22 @@ public class RetrievalWorker implements Runnable {
                            OutputWriter outWriter,
                            boolean createSpaceDir,
                            boolean applyTimestamps) {
+        this(contentItem, source, contentDir, overwrite, outWriter,
+             createSpaceDir, applyTimestamps, null);
+    }
+
+    /**
+     * Creates a Retrieval Worker to handle retrieving a file, using the
+     * given cache to avoid recomputing the checksums of unchanged local files
+     */
+    public RetrievalWorker(ContentItem contentItem,
+                           RetrievalSource source,
+                           File contentDir,
+                           boolean overwrite,
+                           OutputWriter outWriter,
+                           boolean createSpaceDir,
+                           boolean applyTimestamps,
+                           ChecksumCache checksumCache) {
         this.contentItem = contentItem;
         this.source = source;
         this.contentDir = contentDir;
@@ -76,6 +95,7 @@ public class RetrievalWorker implements Runnable {
         this.outWriter = outWriter;
         this.createSpaceDir = createSpaceDir;
         this.applyTimestamps = applyTimestamps;
+        this.checksumCache = checksumCache;
         this.statusManager = StatusManager.getInstance();
         this.attempts = 0;
     }
@@ -180,6 +200,9 @@ public class RetrievalWorker implements Runnable {
     }
 
     protected String getChecksum(File localFile) throws IOException {
+        if (null != checksumCache) {
+            return checksumCache.getChecksum(localFile);
+        }
         ChecksumUtil checksumUtil =
             new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
         String localChecksum = checksumUtil.generateChecksum(localFile);
@@ -207,6 +230,9 @@ public class RetrievalWorker implements Runnable {
      */
     protected void deleteFile(File localFile) throws IOException {
         localFile.delete();
+        if (null != checksumCache) {
+            checksumCache.remove(localFile);
+        }
     }
 
     protected Map<String, String> getContentProperties() {
@@ -228,7 +254,8 @@ public class RetrievalWorker implements Runnable {
      * @throws IOException
      * @returns the checksum of the File upon successful retrieval.  Successful
      * retrieval means the checksum of the local file and remote file match,
-     * otherwise an IOException is thrown.
+     * otherwise an IOException is thrown. The checksum of the local file is
+     * computed as it is written, so the file is not read back.
      */
     protected Map<String, String> retrieveToFile(File localFile, RetrievalListener listener) throws IOException {
 
@@ -240,11 +267,15 @@ public class RetrievalWorker implements Runnable {
             throw new IOException(ex);
         }
 
+        String localChecksum;
         try (
-            InputStream inStream = contentStream.getStream();
+            DigestInputStream inStream =
+                ChecksumUtil.wrapStream(contentStream.getStream(),
+                                        ChecksumUtil.Algorithm.MD5);
             OutputStream outStream = new FileOutputStream(localFile);
         ) {
-            IOUtils.copyLarge(inStream, outStream);
+            IOUtils.copyLarge(inStream, outStream, new byte[COPY_BUFFER_SIZE]);
+            localChecksum = ChecksumUtil.getChecksum(inStream);
         } catch (IOException e) {
             try {
                 deleteFile(localFile);
@@ -255,7 +286,7 @@ public class RetrievalWorker implements Runnable {
             throw e;
         }
 
-        if (!checksumsMatch(localFile, contentStream.getChecksum())) {
+        if (!localChecksum.equals(contentStream.getChecksum())) {
             deleteFile(localFile);
             throw new IOException("Calculated checksum value for retrieved " +
                                   "file does not match properties checksum.");
@@ -265,6 +296,10 @@ public class RetrievalWorker implements Runnable {
         if (applyTimestamps) {
             applyTimestamps(contentStream, localFile);
         }
+
+        if (null != checksumCache) {
+            checksumCache.put(localFile, localChecksum);
+        }
         return contentStream.getProperties();
     }
 
@@ -25,6 +25,7 @@ import java.util.Map;
 import org.apache.commons.io.FileUtils;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.DateUtil;
 import org.duracloud.retrieval.RetrievalTestBase;
@@ -87,6 +88,46 @@ public class RetrievalWorkerTest extends RetrievalTestBase {
         assertNotNull(props);
     }
 
+    @Test
+    public void testRetrieveFileWithChecksumCache() throws Exception {
+        ChecksumCache checksumCache =
+            new ChecksumCache(new File(tempDir, "checksum-cache"));
+        RetrievalWorker worker =
+            new RetrievalWorker(new ContentItem(spaceId, contentId),
+                                new MockRetrievalSource(),
+                                tempDir,
+                                true,
+                                createMockOutputWriter(),
+                                true,
+                                true,
+                                checksumCache);
+        File localFile = worker.getLocalFile();
+        assertFalse(localFile.exists());
+
+        StatusManager status = StatusManager.getInstance();
+        status.reset();
+
+        // Checksum computed during retrieval is cached
+        worker.retrieveFile();
+        checkFile(localFile, contentValue);
+        checkStatus(status, 1, 0, 0);
+        String checksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum(contentValue);
+        assertEquals(checksum, checksumCache.getCachedChecksum(localFile));
+
+        // Local file exists, and is the same
+        worker.retrieveFile();
+        checkStatus(status, 0, 1, 0);
+
+        // Local file exists, but is different
+        FileUtils.writeStringToFile(localFile, "new-value");
+        worker.retrieveFile();
+        checkFile(localFile, contentValue);
+        checkStatus(status, 1, 0, 0);
+        assertEquals(checksum, checksumCache.getCachedChecksum(localFile));
+        checksumCache.close();
+    }
+
     private void checkFile(File file, String value) throws IOException {
         assertTrue(file.exists());
         String fileValue = FileUtils.readFileToString(file);
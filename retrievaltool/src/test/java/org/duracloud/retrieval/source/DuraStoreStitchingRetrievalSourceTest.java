@@ -22,6 +22,7 @@ import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.retrieval.mgmt.RetrievalListener;
@@ -285,7 +286,9 @@ public class DuraStoreStitchingRetrievalSourceTest {
 
         // build the manifest now that chunk details are known.
         for (Integer index : chunkIndexes) {
-            manifest.addEntry(CHUNK.getContentId(index), createMd5(index), 77);
+            manifest.addEntry(CHUNK.getContentId(index),
+                              createChunkMd5(index),
+                              77);
         }
 
         String text = ManifestDocumentBinding.createDocumentFrom(manifest);
@@ -302,6 +305,15 @@ public class DuraStoreStitchingRetrievalSourceTest {
         return "md5-" + i;
     }
 
+    /*
+     * Chunk checksums are verified as chunks are stitched, so must match
+     * the chunk content
+     */
+    private String createChunkMd5(int i) {
+        return new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum("hello-" + i);
+    }
+
     private Content createContent(ContentType type, int i)
         throws ContentStoreException {
         Map<String, String> props = new HashMap<String, String>();
@@ -0,0 +1,277 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.StorageClass;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.apache.commons.io.IOUtils;
+import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.storage.error.ChecksumMismatchException;
+import org.duracloud.storage.error.StorageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads a stream to S3 as a multipart upload, transferring parts in
+ * parallel. Parts are read from the stream into a fixed number of buffers,
+ * so memory use per upload is bounded by (part size * concurrency). Parts of
+ * all uploads are transferred by a shared, bounded set of threads.
+ *
+ * The MD5 of the stream is computed as it is read. When an expected checksum
+ * is given it is compared once all parts are uploaded, and the upload is
+ * aborted rather than completed if they differ, so that no object is
+ * created from content which did not arrive intact.
+ */
+public class S3MultipartUploader {
+
+    private final Logger log = LoggerFactory.getLogger(S3MultipartUploader.class);
+
+    public static final long MIN_PART_SIZE = 5 * 1024 * 1024;
+    public static final int MAX_PARTS = 10000;
+    public static final int MAX_PART_THREADS = 32;
+
+    private static final ExecutorService PART_EXECUTOR =
+        Executors.newFixedThreadPool(MAX_PART_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "s3-multipart-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private AmazonS3 s3Client;
+    private long partSize;
+    private int concurrency;
+
+    /**
+     * @param s3Client    client used for the upload
+     * @param partSize    preferred size of each part in bytes, will be
+     *                    increased as needed to keep within the part limit
+     * @param concurrency maximum number of parts of an upload transferred
+     *                    in parallel
+     */
+    public S3MultipartUploader(AmazonS3 s3Client, long partSize, int concurrency) {
+        this.s3Client = s3Client;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Uploads the content of a stream in parts.
+     *
+     * @param bucketName   bucket in which to store the content
+     * @param contentId    key of the content
+     * @param objMetadata  metadata to apply to the completed object, must not
+     *                     include a content length or MD5
+     * @param storageClass storage class of the object
+     * @param acl          access control list of the object
+     * @param content      stream to upload
+     * @param contentSize  number of bytes expected to be read from the stream
+     * @param checksum     expected MD5 of the content as a hex string, or
+     *                     null if the content is not to be verified
+     * @return MD5 of the uploaded content as a hex string
+     * @throws ChecksumMismatchException if the MD5 of the content does not
+     *                                   match the expected checksum, in which
+     *                                   case the upload is aborted
+     */
+    public String upload(String bucketName,
+                         String contentId,
+                         ObjectMetadata objMetadata,
+                         StorageClass storageClass,
+                         CannedAccessControlList acl,
+                         InputStream content,
+                         long contentSize,
+                         String checksum) {
+        DigestInputStream digestContent =
+            ChecksumUtil.wrapStream(content, ChecksumUtil.Algorithm.MD5);
+        InitiateMultipartUploadRequest initRequest =
+            new InitiateMultipartUploadRequest(bucketName, contentId, objMetadata)
+                .withStorageClass(storageClass)
+                .withCannedACL(acl);
+        String uploadId = s3Client.initiateMultipartUpload(initRequest).getUploadId();
+
+        int bufferSize = getPartSize(contentSize);
+        log.debug("Uploading {} bytes to {}/{} in parts of {} bytes, uploadId={}",
+                  contentSize, bucketName, contentId, bufferSize, uploadId);
+
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(concurrency);
+        int allocatedBuffers = 0;
+        List<Future<PartETag>> parts = new ArrayList<>();
+        boolean success = false;
+        try {
+            long totalRead = 0;
+            int partNumber = 1;
+            while (true) {
+                byte[] buffer = buffers.poll();
+                if (null == buffer) {
+                    if (allocatedBuffers < concurrency) {
+                        buffer = new byte[bufferSize];
+                        allocatedBuffers++;
+                    } else {
+                        // Wait for an in-flight part to complete
+                        buffer = buffers.take();
+                    }
+                }
+                throwIfPartFailed(parts);
+
+                int read = IOUtils.read(digestContent, buffer);
+                if (read == 0) {
+                    break;
+                }
+                totalRead += read;
+                parts.add(PART_EXECUTOR.submit(
+                    uploadPart(bucketName, contentId, uploadId, partNumber++,
+                               buffer, read, buffers)));
+                if (read < buffer.length) {
+                    break;
+                }
+            }
+
+            if (totalRead != contentSize) {
+                throw new StorageException("The content body was incomplete for " +
+                                           contentId + " to S3 bucket " + bucketName +
+                                           ". Expected " + contentSize +
+                                           " bytes but read " + totalRead +
+                                           ". Content was not added.",
+                                           StorageException.NO_RETRY);
+            }
+
+            List<PartETag> partETags = new ArrayList<>();
+            for (Future<PartETag> part : parts) {
+                partETags.add(part.get());
+            }
+
+            String md5 = ChecksumUtil.getChecksum(digestContent);
+            if (null != checksum && !checksum.equals(md5)) {
+                String err = "The checksum of content " + contentId +
+                             " uploaded to S3 bucket " + bucketName +
+                             " (" + md5 + ") does not match the expected " +
+                             "checksum (" + checksum + "). The upload was " +
+                             "aborted and the content should be retransmitted.";
+                log.warn(err);
+                throw new ChecksumMismatchException(err, StorageException.NO_RETRY);
+            }
+
+            s3Client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, contentId,
+                                                   uploadId, partETags));
+            success = true;
+            return md5;
+        } catch (IOException e) {
+            throw new StorageException("Unable to read content " + contentId +
+                                       " for upload due to: " + e.getMessage(),
+                                       e, StorageException.NO_RETRY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Upload of " + contentId +
+                                       " was interrupted", e, StorageException.NO_RETRY);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AmazonClientException) {
+                throw (AmazonClientException) cause;
+            }
+            throw new StorageException("Unable to upload part of " + contentId +
+                                       " due to: " + cause.getMessage(),
+                                       cause, StorageException.NO_RETRY);
+        } finally {
+            if (!success) {
+                for (Future<PartETag> part : parts) {
+                    part.cancel(true);
+                }
+                abort(bucketName, contentId, uploadId);
+            }
+        }
+    }
+
+    /*
+     * Determines the size of each part, ensuring that content of the given
+     * size can be uploaded within the maximum number of parts
+     */
+    protected int getPartSize(long contentSize) {
+        long minSizeForParts = (contentSize + MAX_PARTS - 1) / MAX_PARTS;
+        long size = Math.max(partSize, minSizeForParts);
+        return (int) Math.min(size, Integer.MAX_VALUE - 8);
+    }
+
+    private void throwIfPartFailed(List<Future<PartETag>> parts)
+        throws ExecutionException, InterruptedException {
+        for (Future<PartETag> part : parts) {
+            if (part.isDone()) {
+                part.get();
+            }
+        }
+    }
+
+    private Callable<PartETag> uploadPart(String bucketName,
+                                          String contentId,
+                                          String uploadId,
+                                          int partNumber,
+                                          byte[] buffer,
+                                          int length,
+                                          BlockingQueue<byte[]> buffers) {
+        return () -> {
+            try {
+                UploadPartRequest partRequest = new UploadPartRequest()
+                    .withBucketName(bucketName)
+                    .withKey(contentId)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber)
+                    .withPartSize(length)
+                    .withMD5Digest(getMD5Digest(buffer, length))
+                    .withInputStream(new ByteArrayInputStream(buffer, 0, length));
+                return s3Client.uploadPart(partRequest).getPartETag();
+            } finally {
+                buffers.offer(buffer);
+            }
+        };
+    }
+
+    private String getMD5Digest(byte[] buffer, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(buffer, 0, length);
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void abort(String bucketName, String contentId, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(
+                new AbortMultipartUploadRequest(bucketName, contentId, uploadId));
+        } catch (AmazonClientException e) {
+            log.warn("Unable to abort multipart upload {} of {} in bucket {}: {}",
+                     uploadId, contentId, bucketName, e.getMessage());
+        }
+    }
+
+}
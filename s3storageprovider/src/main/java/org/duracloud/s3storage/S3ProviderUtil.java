@@ -44,15 +44,17 @@ public class S3ProviderUtil {
     private static final Logger log = LoggerFactory.getLogger(S3ProviderUtil.class);
 
     private static Map<String, AmazonS3> s3Clients = new HashMap<>();
+    private static Map<String, Integer> s3ClientReferences = new HashMap<>();
     private static Map<String, AmazonCloudFrontClient> cloudFrontClients = new HashMap<>();
 
     private S3ProviderUtil() {
         // Ensures no instances are made of this class, as there are only static members.
     }
 
-    public static AmazonS3 getAmazonS3Client(String accessKey,
-                                             String secretKey,
-                                             Map<String, String> options) {
+    public static synchronized AmazonS3 getAmazonS3Client(String accessKey,
+                                                          String secretKey,
+                                                          Map<String, String> options) {
+        s3ClientReferences.merge(key(accessKey, secretKey, options), 1, Integer::sum);
         AmazonS3 client = s3Clients.get(key(accessKey, secretKey, options));
         if (null == client) {
             Region region = null;
@@ -80,6 +82,31 @@ public class S3ProviderUtil {
         return client;
     }
 
+    /**
+     * Releases a client obtained from getAmazonS3Client(). The client is shut
+     * down once each call which obtained it has been matched by a release, so
+     * a client obtained by a caller which does not release it stays open.
+     */
+    public static synchronized void releaseAmazonS3Client(String accessKey,
+                                                          String secretKey,
+                                                          Map<String, String> options) {
+        String key = key(accessKey, secretKey, options);
+        Integer references = s3ClientReferences.get(key);
+        if (null == references) {
+            return;
+        }
+        if (references > 1) {
+            s3ClientReferences.put(key, references - 1);
+        } else {
+            s3ClientReferences.remove(key);
+            AmazonS3 client = s3Clients.remove(key);
+            if (null != client) {
+                log.debug("Shutting down S3 client for access key {}", accessKey);
+                client.shutdown();
+            }
+        }
+    }
+
     private static String key(String accessKey, String secretKey, Map<String, String> options) {
         String optionsHash = "";
         if (null != options && options.size() > 0) {
@@ -11,6 +11,7 @@ import static org.apache.http.HttpHeaders.CONTENT_ENCODING;
 import static org.duracloud.storage.error.StorageException.NO_RETRY;
 import static org.duracloud.storage.error.StorageException.RETRY;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
@@ -55,11 +56,14 @@ import org.duracloud.common.util.DateUtil;
 import org.duracloud.storage.domain.ContentByteRange;
 import org.duracloud.storage.domain.ContentIterator;
 import org.duracloud.storage.domain.RetrievedContent;
+import org.duracloud.storage.domain.StorageAccount.OPTS;
 import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.error.ChecksumMismatchException;
 import org.duracloud.storage.error.NotFoundException;
 import org.duracloud.storage.error.SpaceAlreadyExistsException;
 import org.duracloud.storage.error.StorageException;
+import org.duracloud.storage.provider.SpacePropertiesCache;
+import org.duracloud.storage.provider.SpaceStatsTracker;
 import org.duracloud.storage.provider.StorageProvider;
 import org.duracloud.storage.provider.StorageProviderBase;
 import org.duracloud.storage.util.StorageProviderUtil;
@@ -71,7 +75,7 @@ import org.slf4j.LoggerFactory;
  *
  * @author Bill Branan
  */
-public class S3StorageProvider extends StorageProviderBase {
+public class S3StorageProvider extends StorageProviderBase implements Closeable {
 
     private final Logger log = LoggerFactory.getLogger(S3StorageProvider.class);
 
@@ -85,13 +89,28 @@ public class S3StorageProvider extends StorageProviderBase {
     protected static final String HEADER_VALUE_PREFIX = UTF_8 + "''";
     protected static final String HEADER_KEY_SUFFIX = "*";
 
+    // Content larger than a single PUT allows (5 GB) is uploaded in parts
+    public static final long DEFAULT_MULTIPART_THRESHOLD = 5L * 1024 * 1024 * 1024;
+    public static final long DEFAULT_MULTIPART_PART_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MULTIPART_CONCURRENCY = 4;
+    // Largest object which S3 can copy in a single request
+    public static final long MAX_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+
     protected String accessKeyId = null;
     protected AmazonS3 s3Client = null;
+    protected SpaceBucketIndex bucketIndex = null;
+    protected S3MultipartUploader multipartUploader = null;
+    protected long multipartThreshold = DEFAULT_MULTIPART_THRESHOLD;
+
+    // Set when the client was obtained from S3ProviderUtil, to release it
+    private String clientSecretKey = null;
+    private Map<String, String> clientOptions = null;
 
     public S3StorageProvider(String accessKey, String secretKey) {
         this(S3ProviderUtil.getAmazonS3Client(accessKey, secretKey, null),
              accessKey,
              null);
+        this.clientSecretKey = secretKey;
     }
 
     public S3StorageProvider(String accessKey,
@@ -100,6 +119,8 @@ public class S3StorageProvider extends StorageProviderBase {
         this(S3ProviderUtil.getAmazonS3Client(accessKey, secretKey, options),
              accessKey,
              options);
+        this.clientSecretKey = secretKey;
+        this.clientOptions = options;
     }
 
     public S3StorageProvider(AmazonS3 s3Client,
@@ -107,6 +128,54 @@ public class S3StorageProvider extends StorageProviderBase {
                              Map<String, String> options) {
         this.accessKeyId = accessKey;
         this.s3Client = s3Client;
+        this.bucketIndex =
+            new SpaceBucketIndex(getLongOption(options,
+                                               OPTS.BUCKET_INDEX_TTL,
+                                               SpaceBucketIndex.DEFAULT_TTL_SECONDS));
+        setSpacePropertiesCache(
+            new SpacePropertiesCache(getLongOption(options,
+                                                   OPTS.SPACE_PROPERTIES_CACHE_TTL,
+                                                   SpacePropertiesCache.DEFAULT_TTL_SECONDS)));
+        this.multipartThreshold = getLongOption(options,
+                                                OPTS.MULTIPART_THRESHOLD,
+                                                DEFAULT_MULTIPART_THRESHOLD);
+        this.multipartUploader =
+            new S3MultipartUploader(s3Client,
+                                    getLongOption(options,
+                                                  OPTS.MULTIPART_PART_SIZE,
+                                                  DEFAULT_MULTIPART_PART_SIZE),
+                                    (int) getLongOption(options,
+                                                        OPTS.MULTIPART_CONCURRENCY,
+                                                        DEFAULT_MULTIPART_CONCURRENCY));
+    }
+
+    /**
+     * Releases the S3 client if it was obtained from S3ProviderUtil. The
+     * client is shut down once no other provider is using it.
+     */
+    @Override
+    public synchronized void close() {
+        if (null != clientSecretKey) {
+            S3ProviderUtil.releaseAmazonS3Client(accessKeyId, clientSecretKey, clientOptions);
+            clientSecretKey = null;
+        }
+    }
+
+    private long getLongOption(Map<String, String> options,
+                               OPTS option,
+                               long defaultValue) {
+        if (null != options) {
+            String value = options.get(option.name());
+            if (null != value) {
+                try {
+                    return Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid value for {}: {}, using default of {}",
+                             option.name(), value, defaultValue);
+                }
+            }
+        }
+        return defaultValue;
     }
 
     /**
@@ -140,7 +209,10 @@ public class S3StorageProvider extends StorageProviderBase {
 
     private List<Bucket> listAllBuckets() {
         try {
-            return s3Client.listBuckets();
+            List<Bucket> buckets = s3Client.listBuckets();
+            // Every listing is an opportunity to bring the index up to date
+            bucketIndex.refresh(buckets);
+            return buckets;
         } catch (AmazonClientException e) {
             String err = "Could not retrieve list of S3 buckets due to error: "
                          + e.getMessage();
@@ -229,6 +301,8 @@ public class S3StorageProvider extends StorageProviderBase {
         }
 
         Bucket bucket = createBucket(spaceId);
+        bucketIndex.put(spaceId, getNewBucketName(spaceId));
+        invalidateSpaceProperties(spaceId);
 
         Date created = bucket.getCreationDate();
         if (created == null) {
@@ -299,6 +373,7 @@ public class S3StorageProvider extends StorageProviderBase {
                 .withRules(expiresRule);
 
             s3Client.setBucketLifecycleConfiguration(bucketName, configuration);
+            bucketIndex.put(spaceId, bucketName);
 
             return spaceId;
         } catch (AmazonClientException e) {
@@ -363,6 +438,8 @@ public class S3StorageProvider extends StorageProviderBase {
 
         try {
             s3Client.deleteBucket(bucketName);
+            bucketIndex.remove(spaceId);
+            invalidateSpaceProperties(spaceId);
         } catch (AmazonClientException e) {
             String err = "Could not delete S3 bucket with name " + bucketName
                          + " due to error: " + e.getMessage();
@@ -401,12 +478,38 @@ public class S3StorageProvider extends StorageProviderBase {
         spaceProperties = replaceInMapValues(spaceProperties, "+", "@");
 
         // Add space count
-        spaceProperties.put(PROPERTIES_SPACE_COUNT,
-                            getSpaceCount(spaceId, MAX_ITEM_COUNT));
+        if (!addSpaceStats(spaceId, spaceProperties)) {
+            spaceProperties.put(PROPERTIES_SPACE_COUNT,
+                                getSpaceCount(spaceId, MAX_ITEM_COUNT));
+        }
 
         return spaceProperties;
     }
 
+    /**
+     * Lists the bucket backing a space, including the size of each item
+     */
+    @Override
+    protected void listSpaceStats(String spaceId,
+                                  SpaceStatsTracker.Reconciliation reconciliation) {
+        // Will throw if bucket does not exist
+        String bucketName = getBucketName(spaceId);
+
+        String marker = null;
+        List<S3ObjectSummary> objects;
+        do {
+            objects = listObjects(bucketName, null, MAX_ITEM_COUNT, marker);
+            if (!objects.isEmpty()) {
+                long size = 0;
+                for (S3ObjectSummary object : objects) {
+                    size += object.getSize();
+                }
+                marker = objects.get(objects.size() - 1).getKey();
+                reconciliation.addPage(objects.size(), size, marker);
+            }
+        } while (!objects.isEmpty());
+    }
+
     /*
      * Counts the number of items in a space up to the maxCount. If maxCount
      * is reached or exceeded, the returned string will indicate this with a
@@ -601,14 +704,6 @@ public class S3StorageProvider extends StorageProviderBase {
 
         ObjectMetadata objMetadata = new ObjectMetadata();
         objMetadata.setContentType(contentMimeType);
-        if (contentSize > 0) {
-            objMetadata.setContentLength(contentSize);
-        }
-        if (null != contentChecksum && !contentChecksum.isEmpty()) {
-            String encodedChecksum =
-                ChecksumUtil.convertToBase64Encoding(contentChecksum);
-            objMetadata.setContentMD5(encodedChecksum);
-        }
 
         if (contentEncoding != null) {
             objMetadata.setContentEncoding(contentEncoding);
@@ -626,6 +721,20 @@ public class S3StorageProvider extends StorageProviderBase {
             }
         }
 
+        if (useMultipartUpload(contentSize, contentChecksum)) {
+            return addContentInParts(bucketName, contentId, objMetadata,
+                                     contentSize, contentChecksum, content);
+        }
+
+        if (contentSize > 0) {
+            objMetadata.setContentLength(contentSize);
+        }
+        if (null != contentChecksum && !contentChecksum.isEmpty()) {
+            String encodedChecksum =
+                ChecksumUtil.convertToBase64Encoding(contentChecksum);
+            objMetadata.setContentMD5(encodedChecksum);
+        }
+
         PutObjectRequest putRequest = new PutObjectRequest(bucketName,
                                                            contentId,
                                                            wrappedContent,
@@ -703,6 +812,85 @@ public class S3StorageProvider extends StorageProviderBase {
         return providerChecksum;
     }
 
+    /**
+     * Determines if content should be uploaded in parts rather than with a
+     * single PUT. Uploading in parts requires that the size and checksum of
+     * the content be known up front, as the checksum is stored along with the
+     * content in place of the ETag (which is not an MD5 for multipart uploads).
+     *
+     * @param contentSize     size of the content, if known
+     * @param contentChecksum MD5 checksum of the content, if known
+     * @return true if the content should be uploaded in parts
+     */
+    protected boolean useMultipartUpload(long contentSize, String contentChecksum) {
+        return multipartThreshold > 0 &&
+               contentSize > multipartThreshold &&
+               StringUtils.isNotEmpty(contentChecksum);
+    }
+
+    /*
+     * Determines if content uploaded in parts may be small enough to have its
+     * properties updated by a copy. Updating properties of larger content
+     * fails regardless, so there is no stored checksum to retain otherwise.
+     */
+    protected boolean canCopyContentInParts() {
+        return multipartThreshold > 0 && multipartThreshold < MAX_COPY_SIZE;
+    }
+
+    /*
+     * Uploads content as a multipart upload. The MD5 of the stream is
+     * computed as it is read and compared to the expected checksum before
+     * the upload is completed. Content which does not match is never
+     * created, as the upload is aborted.
+     */
+    private String addContentInParts(String bucketName,
+                                     String contentId,
+                                     ObjectMetadata objMetadata,
+                                     long contentSize,
+                                     String contentChecksum,
+                                     InputStream content) {
+        objMetadata.addUserMetadata(encodeHeaderKey(PROPERTIES_CONTENT_CHECKSUM),
+                                    encodeHeaderValue(contentChecksum));
+
+        try {
+            return multipartUploader.upload(bucketName,
+                                            contentId,
+                                            objMetadata,
+                                            DEFAULT_STORAGE_CLASS,
+                                            CannedAccessControlList.Private,
+                                            content,
+                                            contentSize,
+                                            contentChecksum);
+        } catch (AmazonClientException e) {
+            String err = MessageFormat.format("exception uploading object {0} in parts into {1}: {2}",
+                                              contentId,
+                                              bucketName,
+                                              e.getMessage());
+            log.error(err, e);
+            throw new StorageException("Could not add content " + contentId +
+                                       " with size " + contentSize +
+                                       " to S3 bucket " + bucketName +
+                                       " due to error: " + e.getMessage(),
+                                       e, NO_RETRY);
+        }
+    }
+
+    /*
+     * Retrieves the checksum stored as a user property for content uploaded
+     * in parts, or null if no such checksum exists.
+     */
+    protected String getStoredChecksum(ObjectMetadata objMetadata) {
+        Map<String, String> userMetadata = objMetadata.getUserMetadata();
+        if (null != userMetadata) {
+            String stored =
+                userMetadata.get(encodeHeaderKey(PROPERTIES_CONTENT_CHECKSUM));
+            if (null != stored) {
+                return decodeHeaderValue(stored);
+            }
+        }
+        return null;
+    }
+
     private String removeContentEncoding(Map<String, String> properties) {
         if (properties != null) {
             return properties.remove(CONTENT_ENCODING);
@@ -914,13 +1102,18 @@ public class S3StorageProvider extends StorageProviderBase {
 
         contentProperties = removeCalculatedProperties(contentProperties);
 
-        // Determine mimetype, from properties list or existing value
+        // Existing details provide the mimetype (if not included in the
+        // properties list) and the checksum of content uploaded in parts,
+        // so are only retrieved when one of those may be needed
         String mimeType = contentProperties.remove(PROPERTIES_CONTENT_MIMETYPE);
+        ObjectMetadata existingMetadata = null;
+        if (mimeType == null || mimeType.equals("") || canCopyContentInParts()) {
+            existingMetadata = getObjectDetails(bucketName, contentId, RETRY);
+        }
+
+        // Determine mimetype, from properties list or existing value
         if (mimeType == null || mimeType.equals("")) {
-            Map<String, String> existingMeta =
-                getContentProperties(spaceId, contentId);
-            String existingMime =
-                existingMeta.get(StorageProvider.PROPERTIES_CONTENT_MIMETYPE);
+            String existingMime = existingMetadata.getContentType();
             if (existingMime != null) {
                 mimeType = existingMime;
             }
@@ -935,6 +1128,14 @@ public class S3StorageProvider extends StorageProviderBase {
             objMetadata.addUserMetadata(getSpaceFree(key), contentProperties.get(key));
         }
 
+        // Retain the checksum of content uploaded in parts
+        String storedChecksum =
+            null == existingMetadata ? null : getStoredChecksum(existingMetadata);
+        if (null != storedChecksum) {
+            objMetadata.addUserMetadata(encodeHeaderKey(PROPERTIES_CONTENT_CHECKSUM),
+                                        encodeHeaderValue(storedChecksum));
+        }
+
         // Set Content-Type
         if (mimeType != null && !mimeType.equals("")) {
             objMetadata.setContentType(mimeType);
@@ -1084,6 +1285,11 @@ public class S3StorageProvider extends StorageProviderBase {
         String checksum = objMetadata.getETag();
         if (checksum != null) {
             String eTagValue = getETagValue(checksum);
+            // The ETag of content uploaded in parts is not an MD5
+            String storedChecksum = getStoredChecksum(objMetadata);
+            if (null != storedChecksum) {
+                eTagValue = storedChecksum;
+            }
             contentProperties.put(PROPERTIES_CONTENT_CHECKSUM, eTagValue);
             contentProperties.put(PROPERTIES_CONTENT_MD5, eTagValue);
             contentProperties.put(Headers.ETAG, eTagValue);
@@ -1116,23 +1322,51 @@ public class S3StorageProvider extends StorageProviderBase {
      * Gets the name of an existing bucket based on a space ID. If no bucket
      * with this spaceId exists, throws a NotFoundException
      *
+     * Bucket names are resolved through the space bucket index; the full
+     * bucket listing is only retrieved when the index has expired or does
+     * not include the space.
+     *
      * @param spaceId the space Id to convert into an S3 bucket name
      * @return S3 bucket name of a given DuraCloud space
      * @throws NotFoundException if no bucket matches this spaceID
      */
     public String getBucketName(String spaceId) {
-        // Determine if there is an existing bucket that matches this space ID.
-        // The bucket name may use any access key ID as the prefix, so there is
-        // no way to know the exact bucket name up front.
-        List<Bucket> buckets = listAllBuckets();
-        for (Bucket bucket : buckets) {
-            String bucketName = bucket.getName();
-            spaceId = spaceId.replace(".", "[.]");
-            if (bucketName.matches("(" + HIDDEN_SPACE_PREFIX + ")?[\\w]{20}[.]" + spaceId)) {
-                return bucketName;
+        String bucketName = bucketIndex.getBucketName(spaceId);
+        if (null == bucketName) {
+            // Determine if there is an existing bucket that matches this space ID.
+            // The bucket name may use any access key ID as the prefix, so there is
+            // no way to know the exact bucket name up front.
+            listAllBuckets();
+            bucketName = bucketIndex.lookup(spaceId);
+            if (log.isDebugEnabled()) {
+                log.debug("Bucket index refreshed for space {}: hits={}, misses={}",
+                          spaceId, bucketIndex.getHitCount(), bucketIndex.getMissCount());
             }
         }
-        throw new NotFoundException("No S3 bucket found matching spaceID: " + spaceId);
+
+        if (null == bucketName) {
+            throw new NotFoundException("No S3 bucket found matching spaceID: " + spaceId);
+        }
+        return bucketName;
+    }
+
+    /**
+     * @return the index used to resolve space IDs into bucket names, which
+     * includes counters for index hits and misses
+     */
+    public SpaceBucketIndex getBucketIndex() {
+        return bucketIndex;
+    }
+
+    /**
+     * Removes the cached bucket name of a space along with its cached
+     * properties, for use when the space has been changed through another
+     * DuraCloud instance.
+     */
+    @Override
+    public void invalidateSpace(String spaceId) {
+        bucketIndex.remove(spaceId);
+        super.invalidateSpace(spaceId);
     }
 
     /**
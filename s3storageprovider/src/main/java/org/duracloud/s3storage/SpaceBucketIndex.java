@@ -0,0 +1,172 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.s3storage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.amazonaws.services.s3.model.Bucket;
+
+/**
+ * Maintains a mapping of DuraCloud space IDs to the names of the S3 buckets
+ * which back them. The index is populated from a full bucket listing, kept
+ * current as spaces are created and removed through the storage provider,
+ * and considered stale once its time-to-live has passed since the last full
+ * listing (to pick up changes made by other DuraCloud instances).
+ */
+public class SpaceBucketIndex {
+
+    public static final long DEFAULT_TTL_SECONDS = 300;
+
+    /*
+     * Matches bucket names of the form: [hidden-]<20-char-prefix>.<spaceId>
+     * According to AWS docs, the access key (used in DuraCloud as a
+     * prefix for uniqueness) is a 20 character alphanumeric sequence.
+     */
+    private static final Pattern BUCKET_NAME_PATTERN =
+        Pattern.compile("(" + S3StorageProvider.HIDDEN_SPACE_PREFIX + ")?[\\w]{20}[.](.+)");
+
+    private final long ttlMillis;
+    private volatile Map<String, String> spaceBuckets = new ConcurrentHashMap<>();
+    private volatile long expiresAt = 0;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    public SpaceBucketIndex() {
+        this(DEFAULT_TTL_SECONDS);
+    }
+
+    /**
+     * @param ttlSeconds number of seconds a full bucket listing is trusted
+     *                   before the index must be refreshed. A value of 0 or
+     *                   less disables caching.
+     */
+    public SpaceBucketIndex(long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, ttlSeconds));
+    }
+
+    /**
+     * Retrieves the bucket name for a space from the index. A null value
+     * indicates that the caller should refresh the index from a new
+     * bucket listing.
+     *
+     * @param spaceId ID of the space
+     * @return name of the bucket, or null if the space is not indexed or
+     * the index has expired
+     */
+    public String getBucketName(String spaceId) {
+        String bucketName = null;
+        if (System.currentTimeMillis() < expiresAt) {
+            bucketName = spaceBuckets.get(spaceId);
+        }
+
+        if (null == bucketName) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return bucketName;
+    }
+
+    /**
+     * Retrieves the bucket name for a space without regard to index
+     * expiration and without updating the hit/miss counters. Intended for
+     * use immediately after a call to refresh().
+     *
+     * @param spaceId ID of the space
+     * @return name of the bucket, or null if the space is not indexed
+     */
+    public String lookup(String spaceId) {
+        return spaceBuckets.get(spaceId);
+    }
+
+    /**
+     * Replaces the contents of the index with the spaces found in a full
+     * bucket listing. Where more than one bucket maps to the same space ID,
+     * the first bucket in the listing is used.
+     *
+     * @param buckets full listing of buckets
+     */
+    public void refresh(List<Bucket> buckets) {
+        Map<String, String> refreshed = new ConcurrentHashMap<>();
+        for (Bucket bucket : buckets) {
+            String bucketName = bucket.getName();
+            String spaceId = getSpaceId(bucketName);
+            if (null != spaceId) {
+                refreshed.putIfAbsent(spaceId, bucketName);
+            }
+        }
+        spaceBuckets = refreshed;
+        expiresAt = System.currentTimeMillis() + ttlMillis;
+        refreshCount.incrementAndGet();
+    }
+
+    /**
+     * Adds (or replaces) the bucket associated with a space
+     */
+    public void put(String spaceId, String bucketName) {
+        spaceBuckets.put(spaceId, bucketName);
+    }
+
+    /**
+     * Removes a space from the index
+     */
+    public void remove(String spaceId) {
+        spaceBuckets.remove(spaceId);
+    }
+
+    /**
+     * Marks the index as expired, forcing a refresh on the next lookup
+     */
+    public void invalidate() {
+        expiresAt = 0;
+    }
+
+    /**
+     * @return number of lookups answered from the index
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of lookups which required a bucket listing
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of times the index was rebuilt from a bucket listing
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Determines the space ID which a bucket name represents.
+     *
+     * @param bucketName name of the S3 bucket
+     * @return space ID, or null if the bucket is not named as a DuraCloud space
+     */
+    protected static String getSpaceId(String bucketName) {
+        Matcher matcher = BUCKET_NAME_PATTERN.matcher(bucketName);
+        if (matcher.matches()) {
+            return matcher.group(2);
+        }
+        return null;
+    }
+
+}
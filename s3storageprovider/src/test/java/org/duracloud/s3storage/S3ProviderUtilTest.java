@@ -115,4 +115,22 @@ public class S3ProviderUtilTest {
 
         assertSame(s3ClientA, s3ClientB);
     }
+
+    @Test
+    public void testReleaseAmazonS3Client() {
+        String accessKey = "release-access-key";
+        String privateKey = "private-key";
+
+        AmazonS3 s3ClientA = S3ProviderUtil.getAmazonS3Client(accessKey, privateKey, null);
+        AmazonS3 s3ClientB = S3ProviderUtil.getAmazonS3Client(accessKey, privateKey, null);
+        assertSame(s3ClientA, s3ClientB);
+
+        // The client is kept until each caller has released it
+        S3ProviderUtil.releaseAmazonS3Client(accessKey, privateKey, null);
+        assertSame(s3ClientA, S3ProviderUtil.getAmazonS3Client(accessKey, privateKey, null));
+
+        S3ProviderUtil.releaseAmazonS3Client(accessKey, privateKey, null);
+        S3ProviderUtil.releaseAmazonS3Client(accessKey, privateKey, null);
+        assertNotSame(s3ClientA, S3ProviderUtil.getAmazonS3Client(accessKey, privateKey, null));
+    }
 }
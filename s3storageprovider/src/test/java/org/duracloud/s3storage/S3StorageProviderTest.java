@@ -34,14 +34,20 @@ import java.util.Map;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AccessControlList;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
 import com.amazonaws.services.s3.model.BucketTaggingConfiguration;
 import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.CopyObjectResult;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
@@ -52,8 +58,11 @@ import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.model.StorageClass;
 import com.amazonaws.services.s3.model.TagSet;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
 import org.duracloud.common.util.IOUtil;
 import org.duracloud.storage.domain.RetrievedContent;
+import org.duracloud.storage.domain.StorageAccount;
 import org.duracloud.storage.domain.StorageProviderType;
 import org.duracloud.storage.error.ChecksumMismatchException;
 import org.duracloud.storage.error.NotFoundException;
@@ -306,6 +315,172 @@ public class S3StorageProviderTest {
         return capturedRequest;
     }
 
+    @Test
+    public void testAddContentInParts() {
+        Capture<InitiateMultipartUploadRequest> initCapture = newCapture();
+        Capture<UploadPartRequest> partCapture = newCapture();
+        createS3ClientAddContentInParts(initCapture, partCapture);
+        replay(s3Client);
+
+        contentStream = createStream(content);
+        String resultChecksum =
+            getMultipartProvider().addContent(spaceId, contentId, "mimetype",
+                                              new HashMap<>(), content.length(),
+                                              hexChecksum, contentStream);
+        assertEquals(hexChecksum, resultChecksum);
+
+        ObjectMetadata metadata = initCapture.getValue().getObjectMetadata();
+        assertNull(metadata.getContentMD5());
+        assertEquals(S3StorageProvider.encodeHeaderValue(hexChecksum),
+                     metadata.getUserMetadata().get(
+                         S3StorageProvider.encodeHeaderKey(
+                             StorageProvider.PROPERTIES_CONTENT_CHECKSUM)));
+
+        UploadPartRequest partRequest = partCapture.getValue();
+        assertEquals(1, partRequest.getPartNumber());
+        assertEquals(content.length(), partRequest.getPartSize());
+        assertEquals(base64Checksum, partRequest.getMd5Digest());
+    }
+
+    @Test
+    public void testAddContentInPartsChecksumMismatch() {
+        setupS3Client();
+        addListBucketsMock();
+
+        String uploadId = "upload-id";
+        InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId(uploadId);
+        expect(s3Client.initiateMultipartUpload(
+            EasyMock.isA(InitiateMultipartUploadRequest.class)))
+            .andReturn(initResult);
+
+        UploadPartResult partResult = new UploadPartResult();
+        partResult.setPartNumber(1);
+        partResult.setETag(hexChecksum);
+        expect(s3Client.uploadPart(EasyMock.isA(UploadPartRequest.class)))
+            .andReturn(partResult);
+
+        // The upload must be aborted, never completed, and nothing deleted
+        Capture<AbortMultipartUploadRequest> abortCapture = newCapture();
+        s3Client.abortMultipartUpload(capture(abortCapture));
+        EasyMock.expectLastCall().once();
+        replay(s3Client);
+
+        contentStream = createStream("hello-other");
+        try {
+            getMultipartProvider().addContent(spaceId, contentId, "mimetype",
+                                              new HashMap<>(), content.length(),
+                                              hexChecksum, contentStream);
+            fail("Checksum mismatch exception expected");
+        } catch (ChecksumMismatchException e) {
+            assertNotNull(e.getMessage());
+        }
+        assertEquals(uploadId, abortCapture.getValue().getUploadId());
+    }
+
+    @Test
+    public void testGetContentPropertiesUploadedInParts() {
+        setupS3Client();
+        addListBucketsMock();
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setHeader(Headers.ETAG, "\"abc123-2\"");
+        metadata.addUserMetadata(S3StorageProvider.encodeHeaderKey(
+                                     StorageProvider.PROPERTIES_CONTENT_CHECKSUM),
+                                 S3StorageProvider.encodeHeaderValue(hexChecksum));
+        expect(s3Client.getObjectMetadata(accessKey + "." + spaceId, contentId))
+            .andReturn(metadata);
+        replay(s3Client);
+
+        Map<String, String> props =
+            getProvider().getContentProperties(spaceId, contentId);
+        assertEquals(hexChecksum, props.get(StorageProvider.PROPERTIES_CONTENT_CHECKSUM));
+        assertEquals(hexChecksum, props.get(StorageProvider.PROPERTIES_CONTENT_MD5));
+    }
+
+    @Test
+    public void testSetContentPropertiesWithMimetype() {
+        setupS3Client();
+        addListBucketsMock();
+
+        // Existing properties are not retrieved when the mimetype is given
+        Capture<CopyObjectRequest> copyCapture = Capture.newInstance();
+        createS3ClientUpdateProperties(copyCapture);
+        replay(s3Client);
+
+        Map<String, String> props = new HashMap<>();
+        props.put(StorageProvider.PROPERTIES_CONTENT_MIMETYPE, "text/plain");
+        getProvider().setContentProperties(spaceId, contentId, props);
+
+        ObjectMetadata metadata = copyCapture.getValue().getNewObjectMetadata();
+        assertEquals("text/plain", metadata.getContentType());
+    }
+
+    @Test
+    public void testSetContentPropertiesUploadedInParts() {
+        setupS3Client();
+        addListBucketsMock();
+
+        ObjectMetadata existing = new ObjectMetadata();
+        existing.addUserMetadata(S3StorageProvider.encodeHeaderKey(
+                                     StorageProvider.PROPERTIES_CONTENT_CHECKSUM),
+                                 S3StorageProvider.encodeHeaderValue(hexChecksum));
+        expect(s3Client.getObjectMetadata(accessKey + "." + spaceId, contentId))
+            .andReturn(existing);
+        Capture<CopyObjectRequest> copyCapture = Capture.newInstance();
+        createS3ClientUpdateProperties(copyCapture);
+        replay(s3Client);
+
+        Map<String, String> props = new HashMap<>();
+        props.put(StorageProvider.PROPERTIES_CONTENT_MIMETYPE, "text/plain");
+        getMultipartProvider().setContentProperties(spaceId, contentId, props);
+
+        ObjectMetadata metadata = copyCapture.getValue().getNewObjectMetadata();
+        assertEquals(S3StorageProvider.encodeHeaderValue(hexChecksum),
+                     metadata.getUserMetadata().get(S3StorageProvider.encodeHeaderKey(
+                         StorageProvider.PROPERTIES_CONTENT_CHECKSUM)));
+    }
+
+    private void createS3ClientUpdateProperties(Capture<CopyObjectRequest> copyCapture) {
+        AccessControlList acl = new AccessControlList();
+        expect(s3Client.getObjectAcl(accessKey + "." + spaceId, contentId))
+            .andReturn(acl);
+        expect(s3Client.copyObject(capture(copyCapture)))
+            .andReturn(new CopyObjectResult());
+        s3Client.setObjectAcl(accessKey + "." + spaceId, contentId, acl);
+        EasyMock.expectLastCall();
+    }
+
+    private S3StorageProvider getMultipartProvider() {
+        Map<String, String> options = new HashMap<>();
+        options.put(StorageAccount.OPTS.MULTIPART_THRESHOLD.name(), "1");
+        return new S3StorageProvider(s3Client, accessKey, options);
+    }
+
+    private void createS3ClientAddContentInParts(
+        Capture<InitiateMultipartUploadRequest> initCapture,
+        Capture<UploadPartRequest> partCapture) {
+        setupS3Client();
+        addListBucketsMock();
+
+        String uploadId = "upload-id";
+        InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+        initResult.setUploadId(uploadId);
+        expect(s3Client.initiateMultipartUpload(capture(initCapture)))
+            .andReturn(initResult);
+
+        UploadPartResult partResult = new UploadPartResult();
+        partResult.setPartNumber(1);
+        partResult.setETag(hexChecksum);
+        expect(s3Client.uploadPart(capture(partCapture))).andReturn(partResult);
+
+        CompleteMultipartUploadResult completeResult = new CompleteMultipartUploadResult();
+        completeResult.setETag("abc123-1");
+        expect(s3Client.completeMultipartUpload(
+            EasyMock.isA(CompleteMultipartUploadRequest.class)))
+            .andReturn(completeResult);
+    }
+
     private Capture<PutObjectRequest> createS3ClientAddContentWithClientError(String checksum) {
         setupS3Client();
         addListBucketsMock();
@@ -668,7 +843,6 @@ public class S3StorageProviderTest {
 
         S3StorageProvider provider = getProvider();
         Bucket bucket = createMock(Bucket.class);
-        expect(bucket.getName()).andReturn(bucketName);
         expect(bucket.getCreationDate()).andReturn(new Date());
         expect(this.s3Client.createBucket(bucketName)).andReturn(bucket);
 
@@ -679,11 +853,7 @@ public class S3StorageProviderTest {
                                                  capture(lifecycleConfigCapture));
         EasyMock.expectLastCall().once();
 
-        expect(this.s3Client.listBuckets()).andReturn(Arrays.asList(bucket));
-
-        List<String> spaceIds2 = new LinkedList<>(spaceIds);
-        spaceIds2.add(spaceId);
-        addListBucketsMock(2, spaceIds2);
+        // The new bucket is added to the index, so no further listing is needed
         expect(s3Client.getBucketTaggingConfiguration(bucketName))
                 .andReturn(new BucketTaggingConfiguration());
         s3Client.setBucketTaggingConfiguration(eq(bucketName),
@@ -706,6 +876,59 @@ public class S3StorageProviderTest {
         verify(s3Client, bucket);
     }
 
+    @Test
+    public void testGetBucketNameIndexed() {
+        setupS3Client();
+        addListBucketsMock(1, Arrays.asList(spaceId, "dest-space-id"));
+        replay(s3Client);
+
+        S3StorageProvider provider = getProvider();
+        String bucketName = accessKey + "." + spaceId;
+        assertEquals(bucketName, provider.getBucketName(spaceId));
+        assertEquals(bucketName, provider.getBucketName(spaceId));
+        assertEquals(accessKey + ".dest-space-id",
+                     provider.getBucketName("dest-space-id"));
+
+        SpaceBucketIndex index = provider.getBucketIndex();
+        assertEquals(1, index.getMissCount());
+        assertEquals(2, index.getHitCount());
+        assertEquals(1, index.getRefreshCount());
+    }
+
+    @Test
+    public void testGetBucketNameNotFound() {
+        setupS3Client();
+        addListBucketsMock(2, Arrays.asList(spaceId));
+        replay(s3Client);
+
+        S3StorageProvider provider = getProvider();
+        for (int i = 0; i < 2; i++) {
+            try {
+                provider.getBucketName("unknown-space");
+                fail("Exception expected");
+            } catch (NotFoundException e) {
+                assertNotNull(e.getMessage());
+            }
+        }
+        assertEquals(2, provider.getBucketIndex().getMissCount());
+    }
+
+    @Test
+    public void testGetBucketNameNoIndexTtl() {
+        setupS3Client();
+        addListBucketsMock(2, Arrays.asList(spaceId));
+        replay(s3Client);
+
+        Map<String, String> options = new HashMap<>();
+        options.put(StorageAccount.OPTS.BUCKET_INDEX_TTL.name(), "0");
+        S3StorageProvider provider =
+            new S3StorageProvider(s3Client, accessKey, options);
+        String bucketName = accessKey + "." + spaceId;
+        assertEquals(bucketName, provider.getBucketName(spaceId));
+        assertEquals(bucketName, provider.getBucketName(spaceId));
+        assertEquals(0, provider.getBucketIndex().getHitCount());
+    }
+
     @Test
     public void testEncodeDecodeHeaderKey() throws Exception {
         String key = "key";
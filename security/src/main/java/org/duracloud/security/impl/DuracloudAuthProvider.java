@@ -8,6 +8,7 @@
 package org.duracloud.security.impl;
 
 import org.duracloud.security.DuracloudUserDetailsService;
+import org.duracloud.security.util.IpLimitsMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.InsufficientAuthenticationException;
@@ -53,15 +54,12 @@ public class DuracloudAuthProvider extends DaoAuthenticationProvider {
                 (WebAuthenticationDetails) authentication.getDetails();
             String requestIp = details.getRemoteAddress();
 
-            String[] ipLimits = userIpLimits.split(";");
-            for (String ipLimit : ipLimits) {
-                if (ipInRange(requestIp, ipLimit)) {
-                    // User's IP is within this range, grant access
-                    log.debug("Allowing authentication check to continue for user " +
-                              dcUserDetails.getUsername() + " because their IP " +
-                              requestIp + " exists in a valid range " + ipLimit);
-                    return;
-                }
+            if (IpLimitsMatcher.getMatcher(userIpLimits).matches(requestIp)) {
+                // User's IP is within a valid range, grant access
+                log.debug("Allowing authentication check to continue for user " +
+                          dcUserDetails.getUsername() + " because their IP " +
+                          requestIp + " exists in a valid range " + userIpLimits);
+                return;
             }
 
             // There are IP limits, and none of them match the user's IP, deny
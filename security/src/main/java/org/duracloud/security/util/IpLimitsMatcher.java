@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.security.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+
+/**
+ * Determines if an IP address falls within the IP limits of a user. IP
+ * limits are a semicolon-separated list of IP ranges in CIDR notation.
+ * Ranges which are not valid are skipped, so the remaining ranges of a user
+ * continue to apply.
+ *
+ * Matchers are cached by IP limits value, so the ranges of a user are parsed
+ * once rather than on each request. A change to the IP limits of a user
+ * results in a new value, and so a new matcher.
+ */
+public class IpLimitsMatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(IpLimitsMatcher.class);
+
+    private static final int MAX_CACHED_MATCHERS = 1000;
+
+    private static final Map<String, IpLimitsMatcher> MATCHERS =
+        new ConcurrentHashMap<>();
+
+    private final List<IpAddressMatcher> rangeMatchers;
+
+    private IpLimitsMatcher(String ipLimits) {
+        List<IpAddressMatcher> matchers = new ArrayList<>();
+        for (String range : ipLimits.split(";")) {
+            try {
+                IpAddressMatcher matcher = new IpAddressMatcher(range);
+                // A prefix length beyond the address length fails only on use
+                matcher.matches(range.split("/")[0]);
+                matchers.add(matcher);
+            } catch (RuntimeException e) {
+                log.warn("Ignoring invalid IP range {}: {}", range, e.getMessage());
+            }
+        }
+        this.rangeMatchers = Collections.unmodifiableList(matchers);
+    }
+
+    /**
+     * Retrieves the matcher for the given IP limits
+     *
+     * @param ipLimits IP ranges in CIDR notation, separated by semicolons
+     * @return matcher for the IP limits
+     */
+    public static IpLimitsMatcher getMatcher(String ipLimits) {
+        IpLimitsMatcher matcher = MATCHERS.get(ipLimits);
+        if (null == matcher) {
+            matcher = new IpLimitsMatcher(ipLimits);
+            if (MATCHERS.size() >= MAX_CACHED_MATCHERS) {
+                MATCHERS.clear();
+            }
+            MATCHERS.put(ipLimits, matcher);
+        }
+        return matcher;
+    }
+
+    /**
+     * @param ipAddress single IP address
+     * @return true if the address is within any of the IP ranges
+     */
+    public boolean matches(String ipAddress) {
+        for (IpAddressMatcher rangeMatcher : rangeMatchers) {
+            if (rangeMatcher.matches(ipAddress)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
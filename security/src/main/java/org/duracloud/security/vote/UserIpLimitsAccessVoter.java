@@ -13,6 +13,7 @@ import java.util.Collection;
 import javax.servlet.http.HttpServletRequest;
 
 import org.duracloud.security.impl.DuracloudUserDetails;
+import org.duracloud.security.util.IpLimitsMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.access.AccessDecisionVoter;
@@ -93,13 +94,10 @@ public class UserIpLimitsAccessVoter implements AccessDecisionVoter {
         if (null != userIpLimits && !userIpLimits.equals("")) {
             String requestIp = httpRequest.getRemoteAddr();
 
-            String[] ipLimits = userIpLimits.split(";");
-            for (String ipLimit : ipLimits) {
-                if (ipInRange(requestIp, ipLimit)) {
-                    // User's IP is within this range, grant access
-                    log.debug(debugText(label, auth, config, resource, ACCESS_GRANTED));
-                    return ACCESS_GRANTED;
-                }
+            if (IpLimitsMatcher.getMatcher(userIpLimits).matches(requestIp)) {
+                // User's IP is within a valid range, grant access
+                log.debug(debugText(label, auth, config, resource, ACCESS_GRANTED));
+                return ACCESS_GRANTED;
             }
 
             // There are IP limits, and none of them match the user's IP, deny
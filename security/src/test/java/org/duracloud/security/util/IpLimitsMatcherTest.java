@@ -0,0 +1,48 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.security.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IpLimitsMatcherTest {
+
+    @Test
+    public void testMatches() {
+        IpLimitsMatcher matcher =
+            IpLimitsMatcher.getMatcher("1.2.3.4/32;1.2.5.6/30");
+        assertTrue(matcher.matches("1.2.3.4"));
+        assertTrue(matcher.matches("1.2.5.7"));
+        assertFalse(matcher.matches("1.2.3.5"));
+        assertFalse(matcher.matches("5.5.5.5"));
+
+        assertTrue(IpLimitsMatcher.getMatcher("1.1.1.1/0").matches("1.2.3.4"));
+    }
+
+    @Test
+    public void testCached() {
+        String ipLimits = "10.0.0.0/8;192.168.1.0/24";
+        assertSame(IpLimitsMatcher.getMatcher(ipLimits),
+                   IpLimitsMatcher.getMatcher(ipLimits));
+    }
+
+    @Test
+    public void testInvalidRange() {
+        // Invalid ranges are skipped, the valid ranges still apply
+        IpLimitsMatcher matcher =
+            IpLimitsMatcher.getMatcher("not-an-ip/99;1.2.3.4/32;;1.2.5.6/99");
+        assertTrue(matcher.matches("1.2.3.4"));
+        assertFalse(matcher.matches("1.2.5.6"));
+
+        assertFalse(IpLimitsMatcher.getMatcher("not-an-ip").matches("1.2.3.4"));
+    }
+
+}
@@ -23,6 +23,7 @@ public abstract class AbstractSnapshotTaskRunner implements TaskRunner {
     private String bridgeAppPort;
     private String bridgeAppUser;
     private String bridgeAppPass;
+    private RestHttpHelper restHelper;
 
     public AbstractSnapshotTaskRunner(
         String bridgeAppHost, String bridgeAppPort, String bridgeAppUser,
@@ -66,6 +67,17 @@ public abstract class AbstractSnapshotTaskRunner implements TaskRunner {
         return restHelper;
     }
 
+    /*
+     * Provides the helper used for all calls to the bridge app, created on
+     * first use so that its connection pool is shared across calls
+     */
+    protected synchronized RestHttpHelper getRestHelper() {
+        if (null == restHelper) {
+            restHelper = createRestHelper();
+        }
+        return restHelper;
+    }
+
     /**
      * A helper method that takes a json string and extracts the value of the specified
      * property.
@@ -142,7 +142,7 @@ public class CreateSnapshotTaskRunner extends SpaceModifyingSnapshotTaskRunner {
 
             // Make call to the bridge ingest app to kick off transfer
             callResult =
-                callBridge(createRestHelper(), snapshotURL, snapshotBody);
+                callBridge(getRestHelper(), snapshotURL, snapshotBody);
         } catch (Exception e) {
             // Bridge call did not complete successfully, clean up!
             try {
@@ -42,7 +42,7 @@ public class GetRestoreTaskRunner extends AbstractSnapshotTaskRunner {
     public String performTask(String taskParameters) {
         GetRestoreTaskParameters params =
             GetRestoreTaskParameters.deserialize(taskParameters);
-        return callBridge(createRestHelper(), buildBridgeURL(params));
+        return callBridge(getRestHelper(), buildBridgeURL(params));
     }
 
     /*
@@ -67,8 +67,7 @@ public class GetRestoreTaskRunner extends AbstractSnapshotTaskRunner {
     protected String callBridge(RestHttpHelper restHelper, String bridgeURL) {
         log.info("Making bridge call to get restore status. URL: {}", bridgeURL);
 
-        try {
-            RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL);
+        try (RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL)) {
             int statusCode = response.getStatusCode();
             if (statusCode != 200) {
                 throw new RuntimeException("Unexpected response code: " +
@@ -44,7 +44,7 @@ public class GetSnapshotContentsTaskRunner extends AbstractSnapshotTaskRunner {
     public String performTask(String taskParameters) {
         GetSnapshotContentsTaskParameters taskParams =
             GetSnapshotContentsTaskParameters.deserialize(taskParameters);
-        return callBridge(createRestHelper(), buildBridgeURL(taskParams));
+        return callBridge(getRestHelper(), buildBridgeURL(taskParams));
     }
 
     /*
@@ -79,8 +79,7 @@ public class GetSnapshotContentsTaskRunner extends AbstractSnapshotTaskRunner {
     protected String callBridge(RestHttpHelper restHelper, String bridgeURL) {
         log.info("Making bridge call to get snapshot contents. URL: {}", bridgeURL);
 
-        try {
-            RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL);
+        try (RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL)) {
             int statusCode = response.getStatusCode();
             if (statusCode != 200) {
                 throw new RuntimeException("Unexpected response code: " +
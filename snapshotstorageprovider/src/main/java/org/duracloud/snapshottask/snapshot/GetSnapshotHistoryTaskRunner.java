@@ -42,7 +42,7 @@ public class GetSnapshotHistoryTaskRunner extends AbstractSnapshotTaskRunner {
     public String performTask(String taskParameters) {
         GetSnapshotHistoryTaskParameters taskParams =
             GetSnapshotHistoryTaskParameters.deserialize(taskParameters);
-        return callBridge(createRestHelper(), buildBridgeURL(taskParams));
+        return callBridge(getRestHelper(), buildBridgeURL(taskParams));
     }
 
     /*
@@ -74,8 +74,7 @@ public class GetSnapshotHistoryTaskRunner extends AbstractSnapshotTaskRunner {
     protected String callBridge(RestHttpHelper restHelper, String bridgeURL) {
         log.info("Making bridge call to get snapshot history. URL: {}", bridgeURL);
 
-        try {
-            RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL);
+        try (RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL)) {
             int statusCode = response.getStatusCode();
             if (statusCode != 200) {
                 throw new RuntimeException("Unexpected response code: " +
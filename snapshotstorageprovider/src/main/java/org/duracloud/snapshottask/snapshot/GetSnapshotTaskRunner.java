@@ -45,7 +45,7 @@ public class GetSnapshotTaskRunner extends AbstractSnapshotTaskRunner {
             GetSnapshotTaskParameters.deserialize(taskParameters);
         String snapshotId = params.getSnapshotId();
 
-        return callBridge(createRestHelper(), buildBridgeURL(snapshotId));
+        return callBridge(getRestHelper(), buildBridgeURL(snapshotId));
     }
 
     /*
@@ -63,8 +63,7 @@ public class GetSnapshotTaskRunner extends AbstractSnapshotTaskRunner {
     protected String callBridge(RestHttpHelper restHelper, String bridgeURL) {
         log.info("Making bridge call to get snapshot status. URL: {}", bridgeURL);
 
-        try {
-            RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL);
+        try (RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL)) {
             int statusCode = response.getStatusCode();
             if (statusCode != 200) {
                 throw new RuntimeException("Unexpected response code: " +
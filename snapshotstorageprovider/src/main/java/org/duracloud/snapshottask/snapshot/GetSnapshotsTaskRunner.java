@@ -61,7 +61,7 @@ public class GetSnapshotsTaskRunner extends AbstractSnapshotTaskRunner {
     @Override
     public String performTask(String taskParameters) {
         //get bridge results
-        String result = callBridge(createRestHelper(), buildBridgeURL());
+        String result = callBridge(getRestHelper(), buildBridgeURL());
 
         //if the caller has only user privs
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -108,8 +108,7 @@ public class GetSnapshotsTaskRunner extends AbstractSnapshotTaskRunner {
     protected String callBridge(RestHttpHelper restHelper, String bridgeURL) {
         log.info("Making bridge call to get snapshot list. URL: {}", bridgeURL);
 
-        try {
-            RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL);
+        try (RestHttpHelper.HttpResponse response = restHelper.get(bridgeURL)) {
             int statusCode = response.getStatusCode();
             if (statusCode != 200) {
                 throw new RuntimeException("Unexpected response code: " +
@@ -89,7 +89,7 @@ public class RequestRestoreSnapshotTaskRunner extends AbstractSnapshotTaskRunner
 
         // Call to bridge to request restore
         String callResult =
-            callBridge(createRestHelper(), bridgeURL, bridgeBody);
+            callBridge(getRestHelper(), bridgeURL, bridgeBody);
         RequestRestoreBridgeResult bridgeResult =
             RequestRestoreBridgeResult.deserialize(callResult);
 
@@ -48,7 +48,7 @@ public class RestartSnapshotTaskRunner extends AbstractSnapshotTaskRunner {
             RestartSnapshotTaskParameters.deserialize(taskParameters);
         String snapshotId = params.getSnapshotId();
 
-        return callBridge(createRestHelper(), buildBridgeURL(snapshotId));
+        return callBridge(getRestHelper(), buildBridgeURL(snapshotId));
     }
 
     /*
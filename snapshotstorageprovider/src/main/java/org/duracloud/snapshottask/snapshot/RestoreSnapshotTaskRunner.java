@@ -112,7 +112,7 @@ public class RestoreSnapshotTaskRunner extends AbstractSnapshotTaskRunner {
 
         // Call to bridge to request restore
         String callResult =
-            callBridge(createRestHelper(), bridgeURL, bridgeBody);
+            callBridge(getRestHelper(), bridgeURL, bridgeBody);
         CreateRestoreBridgeResult bridgeResult =
             CreateRestoreBridgeResult.deserialize(callResult);
 
@@ -43,10 +43,26 @@ public class FileStitcherImpl implements FileStitcher {
 
     private Logger log = LoggerFactory.getLogger(FileStitcherImpl.class);
 
+    /**
+     * Default number of chunks retrieved ahead of the chunk being stitched
+     */
+    public static final int DEFAULT_READ_AHEAD = 2;
+
     private DataSource dataSource;
+    private int readAhead;
 
     public FileStitcherImpl(DataSource dataSource) {
+        this(dataSource, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * @param dataSource source of manifests and chunks
+     * @param readAhead  number of chunks to retrieve in parallel ahead of the
+     *                   chunk being stitched, 0 retrieves chunks one at a time
+     */
+    public FileStitcherImpl(DataSource dataSource, int readAhead) {
         this.dataSource = dataSource;
+        this.readAhead = readAhead;
     }
 
     @Override
@@ -116,10 +132,12 @@ public class FileStitcherImpl implements FileStitcher {
     private InputStream getChunkSequenceStream(String spaceId,
                                                ChunksManifest manifest, FileStitcherListener listener)
         throws InvalidManifestException {
-        // sort chunks by their index.
+        // sort chunks by their index, collecting the checksum of each.
         Map<Integer, String> sortedChunkIds = new TreeMap<Integer, String>();
+        Map<String, String> chunkChecksums = new HashMap<>();
         for (ChunksManifestBean.ManifestEntry entry : manifest.getEntries()) {
             sortedChunkIds.put(entry.getIndex(), entry.getChunkId());
+            chunkChecksums.put(entry.getChunkId(), entry.getChunkMD5());
         }
 
         // collect ordered sequence of chunk streams.
@@ -144,7 +162,12 @@ public class FileStitcherImpl implements FileStitcher {
                 }
             };
 
-        return new MultiContentInputStream(dataSource, chunks, contentListener);
+        return new MultiContentInputStream(dataSource,
+                                           chunks,
+                                           chunkChecksums,
+                                           contentListener,
+                                           readAhead,
+                                           MultiContentInputStream.DEFAULT_BUFFER_SIZE);
     }
 
     private Map<String, String> getContentProperties(ChunksManifest manifest) {
@@ -0,0 +1,181 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.stitch.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A buffer which is filled by a single producer thread and exposed to a
+ * single consumer as an InputStream. Up to a fixed number of bytes are held
+ * in memory, the remainder of the chunk is spooled to a temporary file. The
+ * producer therefore never waits on the consumer, so the retrieval of a
+ * chunk being read ahead is not stalled however large the chunk is. The
+ * temporary file is removed when the buffer is closed.
+ */
+class ChunkBuffer extends InputStream {
+
+    private final byte[] data;
+    private int readPos = 0;
+    private int count = 0;
+    private FileChannel spool = null;
+    private long spoolReadPos = 0;
+    private long spoolCount = 0;
+    private boolean finished = false;
+    private boolean closed = false;
+    private IOException error = null;
+
+    ChunkBuffer(int size) {
+        this.data = new byte[Math.max(1, size)];
+    }
+
+    /**
+     * Called by the producer to add bytes to the buffer. Bytes which do not
+     * fit in memory are written to the spool file.
+     *
+     * @throws IOException if the consumer has closed the buffer or the
+     *                     spool file could not be written
+     */
+    void write(byte[] bytes, int offset, int length) throws IOException {
+        FileChannel channel;
+        long writePos;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Chunk buffer has been closed");
+            }
+
+            if (null == spool) {
+                int toWrite = Math.min(length, data.length - count);
+                System.arraycopy(bytes, offset, data, count, toWrite);
+                count += toWrite;
+                offset += toWrite;
+                length -= toWrite;
+                notifyAll();
+                if (length == 0) {
+                    return;
+                }
+                spool = openSpool();
+            }
+            channel = spool;
+            writePos = spoolCount;
+        }
+
+        // Written outside of the lock so that the consumer is not held up,
+        // only the producer writes beyond spoolCount
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        while (buffer.hasRemaining()) {
+            writePos += channel.write(buffer, writePos);
+        }
+
+        synchronized (this) {
+            spoolCount = writePos;
+            notifyAll();
+        }
+    }
+
+    private FileChannel openSpool() throws IOException {
+        Path spoolFile = Files.createTempFile("chunk-", ".spool");
+        try {
+            return FileChannel.open(spoolFile,
+                                    StandardOpenOption.READ,
+                                    StandardOpenOption.WRITE,
+                                    StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            Files.deleteIfExists(spoolFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Called by the producer once all bytes have been written
+     */
+    synchronized void finish() {
+        finished = true;
+        notifyAll();
+    }
+
+    /**
+     * Called by the producer if the chunk could not be read in full. The
+     * error is raised to the consumer once the buffered bytes are drained.
+     */
+    synchronized void fail(Exception e) {
+        if (e instanceof IOException) {
+            error = (IOException) e;
+        } else {
+            error = new IOException(e.getMessage(), e);
+        }
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return (-1 == read) ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] bytes, int offset, int length)
+        throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        while (available() == 0 && !finished && null == error && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for chunk");
+            }
+        }
+        if (closed) {
+            throw new IOException("Chunk buffer has been closed");
+        }
+
+        if (readPos < count) {
+            int toRead = Math.min(length, count - readPos);
+            System.arraycopy(data, readPos, bytes, offset, toRead);
+            readPos += toRead;
+            return toRead;
+        }
+        if (spoolReadPos < spoolCount) {
+            int toRead = (int) Math.min(length, spoolCount - spoolReadPos);
+            int read = spool.read(ByteBuffer.wrap(bytes, offset, toRead),
+                                  spoolReadPos);
+            spoolReadPos += read;
+            return read;
+        }
+        if (null != error) {
+            throw error;
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized int available() {
+        long spooled = spoolCount - spoolReadPos;
+        return (int) Math.min(Integer.MAX_VALUE, (count - readPos) + spooled);
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        IOUtils.closeQuietly(spool);
+        notifyAll();
+    }
+
+}
@@ -7,13 +7,21 @@
  */
 package org.duracloud.stitch.stream;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.security.DigestInputStream;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.IOUtils;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.datasource.DataSource;
 
@@ -21,24 +29,71 @@ import org.duracloud.stitch.datasource.DataSource;
  * This class exposes a single InputStream composed of the sequence of content
  * streams read on-demand from the provided list of ContentItems.
  *
+ * When a read-ahead window is configured, the content streams following the
+ * one currently being read are retrieved in parallel. Each is held in memory
+ * up to a bounded size, beyond which it is spooled to a temporary file, so
+ * retrieval runs to completion without waiting on the reader. A temporary
+ * file is removed once its content has been read, so at most one per item
+ * in the window exists at a time. Content is always delivered in the order
+ * of the provided list. When checksums are provided, the MD5 of each content stream is
+ * verified as it is read, and an IOException is thrown on a mismatch.
+ *
  * @author Andrew Woods
  * Date: 9/8/11
  */
 public class MultiContentInputStream extends InputStream {
 
+    public static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     private DataSource dataSource;
-    private Iterator<ContentItem> contents;
+    private List<ContentItem> contentItems;
+    private Map<String, String> checksums;
+    private int readAhead;
+    private int bufferSize;
     private InputStream currentStream;
     private MultiContentInputStreamListener listener;
     private ContentItem currentItem;
 
+    private int nextIndex = 0;
+    private int prefetchIndex = 0;
+    private Deque<ChunkBuffer> prefetched = new ArrayDeque<>();
+    private ExecutorService executor;
+    private byte[] single = new byte[1];
+
+    /**
+     * @param dataSource   source of the content streams
+     * @param contentItems content to be read, in order
+     * @param checksums    expected MD5 of each content item keyed by content
+     *                     ID, content items not in the map are not verified
+     * @param listener     notified as each content item is read, may be null
+     * @param readAhead    number of content items beyond the current one to
+     *                     retrieve in parallel, 0 retrieves each item only
+     *                     once the previous one has been read
+     * @param bufferSize   maximum number of bytes held in memory for each
+     *                     content item being read ahead
+     */
     public MultiContentInputStream(DataSource dataSource,
                                    List<ContentItem> contentItems,
-                                   MultiContentInputStreamListener listener) {
+                                   Map<String, String> checksums,
+                                   MultiContentInputStreamListener listener,
+                                   int readAhead,
+                                   int bufferSize) {
         this.dataSource = dataSource;
-        this.contents = contentItems.iterator();
+        this.contentItems = contentItems;
+        this.checksums = (null == checksums) ?
+                         Collections.<String, String>emptyMap() : checksums;
         this.currentStream = null;
         this.listener = listener;
+        this.readAhead = Math.max(0, readAhead);
+        this.bufferSize = bufferSize;
+    }
+
+    public MultiContentInputStream(DataSource dataSource,
+                                   List<ContentItem> contentItems,
+                                   MultiContentInputStreamListener listener) {
+        this(dataSource, contentItems, null, listener, 0, DEFAULT_BUFFER_SIZE);
     }
 
     public MultiContentInputStream(DataSource dataSource,
@@ -48,36 +103,105 @@ public class MultiContentInputStream extends InputStream {
 
     @Override
     public int read() throws IOException {
-        // initialize current stream
-        if (null == currentStream) {
-            if (contents.hasNext()) {
-                currentStream = nextStream();
+        int read = read(single, 0, 1);
+        return (-1 == read) ? -1 : single[0] & 0xff;
+    }
 
-            } else {
-                return -1;
-            }
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
         }
 
-        int bite = currentStream.read();
-        if (-1 == bite) {
-            if (contents.hasNext()) {
-                currentStream = nextStream();
-                bite = currentStream.read();
-            } else {
-                notifyContentIdRead();
+        while (true) {
+            // initialize current stream
+            if (null == currentStream) {
+                if (nextIndex < contentItems.size()) {
+                    currentStream = nextStream();
+                } else {
+                    return -1;
+                }
+            }
+
+            int read = currentStream.read(bytes, offset, length);
+            if (-1 != read) {
+                return read;
             }
+            closeCurrentStream();
         }
+    }
 
-        return bite;
+    @Override
+    public void close() throws IOException {
+        IOUtils.closeQuietly(currentStream);
+        currentStream = null;
+        for (ChunkBuffer buffer : prefetched) {
+            buffer.close();
+        }
+        prefetched.clear();
+        nextIndex = contentItems.size();
+        shutdownExecutor();
     }
 
     private InputStream nextStream() {
-        if (this.currentStream != null) {
-            IOUtils.closeQuietly(this.currentStream);
-            notifyContentIdRead();
+        currentItem = contentItems.get(nextIndex++);
+        if (readAhead == 0) {
+            return getStream(currentItem);
+        }
+
+        prefetch();
+        return prefetched.poll();
+    }
+
+    private void closeCurrentStream() {
+        IOUtils.closeQuietly(currentStream);
+        currentStream = null;
+        notifyContentIdRead();
+        if (nextIndex >= contentItems.size()) {
+            shutdownExecutor();
+        }
+    }
+
+    /*
+     * Starts retrieval of the current content item and of each item in the
+     * read-ahead window which is not already being retrieved
+     */
+    private void prefetch() {
+        if (null == executor) {
+            executor = Executors.newFixedThreadPool(readAhead + 1, runnable -> {
+                Thread thread = new Thread(runnable, "multi-content-read-ahead");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        int windowEnd = Math.min(contentItems.size(), nextIndex + readAhead);
+        while (prefetchIndex < windowEnd) {
+            ContentItem item = contentItems.get(prefetchIndex++);
+            ChunkBuffer buffer = new ChunkBuffer(bufferSize);
+            prefetched.add(buffer);
+            executor.execute(() -> fill(item, buffer));
+        }
+    }
+
+    private void fill(ContentItem item, ChunkBuffer buffer) {
+        try (InputStream stream = getStream(item)) {
+            byte[] bytes = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = stream.read(bytes)) != -1) {
+                buffer.write(bytes, 0, read);
+            }
+            buffer.finish();
+        } catch (Exception e) {
+            buffer.fail(e);
+        }
+    }
+
+    private void shutdownExecutor() {
+        if (null != executor) {
+            executor.shutdownNow();
+            executor = null;
         }
-        currentItem = contents.next();
-        return getStream(currentItem);
     }
 
     protected void notifyContentIdRead() {
@@ -90,7 +214,80 @@ public class MultiContentInputStream extends InputStream {
     private InputStream getStream(ContentItem contentItem) {
         Content content = dataSource.getContent(contentItem.getSpaceId(),
                                                 contentItem.getContentId());
-        return content.getStream();
+        InputStream stream = content.getStream();
+
+        String checksum = checksums.get(contentItem.getContentId());
+        if (null != checksum && !checksum.isEmpty()) {
+            stream = new ChecksumVerifyingStream(stream, contentItem, checksum);
+        }
+        return stream;
+    }
+
+    /**
+     * Computes the MD5 of a content stream as it is read and compares it to
+     * the expected value once the end of the stream is reached.
+     */
+    private static class ChecksumVerifyingStream extends FilterInputStream {
+
+        private ContentItem contentItem;
+        private String expectedChecksum;
+        private boolean verified = false;
+
+        ChecksumVerifyingStream(InputStream stream,
+                                ContentItem contentItem,
+                                String expectedChecksum) {
+            super(ChecksumUtil.wrapStream(stream, ChecksumUtil.Algorithm.MD5));
+            this.contentItem = contentItem;
+            this.expectedChecksum = expectedChecksum;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int bite = super.read();
+            if (-1 == bite) {
+                verify();
+            }
+            return bite;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+            throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (-1 == read) {
+                verify();
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // bytes must pass through the digest in order to be verified
+            byte[] skipped = new byte[(int) Math.min(n, COPY_BUFFER_SIZE)];
+            int read = read(skipped, 0, skipped.length);
+            return Math.max(0, read);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void verify() throws IOException {
+            if (verified) {
+                return;
+            }
+            verified = true;
+
+            String checksum = ChecksumUtil.getChecksum((DigestInputStream) in);
+            if (!expectedChecksum.equalsIgnoreCase(checksum)) {
+                throw new IOException("Checksum mismatch for " +
+                                      contentItem.getSpaceId() + "/" +
+                                      contentItem.getContentId() +
+                                      ": expected " + expectedChecksum +
+                                      " but computed " + checksum);
+            }
+        }
     }
 
 }
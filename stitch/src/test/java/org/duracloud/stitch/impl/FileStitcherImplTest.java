@@ -28,6 +28,7 @@ import java.util.Map;
 import org.apache.commons.io.IOUtils;
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.xml.ManifestDocumentBinding;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.FileStitcher;
 import org.duracloud.stitch.FileStitcherListener;
@@ -221,13 +222,15 @@ public class FileStitcherImplTest {
         // sanity check.
         Assert.assertEquals(NUM_CHUNKS, chunkIndexes.size());
 
-        String md5 = "md5";
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+        String md5;
         String chunkId;
         String chunkText;
         for (int chunkIndex : chunkIndexes) {
             // create chunk entry.
             chunkId = buildChunkId(chunkIndex);
             chunkText = getChunkContent(chunkIndex);
+            md5 = checksumUtil.generateChecksum(chunkText);
             manifest.addEntry(chunkId, md5, chunkText.length());
 
             // create chunk expectation.
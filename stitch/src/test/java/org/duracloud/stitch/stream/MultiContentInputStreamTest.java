@@ -9,13 +9,17 @@ package org.duracloud.stitch.stream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.duracloud.common.model.ContentItem;
+import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.domain.Content;
 import org.duracloud.stitch.datasource.DataSource;
 import org.easymock.EasyMock;
@@ -90,6 +94,107 @@ public class MultiContentInputStreamTest {
         out.close();
     }
 
+    @Test
+    public void testReadAheadWithChecksums() throws Exception {
+        String text = createReadMocks();
+        contentItems.stream().forEach(x -> {
+            listener.contentIdRead(x.getContentId());
+            EasyMock.expectLastCall().once();
+        });
+        replayMocks();
+
+        // a buffer smaller than each chunk exercises the bounded buffers
+        multiStream = new MultiContentInputStream(dataSource,
+                                                  contentItems,
+                                                  createChecksums(),
+                                                  listener,
+                                                  2,
+                                                  3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOUtils.copyLarge(multiStream, out, new byte[4]);
+        multiStream.close();
+        Assert.assertEquals(text, out.toString());
+    }
+
+    @Test
+    public void testReadAheadDoesNotWaitForReader() throws Exception {
+        String text = createReadMocks();
+        replayMocks();
+
+        // chunks larger than the buffer are spooled rather than left waiting
+        multiStream = new MultiContentInputStream(dataSource,
+                                                  contentItems,
+                                                  createChecksums(),
+                                                  null,
+                                                  2,
+                                                  3);
+        try {
+            Assert.assertEquals(text.charAt(0), multiStream.read());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (streams.get(2).available() > 0 &&
+                   System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals(0, streams.get(i).available());
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtils.copy(multiStream, out);
+            Assert.assertEquals(text.substring(1), out.toString());
+        } finally {
+            multiStream.close();
+        }
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        doTestChecksumMismatch(0);
+    }
+
+    @Test
+    public void testReadAheadChecksumMismatch() throws Exception {
+        doTestChecksumMismatch(2);
+    }
+
+    private void doTestChecksumMismatch(int readAhead) throws Exception {
+        createReadMocks();
+        Map<String, String> checksums = createChecksums();
+        int lastIndex = contentItems.size() - 1;
+        String lastContentId = contentItems.get(lastIndex).getContentId();
+        checksums.put(lastContentId, "bad-checksum");
+        for (int i = 0; i < lastIndex; i++) {
+            listener.contentIdRead(contentItems.get(i).getContentId());
+            EasyMock.expectLastCall().once();
+        }
+        replayMocks();
+
+        multiStream = new MultiContentInputStream(dataSource,
+                                                  contentItems,
+                                                  checksums,
+                                                  listener,
+                                                  readAhead,
+                                                  3);
+        try {
+            IOUtils.copy(multiStream, new ByteArrayOutputStream());
+            Assert.fail("Exception expected");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains(lastContentId));
+        } finally {
+            multiStream.close();
+        }
+    }
+
+    private Map<String, String> createChecksums() {
+        ChecksumUtil checksumUtil = new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+        Map<String, String> checksums = new HashMap<>();
+        for (int i = 0; i < contentItems.size(); i++) {
+            checksums.put(contentItems.get(i).getContentId(),
+                          checksumUtil.generateChecksum("text-" + i));
+        }
+        return checksums;
+    }
+
     private String createReadMocks() {
         StringBuilder text = new StringBuilder();
         for (int i = 0; i < 5; ++i) {
@@ -24,6 +24,7 @@ public class AuditConfig {
     private String rabbitmqExchange;
     private String rabbitmqUsername;
     private String rabbitmqPassword;
+    private String auditSpoolDir;
 
     public String getAuditQueueName() {
         return auditQueueName;
@@ -96,4 +97,16 @@ public class AuditConfig {
     public void setRabbitmqPassword(String rabbitmqPassword) {
         this.rabbitmqPassword = rabbitmqPassword;
     }
+
+    /**
+     * @return directory in which audit tasks are stored while they cannot
+     * be placed on the audit queue
+     */
+    public String getAuditSpoolDir() {
+        return auditSpoolDir;
+    }
+
+    public void setAuditSpoolDir(String auditSpoolDir) {
+        this.auditSpoolDir = auditSpoolDir;
+    }
 }
@@ -25,6 +25,12 @@ public interface StorageAccount {
         CF_KEY_ID,
         CF_KEY_PATH,
         AWS_REGION,
+        BUCKET_INDEX_TTL,
+        SPACE_PROPERTIES_CACHE_TTL,
+        SPACE_STATS_RECONCILE_INTERVAL,
+        MULTIPART_THRESHOLD,
+        MULTIPART_PART_SIZE,
+        MULTIPART_CONCURRENCY,
         // Swift
         SWIFT_S3_ENDPOINT,
         SWIFT_S3_SIGNER_TYPE,
@@ -0,0 +1,23 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.storage.provider;
+
+/**
+ * Receives notice of changes made to a space through a storage provider,
+ * such as the space being created or removed or its properties being set,
+ * so that other DuraCloud instances can be told to drop what they have
+ * cached for the space.
+ */
+public interface SpaceChangeListener {
+
+    /**
+     * @param spaceId ID of the space which changed
+     */
+    void spaceChanged(String spaceId);
+
+}
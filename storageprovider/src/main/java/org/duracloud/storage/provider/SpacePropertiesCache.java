@@ -0,0 +1,174 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.storage.provider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the properties of spaces for a short period after they are retrieved
+ * from the underlying storage, so that repeated reads of the same space (such
+ * as when paging through a space listing) do not each require a round trip
+ * to the storage provider. Entries are removed when the space is updated
+ * through the storage provider, and otherwise expire once their time-to-live
+ * has passed (to pick up changes made by other DuraCloud instances).
+ *
+ * A load which begins before an invalidation is not cached, so a value read
+ * just prior to an update cannot replace the invalidated entry.
+ */
+public class SpacePropertiesCache {
+
+    public static final long DEFAULT_TTL_SECONDS = 30;
+
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    public SpacePropertiesCache() {
+        this(DEFAULT_TTL_SECONDS);
+    }
+
+    /**
+     * @param ttlSeconds number of seconds space properties are held before
+     *                   they must be retrieved again. A value of 0 or less
+     *                   disables caching.
+     */
+    public SpacePropertiesCache(long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(Math.max(0, ttlSeconds));
+    }
+
+    /**
+     * Retrieves the cached properties of a space
+     *
+     * @param spaceId ID of the space
+     * @return unmodifiable map of space properties, or null if the space is
+     * not cached or its entry has expired
+     */
+    public Map<String, String> get(String spaceId) {
+        Map<String, String> properties = null;
+        Entry entry = entries.get(spaceId);
+        if (null != entry) {
+            if (System.currentTimeMillis() < entry.expiresAt) {
+                properties = entry.properties;
+            } else {
+                entries.remove(spaceId, entry);
+            }
+        }
+
+        if (null == properties) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return properties;
+    }
+
+    /**
+     * Marks the start of a load of space properties from storage. The
+     * returned value is passed to put() once the load completes.
+     *
+     * @return the current invalidation generation
+     */
+    public long startLoad() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the properties of a space, unless the cache has been
+     * invalidated since the properties were loaded.
+     *
+     * @param spaceId    ID of the space
+     * @param properties space properties
+     * @param loadStart  value returned by startLoad() before the properties
+     *                   were retrieved
+     * @return unmodifiable copy of the properties
+     */
+    public Map<String, String> put(String spaceId,
+                                   Map<String, String> properties,
+                                   long loadStart) {
+        Map<String, String> copy =
+            Collections.unmodifiableMap(new HashMap<>(properties));
+        if (ttlMillis > 0) {
+            entries.put(spaceId,
+                        new Entry(copy, System.currentTimeMillis() + ttlMillis));
+            // An invalidation may have occurred while the entry was added
+            if (generation.get() != loadStart) {
+                entries.remove(spaceId);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Removes the cached properties of a space
+     */
+    public void invalidate(String spaceId) {
+        generation.incrementAndGet();
+        entries.remove(spaceId);
+        invalidationCount.incrementAndGet();
+    }
+
+    /**
+     * Removes the cached properties of all spaces
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        invalidationCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of reads answered from the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of reads which required a call to storage
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return fraction of reads answered from the cache, or 0 if there
+     * have been no reads
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return number of times entries have been invalidated due to updates
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    private static class Entry {
+        private final Map<String, String> properties;
+        private final long expiresAt;
+
+        Entry(Map<String, String> properties, long expiresAt) {
+            this.properties = properties;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
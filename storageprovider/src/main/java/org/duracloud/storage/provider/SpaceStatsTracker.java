@@ -0,0 +1,325 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.storage.provider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maintains the number of content items and the total size of the content in
+ * each space, so that these values can be provided without listing the
+ * contents of the space.
+ *
+ * The totals for a space are established by a full listing of the space
+ * (a reconciliation), which is run in the background the first time the
+ * totals are requested and again once the reconcile interval has passed.
+ * Between reconciliations the totals are adjusted as content is added,
+ * copied and deleted. Changes made while a reconciliation is in progress are
+ * applied to its result only if they affect content which the listing has
+ * already passed, as the listing will see any later change directly.
+ * Periodic reconciliation corrects any drift, such as that caused by changes
+ * made through other DuraCloud instances. A change which cannot be measured
+ * causes the space to be reconciled when its totals are next requested.
+ */
+public class SpaceStatsTracker {
+
+    private static final Logger log =
+        LoggerFactory.getLogger(SpaceStatsTracker.class);
+
+    public static final long DEFAULT_RECONCILE_INTERVAL_SECONDS = 3600;
+
+    private static final ExecutorService RECONCILE_EXECUTOR =
+        Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "space-stats-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /**
+     * Performs a full listing of a space, passing each page of the listing
+     * to the reconciliation in content ID order.
+     */
+    public interface SpaceLister {
+        void list(String spaceId, Reconciliation reconciliation);
+    }
+
+    private final SpaceLister lister;
+    private final long reconcileIntervalMillis;
+    private final Executor executor;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Reconciliation> reconciliations =
+        new ConcurrentHashMap<>();
+    private final AtomicLong reconcileCount = new AtomicLong();
+
+    /**
+     * @param lister                   performs full listings of spaces
+     * @param reconcileIntervalSeconds number of seconds after which the
+     *                                 totals of a space are reconciled
+     *                                 against a new listing
+     */
+    public SpaceStatsTracker(SpaceLister lister, long reconcileIntervalSeconds) {
+        this(lister, reconcileIntervalSeconds, RECONCILE_EXECUTOR);
+    }
+
+    protected SpaceStatsTracker(SpaceLister lister,
+                                long reconcileIntervalSeconds,
+                                Executor executor) {
+        this.lister = lister;
+        this.reconcileIntervalMillis =
+            TimeUnit.SECONDS.toMillis(reconcileIntervalSeconds);
+        this.executor = executor;
+    }
+
+    /**
+     * Retrieves the totals for a space, starting a reconciliation if the
+     * space has not been reconciled or its reconcile interval has passed.
+     *
+     * @param spaceId ID of the space
+     * @return totals for the space, or null if the space has not yet been
+     * reconciled
+     */
+    public SpaceStats getStats(String spaceId) {
+        Entry entry = entries.get(spaceId);
+        if (null == entry || entry.stale ||
+            System.currentTimeMillis() - entry.reconciledAt >= reconcileIntervalMillis) {
+            reconcile(spaceId);
+            entry = entries.get(spaceId);
+        }
+        return null == entry ? null : entry.getStats();
+    }
+
+    /**
+     * @return true if totals are maintained (or being established) for
+     * the space, in which case changes to its content should be reported
+     */
+    public boolean isTracked(String spaceId) {
+        return entries.containsKey(spaceId) ||
+               reconciliations.containsKey(spaceId);
+    }
+
+    /**
+     * Records a change to the content of a space
+     *
+     * @param spaceId   ID of the space
+     * @param contentId ID of the content item which changed
+     * @param countDelta change in the number of items (1, 0 or -1)
+     * @param sizeDelta change in the total size of the space, in bytes
+     */
+    public void contentChanged(String spaceId,
+                               String contentId,
+                               long countDelta,
+                               long sizeDelta) {
+        Reconciliation reconciliation = reconciliations.get(spaceId);
+        if (null != reconciliation) {
+            synchronized (reconciliation) {
+                if (!reconciliation.done) {
+                    reconciliation.apply(contentId, countDelta, sizeDelta);
+                    applyToEntry(spaceId, countDelta, sizeDelta);
+                    return;
+                }
+            }
+        }
+        applyToEntry(spaceId, countDelta, sizeDelta);
+    }
+
+    /**
+     * Records a change to the content of a space which could not be
+     * measured, so the totals of the space are reconciled against a new
+     * listing when they are next requested
+     *
+     * @param spaceId ID of the space
+     */
+    public void reconcileNeeded(String spaceId) {
+        Reconciliation reconciliation = reconciliations.get(spaceId);
+        if (null != reconciliation) {
+            synchronized (reconciliation) {
+                // The listing may already have passed the change
+                reconciliation.stale = true;
+            }
+        }
+        Entry entry = entries.get(spaceId);
+        if (null != entry) {
+            entry.stale = true;
+        }
+    }
+
+    /**
+     * Records that a new, empty space has been created
+     */
+    public void spaceCreated(String spaceId) {
+        entries.put(spaceId, new Entry(0, 0, System.currentTimeMillis()));
+    }
+
+    /**
+     * Records that a space has been removed
+     */
+    public void spaceRemoved(String spaceId) {
+        entries.remove(spaceId);
+    }
+
+    /**
+     * @return number of reconciliations which have completed
+     */
+    public long getReconcileCount() {
+        return reconcileCount.get();
+    }
+
+    private void applyToEntry(String spaceId, long countDelta, long sizeDelta) {
+        Entry entry = entries.get(spaceId);
+        if (null != entry) {
+            entry.apply(countDelta, sizeDelta);
+        }
+    }
+
+    private void reconcile(String spaceId) {
+        Reconciliation reconciliation = new Reconciliation();
+        if (null != reconciliations.putIfAbsent(spaceId, reconciliation)) {
+            return; // already in progress
+        }
+
+        try {
+            executor.execute(() -> runReconcile(spaceId, reconciliation));
+        } catch (RuntimeException e) {
+            log.warn("Unable to start count of space {}: {}",
+                     spaceId, e.getMessage());
+            reconciliations.remove(spaceId, reconciliation);
+        }
+    }
+
+    private void runReconcile(String spaceId, Reconciliation reconciliation) {
+        long start = System.currentTimeMillis();
+        try {
+            lister.list(spaceId, reconciliation);
+
+            SpaceStats stats;
+            synchronized (reconciliation) {
+                reconciliation.done = true;
+                long size = reconciliation.size < 0 ? -1 :
+                            reconciliation.size + reconciliation.pendingSize;
+                Entry entry =
+                    new Entry(reconciliation.count + reconciliation.pendingCount,
+                              size,
+                              start);
+                entry.stale = reconciliation.stale;
+                entries.put(spaceId, entry);
+                stats = entry.getStats();
+            }
+            reconcileCount.incrementAndGet();
+            log.debug("Counted {} items ({} bytes) in space {} in {} ms",
+                      stats.getCount(), stats.getSize(), spaceId,
+                      System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Unable to count the contents of space {}: {}",
+                     spaceId, e.getMessage());
+        } finally {
+            reconciliations.remove(spaceId, reconciliation);
+        }
+    }
+
+    /**
+     * The number of items in a space and the total size of those items
+     */
+    public static class SpaceStats {
+        private final long count;
+        private final long size;
+
+        public SpaceStats(long count, long size) {
+            this.count = count;
+            this.size = size;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return total size of the space in bytes, or -1 if the size of
+         * the content in the space is not known
+         */
+        public long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Collects the totals of a space from a full listing
+     */
+    public static class Reconciliation {
+        private long count = 0;
+        private long size = 0;
+        private long pendingCount = 0;
+        private long pendingSize = 0;
+        private String cursor = null;
+        private boolean done = false;
+        private boolean stale = false;
+
+        /**
+         * Adds a page of the listing to the totals
+         *
+         * @param pageCount     number of items in the page
+         * @param pageSize      total size of the items in the page, or -1
+         *                      if item sizes are not available
+         * @param lastContentId ID of the last item in the page
+         */
+        public synchronized void addPage(long pageCount,
+                                         long pageSize,
+                                         String lastContentId) {
+            count += pageCount;
+            if (pageSize < 0 || size < 0) {
+                size = -1;
+            } else {
+                size += pageSize;
+            }
+            cursor = lastContentId;
+        }
+
+        /*
+         * Applies a change which the listing has already passed
+         */
+        private void apply(String contentId, long countDelta, long sizeDelta) {
+            if (null != cursor && contentId.compareTo(cursor) <= 0) {
+                pendingCount += countDelta;
+                pendingSize += sizeDelta;
+            }
+        }
+    }
+
+    private static class Entry {
+        private long count;
+        private long size;
+        private final long reconciledAt;
+        private volatile boolean stale = false;
+
+        Entry(long count, long size, long reconciledAt) {
+            this.count = Math.max(0, count);
+            this.size = size < 0 ? -1 : size;
+            this.reconciledAt = reconciledAt;
+        }
+
+        synchronized void apply(long countDelta, long sizeDelta) {
+            count = Math.max(0, count + countDelta);
+            if (size >= 0) {
+                size = Math.max(0, size + sizeDelta);
+            }
+        }
+
+        synchronized SpaceStats getStats() {
+            return new SpaceStats(count, size);
+        }
+    }
+
+}
@@ -10,6 +10,7 @@ package org.duracloud.storage.provider;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,6 +35,9 @@ public abstract class StorageProviderBase implements StorageProvider {
 
     protected final Logger log = LoggerFactory.getLogger(StorageProviderBase.class);
     private StorageProvider wrappedStorageProvider;
+    private SpacePropertiesCache spacePropertiesCache = new SpacePropertiesCache();
+    private SpaceStatsTracker spaceStatsTracker;
+    private volatile SpaceChangeListener spaceChangeListener;
 
     protected abstract boolean spaceExists(String spaceId);
 
@@ -52,7 +56,7 @@ public abstract class StorageProviderBase implements StorageProvider {
      */
     public Map<String, String> getSpaceProperties(String spaceId) {
         Map<String, String> spaceProps = new HashMap<String, String>();
-        Map<String, String> allProps = getAllSpaceProperties(spaceId);
+        Map<String, String> allProps = getCachedSpaceProperties(spaceId);
 
         // ONLY include non-ACL properties.
         for (String name : allProps.keySet()) {
@@ -61,11 +65,16 @@ public abstract class StorageProviderBase implements StorageProvider {
             }
         }
 
+        // Maintained totals are current, cached properties may not be
+        addSpaceStats(spaceId, spaceProps);
+
         return spaceProps;
     }
 
     /**
      * Sets the properties on this space. Maintains the current ACL settings.
+     * As this is used by tasks rather than through the DuraStore API, the
+     * space change listener is told of the change.
      *
      * @param spaceId
      * @param spaceProperties
@@ -74,6 +83,7 @@ public abstract class StorageProviderBase implements StorageProvider {
     public void setNewSpaceProperties(String spaceId,
                                       Map<String, String> spaceProperties) {
         setNewSpaceProperties(spaceId, spaceProperties, getSpaceACLs(spaceId));
+        notifySpaceChanged(spaceId);
     }
 
     /**
@@ -100,7 +110,7 @@ public abstract class StorageProviderBase implements StorageProvider {
         int maxLoops = 6;
         for (int loops = 0; !success && loops < maxLoops; loops++) {
             try {
-                doSetSpaceProperties(spaceId, spaceProperties);
+                storeSpaceProperties(spaceId, spaceProperties);
                 success = true;
             } catch (NotFoundException e) {
                 success = false;
@@ -115,10 +125,39 @@ public abstract class StorageProviderBase implements StorageProvider {
     }
 
     public Map<String, AclType> getSpaceACLs(String spaceId) {
-        Map<String, String> allProps = getAllSpaceProperties(spaceId);
+        Map<String, String> allProps = getCachedSpaceProperties(spaceId);
         return unpackACLs(allProps);
     }
 
+    /*
+     * Retrieves all space properties, using the cached values if available.
+     * The returned map must not be modified.
+     */
+    private Map<String, String> getCachedSpaceProperties(String spaceId) {
+        Map<String, String> allProps = spacePropertiesCache.get(spaceId);
+        if (null == allProps) {
+            long loadStart = spacePropertiesCache.startLoad();
+            allProps = spacePropertiesCache.put(spaceId,
+                                                getAllSpaceProperties(spaceId),
+                                                loadStart);
+        }
+        return allProps;
+    }
+
+    /*
+     * Stores space properties, removing any cached values for the space
+     */
+    private void storeSpaceProperties(String spaceId,
+                                      Map<String, String> spaceProps) {
+        spaceProps.remove(PROPERTIES_SPACE_COUNT);
+        spaceProps.remove(PROPERTIES_SPACE_SIZE);
+        try {
+            doSetSpaceProperties(spaceId, spaceProps);
+        } finally {
+            spacePropertiesCache.invalidate(spaceId);
+        }
+    }
+
     /*
      * Converts from packed ACL format:
      * name= acl-read
@@ -182,7 +221,7 @@ public abstract class StorageProviderBase implements StorageProvider {
         newProps.putAll(packACLs(spaceACLs));
 
         // save
-        doSetSpaceProperties(spaceId, newProps);
+        storeSpaceProperties(spaceId, newProps);
     }
 
     /*
@@ -292,7 +331,7 @@ public abstract class StorageProviderBase implements StorageProvider {
 
         Map<String, String> allProps = getAllSpaceProperties(spaceId);
         allProps.put("is-delete", "true");
-        doSetSpaceProperties(spaceId, allProps);
+        storeSpaceProperties(spaceId, allProps);
 
         SpaceDeleteWorker deleteThread = getSpaceDeleteWorker(spaceId);
         new Thread(deleteThread).start();
@@ -309,7 +348,7 @@ public abstract class StorageProviderBase implements StorageProvider {
 
         Map<String, String> allProps = getAllSpaceProperties(spaceId);
         allProps.put("is-delete", "true");
-        doSetSpaceProperties(spaceId, allProps);
+        storeSpaceProperties(spaceId, allProps);
 
         SpaceDeleteWorker deleteWorker = getSpaceDeleteWorker(spaceId);
         deleteWorker.run();
@@ -364,10 +403,18 @@ public abstract class StorageProviderBase implements StorageProvider {
 
                 Map<String, String> allProps = getAllSpaceProperties(spaceId);
                 allProps.put("delete-error", "Unable to delete all contents");
-                doSetSpaceProperties(spaceId, allProps);
+                storeSpaceProperties(spaceId, allProps);
             } else {
                 log.debug("removeSpace(" + spaceId + ")");
-                removeSpace(spaceId);
+                try {
+                    removeSpace(spaceId);
+                } finally {
+                    spacePropertiesCache.invalidate(spaceId);
+                    notifySpaceChanged(spaceId);
+                }
+                if (null != spaceStatsTracker) {
+                    spaceStatsTracker.spaceRemoved(spaceId);
+                }
             }
             log.debug("SpaceDeleteWorker ended!");
         }
@@ -381,6 +428,142 @@ public abstract class StorageProviderBase implements StorageProvider {
         return StorageProviderUtil.removeCalculatedProperties(properties);
     }
 
+    /**
+     * Removes any cached properties of a space. Subclasses call this when a
+     * space is created or removed outside of the methods of this class.
+     *
+     * @param spaceId
+     */
+    protected void invalidateSpaceProperties(String spaceId) {
+        spacePropertiesCache.invalidate(spaceId);
+    }
+
+    /**
+     * Removes any state cached for a space, for use when the space has been
+     * changed through another DuraCloud instance. Subclasses which cache
+     * other state for a space extend this.
+     *
+     * @param spaceId
+     */
+    public void invalidateSpace(String spaceId) {
+        spacePropertiesCache.invalidate(spaceId);
+    }
+
+    /**
+     * Sets the listener which is told when a space is changed by a task or
+     * by the completion of a space deletion, so that other DuraCloud
+     * instances can drop what they have cached for the space. Changes made
+     * through the DuraStore API are reported by the API layer.
+     *
+     * @param spaceChangeListener
+     */
+    public void setSpaceChangeListener(SpaceChangeListener spaceChangeListener) {
+        this.spaceChangeListener = spaceChangeListener;
+    }
+
+    private void notifySpaceChanged(String spaceId) {
+        SpaceChangeListener listener = spaceChangeListener;
+        if (null != listener) {
+            try {
+                listener.spaceChanged(spaceId);
+            } catch (RuntimeException e) {
+                log.warn("Unable to send notice of change to space {}: {}",
+                         spaceId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Replaces the cache used to hold space properties, generally to
+     * apply a configured time-to-live.
+     *
+     * @param spacePropertiesCache
+     */
+    protected void setSpacePropertiesCache(SpacePropertiesCache spacePropertiesCache) {
+        this.spacePropertiesCache = spacePropertiesCache;
+    }
+
+    /**
+     * @return the cache of space properties, which provides hit and miss
+     * counts
+     */
+    public SpacePropertiesCache getSpacePropertiesCache() {
+        return spacePropertiesCache;
+    }
+
+    /**
+     * Enables maintained counts of the items in each space and their total
+     * size, which are then included in space properties in place of a
+     * count taken from a listing of the space.
+     *
+     * @param reconcileIntervalSeconds number of seconds after which the
+     *                                 totals of a space are checked against
+     *                                 a full listing. A value of 0 or less
+     *                                 disables maintained totals.
+     */
+    public void enableSpaceStats(long reconcileIntervalSeconds) {
+        if (reconcileIntervalSeconds > 0) {
+            spaceStatsTracker =
+                new SpaceStatsTracker(this::listSpaceStats, reconcileIntervalSeconds);
+        } else {
+            spaceStatsTracker = null;
+        }
+    }
+
+    /**
+     * @return the tracker of space totals, which is to be informed of
+     * changes to content, or null if maintained totals are not enabled
+     */
+    public SpaceStatsTracker getSpaceStatsTracker() {
+        return spaceStatsTracker;
+    }
+
+    /**
+     * Adds the maintained count and total size of a space to a set of
+     * space properties.
+     *
+     * @param spaceId    ID of the space
+     * @param spaceProps properties to which the totals are added
+     * @return true if totals were added, false if they are not available
+     * and the count needs to be determined by the caller
+     */
+    protected boolean addSpaceStats(String spaceId, Map<String, String> spaceProps) {
+        SpaceStatsTracker.SpaceStats stats = null;
+        if (null != spaceStatsTracker) {
+            stats = spaceStatsTracker.getStats(spaceId);
+        }
+        if (null == stats) {
+            return false;
+        }
+
+        spaceProps.put(PROPERTIES_SPACE_COUNT, String.valueOf(stats.getCount()));
+        if (stats.getSize() >= 0) {
+            spaceProps.put(PROPERTIES_SPACE_SIZE, String.valueOf(stats.getSize()));
+        }
+        return true;
+    }
+
+    /**
+     * Lists the full contents of a space in order to establish its totals.
+     * This implementation counts items only, subclasses which are able to
+     * list item sizes should override it.
+     *
+     * @param spaceId        ID of the space
+     * @param reconciliation collects the totals
+     */
+    protected void listSpaceStats(String spaceId,
+                                  SpaceStatsTracker.Reconciliation reconciliation) {
+        String marker = null;
+        List<String> chunk;
+        do {
+            chunk = getSpaceContentsChunked(spaceId, null, DEFAULT_MAX_RESULTS, marker);
+            if (!chunk.isEmpty()) {
+                marker = chunk.get(chunk.size() - 1);
+                reconciliation.addPage(chunk.size(), -1, marker);
+            }
+        } while (!chunk.isEmpty());
+    }
+
     /**
      * Sets an alternate storage provider that can be used for select operations.
      * The motivation for adding this method came from a need to have the
@@ -86,6 +86,7 @@ public class StorageProviderUtil {
         throws StorageException {
         // Pull out known computed values
         propertiesMap.remove(StorageProvider.PROPERTIES_SPACE_COUNT);
+        propertiesMap.remove(StorageProvider.PROPERTIES_SPACE_SIZE);
 
         // Serialize Map
         byte[] properties = null;
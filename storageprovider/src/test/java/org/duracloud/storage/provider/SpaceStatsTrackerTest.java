@@ -0,0 +1,144 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.storage.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the maintained space totals.
+ */
+public class SpaceStatsTrackerTest {
+
+    private final String spaceId = "space-id";
+
+    @Test
+    public void testReconcileAndTrack() {
+        List<Runnable> tasks = new ArrayList<>();
+        SpaceStatsTracker tracker =
+            new SpaceStatsTracker((spaceId, reconciliation) -> {
+                reconciliation.addPage(2, 30, "b");
+                reconciliation.addPage(1, 20, "c");
+            }, 60, tasks::add);
+
+        // Totals are not available until the space has been listed
+        assertFalse(tracker.isTracked(spaceId));
+        assertNull(tracker.getStats(spaceId));
+        assertTrue(tracker.isTracked(spaceId));
+        assertNull(tracker.getStats(spaceId));
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        SpaceStatsTracker.SpaceStats stats = tracker.getStats(spaceId);
+        assertEquals(3, stats.getCount());
+        assertEquals(50, stats.getSize());
+        assertEquals(1, tracker.getReconcileCount());
+
+        tracker.contentChanged(spaceId, "d", 1, 10);
+        tracker.contentChanged(spaceId, "a", 0, 5);
+        tracker.contentChanged(spaceId, "b", -1, -15);
+        stats = tracker.getStats(spaceId);
+        assertEquals(3, stats.getCount());
+        assertEquals(50, stats.getSize());
+        assertEquals(1, tasks.size());
+
+        tracker.spaceRemoved(spaceId);
+        assertFalse(tracker.isTracked(spaceId));
+    }
+
+    @Test
+    public void testReconcileNeeded() {
+        List<Runnable> tasks = new ArrayList<>();
+        SpaceStatsTracker tracker =
+            new SpaceStatsTracker((spaceId, reconciliation) -> {
+                reconciliation.addPage(1, 10, "a");
+            }, 60, tasks::add);
+        tracker.getStats(spaceId);
+        tasks.get(0).run();
+        assertEquals(1, tasks.size());
+
+        // An unmeasured change causes a new listing
+        tracker.reconcileNeeded(spaceId);
+        assertEquals(1, tracker.getStats(spaceId).getCount());
+        assertEquals(2, tasks.size());
+        tasks.get(1).run();
+        tracker.getStats(spaceId);
+        assertEquals(2, tasks.size());
+    }
+
+    @Test
+    public void testChangesDuringReconcile() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<SpaceStatsTracker.Reconciliation> started = new ArrayList<>();
+        SpaceStatsTracker[] trackerRef = new SpaceStatsTracker[1];
+        SpaceStatsTracker tracker =
+            new SpaceStatsTracker((spaceId, reconciliation) -> {
+                reconciliation.addPage(2, 20, "m");
+                // Passed by the listing, so must be applied to the result
+                trackerRef[0].contentChanged(spaceId, "a", 1, 5);
+                // Not yet listed, so seen directly by the next page
+                trackerRef[0].contentChanged(spaceId, "x", 1, 7);
+                reconciliation.addPage(2, 17, "z");
+            }, 60, tasks::add);
+        trackerRef[0] = tracker;
+
+        tracker.getStats(spaceId);
+        tasks.get(0).run();
+
+        SpaceStatsTracker.SpaceStats stats = tracker.getStats(spaceId);
+        assertEquals(5, stats.getCount());
+        assertEquals(42, stats.getSize());
+    }
+
+    @Test
+    public void testSizeUnknown() {
+        List<Runnable> tasks = new ArrayList<>();
+        SpaceStatsTracker tracker =
+            new SpaceStatsTracker((spaceId, reconciliation) -> {
+                reconciliation.addPage(4, -1, "d");
+            }, 60, tasks::add);
+
+        tracker.getStats(spaceId);
+        tasks.get(0).run();
+        tracker.contentChanged(spaceId, "e", 1, 10);
+
+        SpaceStatsTracker.SpaceStats stats = tracker.getStats(spaceId);
+        assertEquals(5, stats.getCount());
+        assertEquals(-1, stats.getSize());
+    }
+
+    @Test
+    public void testSpaceCreatedAndFailedReconcile() {
+        List<Runnable> tasks = new ArrayList<>();
+        SpaceStatsTracker tracker =
+            new SpaceStatsTracker((spaceId, reconciliation) -> {
+                throw new RuntimeException("listing failed");
+            }, 60, tasks::add);
+
+        tracker.spaceCreated(spaceId);
+        tracker.contentChanged(spaceId, "a", 1, 100);
+        SpaceStatsTracker.SpaceStats stats = tracker.getStats(spaceId);
+        assertEquals(1, stats.getCount());
+        assertEquals(100, stats.getSize());
+        assertEquals(0, tasks.size());
+
+        String otherSpace = "other-space";
+        assertNull(tracker.getStats(otherSpace));
+        tasks.get(0).run();
+        assertFalse(tracker.isTracked(otherSpace));
+        assertEquals(0, tracker.getReconcileCount());
+    }
+
+}
@@ -106,6 +106,49 @@ public class StorageProviderBaseTest {
         replayMocks();
     }
 
+    @Test
+    public void testGetSpacePropertiesCached() {
+        // Second retrieval follows the update
+        EasyMock.expect(providerMock.getAllSpaceProperties(spaceId))
+                .andReturn(spaceProps).times(2);
+        providerMock.doSetSpaceProperties(EasyMock.eq(spaceId),
+                                          EasyMock.<Map<String, String>>anyObject());
+        EasyMock.expectLastCall().once();
+
+        replayMocks();
+
+        Map<String, String> props = providerBase.getSpaceProperties(spaceId);
+        Assert.assertEquals(systemProps, props);
+        Assert.assertEquals(systemProps, providerBase.getSpaceProperties(spaceId));
+        Assert.assertEquals(6, providerBase.getSpaceACLs(spaceId).size());
+
+        SpacePropertiesCache cache = providerBase.getSpacePropertiesCache();
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(2, cache.getHitCount());
+
+        // Returned properties are not tied to the cache
+        props.put("new-prop", "new-value");
+        Assert.assertEquals(systemProps, providerBase.getSpaceProperties(spaceId));
+
+        // An update removes the cached properties
+        providerBase.setSpaceACLs(spaceId, new HashMap<String, AclType>());
+        Assert.assertEquals(systemProps, providerBase.getSpaceProperties(spaceId));
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testGetSpacePropertiesCacheDisabled() {
+        EasyMock.expect(providerMock.getAllSpaceProperties(spaceId))
+                .andReturn(spaceProps).times(2);
+
+        replayMocks();
+
+        providerBase.setSpacePropertiesCache(new SpacePropertiesCache(0));
+        providerBase.getSpaceProperties(spaceId);
+        providerBase.getSpaceProperties(spaceId);
+    }
+
     @Test
     public void testSetNewSpacePropertiesMaintainACLs() {
         EasyMock.expect(providerMock.getAllSpaceProperties(spaceId))
@@ -123,11 +166,15 @@ public class StorageProviderBaseTest {
         String newPropValue = "newPropValue";
         newProps.put(newPropName, newPropValue);
 
+        List<String> changedSpaces = new ArrayList<>();
+        providerBase.setSpaceChangeListener(changedSpaces::add);
+
         // Run the test
         providerBase.setNewSpaceProperties(spaceId, newProps);
 
         Map<String, String> propsSet = propsSetCapture.getValue();
         Assert.assertNotNull(propsSet);
+        Assert.assertEquals(Arrays.asList(spaceId), changedSpaces);
 
         // Verify results, new prop should be in place
         Assert.assertEquals(newPropValue, propsSet.get(newPropName));
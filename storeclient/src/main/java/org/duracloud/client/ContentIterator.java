@@ -8,7 +8,6 @@
 package org.duracloud.client;
 
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.duracloud.common.retry.Retrier;
@@ -32,8 +31,9 @@ public class ContentIterator implements Iterator<String> {
     private String spaceId;
     private String prefix;
 
-    private int index;
-    private List<String> contentList;
+    private Iterator<String> contentPage;
+    private int pageCount;
+    private String lastItem;
     private long maxResults;
     private int maxRetries;
 
@@ -50,13 +50,13 @@ public class ContentIterator implements Iterator<String> {
                            String spaceId,
                            String prefix,
                            long maxResults) throws ContentStoreException {
-        index = 0;
         this.store = store;
         this.spaceId = spaceId;
         this.prefix = prefix;
         this.maxResults = maxResults;
         this.maxRetries = 7;
-        contentList = retryBuildContentList(null);
+        contentPage = retryGetContentPage(null);
+        pageCount = 0;
     }
 
     public void setMaxRetries(int maxRetries) {
@@ -66,12 +66,12 @@ public class ContentIterator implements Iterator<String> {
     }
 
     public boolean hasNext() {
-        if (index < contentList.size()) {
+        if (contentPage.hasNext()) {
             return true;
         } else {
-            if (contentList.size() > 0) {
-                updateList();
-                return contentList.size() > 0;
+            if (pageCount > 0) {
+                updatePage();
+                return contentPage.hasNext();
             } else {
                 return false;
             }
@@ -80,9 +80,9 @@ public class ContentIterator implements Iterator<String> {
 
     public String next() {
         if (hasNext()) {
-            String next = contentList.get(index);
-            ++index;
-            return next;
+            lastItem = contentPage.next();
+            ++pageCount;
+            return lastItem;
         } else {
             throw new NoSuchElementException();
         }
@@ -92,31 +92,24 @@ public class ContentIterator implements Iterator<String> {
         throw new UnsupportedOperationException();
     }
 
-    private void updateList() {
-        String lastItem = contentList.get(contentList.size() - 1);
+    private void updatePage() {
         try {
-            contentList = retryBuildContentList(lastItem);
+            contentPage = retryGetContentPage(lastItem);
         } catch (ContentStoreException e) {
             throw new RuntimeException(e);
         }
-        index = 0;
+        pageCount = 0;
     }
 
-    private List<String> retryBuildContentList(String lastItem)
+    private Iterator<String> retryGetContentPage(String marker)
         throws ContentStoreException {
         try {
             return new Retrier(maxRetries, 1000, 1).execute(() -> {
-                return buildContentList(lastItem);
+                return store.getSpaceContentsPage(spaceId, prefix, maxResults, marker);
             });
         } catch (Exception ex) {
             throw new ContentStoreException(ex);
         }
     }
 
-    private List<String> buildContentList(String lastItem)
-        throws ContentStoreException {
-        return store.getSpace(spaceId, prefix, maxResults, lastItem)
-                    .getContentIds();
-    }
-
-}
\ No newline at end of file
+}
@@ -176,6 +176,29 @@ public interface ContentStore {
                           String marker)
         throws ContentStoreException;
 
+    /**
+     * Provides a limited list of the content items within a space, as with
+     * getSpace(), without the id and properties of the space. Implementations
+     * may retrieve the list in a compact form which is parsed as the returned
+     * iterator is advanced, rather than building a list of content IDs.
+     *
+     * @param spaceId    the identifier of the DuraCloud Space
+     * @param prefix     only retrieve content ids with this prefix (null for all content ids)
+     * @param maxResults the maximum number of content ids to return in the list (0 indicates default - which is 1000)
+     * @param marker     the content id marking the last item in the previous set (null to specify first set of ids)
+     * @return Iterator for the content IDs in the list
+     * @throws NotFoundException     if the space does not exist
+     * @throws ContentStoreException if an error occurs
+     */
+    public default Iterator<String> getSpaceContentsPage(String spaceId,
+                                                         String prefix,
+                                                         long maxResults,
+                                                         String marker)
+        throws ContentStoreException {
+        return getSpace(spaceId, prefix, maxResults, marker).getContentIds()
+                                                            .iterator();
+    }
+
     /**
      * Creates a new space. Depending on the storage implementation, the spaceId
      * may be changed somewhat to comply with the naming rules of the underlying
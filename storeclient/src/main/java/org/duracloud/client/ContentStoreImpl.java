@@ -8,6 +8,7 @@
 package org.duracloud.client;
 
 import static org.duracloud.client.HttpHeaders.CONTENT_ENCODING;
+import static org.duracloud.client.HttpHeaders.CONTENT_TYPE;
 import static org.duracloud.storage.provider.StorageProvider.PROPERTIES_SPACE_ACL;
 
 import java.io.ByteArrayInputStream;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.http.Header;
 import org.apache.http.HttpStatus;
@@ -34,6 +36,7 @@ import org.duracloud.common.model.AclType;
 import org.duracloud.common.retry.ExceptionHandler;
 import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
+import org.duracloud.common.util.ContentIdListIterator;
 import org.duracloud.common.util.DateUtil.DateFormat;
 import org.duracloud.common.util.SerializationUtil;
 import org.duracloud.common.web.EncodeUtil;
@@ -362,26 +365,83 @@ public class ContentStoreImpl implements ContentStore {
             checkResponse(response, HttpStatus.SC_OK);
             Space space = new Space();
             space.setProperties(extractPropertiesFromHeaders(response));
+            readSpaceXml(response, space);
+            return space;
+        } catch (NotFoundException e) {
+            throw new NotFoundException(task, spaceId, e);
+        } catch (UnauthorizedException e) {
+            throw new UnauthorizedException(task, spaceId, e);
+        } catch (Exception e) {
+            throw new ContentStoreException(task, spaceId, e);
+        }
+    }
 
-            String responseText = response.getResponseBody();
-            if (responseText != null) {
-                InputStream is =
-                    new ByteArrayInputStream(responseText.getBytes("UTF-8"));
-                SAXBuilder builder = new SAXBuilder();
-                Document doc = builder.build(is);
-                Element spaceElem = doc.getRootElement();
+    private void readSpaceXml(HttpResponse response, Space space)
+        throws Exception {
+        String responseText = response.getResponseBody();
+        if (responseText != null) {
+            InputStream is =
+                new ByteArrayInputStream(responseText.getBytes("UTF-8"));
+            SAXBuilder builder = new SAXBuilder();
+            Document doc = builder.build(is);
+            Element spaceElem = doc.getRootElement();
+
+            space.setId(spaceElem.getAttributeValue("id"));
+            Iterator<?> spaceContents = spaceElem.getChildren().iterator();
+            while (spaceContents.hasNext()) {
+                Element contentElem = (Element) spaceContents.next();
+                space.addContentId(contentElem.getText());
+            }
+        } else {
+            throw new ContentStoreException("Response body is empty");
+        }
+    }
 
-                space.setId(spaceElem.getAttributeValue("id"));
-                Iterator<?> spaceContents = spaceElem.getChildren().iterator();
-                while (spaceContents.hasNext()) {
-                    Element contentElem = (Element) spaceContents.next();
-                    space.addContentId(contentElem.getText());
-                }
-            } else {
-                throw new ContentStoreException("Response body is empty");
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<String> getSpaceContentsPage(final String spaceId,
+                                                 final String prefix,
+                                                 final long maxResults,
+                                                 final String marker)
+        throws ContentStoreException {
+        return execute(new Retriable() {
+            @Override
+            public Iterator<String> retry() throws ContentStoreException {
+                // The actual method being executed
+                return doGetSpaceContentsPage(spaceId, prefix, maxResults, marker);
             }
+        });
+    }
 
-            return space;
+    /*
+     * Requests the compact listing format. The response is read in full (so
+     * that the connection is released and the request may be retried) but
+     * content IDs are only parsed as the iterator is advanced. A DuraStore
+     * which does not support the compact format responds with XML.
+     */
+    private Iterator<String> doGetSpaceContentsPage(String spaceId,
+                                                    String prefix,
+                                                    long maxResults,
+                                                    String marker)
+        throws ContentStoreException {
+        String task = "get space contents";
+        String url = buildSpaceURL(spaceId, prefix, maxResults, marker);
+        url = addQueryParameter(url, "format", Constants.SPACE_LISTING_FORMAT_TEXT);
+        try (HttpResponse response = restHelper.get(url)) {
+            checkResponse(response, HttpStatus.SC_OK);
+
+            Header contentType = response.getResponseHeader(CONTENT_TYPE);
+            if (null != contentType &&
+                contentType.getValue().startsWith(Constants.TEXT_PLAIN)) {
+                byte[] listing = IOUtils.toByteArray(response.getResponseStream());
+                return new ContentIdListIterator(new ByteArrayInputStream(listing));
+            } else {
+                Space space = new Space();
+                readSpaceXml(response, space);
+                return space.getContentIds().iterator();
+            }
         } catch (NotFoundException e) {
             throw new NotFoundException(task, spaceId, e);
         } catch (UnauthorizedException e) {
@@ -1026,6 +1086,8 @@ public class ContentStoreImpl implements ContentStore {
                 errMsg += response.getResponseBody();
             } catch (IOException e) {
                 // Do not included response body in error
+            } finally {
+                response.close();
             }
 
             log.debug("Return code: {}; expected code: {}; responseBody={}",
@@ -10,6 +10,7 @@ package org.duracloud.client;
 import static junit.framework.Assert.assertNotNull;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.duracloud.domain.Space;
@@ -77,6 +78,16 @@ public class ContentIteratorTest {
             space.setContentIds(items);
             return space;
         }
+
+        @Override
+        public Iterator<String> getSpaceContentsPage(String spaceId,
+                                                     String prefix,
+                                                     long maxResults,
+                                                     String marker)
+            throws ContentStoreException {
+            return getSpace(spaceId, prefix, maxResults, marker).getContentIds()
+                                                                .iterator();
+        }
     }
 
 }
\ No newline at end of file
@@ -153,20 +153,49 @@ public class ContentStoreImplTest {
 
     @Test
     public void testGetSpaceContents() throws Exception {
-        String xml = "<space id=\"space1\"><item>Image 1</item><item>Image 2</item></space>";
+        String listing = "Image 1\nImage\\n2\n";
         String fullURL = baseURL + "/" + spaceId +
-                         "?maxResults=" + StorageProvider.DEFAULT_MAX_RESULTS + "&storeID=" + storeId;
+                         "?maxResults=" + StorageProvider.DEFAULT_MAX_RESULTS +
+                         "&storeID=" + storeId + "&format=text";
         EasyMock.expect(response.getStatusCode()).andReturn(200);
-        EasyMock.expect(response.getResponseBody()).andReturn(xml);
+        EasyMock.expect(response.getResponseHeader(HttpHeaders.CONTENT_TYPE))
+                .andReturn(new BasicHeader(HttpHeaders.CONTENT_TYPE,
+                                           "text/plain;charset=UTF-8"));
+        EasyMock.expect(response.getResponseStream())
+                .andReturn(new ByteArrayInputStream(listing.getBytes("UTF-8")));
+        response.close();
+        EasyMock.expectLastCall();
         EasyMock.expect(restHelper.get(fullURL)).andReturn(response);
-        EasyMock.expect(response.getResponseHeaders()).andReturn(new Header[0]);
 
         replayMocks();
 
         Iterator<String> spaceContents = contentStore.getSpaceContents(spaceId);
         Assert.assertNotNull(spaceContents);
         Assert.assertEquals("Image 1", spaceContents.next());
+        Assert.assertEquals("Image\n2", spaceContents.next());
+    }
+
+    @Test
+    public void testGetSpaceContentsXmlResponse() throws Exception {
+        String xml = "<space id=\"space1\"><item>Image 1</item><item>Image 2</item></space>";
+        String fullURL = baseURL + "/" + spaceId +
+                         "?maxResults=10&storeID=" + storeId + "&format=text";
+        EasyMock.expect(response.getStatusCode()).andReturn(200);
+        EasyMock.expect(response.getResponseHeader(HttpHeaders.CONTENT_TYPE))
+                .andReturn(new BasicHeader(HttpHeaders.CONTENT_TYPE,
+                                           "application/xml"));
+        EasyMock.expect(response.getResponseBody()).andReturn(xml);
+        response.close();
+        EasyMock.expectLastCall();
+        EasyMock.expect(restHelper.get(fullURL)).andReturn(response);
+
+        replayMocks();
+
+        Iterator<String> spaceContents =
+            contentStore.getSpaceContentsPage(spaceId, null, 10, null);
+        Assert.assertEquals("Image 1", spaceContents.next());
         Assert.assertEquals("Image 2", spaceContents.next());
+        Assert.assertFalse(spaceContents.hasNext());
     }
 
     @Test
@@ -556,6 +585,8 @@ public class ContentStoreImplTest {
                 .andReturn(headers).times(2);
         EasyMock.expect(restHelper.head(fullURL)).andReturn(response).times(2);
         EasyMock.expect(response.getResponseBody()).andReturn("");
+        response.close();
+        EasyMock.expectLastCall();
 
         replayMocks();
 
@@ -689,6 +720,8 @@ public class ContentStoreImplTest {
         EasyMock.expect(response.getResponseBody())
                 .andReturn("body")
                 .times(expectedAttempts);
+        response.close();
+        EasyMock.expectLastCall().times(expectedAttempts);
         EasyMock.replay(header);
 
         String fullURL =
@@ -965,6 +998,8 @@ public class ContentStoreImplTest {
         String fullURL = baseURL + "/task/" + taskName + "?storeID=" + storeId;
         EasyMock.expect(response.getStatusCode()).andReturn(409);
         EasyMock.expect(response.getResponseBody()).andReturn("conflict");
+        response.close();
+        EasyMock.expectLastCall();
         EasyMock.expect(restHelper.post(fullURL, taskParams, null))
                 .andReturn(response);
 
@@ -92,6 +92,7 @@ public class SwiftStorageProvider extends S3StorageProvider {
 
         try {
             s3Client.deleteBucket(bucketName);
+            bucketIndex.remove(spaceId);
         } catch (AmazonClientException e) {
             String err = "Could not delete Swift container with name " + bucketName
                          + " due to error: " + e.getMessage();
@@ -101,6 +102,7 @@ public class SwiftStorageProvider extends S3StorageProvider {
         // Space properties are stored as tags with the S3 bucket.
         // So with Swift we need to delete the associated properties object in Swift.
         s3Client.deleteObject(propertiesBucketName, spaceId);
+        invalidateSpaceProperties(spaceId);
     }
 
     @Override
@@ -108,6 +110,7 @@ public class SwiftStorageProvider extends S3StorageProvider {
         String bucketName = getHiddenBucketName(spaceId);
         try {
             Bucket bucket = s3Client.createBucket(bucketName);
+            bucketIndex.put(spaceId, bucketName);
             return spaceId;
         } catch (AmazonClientException e) {
             String err = "Could not create Swift container with name " + bucketName
@@ -116,6 +119,13 @@ public class SwiftStorageProvider extends S3StorageProvider {
         }
     }
 
+    // Checksums of content uploaded in parts are not carried through
+    // the Swift properties handling, so content is always sent in one PUT
+    @Override
+    protected boolean useMultipartUpload(long contentSize, String contentChecksum) {
+        return false;
+    }
+
     // Swift access keys are longer than 20 characters, and creating
     // a bucket starting with your access key causes problems.
     @Override
@@ -167,8 +177,10 @@ public class SwiftStorageProvider extends S3StorageProvider {
         spaceProperties = replaceInMapValues(spaceProperties, "+", "@");
 
         // Add space count
-        spaceProperties.put(PROPERTIES_SPACE_COUNT,
-                            getSpaceCount(spaceId, MAX_ITEM_COUNT));
+        if (!addSpaceStats(spaceId, spaceProperties)) {
+            spaceProperties.put(PROPERTIES_SPACE_COUNT,
+                                getSpaceCount(spaceId, MAX_ITEM_COUNT));
+        }
         return spaceProperties;
     }
 
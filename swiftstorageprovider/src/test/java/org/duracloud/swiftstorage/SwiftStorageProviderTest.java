@@ -131,8 +131,8 @@ public class SwiftStorageProviderTest {
         expect(s3Client.createBucket(bucketName)).andReturn(bucket);
         expect(s3Client.createBucket(propsBucketName)).andReturn(propsBucket).anyTimes();
         expect(s3Client.listBuckets()).andReturn(new ArrayList<Bucket>());
+        // The props bucket is indexed on creation, so no listing follows it
         expect(s3Client.listBuckets()).andReturn(Arrays.asList(bucket));
-        expect(s3Client.listBuckets()).andReturn(Arrays.asList(propsBucket));
         expect(s3Client.putObject(
             propsBucketName, spaceId, "{space-created=" + formattedDate(date) + "}"
         )).andReturn(new PutObjectResult());
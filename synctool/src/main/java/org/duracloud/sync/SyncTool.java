@@ -13,9 +13,11 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Properties;
 
+import org.duracloud.chunk.writer.ChunkBufferBudget;
 import org.duracloud.client.ContentStore;
 import org.duracloud.client.util.StoreClientUtil;
 import org.duracloud.common.util.ApplicationConfig;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.sync.backup.SyncBackupManager;
 import org.duracloud.sync.config.SyncToolConfig;
 import org.duracloud.sync.config.SyncToolConfigParser;
@@ -57,6 +59,7 @@ import org.slf4j.LoggerFactory;
 public class SyncTool {
 
     private static final String SYNCTOOL_PROPERTIES = "synctool.properties";
+    private static final String CHECKSUM_CACHE_FILE = "checksum-cache.tsv";
 
     private final Logger logger = LoggerFactory.getLogger(SyncTool.class);
     private SyncToolConfig syncConfig;
@@ -68,6 +71,7 @@ public class SyncTool {
     private DeleteChecker deleteChecker;
     private String version;
     private FileExclusionManager fileExclusionManager;
+    private ChecksumCache checksumCache;
 
     public SyncTool() {
         Properties props =
@@ -90,8 +94,10 @@ public class SyncTool {
             this.fileExclusionManager = new FileExclusionManager();
         }
 
-        ChangedList.getInstance()
-                   .setFileExclusionManager(this.fileExclusionManager);
+        ChangedList changedList = ChangedList.getInstance();
+        changedList.setFileExclusionManager(this.fileExclusionManager);
+        changedList.setSpillConfig(this.syncConfig.getWorkDir(),
+                                   ChangedList.DEFAULT_MAX_IN_MEMORY);
 
     }
 
@@ -172,7 +178,7 @@ public class SyncTool {
                                           syncConfig.getPassword(),
                                           syncConfig.getStoreId());
 
-        syncEndpoint =
+        DuraStoreChunkSyncEndpoint chunkSyncEndpoint =
             new DuraStoreChunkSyncEndpoint(contentStore,
                                            syncConfig.getUsername(),
                                            syncConfig.getSpaceId(),
@@ -184,23 +190,35 @@ public class SyncTool {
                                            syncConfig.getUpdateSuffix(),
                                            syncConfig.getPrefix());
 
+        // A single buffer budget is shared by all transfer threads
+        chunkSyncEndpoint.setChunkUploadThreads(syncConfig.getChunkUploadThreads());
+        chunkSyncEndpoint.setChunkBufferBudget(
+            new ChunkBufferBudget(syncConfig.getChunkMemoryBuffer(),
+                                  syncConfig.getChunkDiskBuffer()));
+        this.syncEndpoint = chunkSyncEndpoint;
         this.syncEndpoint.addEndPointListener(new EndPointLogger());
 
+        checksumCache =
+            new ChecksumCache(new File(syncConfig.getWorkDir(), CHECKSUM_CACHE_FILE));
         syncManager = new SyncManager(syncConfig.getContentDirs(),
                                       syncEndpoint,
                                       syncConfig.getNumThreads(),
-                                      syncConfig.getPollFrequency());
+                                      syncConfig.getPollFrequency(),
+                                      checksumCache);
         syncManager.beginSync();
     }
 
     private void startDirWalker() {
-        dirWalker = DirWalker.start(syncConfig.getContentDirs(), fileExclusionManager);
+        dirWalker = DirWalker.start(syncConfig.getContentDirs(),
+                                    fileExclusionManager,
+                                    syncConfig.getWalkThreads());
     }
 
     private void startRestartDirWalker(long lastBackup) {
         dirWalker = RestartDirWalker.start(syncConfig.getContentDirs(),
                                            lastBackup,
-                                           fileExclusionManager);
+                                           fileExclusionManager,
+                                           syncConfig.getWalkThreads());
     }
 
     private void startDeleteChecker() {
@@ -213,7 +231,8 @@ public class SyncTool {
     private void startDirMonitor() {
         dirMonitor = new DirectoryUpdateMonitor(syncConfig.getContentDirs(),
                                                 syncConfig.getPollFrequency(),
-                                                syncConfig.syncDeletes());
+                                                syncConfig.syncDeletes(),
+                                                syncConfig.isNativeWatch());
         dirMonitor.startMonitor();
     }
 
@@ -293,6 +312,7 @@ public class SyncTool {
         syncManager.endSync();
         dirMonitor.stopMonitor();
         ChangedList.getInstance().shutdown();
+        checksumCache.close();
 
         long inWork = StatusManager.getInstance().getInWork();
         if (inWork > 0) {
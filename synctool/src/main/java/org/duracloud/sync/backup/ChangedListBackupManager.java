@@ -8,6 +8,7 @@
 package org.duracloud.sync.backup;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.duracloud.sync.mgmt.ChangedList;
@@ -18,6 +19,13 @@ import org.slf4j.LoggerFactory;
 /**
  * Manages the backing up of the changed list on a consistent schedule.
  *
+ * A backup consists of a checkpoint of the full changed list followed by a
+ * journal of the changes made since the checkpoint. Changes are appended to
+ * the journal as they are made, and each backup cycle ensures they are on
+ * disk, so its cost depends on the number of changes rather than on the
+ * size of the list. A new checkpoint is written once the journal
+ * grows larger than the checkpoint it follows.
+ *
  * @author: Bill Branan
  * Date: Mar 19, 2010
  */
@@ -28,6 +36,8 @@ public class ChangedListBackupManager implements Runnable {
 
     public static final int SAVED_BACKUPS = 3;
     protected static final int DEFAULT_SLEEP_TIME = 5000; // 5 seconds
+    protected static final long MIN_CHECKPOINT_JOURNAL_SIZE = 16 * 1024 * 1024;
+    protected static final String JOURNAL_SUFFIX = ".journal";
     private File backupDir;
     private long backupFrequency;
     private ChangedList changedList;
@@ -35,6 +45,8 @@ public class ChangedListBackupManager implements Runnable {
     private long changedListVersion;
     private List<File> contentDirs;
     private boolean backingUp = false;
+    private File checkpointFile;
+    private File journalFile;
 
     public ChangedListBackupManager(ChangedList changedList,
                                     File backupDir,
@@ -65,7 +77,16 @@ public class ChangedListBackupManager implements Runnable {
             File latestBackup = backupDirFiles[0];
             try {
                 backupTime = Long.parseLong(latestBackup.getName());
-                changedList.restore(latestBackup, this.contentDirs);
+                List<File> backupFiles = new ArrayList<>();
+                backupFiles.add(latestBackup);
+                File latestJournal = getJournalFile(latestBackup);
+                if (latestJournal.exists()) {
+                    backupFiles.add(latestJournal);
+                }
+                long changeTime = changedList.restore(backupFiles, this.contentDirs);
+                if (changeTime > 0) {
+                    backupTime = changeTime;
+                }
             } catch (NumberFormatException e) {
                 logger.error("Unable to load changed list backup. File in " +
                              "changed list backup dir has invalid name: " +
@@ -77,18 +98,35 @@ public class ChangedListBackupManager implements Runnable {
     }
 
     /**
-     * Runs the backup manager. Writes out files which are a backups of the
-     * changed list based on the set backup frequency. Retains SAVED_BACKUPS
-     * number of backup files, removes the rest.
+     * Runs the backup manager. Writes out backups of the changed list based
+     * on the set backup frequency, either as a new checkpoint or by appending
+     * to the journal of the current checkpoint. Retains SAVED_BACKUPS
+     * number of checkpoints, removes the rest.
      */
     public void run() {
         while (continueBackup) {
             if (changedListVersion < changedList.getVersion()) {
-                cleanupBackupDir(SAVED_BACKUPS);
-                String filename = String.valueOf(System.currentTimeMillis());
-                File persistFile = new File(backupDir, filename);
                 backingUp = true;
-                changedListVersion = changedList.persist(persistFile);
+                if (checkpointNeeded()) {
+                    cleanupBackupDir(SAVED_BACKUPS);
+                    String filename = String.valueOf(System.currentTimeMillis());
+                    File persistFile = new File(backupDir, filename);
+                    File persistJournal = getJournalFile(persistFile);
+                    changedListVersion =
+                        changedList.persist(persistFile, persistJournal);
+                    checkpointFile = persistFile;
+                    journalFile = persistJournal;
+                } else {
+                    try {
+                        changedListVersion =
+                            changedList.persistChanges(journalFile);
+                    } catch (RuntimeException e) {
+                        logger.error("Unable to back up changed list " +
+                                     "changes, a new checkpoint will be " +
+                                     "written: " + e.getMessage(), e);
+                        checkpointFile = null;
+                    }
+                }
                 backingUp = false;
             }
 
@@ -96,6 +134,20 @@ public class ChangedListBackupManager implements Runnable {
         }
     }
 
+    /*
+     * A checkpoint is needed when none has been written by this manager (or
+     * it has been removed), or when replaying the journal would cost more
+     * than reading a new checkpoint.
+     */
+    private synchronized boolean checkpointNeeded() {
+        if (null == checkpointFile || !checkpointFile.exists()) {
+            return true;
+        }
+        long journalSize = journalFile.length();
+        return journalSize > Math.max(MIN_CHECKPOINT_JOURNAL_SIZE,
+                                      checkpointFile.length());
+    }
+
     /*
      * Sleeps for a given amount of time, checking frequently
      * to see if the process should be continued. This allows
@@ -121,12 +173,14 @@ public class ChangedListBackupManager implements Runnable {
     }
 
     /*
-     * Removes all but the most recent backup files
+     * Removes all but the most recent backup checkpoints, along with their
+     * journals
      */
     private void cleanupBackupDir(int keep) {
         File[] backupDirFiles = getSortedBackupDirFiles();
         if (backupDirFiles.length > keep) {
             for (int i = keep; i < backupDirFiles.length; i++) {
+                getJournalFile(backupDirFiles[i]).delete();
                 backupDirFiles[i].delete();
             }
         }
@@ -139,12 +193,27 @@ public class ChangedListBackupManager implements Runnable {
 
         synchronized (this) {
             cleanupBackupDir(0);
+            checkpointFile = null;
         }
 
     }
 
+    /*
+     * Lists the checkpoint files, most recent first
+     */
     private File[] getSortedBackupDirFiles() {
-        return DirectoryUtil.listFilesSortedByModDate(backupDir);
+        List<File> checkpoints = new ArrayList<>();
+        for (File file : DirectoryUtil.listFilesSortedByModDate(backupDir)) {
+            if (!file.getName().endsWith(JOURNAL_SUFFIX)) {
+                checkpoints.add(file);
+            }
+        }
+        return checkpoints.toArray(new File[checkpoints.size()]);
+    }
+
+    private File getJournalFile(File checkpoint) {
+        return new File(checkpoint.getParentFile(),
+                        checkpoint.getName() + JOURNAL_SUFFIX);
     }
 
     public void endBackup() {
@@ -33,10 +33,15 @@ public class SyncToolConfig implements Serializable {
     private long pollFrequency;
     private long backupFrequency = DEFAULT_BACKUP_FREQUENCY;
     private int numThreads = 5;
+    private int walkThreads = 4;
     private long maxFileSize;
+    private int chunkUploadThreads = 4;
+    private long chunkMemoryBuffer = 64 * 1000 * 1000;
+    private long chunkDiskBuffer = 4L * 1000 * 1000 * 1000;
     private boolean syncDeletes;
     private boolean cleanStart;
     private boolean exitOnCompletion;
+    private boolean nativeWatch;
     private File excludeList;
     private String version;
     private boolean syncUpdates = true;
@@ -80,8 +85,16 @@ public class SyncToolConfig implements Serializable {
         config.append("\n");
         config.append("SyncTool Threads: ");
         config.append(getNumThreads()).append("\n");
+        config.append("SyncTool Walk Threads: ");
+        config.append(getWalkThreads()).append("\n");
         config.append("SyncTool Max File Size: ");
         config.append(getMaxFileSize()).append(" bytes\n");
+        config.append("SyncTool Chunk Upload Threads: ");
+        config.append(getChunkUploadThreads()).append("\n");
+        config.append("SyncTool Chunk Memory: ");
+        config.append(getChunkMemoryBuffer()).append(" bytes\n");
+        config.append("SyncTool Chunk Disk: ");
+        config.append(getChunkDiskBuffer()).append(" bytes\n");
         config.append("SyncTool Syncing Deletes: ");
         config.append(syncDeletes()).append("\n");
 
@@ -96,6 +109,8 @@ public class SyncToolConfig implements Serializable {
         config.append(isJumpStart()).append("\n");
         config.append("SyncTool Exit on Completion: ");
         config.append(exitOnCompletion()).append("\n");
+        config.append("SyncTool Native Watch: ");
+        config.append(isNativeWatch()).append("\n");
         config.append("Sync Updates: ");
         config.append(isSyncUpdates()).append("\n");
         config.append("Rename Updates: ");
@@ -199,6 +214,14 @@ public class SyncToolConfig implements Serializable {
         this.numThreads = numThreads;
     }
 
+    public int getWalkThreads() {
+        return walkThreads;
+    }
+
+    public void setWalkThreads(int walkThreads) {
+        this.walkThreads = walkThreads;
+    }
+
     public long getMaxFileSize() {
         return maxFileSize;
     }
@@ -207,6 +230,30 @@ public class SyncToolConfig implements Serializable {
         this.maxFileSize = maxFileSize;
     }
 
+    public int getChunkUploadThreads() {
+        return chunkUploadThreads;
+    }
+
+    public void setChunkUploadThreads(int chunkUploadThreads) {
+        this.chunkUploadThreads = chunkUploadThreads;
+    }
+
+    public long getChunkMemoryBuffer() {
+        return chunkMemoryBuffer;
+    }
+
+    public void setChunkMemoryBuffer(long chunkMemoryBuffer) {
+        this.chunkMemoryBuffer = chunkMemoryBuffer;
+    }
+
+    public long getChunkDiskBuffer() {
+        return chunkDiskBuffer;
+    }
+
+    public void setChunkDiskBuffer(long chunkDiskBuffer) {
+        this.chunkDiskBuffer = chunkDiskBuffer;
+    }
+
     public boolean syncDeletes() {
         return syncDeletes;
     }
@@ -231,6 +278,14 @@ public class SyncToolConfig implements Serializable {
         this.exitOnCompletion = exitOnCompletion;
     }
 
+    public boolean isNativeWatch() {
+        return nativeWatch;
+    }
+
+    public void setNativeWatch(boolean nativeWatch) {
+        this.nativeWatch = nativeWatch;
+    }
+
     public File getExcludeList() {
         return excludeList;
     }
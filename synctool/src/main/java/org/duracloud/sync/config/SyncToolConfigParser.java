@@ -36,6 +36,7 @@ import org.duracloud.common.util.ConsolePrompt;
  */
 public class SyncToolConfigParser {
 
+    protected static final long MEGABYTE = 1000 * 1000;
     protected static final long GIGABYTE = 1000 * 1000 * 1000;
 
     protected static final String BACKUP_FILE_NAME = "synctool.config";
@@ -44,7 +45,11 @@ public class SyncToolConfigParser {
     protected static final int DEFAULT_PORT = 443;
     protected static final long DEFAULT_POLL_FREQUENCY = 10000;
     protected static final int DEFAULT_NUM_THREADS = 3;
+    protected static final int DEFAULT_WALK_THREADS = 4;
     protected static final int DEFAULT_MAX_FILE_SIZE = 1; // 1 GB
+    protected static final int DEFAULT_CHUNK_UPLOAD_THREADS = 4;
+    protected static final int DEFAULT_CHUNK_MEMORY = 64; // 64 MB
+    protected static final int DEFAULT_CHUNK_DISK = 4; // 4 GB
     protected static final String context = "durastore";
 
     private Options cmdOptions;
@@ -138,6 +143,15 @@ public class SyncToolConfigParser {
         numThreads.setRequired(false);
         cmdOptions.addOption(numThreads);
 
+        Option walkThreads =
+            new Option("k", "walk-threads", true,
+                       "the number of directories within each content " +
+                       "directory which are read in parallel when looking " +
+                       "for files to sync (optional, default value is " +
+                       DEFAULT_WALK_THREADS + ")");
+        walkThreads.setRequired(false);
+        cmdOptions.addOption(walkThreads);
+
         Option maxFileSize =
             new Option("m", "max-file-size", true,
                        "the maximum size of a stored file in GB (value must " +
@@ -147,6 +161,32 @@ public class SyncToolConfigParser {
         maxFileSize.setRequired(false);
         cmdOptions.addOption(maxFileSize);
 
+        Option chunkUploadThreads =
+            new Option("q", "chunk-upload-threads", true,
+                       "the number of pieces of a large file which are " +
+                       "uploaded at once by each thread (optional, default " +
+                       "value is " + DEFAULT_CHUNK_UPLOAD_THREADS + ")");
+        chunkUploadThreads.setRequired(false);
+        cmdOptions.addOption(chunkUploadThreads);
+
+        Option chunkMemory =
+            new Option("y", "chunk-memory", true,
+                       "the memory in MB, shared by all threads, used to " +
+                       "hold pieces of large files awaiting upload " +
+                       "(optional, default value is " + DEFAULT_CHUNK_MEMORY +
+                       ")");
+        chunkMemory.setRequired(false);
+        cmdOptions.addOption(chunkMemory);
+
+        Option chunkDisk =
+            new Option("z", "chunk-disk", true,
+                       "the temp file space in GB, shared by all threads, " +
+                       "used to hold pieces of large files awaiting upload " +
+                       "when they do not fit in memory (optional, default " +
+                       "value is " + DEFAULT_CHUNK_DISK + ")");
+        chunkDisk.setRequired(false);
+        cmdOptions.addOption(chunkDisk);
+
         Option renameUpdates =
             new Option("n", "rename-updates", true,
                        "indicates that updates should be synced to the cloud and renamed. " +
@@ -206,6 +246,16 @@ public class SyncToolConfigParser {
         exitOnCompletion.setRequired(false);
         cmdOptions.addOption(exitOnCompletion);
 
+        Option nativeWatch =
+            new Option("b", "native-watch", false,
+                       "indicates that the content directories should be " +
+                       "watched for changes using notifications from the " +
+                       "file system rather than by polling, which avoids " +
+                       "holding a listing of each directory in memory " +
+                       "(optional, not set by default)");
+        nativeWatch.setRequired(false);
+        cmdOptions.addOption(nativeWatch);
+
         Option excludeOption =
             new Option("e", "exclude", true,
                        "file which provides a list of files and/or " +
@@ -392,6 +442,22 @@ public class SyncToolConfigParser {
             config.setNumThreads(DEFAULT_NUM_THREADS);
         }
 
+        if (cmd.hasOption("k")) {
+            String error = "The value for walk-threads (-k) must be a " +
+                           "number greater than 0.";
+            try {
+                int walkThreads = Integer.valueOf(cmd.getOptionValue("k"));
+                if (walkThreads < 1) {
+                    throw new ParseException(error);
+                }
+                config.setWalkThreads(walkThreads);
+            } catch (NumberFormatException e) {
+                throw new ParseException(error);
+            }
+        } else {
+            config.setWalkThreads(DEFAULT_WALK_THREADS);
+        }
+
         if (cmd.hasOption("m")) {
             String error = "The value for max-file-size (-m) must be a " +
                            "number between 1 and 5.";
@@ -409,6 +475,14 @@ public class SyncToolConfigParser {
             config.setMaxFileSize(DEFAULT_MAX_FILE_SIZE * GIGABYTE);
         }
 
+        config.setChunkUploadThreads(
+            getPositiveInt(cmd, "q", "chunk-upload-threads",
+                           DEFAULT_CHUNK_UPLOAD_THREADS));
+        config.setChunkMemoryBuffer(
+            getPositiveInt(cmd, "y", "chunk-memory", DEFAULT_CHUNK_MEMORY) * MEGABYTE);
+        config.setChunkDiskBuffer(
+            getPositiveInt(cmd, "z", "chunk-disk", DEFAULT_CHUNK_DISK) * GIGABYTE);
+
         if (cmd.hasOption("o") && cmd.hasOption("n")) {
             throw new ParseException("Options -o (no updates) and -n " +
                                      "(rename updates) cannot be used together.");
@@ -462,6 +536,12 @@ public class SyncToolConfigParser {
             config.setExitOnCompletion(false);
         }
 
+        if (cmd.hasOption("b")) {
+            config.setNativeWatch(true);
+        } else {
+            config.setNativeWatch(false);
+        }
+
         if (cmd.hasOption("e")) {
             File excludeFile = new File(cmd.getOptionValue("e"));
             if (!excludeFile.exists()) {
@@ -478,6 +558,30 @@ public class SyncToolConfigParser {
         return config;
     }
 
+    /*
+     * Gets the value of an option which must be a number greater than 0,
+     * or the default value if the option is not set
+     */
+    private int getPositiveInt(CommandLine cmd,
+                               String opt,
+                               String longOpt,
+                               int defaultValue) throws ParseException {
+        if (!cmd.hasOption(opt)) {
+            return defaultValue;
+        }
+        String error = "The value for " + longOpt + " (-" + opt + ") must " +
+                       "be a number greater than 0.";
+        try {
+            int value = Integer.valueOf(cmd.getOptionValue(opt));
+            if (value < 1) {
+                throw new ParseException(error);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new ParseException(error);
+        }
+    }
+
     private void printHelp(String message) {
         System.out.println("\n-----------------------\n" +
                            message +
@@ -20,6 +20,7 @@ import org.duracloud.chunk.FileChunkerOptions;
 import org.duracloud.chunk.manifest.ChunksManifest;
 import org.duracloud.chunk.manifest.ChunksManifestBean;
 import org.duracloud.chunk.util.ChunksManifestVerifier;
+import org.duracloud.chunk.writer.ChunkBufferBudget;
 import org.duracloud.chunk.writer.DuracloudContentWriter;
 import org.duracloud.client.ContentStore;
 import org.duracloud.common.retry.Retrier;
@@ -45,6 +46,8 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
 
     private boolean jumpStart;
     private FileChunkerOptions chunkerOptions;
+    private int chunkUploadThreads = DuracloudContentWriter.DEFAULT_UPLOAD_THREADS;
+    private ChunkBufferBudget chunkBufferBudget;
 
     public DuraStoreChunkSyncEndpoint(ContentStore contentStore,
                                       String username,
@@ -94,26 +97,63 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
         stitcher = new FileStitcherImpl(new DuraStoreDataSource(contentStore));
     }
 
+    /**
+     * @param chunkUploadThreads number of chunks of a file uploaded at once
+     */
+    public void setChunkUploadThreads(int chunkUploadThreads) {
+        this.chunkUploadThreads = chunkUploadThreads;
+    }
+
+    /**
+     * @param chunkBufferBudget limits on the space used to hold chunks
+     *                          awaiting upload, shared by all files being
+     *                          transferred
+     */
+    public void setChunkBufferBudget(ChunkBufferBudget chunkBufferBudget) {
+        this.chunkBufferBudget = chunkBufferBudget;
+    }
+
     @Override
     protected Map<String, String> getContentProperties(String spaceId,
                                                        String contentId) {
         Map<String, String> props = super.getContentProperties(spaceId,
                                                                contentId);
 
+        if (null == props && !isKnownAbsent(spaceId, getManifestId(contentId))) {
+            props = getChunkedContentProperties(spaceId, contentId);
+        }
+
+        return props;
+    }
+
+    @Override
+    protected Map<String, String> getStoredContentProperties(String spaceId,
+                                                             String contentId) {
+        Map<String, String> props =
+            super.getStoredContentProperties(spaceId, contentId);
         if (null == props) {
-            try {
-                ChunksManifest manifest = this.stitcher.getManifest(spaceId, getManifestId(contentId));
+            props = getChunkedContentProperties(spaceId, contentId);
+        }
+        return props;
+    }
 
-                if (chunksInDuraCloudMatchChunksInManifest(spaceId, manifest)) {
-                    props = getManifestProperties(spaceId, manifest);
-                }
+    /*
+     * Retrieves the properties of a content item stored in chunks, returns
+     * null if the item is not stored in chunks or its chunks are not valid
+     */
+    private Map<String, String> getChunkedContentProperties(String spaceId,
+                                                            String contentId) {
+        Map<String, String> props = null;
+        try {
+            ChunksManifest manifest = this.stitcher.getManifest(spaceId, getManifestId(contentId));
 
-            } catch (Exception ex) {
-                log.debug("Not a chunked content item: {}/{}", spaceId, contentId);
+            if (chunksInDuraCloudMatchChunksInManifest(spaceId, manifest)) {
+                props = getManifestProperties(spaceId, manifest);
             }
 
+        } catch (Exception ex) {
+            log.debug("Not a chunked content item: {}/{}", spaceId, contentId);
         }
-
         return props;
     }
 
@@ -203,6 +243,10 @@ public class DuraStoreChunkSyncEndpoint extends DuraStoreSyncEndpoint {
 
         DuracloudContentWriter contentWriter =
             new DuracloudContentWriter(store, getUsername(), true, this.jumpStart);
+        contentWriter.setUploadThreads(chunkUploadThreads);
+        if (null != chunkBufferBudget) {
+            contentWriter.setBufferBudget(chunkBufferBudget);
+        }
         FileChunker chunker = new FileChunker(contentWriter, chunkerOptions);
         final String spaceId = getSpaceId();
         chunker.addContent(spaceId,
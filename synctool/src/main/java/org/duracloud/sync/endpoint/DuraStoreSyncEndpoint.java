@@ -13,8 +13,14 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.event.EventListenerSupport;
 import org.duracloud.client.ContentStore;
@@ -38,6 +44,19 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
     private final Logger logger =
         LoggerFactory.getLogger(DuraStoreSyncEndpoint.class);
 
+    /*
+     * Period after which the remote content index is rebuilt, to pick up
+     * changes made to the space other than by this endpoint
+     */
+    protected static final long REMOTE_INDEX_TTL_MILLIS = 60 * 60 * 1000;
+
+    private static final ExecutorService REMOTE_INDEX_EXECUTOR =
+        Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "remote-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+
     private ContentStore contentStore;
     private String username;
     private String spaceId;
@@ -48,6 +67,11 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
     private String updateSuffix;
     private String storeId;
     private String prefix;
+    private RemoteContentIndex remoteIndex;
+    private Future<RemoteContentIndex> remoteIndexBuild;
+    private Map<String, String> remoteIndexChanges;
+    private long remoteIndexExpires = 0;
+    private boolean remoteIndexEnabled = true;
     EventListenerSupport<EndPointListener> listenerList;
 
     public DuraStoreSyncEndpoint(ContentStore contentStore,
@@ -171,8 +195,24 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
                 }
             }
 
-            Map<String, String> contentProperties =
-                getContentProperties(spaceId, contentId);
+            Map<String, String> contentProperties;
+            if (syncFile.exists()) {
+                // The index may be out of date, so it is relied on only to
+                // show that the content matches. That the content is absent
+                // or differs is confirmed with the store before it is written.
+                contentProperties = getIndexedProperties(spaceId, contentId);
+                if (null == contentProperties ||
+                    !syncFile.getChecksum().equals(
+                        contentProperties.get(ContentStore.CONTENT_CHECKSUM))) {
+                    contentProperties = getStoredContentProperties(spaceId, contentId);
+                }
+            } else {
+                contentProperties = getContentProperties(spaceId, contentId);
+                if (contentProperties instanceof IndexedProperties) {
+                    // Confirms that the content still exists before deleting
+                    contentProperties = getStoredContentProperties(spaceId, contentId);
+                }
+            }
             boolean dcFileExists = (null != contentProperties);
 
             if (syncFile.exists()) {
@@ -262,8 +302,58 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
                                               contentId, absPath);
     }
 
+    /**
+     * Retrieves the properties of a content item. Where the remote content
+     * index can answer for the item, no request is made: an item known to
+     * be absent results in null, and an item with a known checksum results
+     * in properties including only that checksum. As the index may be out of
+     * date, the state of an item is confirmed with
+     * getStoredContentProperties() before the item is written.
+     */
     protected Map<String, String> getContentProperties(String spaceId,
                                                        String contentId) {
+        Map<String, String> props = getIndexedProperties(spaceId, contentId);
+        if (null != props || isKnownAbsent(spaceId, contentId)) {
+            return props;
+        }
+        return getContentStoreProperties(spaceId, contentId);
+    }
+
+    /*
+     * Retrieves properties including only the checksum of a content item
+     * from the remote content index, returns null if the index is not
+     * available or has no checksum for the item
+     */
+    private Map<String, String> getIndexedProperties(String spaceId,
+                                                     String contentId) {
+        RemoteContentIndex index = getRemoteIndex(spaceId);
+        String checksum = null == index ? null : index.getChecksum(contentId);
+        if (null == checksum) {
+            return null;
+        }
+        Map<String, String> props = new IndexedProperties();
+        props.put(ContentStore.CONTENT_CHECKSUM, checksum);
+        return props;
+    }
+
+    /**
+     * Retrieves the properties of a content item from the store, without
+     * use of the remote content index. This is used to confirm the state of
+     * an item before it is written.
+     *
+     * @return the properties, or null if the item does not exist
+     */
+    protected Map<String, String> getStoredContentProperties(String spaceId,
+                                                             String contentId) {
+        return getContentStoreProperties(spaceId, contentId);
+    }
+
+    /*
+     * Retrieves the properties of a content item from the store, returns
+     * null if the item does not exist
+     */
+    private Map<String, String> getContentStoreProperties(String spaceId,
+                                                          String contentId) {
         Map<String, String> props = null;
         try {
             props = contentStore.getContentProperties(spaceId, contentId);
@@ -275,12 +365,107 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
         return props;
     }
 
+    /**
+     * Determines if the remote content index shows that a content item does
+     * not exist. Returns false if the index is not available.
+     */
+    protected boolean isKnownAbsent(String spaceId, String contentId) {
+        RemoteContentIndex index = getRemoteIndex(spaceId);
+        return null != index && !index.contains(contentId);
+    }
+
+    /**
+     * Enables or disables use of an index of the remote space, built from a
+     * listing and the space manifest, in place of a request per item when
+     * determining the state of remote content. Enabled by default.
+     */
+    public void setRemoteIndexEnabled(boolean remoteIndexEnabled) {
+        this.remoteIndexEnabled = remoteIndexEnabled;
+    }
+
+    /*
+     * Gets the index of the remote space. The index is built in the
+     * background when it does not exist or has expired, and null is returned
+     * until it is ready, so that remote properties are retrieved per item in
+     * the meantime. Also returns null if the index is disabled, is not for
+     * the given space, or could not be built.
+     */
+    private synchronized RemoteContentIndex getRemoteIndex(String spaceId) {
+        if (!remoteIndexEnabled || !this.spaceId.equals(spaceId)) {
+            return null;
+        }
+
+        if (null != remoteIndexBuild && remoteIndexBuild.isDone()) {
+            try {
+                remoteIndex = remoteIndexBuild.get();
+                for (Map.Entry<String, String> change : remoteIndexChanges.entrySet()) {
+                    applyRemoteIndexChange(change.getKey(), change.getValue());
+                }
+            } catch (ExecutionException | InterruptedException e) {
+                logger.warn("Unable to index space {}, remote properties will " +
+                            "be retrieved per item: {}", spaceId, e.getMessage());
+                remoteIndex = null;
+            }
+            remoteIndexBuild = null;
+            remoteIndexChanges = null;
+            remoteIndexExpires = System.currentTimeMillis() + REMOTE_INDEX_TTL_MILLIS;
+        }
+
+        if (null == remoteIndexBuild &&
+            System.currentTimeMillis() >= remoteIndexExpires) {
+            remoteIndex = null;
+            remoteIndexChanges = new LinkedHashMap<>();
+            remoteIndexBuild = REMOTE_INDEX_EXECUTOR.submit(
+                () -> RemoteContentIndex.load(contentStore, spaceId));
+        }
+        return remoteIndex;
+    }
+
+    /*
+     * Starts a build of the remote content index if one is needed, and
+     * waits for the build to complete
+     */
+    void awaitRemoteIndex() throws Exception {
+        Future<RemoteContentIndex> build;
+        synchronized (this) {
+            getRemoteIndex(spaceId);
+            build = remoteIndexBuild;
+        }
+        if (null != build) {
+            build.get();
+        }
+    }
+
+    /*
+     * Keeps the remote content index in line with changes made by this
+     * endpoint. Changes made while the index is being built are applied
+     * once it is ready, as the listing may not include them.
+     */
+    private synchronized void updateRemoteIndex(String contentId,
+                                                String checksum) {
+        if (null != remoteIndexChanges) {
+            remoteIndexChanges.put(contentId, checksum);
+        }
+        applyRemoteIndexChange(contentId, checksum);
+    }
+
+    private void applyRemoteIndexChange(String contentId, String checksum) {
+        if (null != remoteIndex) {
+            if (null == checksum) {
+                remoteIndex.remove(contentId);
+            } else {
+                remoteIndex.put(contentId, checksum);
+            }
+        }
+    }
+
     private SyncResultType deleteContent(String spaceId,
                                          String contentId,
                                          String absPath)
         throws ContentStoreException {
         logger.debug("Local file {} deleted, removing from DuraCloud.", absPath);
         deleteContent(spaceId, contentId);
+        updateRemoteIndex(contentId, null);
         return SyncResultType.DELETED;
     }
 
@@ -299,6 +484,7 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
         logger.info("Adding local file {} to DuraCloud space {}" +
                     " with content ID {}", absPath, spaceId, contentId);
         addUpdateContent(contentId, syncFile);
+        updateRemoteIndex(contentId, syncFile.getChecksum());
     }
 
     protected void addUpdateContent(String contentId, MonitoredFile syncFile)
@@ -375,4 +561,12 @@ public class DuraStoreSyncEndpoint implements SyncEndpoint {
     public void removeEndPointListener(EndPointListener listener) {
         this.listenerList.removeListener(listener);
     }
+
+    /*
+     * Properties of a content item taken from the remote content index
+     * rather than retrieved from the store
+     */
+    private static class IndexedProperties extends HashMap<String, String> {
+        private static final long serialVersionUID = 1L;
+    }
 }
@@ -12,6 +12,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.MimetypeUtil;
 
@@ -25,12 +26,23 @@ public class MonitoredFile {
     private MonitoredInputStream stream;
     private String checksum;
     private String mimetype;
+    private ChecksumCache checksumCache;
 
     public MonitoredFile(File file) {
+        this(file, null);
+    }
+
+    /**
+     * @param file          the local file
+     * @param checksumCache cache consulted before computing the checksum of
+     *                      the file, may be null
+     */
+    public MonitoredFile(File file, ChecksumCache checksumCache) {
         this.file = file;
         this.stream = null;
         this.checksum = null;
         this.mimetype = null;
+        this.checksumCache = checksumCache;
     }
 
     public File getFile() {
@@ -89,6 +101,9 @@ public class MonitoredFile {
      */
     private String computeChecksum(File file) {
         try {
+            if (null != checksumCache) {
+                return checksumCache.getChecksum(file);
+            }
             ChecksumUtil cksumUtil =
                 new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
             return cksumUtil.generateChecksum(file);
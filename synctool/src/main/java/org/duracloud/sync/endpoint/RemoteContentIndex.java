@@ -0,0 +1,299 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.endpoint;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+
+import org.duracloud.client.ContentStore;
+import org.duracloud.common.constant.ManifestFormat;
+import org.duracloud.error.ContentStoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory index of the content items in a DuraCloud space, and of the
+ * MD5 checksum of each item where known. The index is built from a listing
+ * of the space, which determines which items exist, followed by a single
+ * read of the space manifest, which provides checksums. This allows the sync
+ * endpoint to determine the state of most remote items without a request
+ * per item.
+ *
+ * To keep memory use low for spaces with millions of items, content IDs are
+ * held as 64-bit hashes and checksums as pairs of longs in open-addressed
+ * arrays (roughly 50 bytes per item).
+ *
+ * This class is thread-safe.
+ */
+public class RemoteContentIndex {
+
+    private static final Logger log =
+        LoggerFactory.getLogger(RemoteContentIndex.class);
+
+    private static final byte EMPTY = 0;
+    private static final byte PRESENT = 1;
+    private static final byte PRESENT_WITH_CHECKSUM = 2;
+    private static final byte REMOVED = 3;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final String MANIFEST_DELIM = "\t";
+
+    private long[] keys;
+    private long[] checksumHigh;
+    private long[] checksumLow;
+    private byte[] states;
+    private int used = 0;
+    private int size = 0;
+
+    public RemoteContentIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Builds an index of a space from a listing of its contents, adding the
+     * checksums found in the space manifest. If the manifest cannot be
+     * retrieved, the index holds no checksums.
+     *
+     * @param contentStore store in which the space resides
+     * @param spaceId      space to index
+     * @return the index
+     * @throws ContentStoreException if the space cannot be listed
+     */
+    public static RemoteContentIndex load(ContentStore contentStore,
+                                          String spaceId)
+        throws ContentStoreException {
+        long start = System.currentTimeMillis();
+        RemoteContentIndex index = new RemoteContentIndex();
+
+        Iterator<String> contents = contentStore.getSpaceContents(spaceId);
+        while (contents.hasNext()) {
+            index.add(contents.next());
+        }
+
+        int checksums = 0;
+        try (InputStream manifest =
+                 contentStore.getManifest(spaceId, ManifestFormat.TSV)) {
+            checksums = index.loadChecksums(manifest);
+        } catch (ContentStoreException | IOException e) {
+            log.info("Space manifest for {} not available, remote checksums " +
+                     "will be retrieved per item: {}", spaceId, e.getMessage());
+        }
+
+        log.info("Indexed {} items ({} with checksums) in space {} in {} ms",
+                 index.size(), checksums, spaceId,
+                 System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /*
+     * Reads a TSV manifest (space-id, content-id, MD5 per line), recording
+     * checksums for items already in the index. Items in the manifest which
+     * were not found in the listing are ignored, as the listing is current
+     * while the manifest may lag behind. Returns the number of checksums
+     * recorded.
+     */
+    protected int loadChecksums(InputStream manifest) throws IOException {
+        int count = 0;
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(manifest, StandardCharsets.UTF_8));
+        String line = reader.readLine(); // header
+        while ((line = reader.readLine()) != null) {
+            int first = line.indexOf(MANIFEST_DELIM);
+            int last = line.lastIndexOf(MANIFEST_DELIM);
+            if (first < 0 || last <= first) {
+                continue;
+            }
+            String contentId = line.substring(first + 1, last);
+            String checksum = line.substring(last + 1);
+            if (updateChecksum(contentId, checksum)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Records that an item exists, without a known checksum
+     */
+    public synchronized void add(String contentId) {
+        long key = hash(contentId);
+        int slot = findSlot(key);
+        if (states[slot] != PRESENT_WITH_CHECKSUM) {
+            setState(slot, key, PRESENT, 0, 0);
+        }
+    }
+
+    /**
+     * Records that an item exists with the given checksum
+     */
+    public synchronized void put(String contentId, String checksum) {
+        long[] parsed = parseChecksum(checksum);
+        long key = hash(contentId);
+        int slot = findSlot(key);
+        if (null == parsed) {
+            setState(slot, key, PRESENT, 0, 0);
+        } else {
+            setState(slot, key, PRESENT_WITH_CHECKSUM, parsed[0], parsed[1]);
+        }
+    }
+
+    /**
+     * Records that an item no longer exists
+     */
+    public synchronized void remove(String contentId) {
+        int slot = findSlot(hash(contentId));
+        if (states[slot] == PRESENT || states[slot] == PRESENT_WITH_CHECKSUM) {
+            states[slot] = REMOVED;
+            size--;
+        }
+    }
+
+    /**
+     * @return true if the item exists in the space
+     */
+    public synchronized boolean contains(String contentId) {
+        byte state = states[findSlot(hash(contentId))];
+        return state == PRESENT || state == PRESENT_WITH_CHECKSUM;
+    }
+
+    /**
+     * @return checksum of the item, or null if the item does not exist or
+     * its checksum is not known
+     */
+    public synchronized String getChecksum(String contentId) {
+        int slot = findSlot(hash(contentId));
+        if (states[slot] != PRESENT_WITH_CHECKSUM) {
+            return null;
+        }
+        return String.format("%016x%016x", checksumHigh[slot], checksumLow[slot]);
+    }
+
+    /**
+     * @return number of items in the index
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized boolean updateChecksum(String contentId,
+                                                String checksum) {
+        long[] parsed = parseChecksum(checksum);
+        int slot = findSlot(hash(contentId));
+        if (null == parsed || states[slot] != PRESENT) {
+            return false;
+        }
+        states[slot] = PRESENT_WITH_CHECKSUM;
+        checksumHigh[slot] = parsed[0];
+        checksumLow[slot] = parsed[1];
+        return true;
+    }
+
+    private void setState(int slot,
+                          long key,
+                          byte state,
+                          long high,
+                          long low) {
+        byte current = states[slot];
+        if (current != PRESENT && current != PRESENT_WITH_CHECKSUM) {
+            size++;
+        }
+        if (current == EMPTY) {
+            used++;
+        }
+        keys[slot] = key;
+        states[slot] = state;
+        checksumHigh[slot] = high;
+        checksumLow[slot] = low;
+
+        if (used > keys.length * 0.6) {
+            rehash();
+        }
+    }
+
+    /*
+     * Finds the slot holding the given key, or the empty slot at which it
+     * would be inserted
+     */
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (states[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        long[] oldHigh = checksumHigh;
+        long[] oldLow = checksumLow;
+        byte[] oldStates = states;
+
+        int capacity = oldKeys.length;
+        if (size > capacity * 0.3) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            byte state = oldStates[i];
+            if (state == PRESENT || state == PRESENT_WITH_CHECKSUM) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                states[slot] = state;
+                checksumHigh[slot] = oldHigh[i];
+                checksumLow[slot] = oldLow[i];
+                used++;
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        checksumHigh = new long[capacity];
+        checksumLow = new long[capacity];
+        states = new byte[capacity];
+        used = 0;
+        size = 0;
+    }
+
+    private long[] parseChecksum(String checksum) {
+        if (null == checksum || checksum.length() != 32) {
+            return null;
+        }
+        try {
+            return new long[] {
+                Long.parseUnsignedLong(checksum.substring(0, 16), 16),
+                Long.parseUnsignedLong(checksum.substring(16), 16)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long hash(String contentId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] bytes = digest.digest(contentId.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (bytes[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
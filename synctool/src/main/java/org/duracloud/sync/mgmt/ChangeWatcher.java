@@ -7,11 +7,14 @@
  */
 package org.duracloud.sync.mgmt;
 
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Watches for new items on the ChangedList.
+ * Watches for new items on the ChangedList. Files are passed to the
+ * ChangeHandler as soon as they are added to the list.
  *
  * @author: Bill Branan
  * Date: Mar 17, 2010
@@ -20,7 +23,7 @@ public class ChangeWatcher implements Runnable {
 
     private final Logger logger = LoggerFactory.getLogger(ChangeWatcher.class);
 
-    private boolean continueWatch;
+    private volatile boolean continueWatch;
     private ChangedList changedList;
     private ChangeHandler handler;
     private long watchFrequency;
@@ -32,7 +35,8 @@ public class ChangeWatcher implements Runnable {
      *
      * @param changedList    the ChangedList to watch
      * @param handler        the ChangeHandler to notify
-     * @param watchFrequency how often to check for changes
+     * @param watchFrequency maximum time to wait for a change before checking
+     *                       whether the watch has ended
      */
     public ChangeWatcher(ChangedList changedList,
                          ChangeHandler handler,
@@ -46,30 +50,37 @@ public class ChangeWatcher implements Runnable {
 
     public void run() {
         while (continueWatch) {
-            ChangedFile changedFile = changedList.reserve();
+            ChangedFile changedFile = reserve();
             if (changedFile != null) {
+                if (!continueWatch) {
+                    changedFile.unreserve();
+                    break;
+                }
                 boolean success = handler.handleChangedFile(changedFile);
                 if (success) {
                     status.startingWork();
                 } else {
                     changedFile.unreserve();
                 }
-            } else {
-                // List is empty or handler not ready, wait before next check
-                sleep(watchFrequency);
             }
         }
     }
 
-    private void sleep(long time) {
+    /*
+     * Waits for a file to be added to the list, returns null if none is
+     * added within the watch frequency
+     */
+    private ChangedFile reserve() {
         try {
-            Thread.sleep(time);
+            return changedList.reserve(watchFrequency, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             logger.warn("ChangeWatcher thread interrupted");
+            return null;
         }
     }
 
     public void endWatch() {
         continueWatch = false;
+        changedList.wakeWaiters();
     }
 }
@@ -9,19 +9,30 @@ package org.duracloud.sync.mgmt;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.ExecutorService;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.event.EventListenerSupport;
 import org.slf4j.Logger;
@@ -30,17 +41,46 @@ import org.slf4j.LoggerFactory;
 /**
  * The list of files which have been changed.
  *
+ * Files are held in a concurrent map keyed by path, which ensures that only
+ * the most recent change to a file is held, along with a queue of paths which
+ * preserves the order in which files were added. Adding and reserving files
+ * do not require a lock.
+ *
+ * When a spill directory is configured, at most maxInMemory files are held
+ * in memory. Files added beyond that point are appended to a log on disk and
+ * are read back into memory as the files in memory are reserved. A file
+ * which is added again while on disk replaces its earlier entry there.
+ *
+ * Threads waiting in reserve(timeout, unit) are woken as soon as a file is
+ * added. Listeners are notified on a separate thread, with the changes made
+ * within each notification interval combined into a single notification.
+ *
  * @author: Bill Branan
  * Date: Mar 15, 2010
  */
 public class ChangedList implements Serializable {
 
     private static final Logger log = LoggerFactory.getLogger(ChangedList.class);
-    private LinkedHashMap<String, ChangedFile> fileList;
-    private LinkedHashMap<String, ChangedFile> reservedFiles;
-    private ExecutorService executorService;
-    private long listVersion;
-    private boolean shutdown = false;
+
+    public static final int DEFAULT_MAX_IN_MEMORY = 100000;
+    protected static final String SPILL_FILE_NAME = "changed-list.spill";
+    protected static final long EVENT_INTERVAL_MILLIS = 250;
+
+    private Map<String, ChangedFile> fileList;
+    private Queue<String> fileQueue;
+    private Map<String, ChangedFile> reservedFiles;
+    private transient volatile ChangedListSpill spill;
+    private transient volatile ChangedListJournal.Writer journal;
+    private volatile int maxInMemory = DEFAULT_MAX_IN_MEMORY;
+    private ScheduledExecutorService executorService;
+    private AtomicLong listVersion;
+    private volatile boolean shutdown = false;
+
+    private final ReentrantLock availableLock = new ReentrantLock();
+    private final Condition available = availableLock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicBoolean eventPending = new AtomicBoolean();
+    private volatile long lastEventTime = 0;
 
     private static ChangedList instance;
 
@@ -55,13 +95,21 @@ public class ChangedList implements Serializable {
     }
 
     private ChangedList() {
-        fileList = new LinkedHashMap<String, ChangedFile>();
-        reservedFiles = new LinkedHashMap<String, ChangedFile>();
+        fileList = new ConcurrentHashMap<String, ChangedFile>();
+        fileQueue = new ConcurrentLinkedQueue<String>();
+        reservedFiles = new ConcurrentHashMap<String, ChangedFile>();
         this.fileExclusionManager = new FileExclusionManager();
-        listVersion = 0;
+        listVersion = new AtomicLong(0);
         listeners =
             new EventListenerSupport<ChangedListListener>(ChangedListListener.class);
-        this.executorService = Executors.newSingleThreadExecutor();
+        this.executorService =
+            Executors.newSingleThreadScheduledExecutor(ChangedList::newEventThread);
+    }
+
+    private static Thread newEventThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "changed-list-events");
+        thread.setDaemon(true);
+        return thread;
     }
 
     public void setFileExclusionManager(FileExclusionManager fileExclusionManager) {
@@ -91,13 +139,43 @@ public class ChangedList implements Serializable {
         }
     }
 
+    /**
+     * Sets the directory in which files beyond the in-memory limit are
+     * written. Files which have already been written to disk in a previously
+     * configured directory are moved back into memory.
+     *
+     * @param spillDir    directory for the on-disk log, or null to hold all
+     *                    files in memory
+     * @param maxInMemory number of files to hold in memory before writing
+     *                    to disk
+     */
+    public synchronized void setSpillConfig(File spillDir, int maxInMemory) {
+        if (maxInMemory < 1) {
+            throw new IllegalArgumentException("maxInMemory must be positive");
+        }
+
+        ChangedListSpill oldSpill = this.spill;
+        this.spill = null;
+        refill(oldSpill, Integer.MAX_VALUE);
+
+        this.maxInMemory = maxInMemory;
+        if (null != spillDir) {
+            this.spill = new ChangedListSpill(new File(spillDir, SPILL_FILE_NAME));
+        }
+    }
+
     /**
      * Gets the current size of the changed list
      *
      * @return the size of the list
      */
     public int getListSize() {
-        return fileList.size();
+        long size = fileList.size();
+        ChangedListSpill currentSpill = spill;
+        if (null != currentSpill) {
+            size += currentSpill.size();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
     }
 
     /**
@@ -106,31 +184,110 @@ public class ChangedList implements Serializable {
      * @return the size of the list
      */
     public int getListSizeIncludingReservedFiles() {
-        return fileList.size() + reservedFiles.size();
+        return getListSize() + reservedFiles.size();
     }
 
-    synchronized boolean addChangedFile(ChangedFile changedFile) {
+    boolean addChangedFile(ChangedFile changedFile) {
         File file = changedFile.getFile();
         if (fileExclusionManager.isExcluded(file)) {
             return false;
         }
-        fileList.put(file.getAbsolutePath(), changedFile);
+        enqueue(changedFile);
+        recordChange(ChangedListJournal.Record.add(changedFile));
         incrementVersion();
-        fireChangedEvent();
+        signalAvailable();
+        fireChangedEventAsync();
         return true;
     }
 
+    /*
+     * Adds a file to the list, replacing any unreserved entry for the same
+     * path. If the in-memory window is full, or files are already waiting on
+     * disk (which keeps files in order), the file is written to disk.
+     */
+    private void enqueue(ChangedFile changedFile) {
+        String key = getKey(changedFile);
+        ChangedListSpill currentSpill = spill;
+        if (null != currentSpill &&
+            (!currentSpill.isEmpty() || fileList.size() >= maxInMemory) &&
+            !fileList.containsKey(key)) {
+            try {
+                currentSpill.append(changedFile);
+                return;
+            } catch (IOException e) {
+                log.warn("Unable to write changed file to disk, holding " +
+                         "in memory: {}", e.getMessage());
+            }
+        }
+
+        if (null == fileList.put(key, changedFile)) {
+            fileQueue.offer(key);
+        }
+    }
+
+    /*
+     * Moves up to maxFiles files from disk into memory, returning false if
+     * there were no files to move
+     */
+    private boolean refill(ChangedListSpill fromSpill, int maxFiles) {
+        if (null == fromSpill || fromSpill.isEmpty()) {
+            return false;
+        }
+
+        List<ChangedFile> files;
+        try {
+            files = fromSpill.take(maxFiles);
+        } catch (IOException e) {
+            log.error("Unable to read changed files from disk, " +
+                      fromSpill.size() + " changed files will be dropped: " +
+                      e.getMessage(), e);
+            fromSpill.clear();
+            return false;
+        }
+
+        for (ChangedFile changedFile : files) {
+            String key = getKey(changedFile);
+            if (null == fileList.put(key, changedFile)) {
+                fileQueue.offer(key);
+            }
+        }
+        return !files.isEmpty();
+    }
+
     protected void fireChangedEvent() {
         listeners.fire().listChanged(this);
     }
 
+    /*
+     * Schedules a notification of listeners, unless one is already pending.
+     * Notifications are at least EVENT_INTERVAL_MILLIS apart, and each one
+     * covers all changes made before it is fired.
+     */
     protected void fireChangedEventAsync() {
-        this.executorService.execute(new Runnable() {
-            @Override
-            public void run() {
-                fireChangedEvent();
-            }
-        });
+        if (!eventPending.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = lastEventTime + EVENT_INTERVAL_MILLIS -
+                     System.currentTimeMillis();
+        try {
+            executorService.schedule(this::fireScheduledEvent,
+                                     Math.max(0, delay),
+                                     TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The list has been shut down
+            eventPending.set(false);
+        }
+    }
+
+    private void fireScheduledEvent() {
+        // Changes made while listeners are notified schedule a new event
+        eventPending.set(false);
+        lastEventTime = System.currentTimeMillis();
+        try {
+            fireChangedEvent();
+        } catch (RuntimeException e) {
+            log.warn("Changed list listener failed: {}", e.getMessage(), e);
+        }
     }
 
     public void addListener(ChangedListListener listener) {
@@ -145,9 +302,82 @@ public class ChangedList implements Serializable {
      * Removes all files from the changed list.
      */
     public synchronized void clear() {
-        fileList.clear();
+        removeUnreserved();
         reservedFiles.clear();
-        fireChangedEvent();
+        recordChange(ChangedListJournal.Record.clear());
+        fireChangedEventAsync();
+    }
+
+    /*
+     * Removes each queued file. Files which are being added concurrently
+     * are either removed or remain both queued and in the list.
+     */
+    private void removeUnreserved() {
+        String key;
+        while ((key = fileQueue.poll()) != null) {
+            fileList.remove(key);
+        }
+        ChangedListSpill currentSpill = spill;
+        if (null != currentSpill) {
+            currentSpill.clear();
+        }
+    }
+
+    /**
+     * Retrieves a changed file for processing and removes it from the list
+     * of unreserved files, waiting up to the given time for a file to be
+     * added if the list is empty. Returns null if no file was added in that
+     * time, or if the wait was ended by wakeWaiters() or shutdown().
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of the timeout
+     * @return a file which has changed on the file system
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ChangedFile reserve(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        ChangedFile changedFile = reserve();
+        if (null != changedFile || shutdown) {
+            return changedFile;
+        }
+
+        availableLock.lockInterruptibly();
+        try {
+            waiting.incrementAndGet();
+            // Checked after registering as a waiter, so that a file added
+            // concurrently either is seen here or signals the condition
+            if (isEmpty() && !shutdown) {
+                available.await(timeout, unit);
+            }
+        } finally {
+            waiting.decrementAndGet();
+            availableLock.unlock();
+        }
+        return reserve();
+    }
+
+    /**
+     * Wakes all threads waiting in reserve(timeout, unit)
+     */
+    public void wakeWaiters() {
+        availableLock.lock();
+        try {
+            available.signalAll();
+        } finally {
+            availableLock.unlock();
+        }
+    }
+
+    private void signalAvailable() {
+        if (waiting.get() > 0) {
+            wakeWaiters();
+        }
+    }
+
+    private boolean isEmpty() {
+        ChangedListSpill currentSpill = spill;
+        return fileQueue.isEmpty() &&
+               (null == currentSpill || currentSpill.isEmpty());
     }
 
     /**
@@ -156,115 +386,321 @@ public class ChangedList implements Serializable {
      *
      * @return a file which has changed on the file system
      */
-    public synchronized ChangedFile reserve() {
-        if (fileList.isEmpty() || shutdown) {
-            return null;
+    public ChangedFile reserve() {
+        ChangedFile changedFile = null;
+        while (null == changedFile) {
+            if (shutdown) {
+                return null;
+            }
+
+            String key = fileQueue.poll();
+            if (null == key) {
+                if (refill(spill, Math.max(1, maxInMemory / 2))) {
+                    continue;
+                }
+                return null;
+            }
+
+            // The queue may hold keys of files which have since been removed
+            changedFile = fileList.remove(key);
+            if (null != changedFile) {
+                reservedFiles.put(key, changedFile);
+                recordChange(ChangedListJournal.Record.reserve(changedFile));
+            }
         }
 
-        String key = fileList.keySet().iterator().next();
-        ChangedFile changedFile = fileList.remove(key);
-        reservedFiles.put(key, changedFile);
         incrementVersion();
         fireChangedEventAsync();
         return changedFile;
     }
 
     private void incrementVersion() {
-        if (listVersion < Long.MAX_VALUE) {
-            listVersion++;
-        } else {
-            listVersion = 0;
-        }
+        listVersion.updateAndGet(version -> version < Long.MAX_VALUE ? version + 1 : 0);
     }
 
     public long getVersion() {
-        return listVersion;
+        return listVersion.get();
+    }
+
+    /*
+     * Appends a change to the journal, if one is open. Changes are recorded
+     * after they are made to the list, so a change recorded in a journal
+     * which has since been replaced is included in the checkpoint which
+     * replaced it.
+     */
+    private void recordChange(ChangedListJournal.Record record) {
+        ChangedListJournal.Writer currentJournal;
+        while ((currentJournal = journal) != null) {
+            try {
+                currentJournal.write(record);
+                return;
+            } catch (IOException e) {
+                if (currentJournal == journal) {
+                    log.error("Unable to write to changed list journal, " +
+                              "changes will not be journaled until the next " +
+                              "checkpoint: {}", e.getMessage());
+                    setJournal(null);
+                    return;
+                }
+                // The journal was replaced, the change goes to the new one
+            }
+        }
+    }
+
+    private synchronized void setJournal(ChangedListJournal.Writer newJournal) {
+        ChangedListJournal.Writer oldJournal = journal;
+        journal = newJournal;
+        if (null != oldJournal) {
+            try {
+                oldJournal.close();
+            } catch (IOException e) {
+                log.warn("Unable to close changed list journal: {}",
+                         e.getMessage());
+            }
+        }
     }
 
     /**
-     * Writes out the current state of the ChangeList to the given file.
+     * Writes out the current state of the ChangeList to the given file as a
+     * checkpoint, without journaling later changes.
      *
      * @param persistFile file to write state to
      * @return the version ID of the ChangedList which was persisted
      */
     public long persist(File persistFile) {
-        try {
-            FileOutputStream fileStream = new FileOutputStream(persistFile);
-            ObjectOutputStream oStream = new ObjectOutputStream((fileStream));
-
-            long persistVersion;
-            Map<String, ChangedFile> fileListCopy;
-            synchronized (this) {
-                fileListCopy = (Map<String, ChangedFile>) fileList.clone();
-                fileListCopy.putAll(reservedFiles);
-                persistVersion = listVersion;
-            }
+        return persist(persistFile, null);
+    }
 
-            oStream.writeObject(fileListCopy);
-            oStream.close();
+    /**
+     * Writes out the current state of the ChangeList to the given file as a
+     * checkpoint. Changes made to the list from this point on are appended
+     * to the given journal file as they are made, replacing any previous
+     * journal. Journal records are buffered, persistChanges() ensures that
+     * they are on disk.
+     *
+     * @param persistFile file to write state to
+     * @param journalFile file to write changes to, or null if changes are
+     *                    not to be journaled
+     * @return the version ID of the ChangedList which was persisted
+     */
+    public long persist(File persistFile, File journalFile) {
+        long persistVersion = listVersion.get();
+        long persistTime = System.currentTimeMillis();
+        // Changes made while the checkpoint is written are also included in
+        // the journal, replaying them again is harmless
+        ChangedListJournal.Writer newJournal = null;
+        if (null != journalFile) {
+            try {
+                newJournal = new ChangedListJournal.Writer(journalFile, false);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to create File Changed " +
+                                           "List journal:" + e.getMessage(), e);
+            }
+        }
+        setJournal(newJournal);
+
+        try (ChangedListJournal.Writer writer =
+                 new ChangedListJournal.Writer(persistFile, false)) {
+            for (String key : fileQueue) {
+                ChangedFile changedFile = fileList.get(key);
+                if (null != changedFile) {
+                    writer.write(ChangedListJournal.Record.add(changedFile));
+                }
+            }
+            ChangedListSpill currentSpill = spill;
+            if (null != currentSpill) {
+                currentSpill.forEach(changedFile -> {
+                    try {
+                        writer.write(ChangedListJournal.Record.add(changedFile));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            for (ChangedFile changedFile : reservedFiles.values()) {
+                writer.write(ChangedListJournal.Record.add(changedFile));
+            }
+            writer.write(ChangedListJournal.Record.mark(persistTime));
             return persistVersion;
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             throw new RuntimeException("Unable to persist File Changed List:" +
                                        e.getMessage(), e);
         }
     }
 
+    /**
+     * Ensures that the changes made to the ChangedList since the last call
+     * to persist() are on disk in the given journal file. The cost of this
+     * call is proportional to the number of changes made since the last
+     * call rather than to the size of the list.
+     *
+     * @param journalFile journal which was opened by the most recent call to
+     *                    persist()
+     * @return the version ID of the ChangedList which was persisted
+     * @throws IllegalStateException if the journal is not open, as no
+     *                               checkpoint was written with it or it
+     *                               could not be written to
+     */
+    public long persistChanges(File journalFile) {
+        ChangedListJournal.Writer currentJournal = journal;
+        if (null == currentJournal ||
+            !currentJournal.getFile().equals(journalFile)) {
+            throw new IllegalStateException("Changes cannot be persisted " +
+                                            "before the list is persisted " +
+                                            "with journal " + journalFile);
+        }
+
+        // Changes are recorded before the version is incremented, so all
+        // changes up to this version have been written to the journal
+        long persistVersion = listVersion.get();
+        long persistTime = System.currentTimeMillis();
+        try {
+            currentJournal.write(ChangedListJournal.Record.mark(persistTime));
+            currentJournal.sync();
+            return persistVersion;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to persist File Changed List " +
+                                       "changes:" + e.getMessage(), e);
+        }
+    }
+
     /**
      * Restores the state of the ChangedList using the given backup file
      *
      * @param persistFile file containing previous state
      * @param contentDirs content directories currently configured.
+     * @return the time at which the backup was captured, or -1 if not known
      */
-    public synchronized void restore(File persistFile, List<File> contentDirs) {
-        try {
-            FileInputStream fileStream = new FileInputStream(persistFile);
-            ObjectInputStream oStream = new ObjectInputStream(fileStream);
-            log.info("Restoring changed list from backup: {}", persistFile.getAbsolutePath());
-            synchronized (this) {
-                LinkedHashMap<String, ChangedFile> fileListFromDisk =
-                    (LinkedHashMap<String, ChangedFile>) oStream.readObject();
-
-                //remove files in change list that are not in the content dir list.
-                if (contentDirs != null && !contentDirs.isEmpty()) {
-
-                    Iterator<Entry<String, ChangedFile>> entries =
-                        fileListFromDisk.entrySet().iterator();
-                    while (entries.hasNext()) {
-                        Entry<String, ChangedFile> entry = entries.next();
-                        ChangedFile file = entry.getValue();
-                        boolean watched = false;
-                        for (File contentDir : contentDirs) {
-                            if (file.getFile()
-                                    .getAbsolutePath()
-                                    .startsWith(contentDir.getAbsolutePath()) &&
-                                !this.fileExclusionManager.isExcluded(file.getFile())) {
-                                watched = true;
-                                break;
-                            }
-                        }
-
-                        if (!watched) {
-                            entries.remove();
-                        }
-                    }
+    public long restore(File persistFile, List<File> contentDirs) {
+        return restore(Arrays.asList(persistFile), contentDirs);
+    }
+
+    /**
+     * Restores the state of the ChangedList by replaying a checkpoint
+     * followed by the journals written after it. Records are applied as
+     * they are read, so the backup is never held in memory as a whole.
+     *
+     * @param backupFiles checkpoint file followed by journal files
+     * @param contentDirs content directories currently configured.
+     * @return the time at which the last change in the backup was captured,
+     * or -1 if not known
+     */
+    public synchronized long restore(List<File> backupFiles, List<File> contentDirs) {
+        long backupTime = -1;
+        Map<String, ChangedFile> replayReserved = new LinkedHashMap<>();
+        removeUnreserved();
+
+        for (File backupFile : backupFiles) {
+            log.info("Restoring changed list from backup: {}",
+                     backupFile.getAbsolutePath());
+            try (ChangedListJournal.Reader reader =
+                     new ChangedListJournal.Reader(backupFile)) {
+                if (!reader.readHeader()) {
+                    restoreSerialized(backupFile, contentDirs);
+                    continue;
                 }
 
-                this.fileList = fileListFromDisk;
+                ChangedListJournal.Record record;
+                while ((record = reader.next()) != null) {
+                    backupTime = replay(record, replayReserved, contentDirs, backupTime);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Unable to restore File Changed List:" +
+                                           e.getMessage(), e);
+            }
+        }
+
+        // Files which were reserved but not completed remain to be synced
+        for (ChangedFile changedFile : replayReserved.values()) {
+            enqueue(changedFile);
+        }
+        return backupTime;
+    }
+
+    private long replay(ChangedListJournal.Record record,
+                        Map<String, ChangedFile> replayReserved,
+                        List<File> contentDirs,
+                        long backupTime) {
+        ChangedFile changedFile = record.getChangedFile();
+        switch (record.getType()) {
+            case ChangedListJournal.ADD:
+                if (isWatched(changedFile, contentDirs)) {
+                    enqueue(changedFile);
+                }
+                break;
+            case ChangedListJournal.RESERVE:
+                // Tracked by key, as the file may have been added to disk
+                // rather than to memory
+                String key = getKey(changedFile);
+                ChangedFile reserved = fileList.remove(key);
+                ChangedListSpill currentSpill = spill;
+                if (null == reserved && null != currentSpill) {
+                    currentSpill.remove(key);
+                }
+                replayReserved.put(key, null != reserved ? reserved : changedFile);
+                break;
+            case ChangedListJournal.COMPLETE:
+                replayReserved.remove(getKey(changedFile));
+                break;
+            case ChangedListJournal.CLEAR:
+                removeUnreserved();
+                replayReserved.clear();
+                break;
+            case ChangedListJournal.MARK:
+                return record.getTime();
+            default:
+                break;
+        }
+        return backupTime;
+    }
+
+    /*
+     * Determines if a file is within the content dirs (if any are provided)
+     * and is not excluded
+     */
+    private boolean isWatched(ChangedFile file, List<File> contentDirs) {
+        if (contentDirs == null || contentDirs.isEmpty()) {
+            return true;
+        }
+        for (File contentDir : contentDirs) {
+            if (file.getFile()
+                    .getAbsolutePath()
+                    .startsWith(contentDir.getAbsolutePath()) &&
+                !this.fileExclusionManager.isExcluded(file.getFile())) {
+                return true;
             }
-            oStream.close();
-        } catch (Exception e) {
-            throw new RuntimeException("Unable to restore File Changed List:" +
-                                       e.getMessage(), e);
         }
+        return false;
     }
 
-    public synchronized List<File> peek(int maxFiles) {
+    /*
+     * Restores a backup written as a serialized map, the format used by
+     * versions prior to the introduction of the journal
+     */
+    private void restoreSerialized(File persistFile, List<File> contentDirs)
+        throws IOException, ClassNotFoundException {
+        try (ObjectInputStream oStream =
+                 new ObjectInputStream(new FileInputStream(persistFile))) {
+            LinkedHashMap<String, ChangedFile> fileListFromDisk =
+                (LinkedHashMap<String, ChangedFile>) oStream.readObject();
+            for (ChangedFile changedFile : fileListFromDisk.values()) {
+                if (isWatched(changedFile, contentDirs)) {
+                    enqueue(changedFile);
+                }
+            }
+        }
+    }
+
+    public List<File> peek(int maxFiles) {
         List<File> files = new LinkedList<File>();
-        Iterator<Entry<String, ChangedFile>> it = this.fileList.entrySet().iterator();
-        int count = 0;
-        while (it.hasNext() && count < maxFiles) {
-            files.add(it.next().getValue().getFile());
-            count++;
+        Set<String> peekedKeys = new HashSet<String>();
+        Iterator<String> it = this.fileQueue.iterator();
+        while (it.hasNext() && files.size() < maxFiles) {
+            String key = it.next();
+            ChangedFile changedFile = fileList.get(key);
+            if (null != changedFile && peekedKeys.add(key)) {
+                files.add(changedFile.getFile());
+            }
         }
         return files;
     }
@@ -279,8 +715,10 @@ public class ChangedList implements Serializable {
      *
      * @param changedFile
      */
-    synchronized void remove(ChangedFile changedFile) {
-        this.reservedFiles.remove(getKey(changedFile));
+    void remove(ChangedFile changedFile) {
+        if (null != this.reservedFiles.remove(getKey(changedFile))) {
+            recordChange(ChangedListJournal.Record.complete(changedFile));
+        }
     }
 
     /**
@@ -289,8 +727,11 @@ public class ChangedList implements Serializable {
      *
      * @param changedFile
      */
-    synchronized void unreserve(ChangedFile changedFile) {
+    void unreserve(ChangedFile changedFile) {
         ChangedFile removedFile = this.reservedFiles.remove(getKey(changedFile));
+        if (removedFile != null) {
+            recordChange(ChangedListJournal.Record.complete(removedFile));
+        }
         if (removedFile != null && !this.fileList.containsKey(getKey(removedFile))) {
             addChangedFile(removedFile);
         }
@@ -302,8 +743,16 @@ public class ChangedList implements Serializable {
 
     public void shutdown() {
         executorService.shutdown();
+        setJournal(null);
         shutdown = true;
-        ChangedList.instance = null;
+        wakeWaiters();
+        ChangedListSpill currentSpill = spill;
+        if (null != currentSpill) {
+            currentSpill.clear();
+        }
+        synchronized (ChangedList.class) {
+            ChangedList.instance = null;
+        }
     }
 
 }
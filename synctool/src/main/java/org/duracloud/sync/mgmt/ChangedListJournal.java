@@ -0,0 +1,238 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads and writes the journal format used to back up the ChangedList. A
+ * journal is a sequence of records, each of which adds a file to the list,
+ * reserves a file, marks a reserved file as complete, clears the list, or
+ * marks the time at which the preceding records were captured. A backup
+ * consists of a checkpoint, which adds each file in the list, followed by a
+ * journal of the changes made since the checkpoint. The state of the list is
+ * restored by replaying the records in order.
+ */
+class ChangedListJournal {
+
+    private static final int MAGIC = 0x44434c4a; // "DCLJ"
+    private static final int FORMAT_VERSION = 1;
+
+    static final byte ADD = 1;
+    static final byte RESERVE = 2;
+    static final byte COMPLETE = 3;
+    static final byte CLEAR = 4;
+    static final byte MARK = 5;
+
+    private ChangedListJournal() {
+        // Ensures no instances are made of this class
+    }
+
+    /**
+     * A single journal record
+     */
+    static class Record {
+        private final byte type;
+        private final ChangedFile changedFile;
+        private final long time;
+
+        Record(byte type, ChangedFile changedFile, long time) {
+            this.type = type;
+            this.changedFile = changedFile;
+            this.time = time;
+        }
+
+        static Record add(ChangedFile changedFile) {
+            return new Record(ADD, changedFile, 0);
+        }
+
+        static Record reserve(ChangedFile changedFile) {
+            return new Record(RESERVE, changedFile, 0);
+        }
+
+        static Record complete(ChangedFile changedFile) {
+            return new Record(COMPLETE, changedFile, 0);
+        }
+
+        static Record clear() {
+            return new Record(CLEAR, null, 0);
+        }
+
+        static Record mark(long time) {
+            return new Record(MARK, null, time);
+        }
+
+        byte getType() {
+            return type;
+        }
+
+        ChangedFile getChangedFile() {
+            return changedFile;
+        }
+
+        long getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * Appends records to a journal file. Records are buffered, and are
+     * written to disk as the buffer fills or when sync() or close() is
+     * called. A writer may be used by multiple threads.
+     */
+    static class Writer implements Closeable {
+        private final File journalFile;
+        private final FileOutputStream fileStream;
+        private final DataOutputStream out;
+        private boolean closed = false;
+
+        /**
+         * @param journalFile file to write, a header is written if the file
+         *                    is new or empty
+         * @param append      true to add to the end of an existing file
+         */
+        Writer(File journalFile, boolean append) throws IOException {
+            this.journalFile = journalFile;
+            boolean writeHeader = !append || journalFile.length() == 0;
+            this.fileStream = new FileOutputStream(journalFile, append);
+            this.out = new DataOutputStream(new BufferedOutputStream(fileStream));
+            if (writeHeader) {
+                // Written immediately, so the file is a valid journal
+                // before any records are written to disk
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.flush();
+            }
+        }
+
+        File getFile() {
+            return journalFile;
+        }
+
+        /**
+         * @throws IOException if the record cannot be written or the writer
+         *                     has been closed
+         */
+        synchronized void write(Record record) throws IOException {
+            if (closed) {
+                throw new IOException("Journal has been closed: " + journalFile);
+            }
+            out.writeByte(record.getType());
+            switch (record.getType()) {
+                case ADD:
+                case RESERVE:
+                case COMPLETE:
+                    out.writeInt(record.getChangedFile().getSyncAttempts());
+                    out.writeUTF(record.getChangedFile().getFile().getAbsolutePath());
+                    break;
+                case MARK:
+                    out.writeLong(record.getTime());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Flushes all records written so far to disk
+         */
+        synchronized void sync() throws IOException {
+            if (closed) {
+                throw new IOException("Journal has been closed: " + journalFile);
+            }
+            out.flush();
+            fileStream.getFD().sync();
+        }
+
+        /**
+         * Flushes all records to disk and closes the file
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            try {
+                sync();
+            } finally {
+                closed = true;
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a journal file in order
+     */
+    static class Reader implements Closeable {
+        private final DataInputStream in;
+
+        Reader(File journalFile) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(journalFile)));
+        }
+
+        /**
+         * @return true if the file begins with a journal header
+         */
+        boolean readHeader() throws IOException {
+            try {
+                return in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Reads the next record. A record which was only partially written
+         * (due to the process being stopped) is treated as the end of the
+         * journal.
+         *
+         * @return the next record, or null at the end of the journal
+         */
+        Record next() throws IOException {
+            try {
+                int type = in.read();
+                switch (type) {
+                    case -1:
+                        return null;
+                    case ADD:
+                    case RESERVE:
+                    case COMPLETE:
+                        int syncAttempts = in.readInt();
+                        File file = new File(in.readUTF());
+                        return new Record((byte) type,
+                                          new ChangedFile(file, syncAttempts), 0);
+                    case CLEAR:
+                        return Record.clear();
+                    case MARK:
+                        return Record.mark(in.readLong());
+                    default:
+                        throw new IOException("Invalid journal record type: " + type);
+                }
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+}
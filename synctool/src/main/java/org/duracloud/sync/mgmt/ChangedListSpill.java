@@ -0,0 +1,180 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.mgmt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * An append-only log of changed files which do not fit within the in-memory
+ * window of the ChangedList. Files are appended to the end of the log and
+ * taken from the front, in the order in which they were added. Once every
+ * file in the log has been taken the log file is removed.
+ *
+ * Only the most recent entry for each path is current. The position of the
+ * current entry is held in memory by path, and entries which have been
+ * superseded or removed are skipped as the log is read.
+ */
+class ChangedListSpill {
+
+    private final File spillFile;
+    private final Map<String, Long> current = new ConcurrentHashMap<>();
+    private DataOutputStream writer;
+    private DataInputStream reader;
+    private CountingInputStream readerCount;
+    private long appended = 0;
+    private long read = 0;
+    private long readOffset = 0;
+
+    ChangedListSpill(File spillFile) {
+        this.spillFile = spillFile;
+        // Any previous log is stale, its contents are covered by backups
+        spillFile.delete();
+    }
+
+    /**
+     * Appends a file to the end of the log, superseding any entry already
+     * in the log for the same path
+     */
+    synchronized void append(ChangedFile changedFile) throws IOException {
+        if (null == writer) {
+            writer = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(spillFile, true)));
+        }
+        String path = changedFile.getFile().getAbsolutePath();
+        writer.writeInt(changedFile.getSyncAttempts());
+        writer.writeUTF(path);
+        current.put(path, appended++);
+    }
+
+    /**
+     * Removes the entry for the given path, if there is one in the log
+     *
+     * @return true if the log held an entry for the path
+     */
+    synchronized boolean remove(String path) {
+        boolean removed = null != current.remove(path);
+        if (removed && current.isEmpty()) {
+            clear();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes and returns up to maxFiles files from the front of the log
+     */
+    synchronized List<ChangedFile> take(int maxFiles) throws IOException {
+        List<ChangedFile> files = new ArrayList<>();
+        if (current.isEmpty()) {
+            return files;
+        }
+
+        writer.flush();
+        if (null == reader) {
+            readerCount = new CountingInputStream(openReader(0));
+            reader = new DataInputStream(readerCount);
+        }
+        try {
+            while (read < appended && files.size() < maxFiles) {
+                ChangedFile changedFile = readEntry(reader);
+                String path = changedFile.getFile().getAbsolutePath();
+                if (current.remove(path, read++)) {
+                    files.add(changedFile);
+                }
+            }
+            readOffset = readerCount.getByteCount();
+        } finally {
+            if (current.isEmpty()) {
+                clear();
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Passes each file remaining in the log to the given consumer, without
+     * removing it from the log. Reading starts from the point at which
+     * files were last taken, rather than from the start of the log.
+     */
+    synchronized void forEach(Consumer<ChangedFile> consumer) throws IOException {
+        if (current.isEmpty()) {
+            return;
+        }
+
+        writer.flush();
+        try (DataInputStream in = new DataInputStream(openReader(readOffset))) {
+            for (long entry = read; entry < appended; entry++) {
+                ChangedFile changedFile = readEntry(in);
+                Long position =
+                    current.get(changedFile.getFile().getAbsolutePath());
+                if (null != position && position == entry) {
+                    consumer.accept(changedFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of files in the log
+     */
+    long size() {
+        return current.size();
+    }
+
+    boolean isEmpty() {
+        return current.isEmpty();
+    }
+
+    /**
+     * Removes all files from the log
+     */
+    synchronized void clear() {
+        IOUtils.closeQuietly(writer);
+        IOUtils.closeQuietly(reader);
+        writer = null;
+        reader = null;
+        readerCount = null;
+        current.clear();
+        appended = 0;
+        read = 0;
+        readOffset = 0;
+        spillFile.delete();
+    }
+
+    private BufferedInputStream openReader(long offset) throws IOException {
+        FileInputStream in = new FileInputStream(spillFile);
+        try {
+            in.getChannel().position(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BufferedInputStream(in);
+    }
+
+    private ChangedFile readEntry(DataInputStream in) throws IOException {
+        int syncAttempts = in.readInt();
+        String path = in.readUTF();
+        return new ChangedFile(new File(path), syncAttempts);
+    }
+
+}
@@ -12,17 +12,32 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
-import org.apache.commons.io.IOCase;
-import org.apache.commons.io.filefilter.WildcardFileFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * This class provides a mechanism for clients to determine whether or not
- * a particular file should be ignored.
+ * a particular file should be ignored. A file is ignored if its name, or the
+ * name of any directory above it, matches an exclude rule. Rules are matched
+ * against names without regard to case, and may include the wildcards '*'
+ * (any number of characters) and '?' (a single character).
+ *
+ * Rules are compiled once: rules without wildcards are held in a set of
+ * names, and rules with wildcards are grouped by the first character of the
+ * rule, with each group compiled into a single pattern, so a name is only
+ * tested against the rules which could match it. Whether a directory is
+ * excluded is cached, so the directories above a file are evaluated once
+ * rather than for each file within them.
  *
  * @author Daniel Bernstein
  * @since July 27, 2017
@@ -30,7 +45,14 @@ import org.slf4j.LoggerFactory;
 public class FileExclusionManager {
     private static Logger log = LoggerFactory.getLogger(FileExclusionManager.class);
 
-    private WildcardFileFilter fileFilter;
+    protected static final int MAX_CACHED_DIRS = 100000;
+
+    // Key for rules which begin with a wildcard
+    private static final char WILDCARD_KEY = '*';
+
+    private Set<String> literalRules;
+    private Map<Character, Pattern> wildcardRules;
+    private Map<String, Boolean> dirCache = new ConcurrentHashMap<>();
 
     public FileExclusionManager(File excludeFile) {
         if (excludeFile == null) {
@@ -49,7 +71,66 @@ public class FileExclusionManager {
     }
 
     private void setExcludeList(List<String> excludeList) {
-        fileFilter = new WildcardFileFilter(excludeList, IOCase.INSENSITIVE);
+        Set<String> literals = new HashSet<>();
+        Map<Character, StringBuilder> wildcards = new HashMap<>();
+        for (String rule : excludeList) {
+            if (null == rule || rule.isEmpty()) {
+                continue;
+            }
+            String lowerRule = toLowerCase(rule);
+            if (rule.indexOf('*') < 0 && rule.indexOf('?') < 0) {
+                literals.add(lowerRule);
+                continue;
+            }
+
+            char first = lowerRule.charAt(0);
+            char key = (first == '*' || first == '?') ? WILDCARD_KEY : first;
+            StringBuilder group = wildcards.get(key);
+            if (null == group) {
+                group = new StringBuilder();
+                wildcards.put(key, group);
+            } else {
+                group.append('|');
+            }
+            group.append(toRegex(lowerRule));
+        }
+
+        Map<Character, Pattern> patterns = new HashMap<>();
+        for (Map.Entry<Character, StringBuilder> group : wildcards.entrySet()) {
+            patterns.put(group.getKey(), Pattern.compile(group.getValue().toString(),
+                                                         Pattern.DOTALL));
+        }
+        this.literalRules = literals;
+        this.wildcardRules = patterns;
+        this.dirCache.clear();
+    }
+
+    /*
+     * Converts a wildcard rule to a regular expression, quoting all other
+     * characters
+     */
+    private String toRegex(String rule) {
+        StringBuilder regex = new StringBuilder("(?:");
+        StringBuilder literal = new StringBuilder();
+        for (char c : rule.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.append(')').toString();
+    }
+
+    private String toLowerCase(String value) {
+        return value.toLowerCase(Locale.ENGLISH);
     }
 
     private List<String> readExcludeFile(File excludeFile) {
@@ -59,8 +140,10 @@ public class FileExclusionManager {
             String excludeItem = excludeReader.readLine();
             while (excludeItem != null) {
                 String excludedItemTrimmed = excludeItem.trim();
-                excludeList.add(excludedItemTrimmed);
-                log.info("Added rule from exclude list: {}", excludedItemTrimmed);
+                if (!excludedItemTrimmed.isEmpty()) {
+                    excludeList.add(excludedItemTrimmed);
+                    log.info("Added rule from exclude list: {}", excludedItemTrimmed);
+                }
                 excludeItem = excludeReader.readLine();
             }
         } catch (IOException e) {
@@ -72,16 +155,60 @@ public class FileExclusionManager {
     }
 
     public boolean isExcluded(File file) {
-        if (null != fileFilter) {
-            do {
-                if (fileFilter.accept(file)) {
-                    log.info("{} matched one or more exclude rules: excluding...",
-                             file.getAbsolutePath());
-                    return true;
-                }
-                file = file.getParentFile();
-            } while (file != null);
+        if (literalRules.isEmpty() && wildcardRules.isEmpty()) {
+            return false;
+        }
+        if (isNameExcluded(file.getName()) ||
+            isDirExcluded(file.getParentFile())) {
+            log.info("{} matched one or more exclude rules: excluding...",
+                     file.getAbsolutePath());
+            return true;
         }
         return false;
     }
+
+    /**
+     * Determines whether the name of the file matches an exclude rule,
+     * without considering the directories above it. This is sufficient for
+     * a file whose parent directory is known not to be excluded.
+     *
+     * @param file the file to check
+     * @return true if the file name matches one or more exclude rules
+     */
+    public boolean isNameExcluded(File file) {
+        return isNameExcluded(file.getName());
+    }
+
+    private boolean isDirExcluded(File dir) {
+        if (null == dir) {
+            return false;
+        }
+        String path = dir.getPath();
+        Boolean excluded = dirCache.get(path);
+        if (null == excluded) {
+            excluded = isNameExcluded(dir.getName()) ||
+                       isDirExcluded(dir.getParentFile());
+            if (dirCache.size() >= MAX_CACHED_DIRS) {
+                dirCache.clear();
+            }
+            dirCache.put(path, excluded);
+        }
+        return excluded;
+    }
+
+    private boolean isNameExcluded(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        String lowerName = toLowerCase(name);
+        if (literalRules.contains(lowerName)) {
+            return true;
+        }
+        return matches(wildcardRules.get(lowerName.charAt(0)), lowerName) ||
+               matches(wildcardRules.get(WILDCARD_KEY), lowerName);
+    }
+
+    private boolean matches(Pattern pattern, String name) {
+        return null != pattern && pattern.matcher(name).matches();
+    }
 }
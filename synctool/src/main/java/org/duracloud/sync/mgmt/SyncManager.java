@@ -10,13 +10,17 @@ package org.duracloud.sync.mgmt;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.sync.endpoint.MonitoredFile;
 import org.duracloud.sync.endpoint.SyncEndpoint;
 import org.slf4j.Logger;
@@ -26,6 +30,10 @@ import org.slf4j.LoggerFactory;
  * The SyncManager is responsible to watch for new entries in the ChangedList
  * and make sure those changes are pushed to the SyncEndpoint.
  *
+ * A changed file is handed to a SyncWorker once one of the worker threads is
+ * free, so at most one file per thread is in transfer at any time. Workers in
+ * progress are tracked by file path, and are removed as they complete.
+ *
  * @author: Bill Branan
  * Date: Mar 15, 2010
  */
@@ -38,7 +46,9 @@ public class SyncManager implements ChangeHandler {
     private SyncEndpoint endpoint;
     private ExecutorService watcherPool;
     private ThreadPoolExecutor workerPool;
-    private ArrayList<SyncWorker> workerList;
+    private Semaphore workerPermits;
+    private Map<String, SyncWorker> workers;
+    private ChecksumCache checksumCache;
 
     /**
      * Creates a SyncManager which, when started, will watch for updates to
@@ -52,24 +62,45 @@ public class SyncManager implements ChangeHandler {
                        SyncEndpoint endpoint,
                        int threads,
                        long frequency) {
+        this(watchDirs, endpoint, threads, frequency, null);
+    }
+
+    /**
+     * Creates a SyncManager which, when started, will watch for updates to
+     * the ChangedList and kick off SyncWorkers to handle any changed files.
+     *
+     * @param endpoint
+     * @param threads
+     * @param frequency
+     * @param checksumCache cache used to avoid recomputing the checksums of
+     *                      unchanged local files, may be null
+     */
+    public SyncManager(List<File> watchDirs,
+                       SyncEndpoint endpoint,
+                       int threads,
+                       long frequency,
+                       ChecksumCache checksumCache) {
         logger.info("Starting Sync Manager with " + threads + " threads");
         this.watchDirs = watchDirs;
         this.endpoint = endpoint;
+        this.checksumCache = checksumCache;
         changeWatcher = new ChangeWatcher(ChangedList.getInstance(),
                                           this,
                                           frequency);
 
         // Create thread pool for changeWatcher
         watcherPool = Executors.newFixedThreadPool(1);
-        // Create thread pool for workers
+        // Create thread pool for workers. The number of workers submitted is
+        // limited by the permits, so tasks are never queued for long.
         workerPool =
             new ThreadPoolExecutor(threads,
                                    threads,
                                    Long.MAX_VALUE,
                                    TimeUnit.NANOSECONDS,
-                                   new SynchronousQueue(),
+                                   new LinkedBlockingQueue<Runnable>(),
                                    new ThreadPoolExecutor.AbortPolicy());
-        workerList = new ArrayList<SyncWorker>();
+        workerPermits = new Semaphore(threads);
+        workers = new ConcurrentHashMap<>();
     }
 
     /**
@@ -98,25 +129,48 @@ public class SyncManager implements ChangeHandler {
     }
 
     /**
-     * Notifies the SyncManager that a file has changed
+     * Notifies the SyncManager that a file has changed. Waits for a worker
+     * thread to become available if all are busy.
      *
      * @param changedFile the changed file
      * @returns true if file accepted for processing, false otherwise
      */
-    public synchronized boolean handleChangedFile(ChangedFile changedFile) {
+    public boolean handleChangedFile(ChangedFile changedFile) {
+        try {
+            workerPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
         File watchDir = getWatchDir(changedFile.getFile());
-        SyncWorker worker = new SyncWorker(changedFile, watchDir, endpoint);
+        SyncWorker worker =
+            new SyncWorker(changedFile, watchDir, endpoint, checksumCache);
+        String path = worker.getMonitoredFile().getAbsolutePath();
 
+        // Replaces any earlier worker for the same file
+        workers.put(path, worker);
         try {
-            addToWorkerList(worker);
-            workerPool.execute(worker);
+            workerPool.execute(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    workerComplete(path, worker);
+                }
+            });
             return true;
         } catch (RejectedExecutionException e) {
-            workerList.remove(worker);
+            // The sync has been ended
+            workerComplete(path, worker);
             return false;
         }
     }
 
+    private void workerComplete(String path, SyncWorker worker) {
+        workers.remove(path, worker);
+        workerPermits.release();
+    }
+
     /*
      * Determines which of the watched directories includes the changed file.
      * Returns null if the file is not included in any watch directories.
@@ -135,32 +189,9 @@ public class SyncManager implements ChangeHandler {
         return null;
     }
 
-    private void addToWorkerList(SyncWorker workerToAdd) {
-        cleanWorkerList();
-        for (int i = 0; i < workerList.size(); i++) {
-            SyncWorker worker = workerList.get(i);
-            if (worker.getMonitoredFile().getAbsolutePath().equals(
-                workerToAdd.getMonitoredFile().getAbsolutePath())) {
-                workerList.remove(i);
-            }
-        }
-        workerList.add(workerToAdd);
-    }
-
-    private void cleanWorkerList() {
-        for (int i = 0; i < workerList.size(); i++) {
-            SyncWorker worker = workerList.get(i);
-            if (worker.isComplete()) {
-                workerList.remove(i);
-            }
-        }
-    }
-
-    public synchronized List<MonitoredFile> getFilesInTransfer() {
-        cleanWorkerList();
+    public List<MonitoredFile> getFilesInTransfer() {
         List<MonitoredFile> monitoredFiles = new ArrayList<MonitoredFile>();
-        List<SyncWorker> workers = new ArrayList<>(workerList);
-        for (SyncWorker worker : workers) {
+        for (SyncWorker worker : workers.values()) {
             monitoredFiles.add(worker.getMonitoredFile());
         }
         return monitoredFiles;
@@ -9,8 +9,12 @@ package org.duracloud.sync.monitor;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.apache.commons.io.monitor.FileAlterationListener;
 import org.apache.commons.io.monitor.FileAlterationMonitor;
 import org.apache.commons.io.monitor.FileAlterationObserver;
 import org.duracloud.sync.mgmt.SyncManager;
@@ -20,6 +24,13 @@ import org.slf4j.LoggerFactory;
 /**
  * Monitors of local file system directories for changes.
  *
+ * By default each directory is polled for changes, which requires that a
+ * snapshot of each directory tree be held in memory. When native watching
+ * is selected, directories are instead watched using notifications from the
+ * file system (see DirectoryWatcher); a directory tree which cannot be
+ * watched this way is polled, as is any directory created later which
+ * cannot be watched.
+ *
  * @author: Bill Branan
  * Date: Mar 12, 2010
  */
@@ -28,6 +39,8 @@ public class DirectoryUpdateMonitor {
     private final Logger logger = LoggerFactory.getLogger(SyncManager.class);
 
     private FileAlterationMonitor monitor;
+    private List<DirectoryWatcher> watchers = new ArrayList<>();
+    private boolean syncDeletes;
 
     /**
      * Creates a directory update monitor which, when started, will notify
@@ -39,10 +52,41 @@ public class DirectoryUpdateMonitor {
     public DirectoryUpdateMonitor(List<File> directories,
                                   long pollFrequency,
                                   boolean syncDeletes) {
+        this(directories, pollFrequency, syncDeletes, false);
+    }
+
+    /**
+     * Creates a directory update monitor which, when started, will notify
+     * on changes within the given directories.
+     *
+     * @param directories   to monitor
+     * @param pollFrequency how often the monitor should look for changes
+     * @param syncDeletes   whether deleted files are reported
+     * @param nativeWatch   true if directories should be watched using file
+     *                      system notifications rather than polled
+     */
+    public DirectoryUpdateMonitor(List<File> directories,
+                                  long pollFrequency,
+                                  boolean syncDeletes,
+                                  boolean nativeWatch) {
         monitor = new FileAlterationMonitor(pollFrequency);
+        this.syncDeletes = syncDeletes;
 
         for (File watchDir : directories) {
             if (watchDir.exists()) {
+                if (nativeWatch) {
+                    try {
+                        watchers.add(createWatcher(watchDir,
+                                                   new DirectoryListener(syncDeletes),
+                                                   this::pollDirectory));
+                        continue;
+                    } catch (IOException e) {
+                        logger.warn("Unable to watch " + watchDir.getAbsolutePath() +
+                                    " for changes, it will be polled instead: " +
+                                    e.getMessage());
+                    }
+                }
+
                 FileAlterationObserver observer;
                 if (watchDir.isDirectory()) {
                     observer =
@@ -67,11 +111,43 @@ public class DirectoryUpdateMonitor {
         }
     }
 
+    /**
+     * Creates a watcher which uses file system notifications.
+     *
+     * @param watchDir              directory tree, or single file, to watch
+     * @param listener              listener to notify of changes
+     * @param unwatchableDirHandler receives directories created later which
+     *                              cannot be watched
+     * @return the watcher
+     * @throws IOException if the directory tree cannot be watched
+     */
+    protected DirectoryWatcher createWatcher(File watchDir,
+                                             FileAlterationListener listener,
+                                             Consumer<File> unwatchableDirHandler)
+        throws IOException {
+        return new DirectoryWatcher(watchDir, listener, unwatchableDirHandler);
+    }
+
+    /*
+     * Polls a directory which could not be watched using file system
+     * notifications. The observer is not initialized, so the files already
+     * in the directory are reported as created on the first poll, as they
+     * may have been added before polling began.
+     */
+    private void pollDirectory(File dir) {
+        FileAlterationObserver observer = new FileAlterationObserver(dir);
+        observer.addListener(new DirectoryListener(syncDeletes));
+        monitor.addObserver(observer);
+    }
+
     /**
      * Starts the monitor watching for updates.
      */
     public void startMonitor() {
         logger.info("Starting Directory Update Monitor");
+        for (DirectoryWatcher watcher : watchers) {
+            watcher.start();
+        }
         try {
             monitor.start();
         } catch (IllegalStateException e) {
@@ -86,6 +162,9 @@ public class DirectoryUpdateMonitor {
      */
     public void stopMonitor() {
         logger.info("Stopping Directory Update Monitor");
+        for (DirectoryWatcher watcher : watchers) {
+            watcher.stop();
+        }
         try {
             monitor.stop();
         } catch (IllegalStateException e) {
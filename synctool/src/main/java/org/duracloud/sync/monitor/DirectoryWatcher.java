@@ -0,0 +1,328 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.monitor;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.monitor.FileAlterationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a directory tree (or a single file) for changes using the file
+ * system's native notification mechanism (inotify on Linux), passing each
+ * change to a FileAlterationListener. Unlike a FileAlterationObserver, this
+ * does not hold a snapshot of the tree or re-read it periodically; only the
+ * watched directories are held in memory.
+ *
+ * Each directory in the tree is registered separately, and directories
+ * which are created are registered as they appear, with the files already
+ * in them reported as created. If notifications for a directory are lost
+ * because too many changes occurred at once, the files in that directory
+ * are reported as changed.
+ *
+ * If any directory in the tree cannot be registered when the watcher is
+ * created, the watcher is not created. A directory created later which
+ * cannot be registered (for instance, because the limit on the number of
+ * watches has been reached) is passed, along with the tree below it, to a
+ * handler which can watch it by other means.
+ *
+ * Files within a directory which is moved out of the tree are not reported
+ * as deleted, as their names are not known. The delete checker removes
+ * them on its next run.
+ */
+public class DirectoryWatcher {
+
+    private final Logger logger = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    private final Path watchPath;
+    private final Path watchFile;
+    private final FileAlterationListener listener;
+    private final WatchService watchService;
+    private final Consumer<File> unwatchableDirHandler;
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+    private Thread watchThread;
+
+    /**
+     * Creates a watcher and registers the watched directory tree. Changes in
+     * directories created later which cannot be watched are not reported.
+     *
+     * @param watchDir directory tree, or single file, to watch
+     * @param listener listener to notify of changes
+     * @throws IOException if the directory, or any directory within it,
+     *                     cannot be watched
+     */
+    public DirectoryWatcher(File watchDir, FileAlterationListener listener)
+        throws IOException {
+        this(watchDir, listener, null);
+    }
+
+    /**
+     * Creates a watcher and registers the watched directory tree.
+     *
+     * @param watchDir              directory tree, or single file, to watch
+     * @param listener              listener to notify of changes
+     * @param unwatchableDirHandler receives each directory created after
+     *                              the watcher starts which cannot be
+     *                              watched, may be null
+     * @throws IOException if the directory, or any directory within it,
+     *                     cannot be watched
+     */
+    public DirectoryWatcher(File watchDir,
+                            FileAlterationListener listener,
+                            Consumer<File> unwatchableDirHandler)
+        throws IOException {
+        this.listener = listener;
+        this.unwatchableDirHandler = unwatchableDirHandler;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        Path path = watchDir.getAbsoluteFile().toPath();
+        try {
+            if (Files.isDirectory(path)) {
+                this.watchPath = path;
+                this.watchFile = null;
+                register(path);
+                registerContents(path, false);
+            } else {
+                // A single file is watched through its parent directory
+                this.watchPath = path.getParent();
+                this.watchFile = path.getFileName();
+                register(watchPath);
+            }
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts passing changes to the listener.
+     */
+    public synchronized void start() {
+        if (null == watchThread) {
+            watchThread = new Thread(this::processEvents,
+                                     "directory-watcher-" + watchPath.getFileName());
+            watchThread.setDaemon(true);
+            watchThread.start();
+        }
+    }
+
+    /**
+     * Stops watching, no further changes are passed to the listener.
+     */
+    public synchronized void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Error closing watch service for " + watchPath +
+                        ": " + e.getMessage());
+        }
+        watchThread = null;
+    }
+
+    /**
+     * @return the number of directories being watched
+     */
+    public int getWatchedDirCount() {
+        return watchedDirs.size();
+    }
+
+    private void processEvents() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = watchedDirs.get(key);
+                if (null != dir) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        try {
+                            handleEvent(dir, event);
+                        } catch (RuntimeException e) {
+                            logger.error("Error handling change in " + dir +
+                                         ": " + e.getMessage(), e);
+                        }
+                    }
+                }
+                if (!key.reset() && null != dir) {
+                    // The directory is no longer accessible
+                    watchedDirs.remove(key);
+                    watchKeys.remove(dir, key);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Watcher stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleEvent(Path dir, WatchEvent<?> event) {
+        WatchEvent.Kind<?> kind = event.kind();
+        if (kind == OVERFLOW) {
+            logger.warn("Changes in {} were not all reported, rescanning " +
+                        "the directory", dir);
+            rescan(dir);
+            return;
+        }
+
+        Path name = (Path) event.context();
+        if (null != watchFile && !watchFile.equals(name)) {
+            return;
+        }
+        Path path = dir.resolve(name);
+
+        if (kind == ENTRY_DELETE) {
+            if (!unregisterTree(path)) {
+                listener.onFileDelete(path.toFile());
+            }
+        } else if (Files.isDirectory(path)) {
+            if (kind == ENTRY_CREATE && null == watchFile) {
+                watchNewTree(path);
+            }
+        } else if (kind == ENTRY_CREATE) {
+            listener.onFileCreate(path.toFile());
+        } else if (kind == ENTRY_MODIFY) {
+            listener.onFileChange(path.toFile());
+        }
+    }
+
+    /*
+     * Reports each file in a directory as changed, and registers any
+     * subdirectories which are not already watched
+     */
+    private void rescan(Path dir) {
+        if (null != watchFile) {
+            Path path = dir.resolve(watchFile);
+            if (Files.exists(path)) {
+                listener.onFileChange(path.toFile());
+            }
+            return;
+        }
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                if (!Files.isDirectory(entry)) {
+                    listener.onFileChange(entry.toFile());
+                } else if (!watchKeys.containsKey(entry)) {
+                    watchNewTree(entry);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to rescan directory " + dir + ": " +
+                        e.getMessage());
+        }
+    }
+
+    /*
+     * Registers a directory which appeared after the watcher was created,
+     * along with the directories below it, reporting the files found as
+     * created. If any directory cannot be registered, none of the tree is
+     * watched and it is passed to the handler for unwatchable directories.
+     */
+    private void watchNewTree(Path dir) {
+        try {
+            registerTree(dir, true);
+        } catch (IOException e) {
+            unregisterTree(dir);
+            if (null != unwatchableDirHandler) {
+                logger.warn("Unable to watch directory " + dir + ", it will " +
+                            "be watched by other means: " + e.getMessage());
+                unwatchableDirHandler.accept(dir.toFile());
+            } else {
+                logger.error("Unable to watch directory " + dir + ", changes " +
+                             "within it will not be synced until the next " +
+                             "restart: " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Registers a directory and all directories below it. When reportFiles
+     * is true, the files found are reported as created, as they may have
+     * been added before the directory was registered.
+     */
+    private void registerTree(Path dir, boolean reportFiles) throws IOException {
+        register(dir);
+        registerContents(dir, reportFiles);
+    }
+
+    private void registerContents(Path dir, boolean reportFiles) throws IOException {
+        DirectoryStream<Path> entries;
+        try {
+            entries = Files.newDirectoryStream(dir);
+        } catch (IOException e) {
+            logger.warn("Unable to list directory " + dir + ": " +
+                        e.getMessage());
+            return;
+        }
+        try {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry)) {
+                    registerTree(entry, reportFiles);
+                } else if (reportFiles) {
+                    listener.onFileCreate(entry.toFile());
+                }
+            }
+        } finally {
+            entries.close();
+        }
+    }
+
+    /**
+     * Registers a single directory with the watch service.
+     *
+     * @param dir directory to register
+     * @throws IOException if the directory cannot be registered
+     */
+    protected void register(Path dir) throws IOException {
+        WatchKey key = dir.register(watchService,
+                                    ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        watchedDirs.put(key, dir);
+        watchKeys.put(dir, key);
+    }
+
+    /*
+     * Stops watching a directory and all directories below it, returns
+     * false if the path was not a watched directory
+     */
+    private boolean unregisterTree(Path dir) {
+        if (!watchKeys.containsKey(dir)) {
+            return false;
+        }
+        Iterator<Map.Entry<Path, WatchKey>> entries =
+            watchKeys.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = entries.next();
+            if (entry.getKey().startsWith(dir)) {
+                entry.getValue().cancel();
+                watchedDirs.remove(entry.getValue());
+                entries.remove();
+            }
+        }
+        return true;
+    }
+
+}
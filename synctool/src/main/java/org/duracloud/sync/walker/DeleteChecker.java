@@ -7,9 +7,23 @@
  */
 package org.duracloud.sync.walker;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.duracloud.common.retry.Retriable;
 import org.duracloud.common.retry.Retrier;
@@ -26,13 +40,22 @@ public class DeleteChecker implements Runnable {
     private final Logger logger =
         LoggerFactory.getLogger(DeleteChecker.class);
 
+    public static final int DEFAULT_DELETE_THREADS = 4;
+    public static final int DEFAULT_MAX_DELETES_PER_SECOND = 20;
+
     private SyncEndpoint syncEndpoint;
     private String spaceId;
     private Iterator<String> filesList;
     private List<File> syncDirs;
-    private boolean complete = false;
-    private boolean stopped = false;
+    private volatile boolean complete = false;
+    private volatile boolean stopped = false;
     private String prefix;
+    private int deleteThreads = DEFAULT_DELETE_THREADS;
+    private int maxDeletesPerSecond = DEFAULT_MAX_DELETES_PER_SECOND;
+    private boolean dryRun = false;
+
+    private volatile long deleteCount = -1;
+    private AtomicLong deletedCount = new AtomicLong();
 
     /**
      * Creates a delete checker
@@ -52,6 +75,33 @@ public class DeleteChecker implements Runnable {
         this.filesList = syncEndpoint.getFilesList();
     }
 
+    /**
+     * Sets the number of content items which are deleted in parallel
+     */
+    public void setDeleteThreads(int deleteThreads) {
+        if (deleteThreads < 1) {
+            throw new IllegalArgumentException("deleteThreads must be positive");
+        }
+        this.deleteThreads = deleteThreads;
+    }
+
+    /**
+     * Sets the maximum rate at which content items are deleted
+     */
+    public void setMaxDeletesPerSecond(int maxDeletesPerSecond) {
+        if (maxDeletesPerSecond < 1) {
+            throw new IllegalArgumentException("maxDeletesPerSecond must be positive");
+        }
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+    }
+
+    /**
+     * When set, the items to be deleted are counted but not deleted
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
     /**
      * Checks each item in the list of files stored at the endpoint (relative
      * file paths) against each sync directory to see if there is a matching
@@ -60,6 +110,13 @@ public class DeleteChecker implements Runnable {
      * (i.e. the source file has been deleted.) Each file of this type is
      * removed from the endpoint.
      *
+     * The files in the sync directories are listed in sorted order and merged
+     * with the list of files in the endpoint, which is expected to be sorted,
+     * rather than checking for each file on disk. Files in the endpoint list
+     * which are out of order are checked on disk individually. The number of
+     * files to be removed is logged before any are removed; they are then
+     * removed in parallel at a bounded rate.
+     *
      * Note that if a prefix is used, all files in the endpoint that do not
      * have the prefix will be removed (as they cannot be consistent with
      * what the content ID will be for files pushed up with the prefix.)
@@ -67,37 +124,148 @@ public class DeleteChecker implements Runnable {
     public void run() {
         logger.info("Running Delete Checker");
 
-        while (filesList.hasNext() && !stopped) {
-            String contentId = filesList.next();
-            if (null != prefix) { // A prefix is being used
-                if (contentId.startsWith(prefix)) {
-                    if (!exists(contentId.substring(prefix.length()))) {
-                        deleteContent(contentId);
+        File deletesFile = null;
+        try {
+            deletesFile = File.createTempFile("delete-checker", ".ids");
+            deleteCount = findDeletes(deletesFile);
+            logger.info("Delete Checker found {} content items in space {} " +
+                        "which no longer exist locally{}", deleteCount, spaceId,
+                        dryRun ? " (dry run, nothing will be deleted)" : "");
+            if (!stopped && !dryRun && deleteCount > 0) {
+                deleteAll(deletesFile);
+            }
+        } catch (IOException e) {
+            logger.error("Delete Checker failed due to: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (null != deletesFile) {
+                deletesFile.delete();
+            }
+        }
+        complete = true;
+    }
+
+    /*
+     * Merges the endpoint list with the sorted local listing, writing the
+     * content ID of each item to be deleted to the given file
+     *
+     * @return the number of items to be deleted
+     */
+    private long findDeletes(File deletesFile) throws IOException {
+        long count = 0;
+        LocalFiles localFiles = new LocalFiles();
+        String lastChecked = null;
+
+        try (DataOutputStream deletes = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(deletesFile)))) {
+            while (filesList.hasNext() && !stopped) {
+                String contentId = filesList.next();
+                boolean delete;
+                if (null != prefix) { // A prefix is being used
+                    if (contentId.startsWith(prefix)) {
+                        String fileToCheck = contentId.substring(prefix.length());
+                        delete = !exists(fileToCheck, localFiles, lastChecked);
+                        lastChecked = max(lastChecked, fileToCheck);
+                    } else { // Content Id does not start with prefix
+                        delete = true;
                     }
-                } else { // Content Id does not start with prefix
-                    deleteContent(contentId);
+                } else { // A prefix is not being used
+                    delete = !exists(contentId, localFiles, lastChecked);
+                    lastChecked = max(lastChecked, contentId);
                 }
-            } else { // A prefix is not being used
-                if (!exists(contentId)) {
-                    deleteContent(contentId);
+
+                if (delete) {
+                    deletes.writeUTF(contentId);
+                    count++;
                 }
             }
         }
-        complete = true;
+        return count;
     }
 
-    private boolean exists(String fileToCheck) {
-        boolean exists = false;
-        for (File syncDir : syncDirs) {
-            if (new File(syncDir, fileToCheck).exists()) {
-                exists = true;
-            }
+    private String max(String current, String fileToCheck) {
+        return (null == current || fileToCheck.compareTo(current) > 0) ?
+               fileToCheck : current;
+    }
+
+    /*
+     * Determines if a file exists locally. Files which are checked in order
+     * are found by advancing through the local listing, any others are
+     * checked on disk.
+     */
+    private boolean exists(String fileToCheck,
+                           LocalFiles localFiles,
+                           String lastChecked) {
+        boolean exists;
+        if (null != lastChecked && fileToCheck.compareTo(lastChecked) < 0) {
+            exists = existsOnDisk(fileToCheck);
+        } else {
+            // Files which are not listed (or were added since) are confirmed
+            // on disk, which also matches directories
+            exists = localFiles.advanceTo(fileToCheck) ||
+                     existsOnDisk(fileToCheck);
         }
         logger.debug("Delete check on file: " + fileToCheck +
                      ". File exists: " + exists);
         return exists;
     }
 
+    private boolean existsOnDisk(String fileToCheck) {
+        for (File syncDir : syncDirs) {
+            if (syncDir.isFile() ? syncDir.getName().equals(fileToCheck) :
+                new File(syncDir, fileToCheck).exists()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Deletes the items listed in the given file, in parallel, at no more
+     * than the maximum rate
+     */
+    private void deleteAll(File deletesFile)
+        throws IOException, InterruptedException {
+        ExecutorService deletePool = Executors.newFixedThreadPool(deleteThreads);
+        Semaphore pending = new Semaphore(deleteThreads * 2);
+        long interval = TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond;
+        long nextDelete = System.nanoTime();
+
+        try (DataInputStream deletes = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(deletesFile)))) {
+            while (!stopped) {
+                String contentId;
+                try {
+                    contentId = deletes.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                long wait = nextDelete - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                nextDelete = Math.max(nextDelete, System.nanoTime() - interval) +
+                             interval;
+
+                pending.acquire();
+                deletePool.execute(() -> {
+                    try {
+                        deleteContent(contentId);
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        } finally {
+            deletePool.shutdown();
+            deletePool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        logger.info("Delete Checker deleted {} content items from space {}",
+                    deletedCount.get(), spaceId);
+    }
+
     private void deleteContent(final String contentId) {
         try {
             new Retrier().execute(new Retriable() {
@@ -108,6 +276,7 @@ public class DeleteChecker implements Runnable {
                     return "success";
                 }
             });
+            deletedCount.incrementAndGet();
         } catch (Exception e) {
             logger.error("Failed to delete content item: " + contentId +
                          " from space: " + spaceId + " due to: " +
@@ -119,10 +288,61 @@ public class DeleteChecker implements Runnable {
         return complete;
     }
 
+    /**
+     * @return the number of content items found to be deleted, or -1 if the
+     * check has not yet determined this
+     */
+    public long getDeleteCount() {
+        return deleteCount;
+    }
+
+    /**
+     * @return the number of content items which have been deleted
+     */
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
     public void stop() {
         this.stopped = true;
     }
 
+    /*
+     * The files in all sync directories, in sorted order
+     */
+    private class LocalFiles {
+        private final List<SortedFileIterator> iterators = new ArrayList<>();
+        private final List<String> heads = new ArrayList<>();
+
+        LocalFiles() {
+            for (File syncDir : syncDirs) {
+                SortedFileIterator iterator = new SortedFileIterator(syncDir);
+                iterators.add(iterator);
+                heads.add(iterator.hasNext() ? iterator.next() : null);
+            }
+        }
+
+        /*
+         * Skips past the files which sort before the given file, returns
+         * true if the given file is next in any sync directory
+         */
+        boolean advanceTo(String fileToCheck) {
+            boolean found = false;
+            for (int i = 0; i < iterators.size(); i++) {
+                SortedFileIterator iterator = iterators.get(i);
+                String head = heads.get(i);
+                while (null != head && head.compareTo(fileToCheck) < 0) {
+                    head = iterator.hasNext() ? iterator.next() : null;
+                }
+                heads.set(i, head);
+                if (fileToCheck.equals(head)) {
+                    found = true;
+                }
+            }
+            return found;
+        }
+    }
+
     public static DeleteChecker start(SyncEndpoint syncEndpoint,
                                       String spaceId,
                                       List<File> syncDirs,
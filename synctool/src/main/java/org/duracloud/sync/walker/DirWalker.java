@@ -9,11 +9,16 @@ package org.duracloud.sync.walker;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.io.DirectoryWalker;
 import org.duracloud.sync.mgmt.ChangedList;
 import org.duracloud.sync.mgmt.FileExclusionManager;
 import org.slf4j.Logger;
@@ -25,28 +30,53 @@ import org.slf4j.LoggerFactory;
  * directories will also be added to the changed file list. This is the
  * starting point for synchronization.
  *
+ * Each directory tree is walked by a fork-join pool, with each directory
+ * listed as a separate task, so that a number of directories are read in
+ * parallel. Files are added to the changed list as they are found. The
+ * attributes of each entry are read with a single call, and files and
+ * directories which match an exclude rule are skipped, so excluded
+ * directories are not descended into.
+ *
  * @author: Bill Branan
  * Date: Mar 17, 2010
  */
-public class DirWalker extends DirectoryWalker implements Runnable {
+public class DirWalker implements Runnable {
 
     private final Logger logger = LoggerFactory.getLogger(DirWalker.class);
 
+    public static final int DEFAULT_THREADS = 4;
+
     private static DirWalker dirWalker;
-    private boolean continueWalk;
+    private volatile boolean continueWalk;
 
     private List<File> filesAndDirs;
+    private int threads;
 
     protected final ChangedList changedList;
-    private int files = 0;
-    private boolean complete = false;
+    private AtomicInteger files = new AtomicInteger();
+    private volatile boolean complete = false;
     protected FileExclusionManager fileExclusionManager;
 
     protected DirWalker(List<File> filesAndDirs, FileExclusionManager fileExclusionManager) {
-        super();
+        this(filesAndDirs, fileExclusionManager, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param filesAndDirs         files and directory trees to walk
+     * @param fileExclusionManager determines which files are skipped
+     * @param threads              number of directories in each tree which
+     *                             are read in parallel
+     */
+    protected DirWalker(List<File> filesAndDirs,
+                        FileExclusionManager fileExclusionManager,
+                        int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
         this.filesAndDirs = filesAndDirs;
         this.changedList = ChangedList.getInstance();
         this.fileExclusionManager = fileExclusionManager;
+        this.threads = threads;
     }
 
     public void run() {
@@ -57,36 +87,34 @@ public class DirWalker extends DirectoryWalker implements Runnable {
         continueWalk = false;
     }
 
+    protected int getThreads() {
+        return threads;
+    }
+
     protected void walkDirs() {
+        ForkJoinPool pool = new ForkJoinPool(threads);
         try {
             continueWalk = true;
             for (File item : filesAndDirs) {
-                if (null != item && item.exists() && continueWalk) {
-
-                    if (item.isDirectory()) { // Directory
-                        try {
-                            List results = new ArrayList();
-                            walk(item, results);
-                        } catch (IOException e) {
-                            throw new RuntimeException("Error walking directory " +
-                                                       item.getAbsolutePath() + ":" + e.getMessage(), e);
-                        }
-                    } else { // File
-                        handleFile(item, 0, null);
-                    }
-                } else {
+                if (!continueWalk) {
+                    logger.info("Walk discontinued. Exiting walkDirs routine...");
+                    break;
+                }
+
+                BasicFileAttributes attributes = readAttributes(item);
+                if (null == attributes) {
                     String filename = "null";
                     if (item != null) {
                         filename = item.getAbsolutePath();
                     }
-
-                    if (!continueWalk) {
-                        logger.info("Walk discontinued. Exiting walkDirs routine...");
-                        break;
-                    }
-
                     logger.warn("Skipping " + filename +
                                 ", as it does not exist");
+                } else if (attributes.isDirectory()) { // Directory
+                    if (handleDirectory(item, attributes, 0)) {
+                        pool.invoke(new DirTask(item, 0));
+                    }
+                } else { // File
+                    handleFile(item, attributes);
                 }
             }
             logger.info("Found " + files +
@@ -94,39 +122,121 @@ public class DirWalker extends DirectoryWalker implements Runnable {
 
         } catch (Exception e) {
             logger.error("dir walker failed: " + e.getMessage(), e);
+        } finally {
+            pool.shutdown();
         }
 
         complete = true;
     }
 
-    @Override
+    /*
+     * Reads the attributes of a file, following links, returns null if the
+     * file does not exist or cannot be read
+     */
+    private BasicFileAttributes readAttributes(File file) {
+        if (null == file) {
+            return null;
+        }
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Called for each directory found in the walk. May be called from
+     * multiple threads at once.
+     *
+     * @param directory  the directory
+     * @param attributes attributes of the directory
+     * @param depth      depth of the directory below the top of the tree
+     * @return true if the contents of the directory should be walked
+     */
     protected boolean handleDirectory(File directory,
-                                      int depth,
-                                      Collection results)
-        throws IOException {
-        return !this.fileExclusionManager.isExcluded(directory);
+                                      BasicFileAttributes attributes,
+                                      int depth) {
+        // Directories below the top are filtered from their parent listing
+        return depth > 0 || !this.fileExclusionManager.isExcluded(directory);
     }
 
-    @Override
-    protected void handleFile(File file, int depth, Collection results) {
+    /**
+     * Called for each file found in the walk. May be called from multiple
+     * threads at once.
+     *
+     * @param file       the file
+     * @param attributes attributes of the file
+     */
+    protected void handleFile(File file, BasicFileAttributes attributes) {
         if (null == file) {
             logger.warn("The file parameter is unexpectedly null. Ignoring...");
         } else if (!this.fileExclusionManager.isExcluded(file)) {
             if (changedList.addChangedFile(file)) {
-                ++files;
+                files.incrementAndGet();
             }
         }
     }
 
-    @Override
-    protected boolean handleIsCancelled(File file,
-                                        int depth,
-                                        Collection results) throws IOException {
-        return !continueWalk;
+    /*
+     * Lists a single directory, handling the files it contains and forking
+     * a task for each of its subdirectories
+     */
+    private class DirTask extends RecursiveAction {
+        private final File directory;
+        private final int depth;
+
+        DirTask(File directory, int depth) {
+            this.directory = directory;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirTask> subTasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries =
+                     Files.newDirectoryStream(directory.toPath())) {
+                for (Path entry : entries) {
+                    if (!continueWalk) {
+                        break;
+                    }
+                    File file = entry.toFile();
+                    if (fileExclusionManager.isNameExcluded(file)) {
+                        continue;
+                    }
+
+                    BasicFileAttributes attributes = readAttributes(file);
+                    if (null == attributes) {
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        if (handleDirectory(file, attributes, depth + 1)) {
+                            DirTask subTask = new DirTask(file, depth + 1);
+                            subTask.fork();
+                            subTasks.add(subTask);
+                        }
+                    } else {
+                        handleFile(file, attributes);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Unable to list directory " +
+                            directory.getAbsolutePath() + ": " + e.getMessage());
+            }
+
+            for (DirTask subTask : subTasks) {
+                subTask.join();
+            }
+        }
     }
 
     public static DirWalker start(List<File> topDirs, FileExclusionManager fileExclusionManager) {
-        dirWalker = new DirWalker(topDirs, fileExclusionManager);
+        return start(topDirs, fileExclusionManager, DEFAULT_THREADS);
+    }
+
+    public static DirWalker start(List<File> topDirs,
+                                  FileExclusionManager fileExclusionManager,
+                                  int threads) {
+        dirWalker = new DirWalker(topDirs, fileExclusionManager, threads);
         (new Thread(dirWalker)).start();
         return dirWalker;
     }
@@ -136,7 +246,7 @@ public class DirWalker extends DirectoryWalker implements Runnable {
     }
 
     public int getFilesCount() {
-        return files;
+        return files.get();
     }
 
 }
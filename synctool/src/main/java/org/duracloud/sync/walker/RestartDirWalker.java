@@ -8,8 +8,9 @@
 package org.duracloud.sync.walker;
 
 import java.io.File;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.duracloud.sync.mgmt.FileExclusionManager;
@@ -35,9 +36,16 @@ public class RestartDirWalker extends DirWalker {
     protected RestartDirWalker(List<File> topDirs,
                                long lastBackup,
                                FileExclusionManager fileExclusionManager) {
-        super(topDirs, fileExclusionManager);
+        this(topDirs, lastBackup, fileExclusionManager, DEFAULT_THREADS);
+    }
+
+    protected RestartDirWalker(List<File> topDirs,
+                               long lastBackup,
+                               FileExclusionManager fileExclusionManager,
+                               int threads) {
+        super(topDirs, fileExclusionManager, threads);
         this.lastBackup = lastBackup;
-        changedDirs = new ArrayList<File>();
+        changedDirs = Collections.synchronizedList(new ArrayList<File>());
     }
 
     @Override
@@ -46,23 +54,24 @@ public class RestartDirWalker extends DirWalker {
 
         // Walk and add all files in directories which have changed
         if (changedDirs.size() > 0) {
-            DirWalker dirWalker = new DirWalker(changedDirs, fileExclusionManager);
+            DirWalker dirWalker =
+                new DirWalker(changedDirs, fileExclusionManager, getThreads());
             dirWalker.walkDirs();
         }
     }
 
     @Override
-    protected void handleFile(File file, int depth, Collection results) {
-        if (file.lastModified() > lastBackup) {
-            super.handleFile(file, depth, results);
+    protected void handleFile(File file, BasicFileAttributes attributes) {
+        if (attributes.lastModifiedTime().toMillis() > lastBackup) {
+            super.handleFile(file, attributes);
         }
     }
 
     @Override
     protected boolean handleDirectory(File directory,
-                                      int depth,
-                                      Collection results) {
-        if (directory.lastModified() > lastBackup) {
+                                      BasicFileAttributes attributes,
+                                      int depth) {
+        if (attributes.lastModifiedTime().toMillis() > lastBackup) {
             changedDirs.add(directory);
         }
         return true;
@@ -71,8 +80,15 @@ public class RestartDirWalker extends DirWalker {
     public static DirWalker start(List<File> topDirs,
                                   long lastBackup,
                                   FileExclusionManager fileExclusionManager) {
+        return start(topDirs, lastBackup, fileExclusionManager, DEFAULT_THREADS);
+    }
+
+    public static DirWalker start(List<File> topDirs,
+                                  long lastBackup,
+                                  FileExclusionManager fileExclusionManager,
+                                  int threads) {
         RestartDirWalker dirWalker =
-            new RestartDirWalker(topDirs, lastBackup, fileExclusionManager);
+            new RestartDirWalker(topDirs, lastBackup, fileExclusionManager, threads);
         (new Thread(dirWalker)).start();
         return dirWalker;
     }
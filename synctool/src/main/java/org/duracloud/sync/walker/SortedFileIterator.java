@@ -0,0 +1,118 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.walker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterates over the paths, relative to a directory and separated by '/',
+ * of all files within the directory tree, in String order. These are the
+ * content IDs of the files (without a prefix). If the directory is a file,
+ * the only path is the name of the file.
+ *
+ * Each directory is listed only when the walk reaches it, so only the
+ * listings of the directories along the current path are held in memory.
+ * Directories are ordered by their name followed by '/', which places all
+ * files within a directory in the same position as their full paths.
+ */
+class SortedFileIterator implements Iterator<String> {
+
+    private final Logger logger =
+        LoggerFactory.getLogger(SortedFileIterator.class);
+
+    private final Deque<Iterator<Entry>> stack = new ArrayDeque<>();
+    private String next;
+
+    SortedFileIterator(File syncDir) {
+        Path path = syncDir.toPath();
+        if (Files.isDirectory(path)) {
+            stack.push(list(path, "").iterator());
+        } else if (Files.exists(path)) {
+            stack.push(Collections.singletonList(
+                new Entry(path, syncDir.getName(), false)).iterator());
+        }
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return null != next;
+    }
+
+    @Override
+    public String next() {
+        if (null == next) {
+            throw new NoSuchElementException();
+        }
+        String current = next;
+        advance();
+        return current;
+    }
+
+    private void advance() {
+        next = null;
+        while (null == next && !stack.isEmpty()) {
+            Iterator<Entry> entries = stack.peek();
+            if (!entries.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            Entry entry = entries.next();
+            if (entry.directory) {
+                stack.push(list(entry.path, entry.key).iterator());
+            } else {
+                next = entry.key;
+            }
+        }
+    }
+
+    /*
+     * Lists the entries of a directory in order of their keys
+     */
+    private List<Entry> list(Path dir, String dirKey) {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir)) {
+            for (Path path : paths) {
+                boolean directory = Files.isDirectory(path);
+                String key = dirKey + path.getFileName().toString();
+                entries.add(new Entry(path, directory ? key + "/" : key, directory));
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to list directory " + dir + ": " + e.getMessage());
+        }
+        entries.sort((a, b) -> a.key.compareTo(b.key));
+        return entries;
+    }
+
+    private static class Entry {
+        private final Path path;
+        private final String key;
+        private final boolean directory;
+
+        Entry(Path path, String key, boolean directory) {
+            this.path = path;
+            this.key = key;
+            this.directory = directory;
+        }
+    }
+
+}
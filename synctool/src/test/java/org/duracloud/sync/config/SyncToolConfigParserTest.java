@@ -86,10 +86,15 @@ public class SyncToolConfigParserTest {
         argsMap.remove("-r");
         argsMap.remove("-i");
         argsMap.remove("-t");
+        argsMap.remove("-k");
+        argsMap.remove("-q");
+        argsMap.remove("-y");
+        argsMap.remove("-z");
         argsMap.remove("-m");
         argsMap.remove("-d");
         argsMap.remove("-l");
         argsMap.remove("-x");
+        argsMap.remove("-b");
         argsMap.remove("-w");
         argsMap.remove("-a");
         argsMap.remove("-e");
@@ -106,12 +111,23 @@ public class SyncToolConfigParserTest {
         assertNull(syncConfig.getStoreId());
         assertEquals(SyncToolConfigParser.DEFAULT_NUM_THREADS,
                      syncConfig.getNumThreads());
+        assertEquals(SyncToolConfigParser.DEFAULT_WALK_THREADS,
+                     syncConfig.getWalkThreads());
+        assertEquals(SyncToolConfigParser.DEFAULT_CHUNK_UPLOAD_THREADS,
+                     syncConfig.getChunkUploadThreads());
+        assertEquals(SyncToolConfigParser.DEFAULT_CHUNK_MEMORY *
+                     SyncToolConfigParser.MEGABYTE,
+                     syncConfig.getChunkMemoryBuffer());
+        assertEquals(SyncToolConfigParser.DEFAULT_CHUNK_DISK *
+                     SyncToolConfigParser.GIGABYTE,
+                     syncConfig.getChunkDiskBuffer());
         assertEquals(SyncToolConfigParser.DEFAULT_MAX_FILE_SIZE *
                      SyncToolConfigParser.GIGABYTE,
                      syncConfig.getMaxFileSize());
         assertEquals(false, syncConfig.syncDeletes());
         assertEquals(false, syncConfig.isCleanStart());
         assertEquals(false, syncConfig.exitOnCompletion());
+        assertFalse(syncConfig.isNativeWatch());
         assertEquals(expectedPassword, syncConfig.getPassword());
         assertNull(syncConfig.getWorkDir());
         assertNull(syncConfig.getPrefix());
@@ -134,6 +150,13 @@ public class SyncToolConfigParserTest {
         addArgFailTest(argsMap, "-r", "nonNum", failMsg);
         failMsg = "Threads arg should require a numerical value";
         addArgFailTest(argsMap, "-t", "nonNum", failMsg);
+        failMsg = "Walk threads arg should require a positive number";
+        addArgFailTest(argsMap, "-k", "nonNum", failMsg);
+        addArgFailTest(argsMap, "-k", "0", failMsg);
+        failMsg = "Chunk buffer args should require a positive number";
+        addArgFailTest(argsMap, "-q", "0", failMsg);
+        addArgFailTest(argsMap, "-y", "nonNum", failMsg);
+        addArgFailTest(argsMap, "-z", "-1", failMsg);
         failMsg = "Max file size arg should require a numerical value";
         addArgFailTest(argsMap, "-m", "nonNum", failMsg);
         failMsg = "Max file size arg should be between 1 and 5";
@@ -150,12 +173,17 @@ public class SyncToolConfigParserTest {
         argsMap.put("-i", "0");
         argsMap.put("-c", tempDir.getAbsolutePath());
         argsMap.put("-t", "5");
+        argsMap.put("-k", "8");
+        argsMap.put("-q", "2");
+        argsMap.put("-y", "32");
+        argsMap.put("-z", "1");
         argsMap.put("-u", "user");
         argsMap.put("-s", "mySpace");
         argsMap.put("-m", "2");
         argsMap.put("-d", "");
         argsMap.put("-l", "");
         argsMap.put("-x", "");
+        argsMap.put("-b", "");
         argsMap.put("-a", "prefix/");
         argsMap.put("-j", "");
         return argsMap;
@@ -175,6 +203,16 @@ public class SyncToolConfigParserTest {
                      syncConfig.getContentDirs().get(0).getAbsolutePath());
         assertEquals(argsMap.get("-t"),
                      String.valueOf(syncConfig.getNumThreads()));
+        assertEquals(argsMap.get("-k"),
+                     String.valueOf(syncConfig.getWalkThreads()));
+        assertEquals(argsMap.get("-q"),
+                     String.valueOf(syncConfig.getChunkUploadThreads()));
+        assertEquals(argsMap.get("-y"),
+                     String.valueOf(syncConfig.getChunkMemoryBuffer() /
+                                    SyncToolConfigParser.MEGABYTE));
+        assertEquals(argsMap.get("-z"),
+                     String.valueOf(syncConfig.getChunkDiskBuffer() /
+                                    SyncToolConfigParser.GIGABYTE));
         assertEquals(argsMap.get("-u"), syncConfig.getUsername());
         assertEquals(argsMap.get("-s"), syncConfig.getSpaceId());
         assertEquals(argsMap.get("-m"),
@@ -184,6 +222,7 @@ public class SyncToolConfigParserTest {
         assertEquals(true, syncConfig.syncDeletes());
         assertEquals(true, syncConfig.isCleanStart());
         assertEquals(true, syncConfig.exitOnCompletion());
+        assertTrue(syncConfig.isNativeWatch());
     }
 
     private String[] mapToArray(HashMap<String, String> map) {
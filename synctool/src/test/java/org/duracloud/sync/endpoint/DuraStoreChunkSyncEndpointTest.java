@@ -35,6 +35,7 @@ import org.duracloud.common.util.ChecksumUtil.Algorithm;
 import org.duracloud.common.util.IOUtil;
 import org.duracloud.common.util.OperationTimer;
 import org.duracloud.error.ContentStoreException;
+import org.duracloud.error.NotFoundException;
 import org.duracloud.storage.provider.StorageProvider;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
@@ -263,24 +264,24 @@ public class DuraStoreChunkSyncEndpointTest {
         int fileSize = chunkCount * chunkSize;
         int fileCount = (chunkCount + 1) * threadCount;
 
-        final Capture<InputStream> isCapture = EasyMock.newCapture();
-        final Capture<String> checksumCapture = EasyMock.newCapture();
-
+        // Chunks are uploaded concurrently, so arguments are read from the
+        // current call rather than captured
         EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
                                                 EasyMock.isA(String.class),
-                                                EasyMock.capture(isCapture),
+                                                EasyMock.isA(InputStream.class),
                                                 EasyMock.anyLong(),
                                                 EasyMock.isA(String.class),
-                                                EasyMock.capture(checksumCapture),
+                                                EasyMock.isA(String.class),
                                                 EasyMock.isA(Map.class)))
                 .andAnswer(new IAnswer<String>() {
                     @Override
                     public String answer() throws Throwable {
-                        try (InputStream is = isCapture.getValue()) {
+                        Object[] args = EasyMock.getCurrentArguments();
+                        try (InputStream is = (InputStream) args[2]) {
                             ChecksumUtil util = new ChecksumUtil(Algorithm.MD5);
                             String checksum = util.generateChecksum(is);
                             IOUtils.closeQuietly(is);
-                            if (!checksum.equals(checksumCapture.getValue())) {
+                            if (!checksum.equals(args[5])) {
                                 throw new ContentStoreException("checksum did not match");
                             }
                             return (new OperationTimer<String>("Generate the checksum") {
@@ -297,9 +298,9 @@ public class DuraStoreChunkSyncEndpointTest {
                 .andReturn(false)
                 .times(threadCount);
 
-        EasyMock.expect(contentStore.contentExists(EasyMock.eq(spaceId),
-                                                   EasyMock.isA(String.class)))
-                .andReturn(false)
+        EasyMock.expect(contentStore.getContentProperties(EasyMock.eq(spaceId),
+                                                          EasyMock.isA(String.class)))
+                .andThrow(new NotFoundException("canned-exception"))
                 .times(chunkCount * threadCount);
 
         EasyMock.expect(contentStore.getSpaceContents(spaceId, contentId + ".dura-")).andReturn(
@@ -7,16 +7,23 @@
  */
 package org.duracloud.sync.endpoint;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.duracloud.client.ContentStore;
+import org.duracloud.common.constant.ManifestFormat;
 import org.duracloud.common.util.ChecksumUtil;
+import org.duracloud.error.NotFoundException;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.After;
@@ -100,6 +107,137 @@ public class DuraStoreSyncEndpointTest {
         assertNotNull(props);
     }
 
+    @Test
+    public void testSyncFileWithRemoteIndex() throws Exception {
+        FileUtils.writeStringToFile(contentFile, "content-file");
+        String checksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum(contentFile);
+        String contentId = contentFile.getName();
+        File newFile = new File(contentFile.getParentFile(),
+                                "new-" + contentFile.getName());
+        newFile.deleteOnExit();
+        FileUtils.writeStringToFile(newFile, "new-content");
+
+        // Until the index is built in the background, properties are
+        // retrieved per item. The index is built with one listing and one
+        // manifest request, after which no per-item requests are needed.
+        EasyMock.reset(contentStore);
+        EasyMock.expect(contentStore.getStoreId()).andReturn("0");
+        List<String> listing = Arrays.asList(contentId);
+        EasyMock.expect(contentStore.getSpaceContents(spaceId))
+                .andAnswer(() -> listing.iterator())
+                .times(2);
+        String manifest = "space-id\tcontent-id\tMD5\n" +
+                          spaceId + "\t" + contentId + "\t" + checksum + "\n";
+        EasyMock.expect(contentStore.getManifest(spaceId, ManifestFormat.TSV))
+                .andReturn(new ByteArrayInputStream(manifest.getBytes()));
+        Map<String, String> props = new HashMap<>();
+        props.put(ContentStore.CONTENT_CHECKSUM, checksum);
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andReturn(props);
+        // That the new file is absent is confirmed before it is added
+        EasyMock.expect(contentStore.getContentProperties(spaceId,
+                                                          newFile.getName()))
+                .andThrow(new NotFoundException("not found"));
+        EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
+                                                EasyMock.eq(newFile.getName()),
+                                                EasyMock.isA(InputStream.class),
+                                                EasyMock.eq(newFile.length()),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(String.class),
+                                                EasyMock.isA(Map.class)))
+                .andReturn("");
+
+        replayMocks();
+        setEndpoint(null, false);
+
+        File watchDir = contentFile.getParentFile();
+        try {
+            assertEquals(SyncResultType.ALREADY_IN_SYNC,
+                         endpoint.syncFileAndReturnDetailedResult(
+                             new MonitoredFile(contentFile), watchDir));
+            endpoint.awaitRemoteIndex();
+            assertEquals(SyncResultType.ALREADY_IN_SYNC,
+                         endpoint.syncFileAndReturnDetailedResult(
+                             new MonitoredFile(contentFile), watchDir));
+            assertEquals(SyncResultType.ADDED,
+                         endpoint.syncFileAndReturnDetailedResult(
+                             new MonitoredFile(newFile), watchDir));
+            // The index reflects the added file
+            assertEquals(SyncResultType.ALREADY_IN_SYNC,
+                         endpoint.syncFileAndReturnDetailedResult(
+                             new MonitoredFile(newFile), watchDir));
+        } finally {
+            FileUtils.deleteQuietly(newFile);
+        }
+    }
+
+    @Test
+    public void testSyncFileConfirmsIndexMismatch() throws Exception {
+        FileUtils.writeStringToFile(contentFile, "content-file");
+        String checksum = new ChecksumUtil(ChecksumUtil.Algorithm.MD5)
+            .generateChecksum(contentFile);
+        String contentId = contentFile.getName();
+
+        // The manifest is out of date, the store holds the local content
+        EasyMock.reset(contentStore);
+        EasyMock.expect(contentStore.getStoreId()).andReturn("0");
+        List<String> listing = Arrays.asList(contentId);
+        EasyMock.expect(contentStore.getSpaceContents(spaceId))
+                .andAnswer(() -> listing.iterator())
+                .times(2);
+        String manifest = "space-id\tcontent-id\tMD5\n" + spaceId + "\t" +
+                          contentId + "\t" + "0123456789abcdef0123456789abcdef\n";
+        EasyMock.expect(contentStore.getManifest(spaceId, ManifestFormat.TSV))
+                .andReturn(new ByteArrayInputStream(manifest.getBytes()));
+        Map<String, String> props = new HashMap<>();
+        props.put(ContentStore.CONTENT_CHECKSUM, checksum);
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andReturn(props);
+
+        replayMocks();
+        setEndpoint(null, false);
+        endpoint.awaitRemoteIndex();
+
+        assertEquals(SyncResultType.ALREADY_IN_SYNC,
+                     endpoint.syncFileAndReturnDetailedResult(
+                         new MonitoredFile(contentFile),
+                         contentFile.getParentFile()));
+    }
+
+    @Test
+    public void testSyncFileConfirmsIndexAbsence() throws Exception {
+        FileUtils.writeStringToFile(contentFile, "content-file");
+        String contentId = contentFile.getName();
+
+        // The index is out of date, the item was added to the store after
+        // the index was built and must not be overwritten
+        EasyMock.reset(contentStore);
+        EasyMock.expect(contentStore.getStoreId()).andReturn("0");
+        EasyMock.expect(contentStore.getSpaceContents(spaceId))
+                .andAnswer(() -> new ArrayList<String>().iterator())
+                .times(2);
+        String manifest = "space-id\tcontent-id\tMD5\n";
+        EasyMock.expect(contentStore.getManifest(spaceId, ManifestFormat.TSV))
+                .andReturn(new ByteArrayInputStream(manifest.getBytes()));
+        Map<String, String> props = new HashMap<>();
+        props.put(ContentStore.CONTENT_CHECKSUM,
+                  "0123456789abcdef0123456789abcdef");
+        EasyMock.expect(contentStore.getContentProperties(spaceId, contentId))
+                .andReturn(props);
+
+        replayMocks();
+        endpoint = new DuraStoreSyncEndpoint(contentStore, username, spaceId,
+                                             false, false, false, false, null,
+                                             null);
+        endpoint.awaitRemoteIndex();
+
+        assertEquals(SyncResultType.UPDATE_IGNORED,
+                     endpoint.syncFileAndReturnDetailedResult(
+                         new MonitoredFile(contentFile),
+                         contentFile.getParentFile()));
+    }
+
     @Test
     public void testSyncJumpstart() throws Exception {
         EasyMock.expect(contentStore.addContent(EasyMock.eq(spaceId),
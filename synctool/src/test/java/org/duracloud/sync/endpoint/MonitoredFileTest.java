@@ -13,6 +13,7 @@ import static org.junit.Assert.assertNotNull;
 import java.io.File;
 
 import org.apache.commons.io.FileUtils;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.common.util.ChecksumUtil;
 import org.duracloud.common.util.MimetypeUtil;
 import org.junit.After;
@@ -64,4 +65,29 @@ public class MonitoredFileTest {
         assertEquals(1, mFile.getStreamBytesRead());
     }
 
+    @Test
+    public void testChecksumCache() throws Exception {
+        file.setLastModified(System.currentTimeMillis() - 60000);
+        File cacheFile = File.createTempFile("checksum", "cache");
+        try {
+            ChecksumCache checksumCache = new ChecksumCache(cacheFile);
+
+            // The cached value is used rather than reading the file
+            checksumCache.put(file, "cached-checksum");
+            mFile = new MonitoredFile(file, checksumCache);
+            assertEquals("cached-checksum", mFile.getChecksum());
+
+            // A change to the file means the checksum is computed again
+            FileUtils.writeStringToFile(file, "Updated file content");
+            file.setLastModified(System.currentTimeMillis() - 30000);
+            mFile = new MonitoredFile(file, checksumCache);
+            ChecksumUtil cksumUtil =
+                new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+            assertEquals(cksumUtil.generateChecksum(file), mFile.getChecksum());
+            checksumCache.close();
+        } finally {
+            FileUtils.deleteQuietly(cacheFile);
+        }
+    }
+
 }
@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ *     http://duracloud.org/license/
+ */
+package org.duracloud.sync.endpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.duracloud.common.util.ChecksumUtil;
+import org.junit.Test;
+
+/**
+ * Tests the index of remote content.
+ */
+public class RemoteContentIndexTest {
+
+    private ChecksumUtil checksumUtil =
+        new ChecksumUtil(ChecksumUtil.Algorithm.MD5);
+
+    @Test
+    public void testIndex() throws Exception {
+        RemoteContentIndex index = new RemoteContentIndex();
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                index.put("content-" + i, checksum(i));
+            } else {
+                index.add("content-" + i);
+            }
+        }
+        assertEquals(count, index.size());
+
+        for (int i = 0; i < count; i++) {
+            assertTrue(index.contains("content-" + i));
+            if (i % 2 == 0) {
+                assertEquals(checksum(i), index.getChecksum("content-" + i));
+            } else {
+                assertNull(index.getChecksum("content-" + i));
+            }
+        }
+        assertFalse(index.contains("content-" + count));
+        assertNull(index.getChecksum("content-" + count));
+
+        index.remove("content-0");
+        assertFalse(index.contains("content-0"));
+        assertNull(index.getChecksum("content-0"));
+        assertEquals(count - 1, index.size());
+
+        index.put("content-0", checksum(0));
+        assertEquals(checksum(0), index.getChecksum("content-0"));
+        assertEquals(count, index.size());
+    }
+
+    @Test
+    public void testLoadChecksums() throws Exception {
+        RemoteContentIndex index = new RemoteContentIndex();
+        index.add("dir/content\twith-tab");
+        index.add("content-1");
+
+        String manifest = "space-id\tcontent-id\tMD5\n" +
+                          "space\tdir/content\twith-tab\t" + checksum(0) + "\n" +
+                          "space\tcontent-1\tnot-a-checksum\n" +
+                          "space\tnot-listed\t" + checksum(2) + "\n";
+        int loaded = index.loadChecksums(
+            new ByteArrayInputStream(manifest.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, loaded);
+        assertEquals(checksum(0), index.getChecksum("dir/content\twith-tab"));
+        assertTrue(index.contains("content-1"));
+        assertNull(index.getChecksum("content-1"));
+        assertFalse(index.contains("not-listed"));
+    }
+
+    private String checksum(int i) {
+        return checksumUtil.generateChecksum("value-" + i);
+    }
+
+}
@@ -8,13 +8,22 @@
 package org.duracloud.sync.mgmt;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
 import org.duracloud.sync.SyncTestBase;
@@ -205,4 +214,224 @@ public class ChangedListTest extends SyncTestBase {
         Assert.assertEquals(0, changedList.getListSize());
     }
 
+    @Test
+    public void testPersistChanges() throws Exception {
+        File fileA = new File("changedListTest-a.tmp");
+        File fileB = new File("changedListTest-b.tmp");
+        File fileC = new File("changedListTest-c.tmp");
+        changedList.addChangedFile(fileA);
+        changedList.addChangedFile(fileB);
+
+        File checkpointFile = File.createTempFile("checkpoint", "file");
+        File journalFile = File.createTempFile("journal", "file");
+        journalFile.delete();
+        changedList.persist(checkpointFile, journalFile);
+        assertTrue(journalFile.exists());
+
+        // Only changes since the checkpoint are written to the journal
+        ChangedFile reservedA = changedList.reserve();
+        reservedA.remove();
+        changedList.reserve();
+        changedList.addChangedFile(fileC);
+        changedList.persistChanges(journalFile);
+        long checkpointSize = checkpointFile.length();
+        assertTrue(journalFile.length() < checkpointSize * 2);
+
+        long journalTime = System.currentTimeMillis();
+        changedList.addChangedFile(fileA);
+        changedList.persistChanges(journalFile);
+        assertEquals(checkpointSize, checkpointFile.length());
+
+        changedList.clear();
+        long backupTime =
+            changedList.restore(Arrays.asList(checkpointFile, journalFile), null);
+        assertTrue(backupTime >= journalTime);
+
+        // B was reserved but not completed, so remains to be synced
+        assertEquals(3, changedList.getListSize());
+        assertEquals(new HashSet<File>(Arrays.asList(fileA.getAbsoluteFile(),
+                                                     fileB.getAbsoluteFile(),
+                                                     fileC.getAbsoluteFile())),
+                     new HashSet<File>(changedList.peek(3)));
+
+        checkpointFile.delete();
+        journalFile.delete();
+    }
+
+    @Test
+    public void testRestoreReservedSpilledFile() throws Exception {
+        File spillDir = createTempDir("changed-list-spill");
+        changedList.setSpillConfig(spillDir, 1);
+        File checkpointFile = File.createTempFile("checkpoint", "file");
+        File journalFile = File.createTempFile("journal", "file");
+        try {
+            File fileA = new File("changedListTest-a.tmp");
+            File fileB = new File("changedListTest-b.tmp");
+            changedList.addChangedFile(fileA);
+            changedList.addChangedFile(fileB);
+            changedList.persist(checkpointFile, journalFile);
+
+            changedList.reserve();
+            changedList.reserve();
+            changedList.persistChanges(journalFile);
+
+            // B is restored to disk, its reservation is tracked regardless
+            changedList.clear();
+            changedList.restore(Arrays.asList(checkpointFile, journalFile), null);
+            assertEquals(new HashSet<File>(Arrays.asList(fileA.getAbsoluteFile(),
+                                                         fileB.getAbsoluteFile())),
+                         new HashSet<File>(Arrays.asList(
+                             changedList.reserve().getFile(),
+                             changedList.reserve().getFile())));
+        } finally {
+            changedList.clear();
+            changedList.setSpillConfig(null, ChangedList.DEFAULT_MAX_IN_MEMORY);
+            checkpointFile.delete();
+            journalFile.delete();
+        }
+    }
+
+    @Test
+    public void testRestoreSerializedBackup() throws Exception {
+        LinkedHashMap<String, ChangedFile> fileList = new LinkedHashMap<>();
+        fileList.put(changedFile.getAbsolutePath(), new ChangedFile(changedFile));
+        File persistFile = File.createTempFile("persist", "file");
+        try (ObjectOutputStream out =
+                 new ObjectOutputStream(new FileOutputStream(persistFile))) {
+            out.writeObject(fileList);
+        }
+
+        assertEquals(-1, changedList.restore(persistFile, null));
+        assertEquals(changedFile.getAbsolutePath(),
+                     changedList.reserve().getFile().getAbsolutePath());
+        persistFile.delete();
+    }
+
+    @Test
+    public void testSpillToDisk() throws Exception {
+        File spillDir = createTempDir("changed-list-spill");
+        changedList.setSpillConfig(spillDir, 10);
+        try {
+            int fileCount = 25;
+            List<File> files = new ArrayList<File>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                File f = new File("changedListTest-" + i + ".tmp");
+                files.add(f);
+                changedList.addChangedFile(f);
+            }
+            // A file held in memory is replaced rather than added again
+            changedList.addChangedFile(files.get(0));
+
+            assertEquals(fileCount, changedList.getListSize());
+            assertTrue(new File(spillDir, ChangedList.SPILL_FILE_NAME).exists());
+            assertEquals(files.subList(0, 5), changedList.peek(5));
+
+            File persistFile = File.createTempFile("persist", "file");
+            changedList.persist(persistFile);
+
+            // Files are reserved in the order in which they were added
+            for (int i = 0; i < fileCount; i++) {
+                assertEquals(files.get(i).getAbsolutePath(),
+                             changedList.reserve().getFile().getAbsolutePath());
+                assertEquals(fileCount - i - 1, changedList.getListSize());
+            }
+            assertNull(changedList.reserve());
+            assertFalse(new File(spillDir, ChangedList.SPILL_FILE_NAME).exists());
+
+            // Files on disk are included in a backup
+            changedList.restore(persistFile, null);
+            assertEquals(fileCount, changedList.getListSize());
+            persistFile.delete();
+        } finally {
+            changedList.clear();
+            changedList.setSpillConfig(null, ChangedList.DEFAULT_MAX_IN_MEMORY);
+        }
+    }
+
+    @Test
+    public void testSpillReplacesFileOnDisk() throws Exception {
+        File spillDir = createTempDir("changed-list-spill");
+        changedList.setSpillConfig(spillDir, 2);
+        File persistFile = File.createTempFile("persist", "file");
+        try {
+            List<File> files = new ArrayList<File>();
+            for (int i = 0; i < 6; i++) {
+                File f = new File("changedListTest-" + i + ".tmp");
+                files.add(f.getAbsoluteFile());
+                changedList.addChangedFile(f);
+            }
+            // Files on disk are replaced rather than added again
+            changedList.addChangedFile(files.get(3));
+            changedList.addChangedFile(files.get(4));
+            assertEquals(6, changedList.getListSize());
+
+            // Files already taken from disk are not included in a backup
+            Set<File> reserved = new HashSet<File>();
+            for (int i = 0; i < 3; i++) {
+                ChangedFile changedFile = changedList.reserve();
+                reserved.add(changedFile.getFile().getAbsoluteFile());
+                changedList.remove(changedFile);
+            }
+            changedList.persist(persistFile);
+            changedList.clear();
+            changedList.restore(persistFile, null);
+            assertEquals(3, changedList.getListSize());
+
+            ChangedFile changedFile;
+            while ((changedFile = changedList.reserve()) != null) {
+                assertTrue(reserved.add(changedFile.getFile().getAbsoluteFile()));
+            }
+            assertEquals(new HashSet<File>(files), reserved);
+            assertFalse(new File(spillDir, ChangedList.SPILL_FILE_NAME).exists());
+        } finally {
+            changedList.clear();
+            changedList.setSpillConfig(null, ChangedList.DEFAULT_MAX_IN_MEMORY);
+            persistFile.delete();
+        }
+    }
+
+    @Test
+    public void testReserveWait() throws Exception {
+        long start = System.currentTimeMillis();
+        assertNull(changedList.reserve(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 50);
+
+        // A waiting reserve returns as soon as a file is added
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            changedList.addChangedFile(changedFile);
+        }).start();
+        ChangedFile retrievedFile = changedList.reserve(10, TimeUnit.SECONDS);
+        assertEquals(changedFile.getAbsolutePath(),
+                     retrievedFile.getFile().getAbsolutePath());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test
+    public void testListenerNotification() throws Exception {
+        AtomicInteger events = new AtomicInteger();
+        CountDownLatch notified = new CountDownLatch(1);
+        ChangedListListener listener = list -> {
+            events.incrementAndGet();
+            notified.countDown();
+        };
+        Thread.sleep(ChangedList.EVENT_INTERVAL_MILLIS);
+        changedList.addListener(listener);
+        try {
+            // Changes made within an interval are combined
+            for (int i = 0; i < 100; i++) {
+                changedList.addChangedFile(new File("changedListTest-" + i + ".tmp"));
+            }
+            assertTrue(notified.await(5, TimeUnit.SECONDS));
+            Thread.sleep(ChangedList.EVENT_INTERVAL_MILLIS * 2);
+            assertTrue(events.get() >= 1 && events.get() <= 3);
+        } finally {
+            changedList.removeListener(listener);
+        }
+    }
+
 }
@@ -13,6 +13,7 @@ import static junit.framework.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -115,6 +116,29 @@ public class FileExclusionManagerTest {
         assertFalse(testExcluded(testPath, fileWildStar));
     }
 
+    @Test
+    public void testCompiledRules() {
+        FileExclusionManager fem = new FileExclusionManager(
+            Arrays.asList("", "a*b?c", "*.tmp", "x.y+z", "Cache"));
+
+        assertTrue(fem.isExcluded(new File("dir/aXXbYc")));
+        assertFalse(fem.isExcluded(new File("dir/aXXbc")));
+        assertTrue(fem.isExcluded(new File("dir/FILE.TMP")));
+        // Characters other than wildcards are matched literally
+        assertTrue(fem.isExcluded(new File("dir/x.y+z")));
+        assertFalse(fem.isExcluded(new File("dir/xAy+z")));
+        // An empty rule does not match the root directory
+        assertFalse(fem.isExcluded(new File("/dir/file.txt").getAbsoluteFile()));
+
+        // Directory verdicts are reused across files
+        assertTrue(fem.isExcluded(new File("top/cache/sub/file-1.txt")));
+        assertTrue(fem.isExcluded(new File("top/cache/sub/file-2.txt")));
+        assertFalse(fem.isExcluded(new File("top/caches/sub/file-1.txt")));
+
+        assertTrue(fem.isNameExcluded(new File("cache")));
+        assertFalse(fem.isNameExcluded(new File("cache/file.txt")));
+    }
+
     private boolean testExcluded(String test,
                                  String... rules) {
 
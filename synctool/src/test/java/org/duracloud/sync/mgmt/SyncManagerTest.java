@@ -9,11 +9,15 @@ package org.duracloud.sync.mgmt;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.sync.SyncTestBase;
@@ -89,6 +93,50 @@ public class SyncManagerTest extends SyncTestBase {
         }
     }
 
+    @Test
+    public void testGetFilesInTransfer() throws Exception {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        List<File> watchDirs = new ArrayList<File>();
+        watchDirs.add(tempDir);
+
+        CountDownLatch release = new CountDownLatch(1);
+        SyncManager syncManager =
+            new SyncManager(watchDirs, new TestEndpoint() {
+                @Override
+                public SyncResultType syncFileAndReturnDetailedResult(
+                    MonitoredFile monitoredFile, File watchDir) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return SyncResultType.ADDED;
+                }
+            }, 2, 100);
+
+        File file1 = new File(tempDir, "test-file-1");
+        File file2 = new File(tempDir, "test-file-2");
+        assertTrue(syncManager.handleChangedFile(new ChangedFile(file1)));
+        assertTrue(syncManager.handleChangedFile(new ChangedFile(file2)));
+
+        Set<String> inTransfer = new HashSet<>();
+        for (MonitoredFile file : syncManager.getFilesInTransfer()) {
+            inTransfer.add(file.getAbsolutePath());
+        }
+        assertEquals(2, inTransfer.size());
+        assertTrue(inTransfer.contains(file1.getAbsolutePath()));
+        assertTrue(inTransfer.contains(file2.getAbsolutePath()));
+
+        // Completed workers are removed
+        release.countDown();
+        for (int i = 0; i < 20 && !syncManager.getFilesInTransfer().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, syncManager.getFilesInTransfer().size());
+
+        syncManager.endSync();
+    }
+
     @Test
     public void testGetWatchDir() throws Exception {
         File tempDir1 = new File("/a/b");
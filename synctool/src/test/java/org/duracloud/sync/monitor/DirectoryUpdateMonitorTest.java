@@ -13,10 +13,14 @@ import static junit.framework.Assert.assertNull;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.monitor.FileAlterationListener;
 import org.duracloud.sync.SyncTestBase;
 import org.duracloud.sync.mgmt.ChangedFile;
 import org.junit.After;
@@ -117,6 +121,133 @@ public class DirectoryUpdateMonitorTest extends SyncTestBase {
         monitor.stopMonitor();
     }
 
+    @Test
+    public void testDirectoryUpdateMonitorNativeWatch() throws Exception {
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(tempDir);
+
+        DirectoryUpdateMonitor monitor =
+            new DirectoryUpdateMonitor(dirs, 100, true, true);
+        monitor.startMonitor();
+
+        // Create file
+        File tempFile = File.createTempFile("temp", "file", tempDir);
+        checkFileInChangedList(tempFile);
+
+        // Update file
+        FileWriter writer = new FileWriter(tempFile);
+        writer.write("test");
+        writer.close();
+        checkFileInChangedList(tempFile);
+
+        // Create file in a new directory, which is then watched
+        File subDir = new File(tempDir, "sub-dir");
+        subDir.mkdir();
+        File subFile = new File(subDir, "sub-file");
+        FileUtils.writeStringToFile(subFile, "test");
+        checkFileInChangedList(subFile);
+
+        FileUtils.writeStringToFile(subFile, "update");
+        checkFileInChangedList(subFile);
+
+        // Delete file
+        tempFile.delete();
+        checkFileInChangedList(tempFile);
+
+        monitor.stopMonitor();
+
+        // No changes are reported once stopped
+        FileUtils.writeStringToFile(subFile, "stopped");
+        checkFileNotInChangedList(subFile);
+    }
+
+    @Test
+    public void testDirectoryUpdateMonitorNativeWatchNoDeletes() throws Exception {
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(tempDir);
+
+        DirectoryUpdateMonitor monitor =
+            new DirectoryUpdateMonitor(dirs, 100, false, true);
+        monitor.startMonitor();
+
+        // Create file
+        File tempFile = File.createTempFile("temp", "file", tempDir);
+        checkFileInChangedList(tempFile);
+
+        // Delete file
+        tempFile.delete();
+        checkFileNotInChangedList(tempFile);
+
+        monitor.stopMonitor();
+    }
+
+    @Test
+    public void testDirectoryUpdateMonitorNativeWatchFailure() throws Exception {
+        File subDir = new File(tempDir, "unwatchable");
+        subDir.mkdir();
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(tempDir);
+
+        // The directory below the root cannot be watched, so the whole
+        // tree is polled
+        DirectoryUpdateMonitor monitor =
+            createFailingMonitor(dirs, subDir.getName());
+        monitor.startMonitor();
+
+        File subFile = new File(subDir, "sub-file");
+        FileUtils.writeStringToFile(subFile, "test");
+        checkFileInChangedList(subFile);
+
+        monitor.stopMonitor();
+    }
+
+    @Test
+    public void testDirectoryUpdateMonitorNativeWatchNewDirFailure() throws Exception {
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(tempDir);
+
+        DirectoryUpdateMonitor monitor = createFailingMonitor(dirs, "unwatchable");
+        monitor.startMonitor();
+
+        // A new directory which cannot be watched is polled
+        File subDir = new File(tempDir, "unwatchable");
+        subDir.mkdir();
+        Thread.sleep(500);
+        File subFile = new File(subDir, "sub-file");
+        FileUtils.writeStringToFile(subFile, "test");
+        checkFileInChangedList(subFile);
+
+        FileUtils.writeStringToFile(subFile, "update");
+        checkFileInChangedList(subFile);
+
+        monitor.stopMonitor();
+    }
+
+    /*
+     * Creates a monitor using native watching, in which directories with
+     * the given name cannot be registered
+     */
+    private DirectoryUpdateMonitor createFailingMonitor(List<File> dirs,
+                                                        String failDirName) {
+        return new DirectoryUpdateMonitor(dirs, 100, true, true) {
+            @Override
+            protected DirectoryWatcher createWatcher(File watchDir,
+                                                     FileAlterationListener listener,
+                                                     Consumer<File> handler)
+                throws IOException {
+                return new DirectoryWatcher(watchDir, listener, handler) {
+                    @Override
+                    protected void register(Path dir) throws IOException {
+                        if (dir.getFileName().toString().equals(failDirName)) {
+                            throw new IOException("Watch limit reached");
+                        }
+                        super.register(dir);
+                    }
+                };
+            }
+        };
+    }
+
     private void checkFileInChangedList(File file) throws Exception {
         Thread.sleep(1000);
         ChangedFile changedFile = changedList.reserve();
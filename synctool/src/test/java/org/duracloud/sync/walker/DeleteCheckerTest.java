@@ -7,8 +7,11 @@
  */
 package org.duracloud.sync.walker;
 
+import static junit.framework.Assert.assertEquals;
+
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -138,4 +141,67 @@ public class DeleteCheckerTest extends SyncTestBase {
         deleteChecker.run();
     }
 
+    /*
+     * Verifies that:
+     * 1. Files in nested directories of several content dirs are matched
+     *    with the sorted endpoint listing
+     * 2. Items missing locally, including items listed out of order, are
+     *    deleted, and the number of deletes is reported
+     */
+    @Test
+    public void testDeleteCheckerSortedMerge() throws Exception {
+        File otherDir = createTempDir("delete-check-other");
+        try {
+            FileUtils.write(new File(tempDir, "a/b/file1"), "data");
+            FileUtils.write(new File(tempDir, "a-file2"), "data");
+            FileUtils.write(new File(otherDir, "a/c/file3"), "data");
+            FileUtils.write(new File(otherDir, "z-file4"), "data");
+
+            // Sorted, apart from the final item
+            List<String> filesList =
+                Arrays.asList("a-deleted1", "a-file2", "a/b/file1",
+                              "a/b/zz-deleted2", "a/c/file3", "m-deleted3",
+                              "z-file4", "a/b/deleted4");
+
+            EasyMock.expect(syncEndpoint.getFilesList())
+                    .andReturn(filesList.iterator());
+            for (String deleted : Arrays.asList("a-deleted1", "a/b/zz-deleted2",
+                                                "m-deleted3", "a/b/deleted4")) {
+                syncEndpoint.deleteContent(spaceId, deleted);
+                EasyMock.expectLastCall().once();
+            }
+
+            replayMocks();
+
+            DeleteChecker deleteChecker =
+                new DeleteChecker(syncEndpoint, spaceId,
+                                  Arrays.asList(tempDir, otherDir), null);
+            deleteChecker.run();
+            assertEquals(4, deleteChecker.getDeleteCount());
+            assertEquals(4, deleteChecker.getDeletedCount());
+        } finally {
+            FileUtils.deleteDirectory(otherDir);
+        }
+    }
+
+    /*
+     * Verifies that a dry run counts but does not delete items
+     */
+    @Test
+    public void testDeleteCheckerDryRun() throws Exception {
+        List<String> filesList = Arrays.asList("deletedFile1", "deletedFile2");
+
+        EasyMock.expect(syncEndpoint.getFilesList())
+                .andReturn(filesList.iterator());
+
+        replayMocks();
+
+        DeleteChecker deleteChecker =
+            new DeleteChecker(syncEndpoint, spaceId, Arrays.asList(tempDir), null);
+        deleteChecker.setDryRun(true);
+        deleteChecker.run();
+        assertEquals(2, deleteChecker.getDeleteCount());
+        assertEquals(0, deleteChecker.getDeletedCount());
+    }
+
 }
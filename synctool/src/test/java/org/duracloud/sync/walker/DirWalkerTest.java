@@ -15,6 +15,7 @@ import static org.easymock.EasyMock.isA;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -39,6 +40,7 @@ public class DirWalkerTest extends SyncTestBase {
     public void testDirWalker() {
         fileExclusionManager = createMock(FileExclusionManager.class);
         expect(fileExclusionManager.isExcluded(isA(File.class))).andReturn(false).times(2, Integer.MAX_VALUE);
+        expect(fileExclusionManager.isNameExcluded(isA(File.class))).andReturn(false).anyTimes();
         File checkDir = new File("src");
         List<File> dirs = new ArrayList<File>();
         dirs.add(checkDir);
@@ -76,6 +78,30 @@ public class DirWalkerTest extends SyncTestBase {
         assertEquals(0, dirWalker.getFilesCount());
     }
 
+    @Test
+    public void testDirWalkerPrunesExcludedDirs() throws Exception {
+        File checkDir = createTempDir("dir-walker-prune");
+        File excludedDir = new File(checkDir, "excluded");
+        File includedDir = new File(checkDir, "included");
+        FileUtils.write(new File(excludedDir, "file-1.txt"), "data");
+        FileUtils.write(new File(excludedDir, "sub/file-2.txt"), "data");
+        FileUtils.write(new File(includedDir, "file-3.txt"), "data");
+        FileUtils.write(new File(includedDir, "file-4.log"), "data");
+
+        try {
+            fileExclusionManager =
+                new FileExclusionManager(Arrays.asList("excl*", "*.log"));
+            replayAll();
+            DirWalker dirWalker = createDirWalker(Arrays.asList(checkDir));
+
+            assertEquals(1, dirWalker.getFilesCount());
+            assertEquals(new File(includedDir, "file-3.txt").getAbsolutePath(),
+                         changedList.reserve().getFile().getAbsolutePath());
+        } finally {
+            FileUtils.deleteDirectory(checkDir);
+        }
+    }
+
     protected DirWalker createDirWalker(List<File> dirs) {
         DirWalker dirWalker = new DirWalker(dirs, fileExclusionManager);
         assertFalse(dirWalker.walkComplete());
@@ -20,6 +20,7 @@ import org.apache.commons.lang3.event.EventListenerSupport;
 import org.duracloud.client.ContentStore;
 import org.duracloud.client.ContentStoreManager;
 import org.duracloud.common.model.Credential;
+import org.duracloud.common.util.ChecksumCache;
 import org.duracloud.error.ContentStoreException;
 import org.duracloud.sync.backup.SyncBackupManager;
 import org.duracloud.sync.endpoint.DuraStoreChunkSyncEndpoint;
@@ -56,6 +57,7 @@ import org.springframework.stereotype.Component;
 public class SyncProcessManagerImpl implements SyncProcessManager {
     private static final int CHANGE_LIST_MONITOR_FREQUENCY = 5000;
     private static final int BACKUP_FREQUENCY = 5 * 60 * 1000;
+    private static final String CHECKSUM_CACHE_FILE = "checksum-cache.tsv";
 
     private static Logger log =
         LoggerFactory.getLogger(SyncProcessManagerImpl.class);
@@ -73,6 +75,7 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
     private SyncProcessStateTransitionValidator syncProcessStateTransitionValidator;
 
     private SyncManager syncManager;
+    private ChecksumCache checksumCache;
     private DirWalker dirWalker;
     private DirectoryUpdateMonitor dirMonitor;
     private DeleteChecker deleteChecker;
@@ -149,6 +152,9 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
 
         ChangedList.getInstance()
                    .addListener(this.changedListListener = new InternalChangedListListener());
+        ChangedList.getInstance()
+                   .setSpillConfig(syncConfigurationManager.getWorkDirectory(),
+                                   ChangedList.DEFAULT_MAX_IN_MEMORY);
 
     }
 
@@ -325,9 +331,13 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
                 backup = syncBackupManager.attemptRestart();
             }
 
+            checksumCache =
+                new ChecksumCache(new File(syncConfigurationManager.getWorkDirectory(),
+                                           CHECKSUM_CACHE_FILE));
             syncManager = new SyncManager(dirs, syncEndpoint,
                                           this.syncConfigurationManager.getThreadCount(), // threads
-                                          CHANGE_LIST_MONITOR_FREQUENCY); // change list poll frequency
+                                          CHANGE_LIST_MONITOR_FREQUENCY, // change list poll frequency
+                                          checksumCache);
             syncManager.beginSync();
 
             RunMode mode = this.syncConfigurationManager.getMode();
@@ -444,6 +454,10 @@ public class SyncProcessManagerImpl implements SyncProcessManager {
             this.dirWalker.stopWalk();
         }
 
+        if (this.checksumCache != null) {
+            this.checksumCache.close();
+        }
+
     }
 
     private void resetChangeList() {